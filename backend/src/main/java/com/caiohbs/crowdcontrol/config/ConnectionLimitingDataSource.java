@@ -0,0 +1,126 @@
+package com.caiohbs.crowdcontrol.config;
+
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caps how many connections may be checked out of a pool at once. Callers
+ * queue on a fair semaphore before they reach the pool, so thousands of
+ * virtual threads wait their turn in order instead of all contending inside
+ * the pool, and give up after a bounded wait. A permit is held until the
+ * connection is closed.
+ */
+public class ConnectionLimitingDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+    private final Duration timeout;
+
+    public ConnectionLimitingDataSource(DataSource targetDataSource, int maxConnections, Duration timeout) {
+        super(targetDataSource);
+        this.permits = new Semaphore(maxConnections, true);
+        this.timeout = timeout;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        return limited(() -> super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        return limited(() -> super.getConnection(username, password));
+    }
+
+    /**
+     * The number of connections that can still be checked out right away.
+     */
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * An estimate of the number of callers waiting for a connection.
+     */
+    public int queuedThreads() {
+        return permits.getQueueLength();
+    }
+
+    private void acquire() throws SQLException {
+
+        try {
+            if (!permits.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException(
+                        "No database connection available within " + timeout.toMillis() + "ms."
+                );
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted waiting for a database connection.", e);
+        }
+
+    }
+
+    /**
+     * Opens a connection under the permit just acquired, returning one that
+     * gives the permit back when closed (once, however often it is closed).
+     */
+    private Connection limited(ConnectionOpener opener) throws SQLException {
+
+        Connection connection;
+        try {
+            connection = opener.open();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+                ConnectionProxy.class.getClassLoader(), new Class<?>[]{ConnectionProxy.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "getTargetConnection":
+                            return connection;
+                        case "close":
+                            if (released.compareAndSet(false, true)) {
+                                try {
+                                    connection.close();
+                                } finally {
+                                    permits.release();
+                                }
+                            }
+                            return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                }
+        );
+
+    }
+
+    @FunctionalInterface
+    private interface ConnectionOpener {
+        Connection open() throws SQLException;
+    }
+
+}
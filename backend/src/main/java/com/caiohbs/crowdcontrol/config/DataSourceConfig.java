@@ -0,0 +1,108 @@
+package com.caiohbs.crowdcontrol.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration class for splitting database traffic between the primary and
+ * one or more read replicas. Only active when at least one replica is
+ * configured under {@code crowdcontrol.datasource.replicas}; otherwise Spring
+ * Boot's single {@code spring.datasource} is used as before.
+ */
+@Configuration
+@ConditionalOnProperty(prefix="crowdcontrol.datasource", name="replicas[0].url")
+public class DataSourceConfig {
+
+    /**
+     * Connection details of a single replica.
+     */
+    public record ReplicaProperties(String url, String username, String password) {
+    }
+
+    private final List<HikariDataSource> replicaPools = new ArrayList<>();
+
+    /**
+     * Creates the connection pool for the primary database, configured from
+     * {@code spring.datasource}.
+     *
+     * @param properties the {@code spring.datasource} properties.
+     * @return the primary {@link HikariDataSource}.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    /**
+     * Creates the {@link DataSource} used by the application, routing
+     * read-only transactions to the replicas and the rest to the primary.
+     *
+     * @param primaryDataSource   the primary connection pool.
+     * @param environment         the environment holding the replica settings.
+     * @param readYourWritesGuard the guard keeping recent writers on the primary.
+     * @return the routing {@link DataSource}.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            HikariDataSource primaryDataSource, Environment environment,
+            ReadYourWritesGuard readYourWritesGuard
+    ) {
+
+        List<ReplicaProperties> replicaProperties = Binder.get(environment)
+                .bind("crowdcontrol.datasource.replicas", Bindable.listOf(ReplicaProperties.class))
+                .orElse(List.of());
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaProperties.size(); i++) {
+            ReplicaProperties replica = replicaProperties.get(i);
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(replica.url())
+                    .username(replica.username())
+                    .password(replica.password())
+                    .build();
+            dataSource.setPoolName("replica-" + i);
+            dataSource.setReadOnly(true);
+            replicaPools.add(dataSource);
+            replicas.add(dataSource);
+        }
+
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(
+                primaryDataSource, replicas, readYourWritesGuard
+        );
+        routingDataSource.afterPropertiesSet();
+
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+
+    }
+
+    /**
+     * Closes the replica pools, which are not beans themselves and would
+     * otherwise be left open on shutdown.
+     */
+    @PreDestroy
+    public void closeReplicaPools() {
+        replicaPools.forEach(HikariDataSource::close);
+    }
+
+}
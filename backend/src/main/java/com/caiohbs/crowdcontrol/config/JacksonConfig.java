@@ -0,0 +1,28 @@
+package com.caiohbs.crowdcontrol.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration class for the application's single {@code ObjectMapper},
+ * built by Spring Boot and shared by the controllers and every bean that
+ * needs JSON. Modules declared here are registered on it.
+ */
+@Configuration
+public class JacksonConfig {
+
+    /**
+     * Creates the Blackbird module, which replaces Jackson's reflective calls
+     * to getters, setters and constructors (the DTO records' accessors
+     * included) with generated lambdas, speeding up large list responses.
+     *
+     * @return a new instance of {@link BlackbirdModule}.
+     */
+    @Bean
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+
+}
@@ -32,12 +32,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final ObjectMapper objectMapper;
 
     public JwtAuthenticationFilter(
-            JwtService jwtService, UserDetailsService userDetailsService
+            JwtService jwtService, UserDetailsService userDetailsService, ObjectMapper objectMapper
     ) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -107,7 +109,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             HttpServletResponse response, String message
     ) throws IOException {
 
-        ObjectMapper objectMapper = new ObjectMapper();
         String jsonResponse = objectMapper.writeValueAsString(
                 new GenericValidResponse(message)
         );
@@ -0,0 +1,64 @@
+package com.caiohbs.crowdcontrol.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which users wrote to the primary database recently. Replicas lag
+ * slightly behind the primary, so a user reading right after their own write
+ * could otherwise get stale data back; while the window is open, their
+ * read-only transactions stay on the primary.
+ */
+@Component
+public class ReadYourWritesGuard {
+
+    private static final int PRUNE_THRESHOLD = 10_000;
+
+    private final Map<Long, Long> primaryReadsUntil = new ConcurrentHashMap<>();
+    private final long windowNanos;
+
+    public ReadYourWritesGuard(
+            @Value("${crowdcontrol.datasource.read-your-writes-window:PT5S}") Duration window
+    ) {
+        this.windowNanos = window.toNanos();
+    }
+
+    /**
+     * Records that the authenticated user (if any) is writing to the primary.
+     */
+    public void recordWrite() {
+        Long userId = SecurityUtils.getAuthUserId();
+        if (userId == null) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        primaryReadsUntil.put(userId, now + windowNanos);
+
+        if (primaryReadsUntil.size() > PRUNE_THRESHOLD) {
+            primaryReadsUntil.values().removeIf(until -> until - now < 0);
+        }
+    }
+
+    /**
+     * Checks whether the authenticated user wrote recently enough that their
+     * reads must be served by the primary.
+     *
+     * @return {@code true} if reads must go to the primary, {@code false} if a
+     * replica may serve them.
+     */
+    public boolean mustReadFromPrimary() {
+        Long userId = SecurityUtils.getAuthUserId();
+        if (userId == null) {
+            return false;
+        }
+
+        Long until = primaryReadsUntil.get(userId);
+        return until != null && until - System.nanoTime() > 0;
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.caiohbs.crowdcontrol.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes read-only transactions to the replica pools, in round-robin order,
+ * and everything else to the primary. Must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy},
+ * otherwise the connection is taken before the transaction is flagged as
+ * read-only and every transaction lands on the primary.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    private final List<String> replicaKeys = new ArrayList<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final ReadYourWritesGuard readYourWritesGuard;
+
+    public ReplicaRoutingDataSource(
+            DataSource primary, List<DataSource> replicas,
+            ReadYourWritesGuard readYourWritesGuard
+    ) {
+        this.readYourWritesGuard = readYourWritesGuard;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            String key = "replica-" + i;
+            replicaKeys.add(key);
+            targets.put(key, replicas.get(i));
+        }
+
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                readYourWritesGuard.recordWrite();
+            }
+            return PRIMARY;
+        }
+
+        if (replicaKeys.isEmpty() || readYourWritesGuard.mustReadFromPrimary()) {
+            return PRIMARY;
+        }
+
+        return replicaKeys.get(
+                Math.floorMod(nextReplica.getAndIncrement(), replicaKeys.size())
+        );
+
+    }
+
+}
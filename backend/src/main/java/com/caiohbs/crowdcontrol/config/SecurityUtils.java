@@ -2,6 +2,7 @@ package com.caiohbs.crowdcontrol.config;
 
 import com.caiohbs.crowdcontrol.model.User;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 
@@ -51,4 +52,23 @@ public class SecurityUtils {
 
     }
 
+    /**
+     * Checks whether the authenticated user has been granted an authority,
+     * for endpoints whose results depend on it.
+     *
+     * @param authority The name of the authority (e.g. "READ_GENERAL").
+     * @return True if the user is authenticated and has the authority.
+     */
+    public static boolean hasAuthority(String authority) {
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return false;
+        }
+        return authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(authority::equals);
+
+    }
+
 }
\ No newline at end of file
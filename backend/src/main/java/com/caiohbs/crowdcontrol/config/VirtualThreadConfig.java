@@ -0,0 +1,55 @@
+package com.caiohbs.crowdcontrol.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Configuration class for serving requests on virtual threads, active when
+ * {@code spring.threads.virtual.enabled} is set. Spring Boot then runs Tomcat,
+ * {@code @Scheduled} methods and the application task executor on virtual
+ * threads; this class keeps the much larger number of concurrent requests
+ * from stampeding the database.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    /**
+     * Wraps the application's {@link DataSource} (the single pool, or the
+     * router in front of the replicas) in a {@link ConnectionLimitingDataSource}
+     * allowing as many concurrent connections as the primary pool holds.
+     *
+     * @param environment the environment holding the pool settings.
+     * @return the {@link BeanPostProcessor} wrapping the data source.
+     */
+    @Bean
+    static BeanPostProcessor connectionLimitingPostProcessor(Environment environment) {
+
+        int maxConnections = environment.getProperty(
+                "crowdcontrol.vars.DB_MAX_CONCURRENT_CONNECTIONS", Integer.class,
+                environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10)
+        );
+        Duration timeout = environment.getProperty(
+                "crowdcontrol.vars.DB_CONNECTION_WAIT_TIMEOUT", Duration.class, Duration.ofSeconds(5)
+        );
+
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && beanName.equals("dataSource")) {
+                    return new ConnectionLimitingDataSource(dataSource, maxConnections, timeout);
+                }
+                return bean;
+            }
+        };
+
+    }
+
+}
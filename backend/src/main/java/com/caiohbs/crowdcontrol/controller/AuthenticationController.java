@@ -2,10 +2,8 @@ package com.caiohbs.crowdcontrol.controller;
 
 import com.caiohbs.crowdcontrol.dto.UserUpdateDTO;
 import com.caiohbs.crowdcontrol.model.*;
-import com.caiohbs.crowdcontrol.repository.EmailCodeRepository;
 import com.caiohbs.crowdcontrol.repository.UserRepository;
 import com.caiohbs.crowdcontrol.service.AccManagementService;
-import com.caiohbs.crowdcontrol.service.EmailSenderService;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -17,17 +15,12 @@ import java.util.Optional;
 public class AuthenticationController {
 
     private final AccManagementService accManagementService;
-    private final EmailSenderService emailSenderService;
-    private final EmailCodeRepository emailCodeRepository;
     private final UserRepository userRepository;
 
     public AuthenticationController(
             AccManagementService accManagementService,
-            EmailSenderService emailSenderService,
-            EmailCodeRepository emailCodeRepository, UserRepository userRepository) {
+            UserRepository userRepository) {
         this.accManagementService = accManagementService;
-        this.emailSenderService = emailSenderService;
-        this.emailCodeRepository = emailCodeRepository;
         this.userRepository = userRepository;
     }
 
@@ -81,7 +74,8 @@ public class AuthenticationController {
      *
      * @param userEmail The email registered as owner of the account.
      * @return A {@link ResponseEntity} with code 200 - OK if the email passes
-     * the checks, or code 400 - BAD REQUEST if it doesn't.
+     * the checks, or code 400 - BAD REQUEST if it doesn't. If the e-mail can't
+     * be queued, code 503 - SERVICE UNAVAILABLE with a Retry-After header.
      */
     @GetMapping(path="/acc-recovery/{userEmail}")
     public ResponseEntity<GenericValidResponse> recovery(
@@ -98,11 +92,7 @@ public class AuthenticationController {
 
         User user = findUser.get();
 
-        String code = accManagementService.createEmailCode(user, "RECOV_PASS");
-
-        new Thread(() -> emailSenderService.sendEmail(
-                user.getUsername(), "RECOV_PASS", code)
-        ).start();
+        accManagementService.sendEmailCode(user, "RECOV_PASS");
 
         return ResponseEntity.ok(
                 new GenericValidResponse("A password recovery e-mail was sent. " +
@@ -128,13 +118,7 @@ public class AuthenticationController {
             @RequestBody UserUpdateDTO updateDTO
     ) {
 
-        if (!accManagementService.isEmailCodeValid(code)) {
-            return ResponseEntity.badRequest().body(
-                    new GenericValidResponse("Invalid email code.")
-            );
-        }
-
-        User user = emailCodeRepository.findByEmailCode(code).getUser();
+        User user = accManagementService.consumeEmailCode(code, EmailType.RECOV_PASS);
         accManagementService.resetPassword(user, updateDTO);
 
         return ResponseEntity.ok(new GenericValidResponse("Password reset successful."));
@@ -149,18 +133,15 @@ public class AuthenticationController {
      *             be enabled just as any other users.
      * @return A {@link ResponseEntity} with code 200 - OK if the endpoint is
      * being accessed for the first time and validation passes, or code 400 - BAD
-     * REQUEST if the endpoint was successfully accessed before.
+     * REQUEST if the endpoint was successfully accessed before. If the e-mail
+     * can't be queued, nothing is created and code 503 - SERVICE UNAVAILABLE
+     * with a Retry-After header is returned.
      */
     @PostMapping("/create-super-user")
     public ResponseEntity<GenericValidResponse> createSuperUser(
             @Valid @RequestBody User user
     ) {
         accManagementService.createSuperUser(user);
-        String code = accManagementService.createEmailCode(user, "ENABLE_ACC");
-
-        new Thread(() -> emailSenderService.sendEmail(
-                user.getUsername(), "ENABLE_ACC", code)
-        ).start();
 
         return ResponseEntity.ok(new GenericValidResponse(
                 "Super user created successfully. Please enable it through the e-mail."
@@ -0,0 +1,36 @@
+package com.caiohbs.crowdcontrol.controller;
+
+import com.caiohbs.crowdcontrol.dto.CacheRegionStatsDTO;
+import com.caiohbs.crowdcontrol.service.CacheStatisticsService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping(path="/api/v1")
+public class CacheController {
+
+    private final CacheStatisticsService cacheStatisticsService;
+
+    public CacheController(CacheStatisticsService cacheStatisticsService) {
+        this.cacheStatisticsService = cacheStatisticsService;
+    }
+
+    /**
+     * Retrieves the hit ratios of the second-level and query caches. This
+     * endpoint is only accessible by the admin.
+     *
+     * @return A list of {@link CacheRegionStatsDTO} objects, one per cache
+     * region, with the totals for the query cache last.
+     */
+    @GetMapping(path="/cache-statistics")
+    @PreAuthorize("@securityUtils.getAuthRole() == 'ADMIN'")
+    public ResponseEntity<List<CacheRegionStatsDTO>> getCacheStatistics() {
+        return ResponseEntity.ok(cacheStatisticsService.retrieveCacheStatistics());
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.caiohbs.crowdcontrol.controller;
+
+import com.caiohbs.crowdcontrol.repository.ResourceVersion;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.ZoneId;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Answers GETs of polled resources conditionally. The request's
+ * {@code If-None-Match} / {@code If-Modified-Since} headers are checked
+ * against the resource's validators (see {@link ResourceVersion}) before the
+ * body is loaded, so an unchanged resource costs one small query and a 304.
+ * <p>
+ * Lists get weak ETags: Tomcat doesn't compress responses carrying a strong
+ * one (a compressed body isn't byte-for-byte the tagged representation),
+ * and lists are the responses large enough to be compressed. Single entities
+ * keep strong ETags, which clients send back in {@code If-Match}.
+ */
+final class ConditionalGets {
+
+    // Clients may keep a copy but have to revalidate it on every use.
+    private static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
+    private ConditionalGets() {
+    }
+
+    /**
+     * Builds the response to a conditional GET of a single entity, with a
+     * strong ETag.
+     *
+     * @param request The current request.
+     * @param version The validators of the resource, read before its body, or
+     *                an empty {@link Optional} if the resource was not found.
+     * @param body    Loads the body, only called if the client's copy is stale.
+     * @param <T>     The type of the body.
+     * @return A 304 Not Modified without a body, or a 200 OK with the body,
+     * both carrying the resource's ETag and Last-Modified headers.
+     */
+    static <T> ResponseEntity<T> respond(
+            WebRequest request, Optional<ResourceVersion> version, Supplier<T> body
+    ) {
+        return respond(request, version, body, false);
+    }
+
+    /**
+     * Builds the response to a conditional GET of a list, with a weak ETag so
+     * the response can be compressed.
+     *
+     * @param request The current request.
+     * @param version The validators of the list, read before its body, or an
+     *                empty {@link Optional} if its owner was not found.
+     * @param body    Loads the body, only called if the client's copy is stale.
+     * @param <T>     The type of the body.
+     * @return A 304 Not Modified without a body, or a 200 OK with the body,
+     * both carrying the list's ETag and Last-Modified headers.
+     */
+    static <T> ResponseEntity<T> respondToList(
+            WebRequest request, Optional<ResourceVersion> version, Supplier<T> body
+    ) {
+        return respond(request, version, body, true);
+    }
+
+    private static <T> ResponseEntity<T> respond(
+            WebRequest request, Optional<ResourceVersion> version, Supplier<T> body, boolean weak
+    ) {
+
+        if (version.isEmpty()) {
+            // Let the body's lookup fail the way the endpoint always has.
+            return ResponseEntity.ok(body.get());
+        }
+
+        Long versionNumber = version.get().getVersion();
+        String eTag = weak ? ETagUtils.weakFromVersion(versionNumber) : ETagUtils.fromVersion(versionNumber);
+        long lastModified = version.get().getModifiedAt()
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+        // If-None-Match is compared weakly, so either kind of tag matches.
+        if (request.checkNotModified(eTag, lastModified)) {
+            // The validators were already written to the response.
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(CACHE_CONTROL).build();
+        }
+
+        // The body may be newer than the validators read before it; the
+        // client's next request then just gets it again.
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .lastModified(lastModified)
+                .cacheControl(CACHE_CONTROL)
+                .body(body.get());
+
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.caiohbs.crowdcontrol.controller;
+
+import com.caiohbs.crowdcontrol.exception.PreconditionFailedException;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Converts between entity versions (see the {@code @Version} fields on the
+ * models) and the {@code ETag} / {@code If-Match} header values exchanged with
+ * clients. The tag is the bare version number in quotes, e.g. {@code "3"}.
+ */
+final class ETagUtils {
+
+    private ETagUtils() {
+    }
+
+    /**
+     * Builds the ETag for a given entity version.
+     *
+     * @param version The version of the entity.
+     * @return The quoted entity tag.
+     */
+    static String fromVersion(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Builds a weak ETag for a given version, e.g. {@code W/"3"}, for
+     * responses that are never updated with {@code If-Match}.
+     *
+     * @param version The version of the resource.
+     * @return The weak entity tag.
+     */
+    static String weakFromVersion(Long version) {
+        return "W/" + fromVersion(version);
+    }
+
+    /**
+     * Extracts the versions a client expects to be updating from an
+     * {@code If-Match} header, which may list several tags separated by commas.
+     *
+     * @param ifMatch The raw header value, possibly {@code null}.
+     * @return The versions the update may go ahead on, or {@code null} if the
+     * header is absent or {@code *} (in which case any current version matches).
+     * @throws PreconditionFailedException If none of the listed tags was issued
+     *                                     by this API, since they can't match.
+     */
+    static Set<Long> parseIfMatch(String ifMatch) throws PreconditionFailedException {
+
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+
+        Set<Long> versions = new HashSet<>();
+        for (String listed : ifMatch.split(",")) {
+            String tag = listed.trim();
+            if (tag.equals("*")) {
+                return null;
+            }
+            // Weak tags never match under If-Match's strong comparison, and
+            // anything that isn't a quoted version was never issued here.
+            if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+                continue;
+            }
+            try {
+                versions.add(Long.valueOf(tag.substring(1, tag.length() - 1)));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+
+        if (versions.isEmpty()) {
+            throw new PreconditionFailedException("Resource version does not match.");
+        }
+        return versions;
+
+    }
+
+}
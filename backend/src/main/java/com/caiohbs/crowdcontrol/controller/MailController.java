@@ -0,0 +1,34 @@
+package com.caiohbs.crowdcontrol.controller;
+
+import com.caiohbs.crowdcontrol.dto.MailDispatcherStatsDTO;
+import com.caiohbs.crowdcontrol.service.MailDispatcherService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping(path="/api/v1")
+public class MailController {
+
+    private final MailDispatcherService mailDispatcherService;
+
+    public MailController(MailDispatcherService mailDispatcherService) {
+        this.mailDispatcherService = mailDispatcherService;
+    }
+
+    /**
+     * Retrieves the state of the background email queue: its depth, how many
+     * emails were sent, retried, given up on or dropped, and how long sending
+     * took. This endpoint is only accessible by the admin.
+     *
+     * @return A {@link MailDispatcherStatsDTO} with the current figures.
+     */
+    @GetMapping(path="/mail-statistics")
+    @PreAuthorize("@securityUtils.getAuthRole() == 'ADMIN'")
+    public ResponseEntity<MailDispatcherStatsDTO> getMailStatistics() {
+        return ResponseEntity.ok(mailDispatcherService.retrieveStatistics());
+    }
+
+}
@@ -1,20 +1,29 @@
 package com.caiohbs.crowdcontrol.controller;
 
 import com.caiohbs.crowdcontrol.dto.PaymentDTO;
+import com.caiohbs.crowdcontrol.dto.PaymentSummaryDTO;
+import com.caiohbs.crowdcontrol.dto.PaymentTotalsDTO;
 import com.caiohbs.crowdcontrol.dto.mapper.PaymentDTOMapper;
 import com.caiohbs.crowdcontrol.exception.ResourceNotFoundException;
 import com.caiohbs.crowdcontrol.model.GenericValidResponse;
 import com.caiohbs.crowdcontrol.model.Payment;
+import com.caiohbs.crowdcontrol.model.PaymentGrouping;
 import com.caiohbs.crowdcontrol.model.Permission;
+import com.caiohbs.crowdcontrol.service.IdempotencyService;
+import com.caiohbs.crowdcontrol.service.PaymentRollupService;
 import com.caiohbs.crowdcontrol.service.PaymentService;
+import com.caiohbs.crowdcontrol.service.ResourceVersionService;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
-import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.URI;
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
 
 @RestController
@@ -23,13 +32,22 @@ public class PaymentController {
 
     private final PaymentService paymentService;
     private final PaymentDTOMapper paymentDTOMapper;
+    private final PaymentRollupService paymentRollupService;
+    private final IdempotencyService idempotencyService;
+    private final ResourceVersionService resourceVersionService;
 
     public PaymentController(
             PaymentService paymentService,
-            PaymentDTOMapper paymentDTOMapper
+            PaymentDTOMapper paymentDTOMapper,
+            PaymentRollupService paymentRollupService,
+            IdempotencyService idempotencyService,
+            ResourceVersionService resourceVersionService
     ) {
         this.paymentService = paymentService;
         this.paymentDTOMapper = paymentDTOMapper;
+        this.paymentRollupService = paymentRollupService;
+        this.idempotencyService = idempotencyService;
+        this.resourceVersionService = resourceVersionService;
     }
 
     /**
@@ -50,16 +68,87 @@ public class PaymentController {
 
     }
 
+    /**
+     * Summarizes payments (count, total, average, minimum and maximum amount)
+     * without transferring the payments themselves. This endpoint requires the
+     * user to have the {@link Permission} "READ_GENERAL" for the request to be
+     * authorized.
+     *
+     * @param groupBy The {@link PaymentGrouping} to summarize by: NONE
+     *                (default), ROLE, USER, MONTH or YEAR.
+     * @param from    Optional first payment date (ISO, inclusive) to include.
+     * @param to      Optional last payment date (ISO, inclusive) to include.
+     * @return A list of {@link PaymentSummaryDTO} objects, one per group. 400
+     * BAD REQUEST indicates an invalid grouping or date range.
+     */
+    @GetMapping(path="/payments/summary")
+    @PreAuthorize("hasAuthority('READ_GENERAL')")
+    public ResponseEntity<List<PaymentSummaryDTO>> getPaymentSummary(
+            @RequestParam(defaultValue="NONE") PaymentGrouping groupBy,
+            @RequestParam(required=false) @DateTimeFormat(iso=DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required=false) @DateTimeFormat(iso=DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        return ResponseEntity.ok(paymentService.summarizePayments(groupBy, from, to));
+    }
+
+    /**
+     * Retrieves payment totals (count, total and average amount) per month
+     * range from the monthly rollup, which reads a handful of rows per month
+     * regardless of how many payments were made. This endpoint requires the
+     * user to have the {@link Permission} "READ_GENERAL" for the request to be
+     * authorized.
+     *
+     * @param groupBy The {@link PaymentGrouping} to total by: NONE (default),
+     *                ROLE, USER, MONTH or YEAR.
+     * @param from    Optional first month (yyyy-MM, inclusive) to include.
+     * @param to      Optional last month (yyyy-MM, inclusive) to include.
+     * @return A list of {@link PaymentTotalsDTO} objects, one per group. 400
+     * BAD REQUEST indicates an invalid grouping or month range.
+     */
+    @GetMapping(path="/payments/monthly-totals")
+    @PreAuthorize("hasAuthority('READ_GENERAL')")
+    public ResponseEntity<List<PaymentTotalsDTO>> getMonthlyTotals(
+            @RequestParam(defaultValue="NONE") PaymentGrouping groupBy,
+            @RequestParam(required=false) YearMonth from,
+            @RequestParam(required=false) YearMonth to
+    ) {
+        return ResponseEntity.ok(paymentRollupService.retrieveMonthlyTotals(groupBy, from, to));
+    }
+
+    /**
+     * Recomputes the monthly payment rollup from the payment table. This
+     * endpoint is only accessible by the admin.
+     *
+     * @return A {@link ResponseEntity} with the code 200 - OK and a message
+     * with the number of rollup rows written.
+     */
+    @PostMapping(path="/payments/monthly-totals/rebuild")
+    @PreAuthorize("@securityUtils.getAuthRole() == 'ADMIN'")
+    public ResponseEntity<GenericValidResponse> rebuildMonthlyTotals() {
+
+        int rows = paymentRollupService.rebuild();
+
+        GenericValidResponse response = new GenericValidResponse(
+                "Monthly totals rebuilt (" + rows + " rows)."
+        );
+
+        return ResponseEntity.ok(response);
+
+    }
+
     /**
      * Retrieves all payments to a given user. This endpoint requires the user to
      * either be the owner of the asset and have the {@link Permission} "READ_SELF",
      * or to have the {@link Permission} "READ_GENERAL" for the request to be
-     * authorized.
+     * authorized. The list is served conditionally, validated by the user's
+     * payments change counter.
      *
-     * @param userId The unique identifier (Long) for the user.
+     * @param userId  The unique identifier (Long) for the user.
+     * @param request The current request, with its conditional headers.
      * @return A {@link ResponseEntity} containing a list of {@link PaymentDTO}
      * objects representing the found user's payments, or a {@link ResponseEntity}
-     * with a 404 Not Found status code if no user was found.
+     * with a 404 Not Found status code if no user was found. 304 NOT MODIFIED
+     * indicates the client's copy is still current.
      * @throws ResourceNotFoundException if the user is not found.
      */
     @GetMapping(path="/users/{userId}/payments")
@@ -67,50 +156,61 @@ public class PaymentController {
             "@securityUtils.getAuthUserId() == #userId and hasAuthority('READ_SELF') or hasAuthority('READ_GENERAL')"
     )
     public ResponseEntity<List<PaymentDTO>> getPaymentsForSingleUser(
-            @PathVariable Long userId
+            @PathVariable Long userId, WebRequest request
     ) {
 
-        List<PaymentDTO> payments = paymentService
-                .retrieveAllPaymentsForSingleUser(userId).stream()
-                .map(paymentDTOMapper).toList();
+        return ConditionalGets.respondToList(
+                request, resourceVersionService.retrievePaymentsVersion(userId),
+                () -> paymentService.retrieveAllPaymentsForSingleUser(userId).stream()
+                        .map(paymentDTOMapper).toList()
+        );
 
-        return ResponseEntity.ok(payments);
     }
 
     /**
      * Creates a new payment for a single user. This endpoint requires the user
      * to have the {@link Permission} "CREATE_PAYMENT_GENERAL" for the request
-     * to be authorized.
+     * to be authorized. Retries sent with the same {@code Idempotency-Key}
+     * get the original response back and create no further payment.
      *
-     * @param userId  The unique identifier (Long) for the user to which the
-     *                payment is being made.
-     * @param payment The {@link Payment} object containing the payment amount.
+     * @param userId         The unique identifier (Long) for the user to which
+     *                       the payment is being made.
+     * @param payment        The {@link Payment} object containing the payment amount.
+     * @param idempotencyKey Optional {@code Idempotency-Key} header.
      * @return A {@link ResponseEntity} containing the created resource. ALso
      * provides a URI pointing at the created resource's new endpoint. The
      * response body also contains a message for users indicating said status.
+     * 409 CONFLICT indicates the first request with the same key is still
+     * being processed.
      * @throws ResourceNotFoundException if the user is not found.
      */
     @PostMapping(path="/users/{userId}/payment")
     @PreAuthorize("hasAuthority('CREATE_PAYMENT_GENERAL')")
     public ResponseEntity<GenericValidResponse> createPayment(
             @PathVariable("userId") Long userId,
-            @Valid @RequestBody Payment payment
+            @Valid @RequestBody Payment payment,
+            @RequestHeader(value=IdempotencyService.IDEMPOTENCY_KEY_HEADER, required=false) String idempotencyKey
     ) {
 
-        paymentService.createPayment(payment, userId);
+        String requestSignature = "POST /users/" + userId + "/payment " + payment.getPaymentAmount();
 
-        String currUri = ServletUriComponentsBuilder
-                .fromCurrentRequestUri().toUriString();
-        String baseUri = currUri
-                .substring(0, currUri.lastIndexOf("/new-payment"));
+        return idempotencyService.execute(idempotencyKey, requestSignature, GenericValidResponse.class, () -> {
 
-        URI uri = UriComponentsBuilder.fromUriString(baseUri).build().toUri();
+            paymentService.createPayment(payment, userId);
 
-        GenericValidResponse response = new GenericValidResponse(
-                "New payment created successfully."
-        );
+            URI uri = ServletUriComponentsBuilder
+                    .fromCurrentContextPath()
+                    .path("/api/v1/users/{userId}/payments")
+                    .buildAndExpand(userId)
+                    .toUri();
+
+            GenericValidResponse response = new GenericValidResponse(
+                    "New payment created successfully."
+            );
+
+            return ResponseEntity.created(uri).body(response);
 
-        return ResponseEntity.created(uri).body(response);
+        });
 
     }
 
@@ -118,27 +218,38 @@ public class PaymentController {
      * Automatically creates a payment for ALL the users in a given role based
      * on its registered salary. This endpoint requires the user to have the
      * {@link Permission} "CREATE_PAYMENT_FOR_ROLE" for the request to be authorized.
+     * Retries sent with the same {@code Idempotency-Key} get the original
+     * response back and create no further payments.
      *
-     * @param roleId The unique identifier (Long) for the role to which the
-     *               payments will be made.
+     * @param roleId         The unique identifier (Long) for the role to which
+     *                       the payments will be made.
+     * @param idempotencyKey Optional {@code Idempotency-Key} header.
      * @return A {@link ResponseEntity} with the code 200 - OK, and a successful
      * message. The response body also contains a message for users indicating
-     * said status.
+     * said status. 409 CONFLICT indicates the first request with the same key
+     * is still being processed.
      * @throws ResourceNotFoundException if the role is not found or is empty.
      */
     @PostMapping(path="/roles/{roleId}/auto-payment")
     @PreAuthorize("hasAuthority('CREATE_PAYMENT_FOR_ROLE')")
     public ResponseEntity<GenericValidResponse> createAutoPayment(
-            @PathVariable("roleId") Long roleId
+            @PathVariable("roleId") Long roleId,
+            @RequestHeader(value=IdempotencyService.IDEMPOTENCY_KEY_HEADER, required=false) String idempotencyKey
     ) {
 
-        paymentService.createPaymentForRole(roleId);
+        String requestSignature = "POST /roles/" + roleId + "/auto-payment";
 
-        GenericValidResponse response = new GenericValidResponse(
-                "Auto payment created successfully."
-        );
+        return idempotencyService.execute(idempotencyKey, requestSignature, GenericValidResponse.class, () -> {
 
-        return ResponseEntity.ok(response);
+            paymentService.createPaymentForRole(roleId);
+
+            GenericValidResponse response = new GenericValidResponse(
+                    "Auto payment created successfully."
+            );
+
+            return ResponseEntity.ok(response);
+
+        });
 
     }
 
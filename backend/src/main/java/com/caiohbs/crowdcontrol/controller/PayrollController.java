@@ -0,0 +1,88 @@
+package com.caiohbs.crowdcontrol.controller;
+
+import com.caiohbs.crowdcontrol.dto.PayrollRunDTO;
+import com.caiohbs.crowdcontrol.dto.mapper.PayrollRunDTOMapper;
+import com.caiohbs.crowdcontrol.exception.ResourceNotFoundException;
+import com.caiohbs.crowdcontrol.exception.ValidationErrorException;
+import com.caiohbs.crowdcontrol.model.GenericValidResponse;
+import com.caiohbs.crowdcontrol.service.PayrollService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.net.URI;
+import java.time.YearMonth;
+import java.util.List;
+
+@RestController
+@RequestMapping(path="/api/v1")
+public class PayrollController {
+
+    private final PayrollService payrollService;
+    private final PayrollRunDTOMapper payrollRunDTOMapper;
+
+    public PayrollController(PayrollService payrollService, PayrollRunDTOMapper payrollRunDTOMapper) {
+        this.payrollService = payrollService;
+        this.payrollRunDTOMapper = payrollRunDTOMapper;
+    }
+
+    /**
+     * Retrieves all payroll runs, latest pay period first. This endpoint is
+     * only accessible by the admin.
+     *
+     * @return A list of {@link PayrollRunDTO} objects with each run's progress.
+     */
+    @GetMapping(path="/payroll-runs")
+    @PreAuthorize("@securityUtils.getAuthRole() == 'ADMIN'")
+    public ResponseEntity<List<PayrollRunDTO>> getPayrollRuns() {
+
+        List<PayrollRunDTO> runs = payrollService.retrieveAllRuns()
+                .stream().map(payrollRunDTOMapper).toList();
+
+        return ResponseEntity.ok(runs);
+
+    }
+
+    /**
+     * Retrieves the progress of the payroll run of a pay period: users
+     * processed and paid, chunks completed and throughput. This endpoint is
+     * only accessible by the admin.
+     *
+     * @param period The pay period (yyyy-MM).
+     * @return A {@link PayrollRunDTO} with the run's progress.
+     * @throws ResourceNotFoundException if payroll never ran for the period.
+     */
+    @GetMapping(path="/payroll-runs/{period}")
+    @PreAuthorize("@securityUtils.getAuthRole() == 'ADMIN'")
+    public ResponseEntity<PayrollRunDTO> getPayrollRun(@PathVariable YearMonth period) {
+        return ResponseEntity.ok(payrollRunDTOMapper.apply(payrollService.retrieveRun(period)));
+    }
+
+    /**
+     * Starts the payroll run of a pay period in the background, or resumes it
+     * if it did not complete. Runs that already completed are not repeated.
+     * This endpoint is only accessible by the admin.
+     *
+     * @param period The pay period (yyyy-MM).
+     * @return A {@link ResponseEntity} with the code 202 - ACCEPTED and a URI
+     * where the run's progress can be followed.
+     * @throws ValidationErrorException if the period is in the future.
+     */
+    @PostMapping(path="/payroll-runs/{period}")
+    @PreAuthorize("@securityUtils.getAuthRole() == 'ADMIN'")
+    public ResponseEntity<GenericValidResponse> startPayrollRun(@PathVariable YearMonth period) {
+
+        payrollService.startPayroll(period);
+
+        URI uri = ServletUriComponentsBuilder.fromCurrentRequestUri().build().toUri();
+
+        GenericValidResponse response = new GenericValidResponse(
+                "Payroll run for " + period + " started."
+        );
+
+        return ResponseEntity.accepted().location(uri).body(response);
+
+    }
+
+}
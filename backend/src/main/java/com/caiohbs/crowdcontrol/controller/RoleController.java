@@ -8,11 +8,14 @@ import com.caiohbs.crowdcontrol.exception.ResourceNotFoundException;
 import com.caiohbs.crowdcontrol.model.GenericValidResponse;
 import com.caiohbs.crowdcontrol.model.Permission;
 import com.caiohbs.crowdcontrol.model.Role;
+import com.caiohbs.crowdcontrol.service.ResourceVersionService;
 import com.caiohbs.crowdcontrol.service.RoleService;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
@@ -25,27 +28,34 @@ public class RoleController {
 
     private final RoleDTOMapper roleDTOMapper;
     private final RoleService roleService;
+    private final ResourceVersionService resourceVersionService;
 
     public RoleController(
-            RoleDTOMapper roleDTOMapper, RoleService roleService
+            RoleDTOMapper roleDTOMapper, RoleService roleService,
+            ResourceVersionService resourceVersionService
     ) {
         this.roleDTOMapper = roleDTOMapper;
         this.roleService = roleService;
+        this.resourceVersionService = resourceVersionService;
     }
 
     /**
      * Retrieves a list of all roles. This endpoint requires the user to have the
-     * {@link Permission} "READ_GENERAL" for the request to be authorized.
+     * {@link Permission} "READ_GENERAL" for the request to be authorized. The
+     * list is served conditionally, validated by the roles change counter.
      *
+     * @param request The current request, with its conditional headers.
      * @return A list of {@link RoleDTO} objects representing the found roles.
+     * 304 NOT MODIFIED indicates the client's copy is still current.
      */
     @GetMapping(path="/roles")
     @PreAuthorize("hasAuthority('READ_GENERAL')")
-    public ResponseEntity<List<RoleDTO>> getRolesList() {
+    public ResponseEntity<List<RoleDTO>> getRolesList(WebRequest request) {
 
-        return ResponseEntity.ok(roleService.retrieveAllRoles()
-                .stream().map(roleDTOMapper)
-                .collect(Collectors.toList()));
+        return ConditionalGets.respondToList(
+                request, resourceVersionService.retrieveRolesVersion(),
+                () -> roleService.retrieveAllRoles().stream().map(roleDTOMapper).collect(Collectors.toList())
+        );
 
     }
 
@@ -56,8 +66,8 @@ public class RoleController {
      *
      * @param roleId The unique identifier (Long) of the role to be retrieved.
      * @return containing a {@link RoleDTO} object representing the found role,
-     * or a {@link ResponseEntity} with a 404 Not Found status code if no role
-     * is found.
+     * with the role's version as the ETag header, or a {@link ResponseEntity}
+     * with a 404 Not Found status code if no role is found.
      * @throws ResourceNotFoundException if the role is not found.
      */
     @GetMapping(path="/roles/{roleId}")
@@ -67,7 +77,9 @@ public class RoleController {
     public ResponseEntity<RoleDTO> getSingleRole(@PathVariable Long roleId) {
 
         return roleService.retrieveSingleRole(roleId)
-                .map(role -> ResponseEntity.ok(roleDTOMapper.apply(role)))
+                .map(role -> ResponseEntity.ok()
+                        .eTag(ETagUtils.fromVersion(role.getVersion()))
+                        .body(roleDTOMapper.apply(role)))
                 .orElseThrow(() -> new ResourceNotFoundException("Role not found."));
 
     }
@@ -114,10 +126,15 @@ public class RoleController {
      * @param updateRoleDTO The {@link RoleUpdateDTO} object containing the
      *                      update information for the role. Only fields
      *                      present in the DTO will be updated.
+     * @param ifMatch       Optional ETag of the role as last read by the
+     *                      client, or a comma separated list of them. When
+     *                      present, the update is only applied if the role is
+     *                      still at one of those versions.
      * @return A {@link ResponseEntity} with the according status code. 200 OK
      * indicates the resource was updated successfully. 400 BAD REQUEST
      * indicates issues on request (including validation). 404 NOT FOUND
-     * indicates the requested resource does not exist or couldn't be found. If
+     * indicates the requested resource does not exist or couldn't be found.
+     * 412 PRECONDITION FAILED indicates the role was modified concurrently. If
      * the role was updated successfully, the response will include a Location
      * header pointing to the URI of the newly updated role. The response body
      * also contains a message for users indicating said status.
@@ -125,10 +142,11 @@ public class RoleController {
     @PutMapping(path="/roles/{roleId}")
     @PreAuthorize("@securityUtils.getAuthRole() == 'ADMIN'")
     public ResponseEntity<GenericValidResponse> updateRoleById(
-            @RequestBody RoleUpdateDTO updateRoleDTO, @PathVariable Long roleId
+            @RequestBody RoleUpdateDTO updateRoleDTO, @PathVariable Long roleId,
+            @RequestHeader(value=HttpHeaders.IF_MATCH, required=false) String ifMatch
     ) {
 
-        roleService.updateRole(roleId, updateRoleDTO);
+        roleService.updateRole(roleId, updateRoleDTO, ETagUtils.parseIfMatch(ifMatch));
 
         GenericValidResponse response = new GenericValidResponse(
                 "Role updated successfully."
@@ -1,20 +1,31 @@
 package com.caiohbs.crowdcontrol.controller;
 
+import com.caiohbs.crowdcontrol.dto.AbsenceDayDTO;
+import com.caiohbs.crowdcontrol.dto.AbsenceIntervalDTO;
+import com.caiohbs.crowdcontrol.dto.AbsenceTotalsDTO;
+import com.caiohbs.crowdcontrol.dto.AbsenteeDTO;
 import com.caiohbs.crowdcontrol.dto.SickNoteDTO;
 import com.caiohbs.crowdcontrol.dto.mapper.SickNoteDTOMapper;
 import com.caiohbs.crowdcontrol.exception.ResourceNotFoundException;
+import com.caiohbs.crowdcontrol.model.AbsenceGrouping;
 import com.caiohbs.crowdcontrol.model.GenericValidResponse;
 import com.caiohbs.crowdcontrol.model.Permission;
 import com.caiohbs.crowdcontrol.model.SickNote;
+import com.caiohbs.crowdcontrol.service.AbsenceAnalyticsService;
+import com.caiohbs.crowdcontrol.service.ResourceVersionService;
 import com.caiohbs.crowdcontrol.service.SickNoteService;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.URI;
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
 
 @RestController
@@ -23,43 +34,168 @@ public class SickNoteController {
 
     private final SickNoteService sickNoteService;
     private final SickNoteDTOMapper sickNoteDTOMapper;
+    private final AbsenceAnalyticsService absenceAnalyticsService;
+    private final ResourceVersionService resourceVersionService;
 
     public SickNoteController(
-            SickNoteService sickNoteService, SickNoteDTOMapper sickNoteDTOMapper
+            SickNoteService sickNoteService, SickNoteDTOMapper sickNoteDTOMapper,
+            AbsenceAnalyticsService absenceAnalyticsService, ResourceVersionService resourceVersionService
     ) {
         this.sickNoteService = sickNoteService;
         this.sickNoteDTOMapper = sickNoteDTOMapper;
+        this.absenceAnalyticsService = absenceAnalyticsService;
+        this.resourceVersionService = resourceVersionService;
     }
 
     /**
-     * Retrieves a list of all sick notes. This endpoint requires the user to
-     * have the {@link Permission} "READ_GENERAL" for the request to be
-     * authorized.
+     * Retrieves a list of all sick notes, optionally only those sharing a day
+     * with a range. This endpoint requires the user to have the {@link Permission}
+     * "READ_GENERAL" for the request to be authorized.
      *
+     * @param from Optional first sick note date (ISO, inclusive) to include.
+     * @param to   Optional last sick note date (ISO, inclusive) to include.
      * @return A list of {@link SickNoteDTO} objects representing the found
-     * sick notes.
+     * sick notes. 400 BAD REQUEST indicates an invalid date range.
      */
     @GetMapping(path="/sick-notes")
     @PreAuthorize("hasAuthority('READ_GENERAL')")
-    public ResponseEntity<List<SickNoteDTO>> getSickNoteList() {
+    public ResponseEntity<List<SickNoteDTO>> getSickNoteList(
+            @RequestParam(required=false) @DateTimeFormat(iso=DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required=false) @DateTimeFormat(iso=DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+
+        List<SickNote> foundNotes = from == null && to == null
+                ? sickNoteService.retrieveAllSickNotes()
+                : sickNoteService.retrieveSickNotesBetween(from, to);
 
-        List<SickNoteDTO> sickNotes = sickNoteService.retrieveAllSickNotes()
-                .stream().map(sickNoteDTOMapper).toList();
+        List<SickNoteDTO> sickNotes = foundNotes.stream().map(sickNoteDTOMapper).toList();
 
         return ResponseEntity.ok(sickNotes);
 
     }
 
     /**
-     * Retrieves all sick notes to a given user. This endpoint requires the user
-     * to either be the owner of the asset and have the {@link Permission}
-     * "READ_SELF", or have the {@link Permission} "READ_GENERAL" for the request to
-     * be authorized.
+     * Retrieves the organization's absence calendar: for every day of a range,
+     * the users who handed in a sick note for it. This endpoint requires the
+     * user to have the {@link Permission} "READ_GENERAL" for the request to be
+     * authorized.
+     *
+     * @param from First day (ISO) of the calendar.
+     * @param to   Last day (ISO) of the calendar, at most a year after
+     *             {@code from}.
+     * @return A list of {@link AbsenceDayDTO} objects, one per day. 400 BAD
+     * REQUEST indicates an invalid or too long date range.
+     */
+    @GetMapping(path="/sick-notes/calendar")
+    @PreAuthorize("hasAuthority('READ_GENERAL')")
+    public ResponseEntity<List<AbsenceDayDTO>> getAbsenceCalendar(
+            @RequestParam @DateTimeFormat(iso=DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso=DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        return ResponseEntity.ok(sickNoteService.retrieveAbsenceCalendar(from, to));
+    }
+
+    /**
+     * Retrieves who is out during a range (or on a single day when {@code to}
+     * is omitted): the date ranges of every sick note sharing at least one day
+     * with it. This endpoint requires the user to have the {@link Permission}
+     * "READ_GENERAL" for the request to be authorized.
      *
-     * @param userId The unique identifier (Long) for the user.
+     * @param from First day (ISO) of the range.
+     * @param to   Optional last day (ISO) of the range, defaults to {@code from}.
+     * @return A list of {@link AbsenceIntervalDTO} objects, in order of start
+     * date. 400 BAD REQUEST indicates an invalid date range.
+     */
+    @GetMapping(path="/sick-notes/absences")
+    @PreAuthorize("hasAuthority('READ_GENERAL')")
+    public ResponseEntity<List<AbsenceIntervalDTO>> getAbsences(
+            @RequestParam @DateTimeFormat(iso=DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required=false) @DateTimeFormat(iso=DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        return ResponseEntity.ok(sickNoteService.retrieveAbsences(from, to));
+    }
+
+    /**
+     * Retrieves the number of sick days per month range, served from memory.
+     * This endpoint requires the user to have the {@link Permission}
+     * "READ_GENERAL" for the request to be authorized.
+     *
+     * @param groupBy The {@link AbsenceGrouping} to total by: NONE (default),
+     *                ROLE, USER, MONTH or YEAR.
+     * @param from    Optional first month (yyyy-MM, inclusive) to include.
+     * @param to      Optional last month (yyyy-MM, inclusive) to include.
+     * @return A list of {@link AbsenceTotalsDTO} objects, one per group. 400
+     * BAD REQUEST indicates an invalid grouping or month range.
+     */
+    @GetMapping(path="/sick-notes/sick-days")
+    @PreAuthorize("hasAuthority('READ_GENERAL')")
+    public ResponseEntity<List<AbsenceTotalsDTO>> getSickDayTotals(
+            @RequestParam(defaultValue="NONE") AbsenceGrouping groupBy,
+            @RequestParam(required=false) YearMonth from,
+            @RequestParam(required=false) YearMonth to
+    ) {
+        return ResponseEntity.ok(absenceAnalyticsService.retrieveSickDayTotals(groupBy, from, to));
+    }
+
+    /**
+     * Retrieves the users with the most sick days in a month range, served
+     * from memory. This endpoint requires the user to have the
+     * {@link Permission} "READ_GENERAL" for the request to be authorized.
+     *
+     * @param from  Optional first month (yyyy-MM, inclusive) to include.
+     * @param to    Optional last month (yyyy-MM, inclusive) to include.
+     * @param limit How many users to return (default 10, at most 100).
+     * @return A list of {@link AbsenteeDTO} objects, most sick days first.
+     * 400 BAD REQUEST indicates an invalid month range or limit.
+     */
+    @GetMapping(path="/sick-notes/top-absentees")
+    @PreAuthorize("hasAuthority('READ_GENERAL')")
+    public ResponseEntity<List<AbsenteeDTO>> getTopAbsentees(
+            @RequestParam(required=false) YearMonth from,
+            @RequestParam(required=false) YearMonth to,
+            @RequestParam(defaultValue="10") int limit
+    ) {
+        return ResponseEntity.ok(absenceAnalyticsService.retrieveTopAbsentees(from, to, limit));
+    }
+
+    /**
+     * Recomputes the sick day totals from the sick notes in the database,
+     * e.g. after they were changed directly in it. This endpoint is only
+     * accessible by the admin.
+     *
+     * @return A {@link ResponseEntity} with the code 200 - OK and a message
+     * with the number of sick notes read.
+     */
+    @PostMapping(path="/sick-notes/sick-days/rebuild")
+    @PreAuthorize("@securityUtils.getAuthRole() == 'ADMIN'")
+    public ResponseEntity<GenericValidResponse> rebuildSickDayTotals() {
+
+        int sickNotes = absenceAnalyticsService.rebuild();
+
+        GenericValidResponse response = new GenericValidResponse(
+                "Sick day totals rebuilt (" + sickNotes + " sick notes)."
+        );
+
+        return ResponseEntity.ok(response);
+
+    }
+
+    /**
+     * Retrieves all sick notes to a given user, optionally only those sharing
+     * a day with a range. This endpoint requires the user to either be the owner
+     * of the asset and have the {@link Permission} "READ_SELF", or have the
+     * {@link Permission} "READ_GENERAL" for the request to be authorized. The
+     * list is served conditionally, validated by the user's sick notes change
+     * counter.
+     *
+     * @param userId  The unique identifier (Long) for the user.
+     * @param from    Optional first sick note date (ISO, inclusive) to include.
+     * @param to      Optional last sick note date (ISO, inclusive) to include.
+     * @param request The current request, with its conditional headers.
      * @return A {@link ResponseEntity} containing a list of {@link SickNoteDTO}
      * objects representing the found user's sick notes, or a {@link ResponseEntity}
-     * with a 404 Not Found status code if no user was found.
+     * with a 404 Not Found status code if no user was found. 304 NOT MODIFIED
+     * indicates the client's copy is still current.
      * @throws ResourceNotFoundException if the user is not found.
      */
     @GetMapping(path="/users/{userId}/sick-notes")
@@ -67,14 +203,19 @@ public class SickNoteController {
             "@securityUtils.getAuthUserId() == #userId and hasAuthority('READ_SELF') or hasAuthority('READ_GENERAL')"
     )
     public ResponseEntity<List<SickNoteDTO>> getSickNotesForSingleUser(
-            @PathVariable Long userId
+            @PathVariable Long userId,
+            @RequestParam(required=false) @DateTimeFormat(iso=DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required=false) @DateTimeFormat(iso=DateTimeFormat.ISO.DATE) LocalDate to,
+            WebRequest request
     ) {
 
-        List<SickNoteDTO> sickNotes = sickNoteService
-                .retrieveAllSickNotesForSingleUser(userId).stream()
-                .map(sickNoteDTOMapper).toList();
+        return ConditionalGets.respondToList(request, resourceVersionService.retrieveSickNotesVersion(userId), () -> {
+            List<SickNote> foundNotes = from == null && to == null
+                    ? sickNoteService.retrieveAllSickNotesForSingleUser(userId)
+                    : sickNoteService.retrieveSickNotesForSingleUserBetween(userId, from, to);
 
-        return ResponseEntity.ok(sickNotes);
+            return foundNotes.stream().map(sickNoteDTOMapper).toList();
+        });
 
     }
 
@@ -86,9 +227,11 @@ public class SickNoteController {
      * @param userId   The unique identifier (Long) for the user to which the
      *                 sick note belongs.
      * @param sickNote The {@link SickNote} object containing the information.
+     *                 {@code sickNoteEndDate} defaults to {@code sickNoteDate}.
      * @return A {@link ResponseEntity} containing the created resource. ALso
      * provides a URI pointing at the created resource's new endpoint. The
      * response body also contains a message for users indicating said status.
+     * 400 BAD REQUEST indicates the sick note overlaps one of the user's.
      * @throws ResourceNotFoundException if the user is not found.
      */
     @PostMapping(path="/users/{userId}/sick-notes")
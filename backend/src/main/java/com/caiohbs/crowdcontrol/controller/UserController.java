@@ -1,6 +1,11 @@
 package com.caiohbs.crowdcontrol.controller;
 
+import com.caiohbs.crowdcontrol.config.SecurityUtils;
 import com.caiohbs.crowdcontrol.dto.UserDTO;
+import com.caiohbs.crowdcontrol.dto.UserListingFilterDTO;
+import com.caiohbs.crowdcontrol.dto.UserListingPageDTO;
+import com.caiohbs.crowdcontrol.dto.UserSearchPageDTO;
+import com.caiohbs.crowdcontrol.dto.UserSuggestionDTO;
 import com.caiohbs.crowdcontrol.dto.UserUpdateDTO;
 import com.caiohbs.crowdcontrol.dto.mapper.UserDTOMapper;
 import com.caiohbs.crowdcontrol.exception.NameTakenException;
@@ -8,13 +13,18 @@ import com.caiohbs.crowdcontrol.exception.ResourceNotFoundException;
 import com.caiohbs.crowdcontrol.model.GenericValidResponse;
 import com.caiohbs.crowdcontrol.model.Permission;
 import com.caiohbs.crowdcontrol.model.User;
+import com.caiohbs.crowdcontrol.model.UserSortField;
 import com.caiohbs.crowdcontrol.service.AccManagementService;
-import com.caiohbs.crowdcontrol.service.EmailSenderService;
+import com.caiohbs.crowdcontrol.service.ResourceVersionService;
+import com.caiohbs.crowdcontrol.service.UserSearchService;
 import com.caiohbs.crowdcontrol.service.UserService;
 import jakarta.validation.Valid;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
@@ -28,17 +38,20 @@ public class UserController {
     private final UserDTOMapper userDTOMapper;
     private final UserService userService;
     private final AccManagementService accManagementService;
-    private final EmailSenderService emailSenderService;
+    private final UserSearchService userSearchService;
+    private final ResourceVersionService resourceVersionService;
 
     public UserController(
             UserService userService,
             UserDTOMapper userDTOMapper,
             AccManagementService accManagementService,
-            EmailSenderService emailSenderService) {
+            UserSearchService userSearchService,
+            ResourceVersionService resourceVersionService) {
         this.userService = userService;
         this.userDTOMapper = userDTOMapper;
         this.accManagementService = accManagementService;
-        this.emailSenderService = emailSenderService;
+        this.userSearchService = userSearchService;
+        this.resourceVersionService = resourceVersionService;
     }
 
     /**
@@ -57,29 +70,135 @@ public class UserController {
 
     }
 
+    /**
+     * Lists the users matching a filter, sorted and paged by the database. This
+     * endpoint requires the user to have the {@link Permission} "READ_GENERAL"
+     * for the request to be authorized.
+     *
+     * @param filter    Optional conditions: {@code role} (a role name, or
+     *                  "NO_ROLE"), {@code isEnabled}, {@code isAccountNonLocked},
+     *                  and the date ranges {@code registeredFrom}/{@code registeredTo}
+     *                  and {@code bornFrom}/{@code bornTo}, bounds included.
+     * @param sort      The field to sort by (default REGISTER_DATE).
+     * @param direction The direction to sort in (default DESC).
+     * @param cursor    The {@code nextCursor} of the previous page, absent for the first page;
+     *                  only valid with the same {@code sort} and {@code direction}.
+     * @param size      The number of users per page (default 50, at most 200).
+     * @return A {@link UserListingPageDTO} with the users and the cursor to the
+     * next page, if any. 400 BAD REQUEST indicates an invalid range, cursor or
+     * size.
+     */
+    @GetMapping(path="/users/listing")
+    @PreAuthorize("hasAuthority('READ_GENERAL')")
+    public ResponseEntity<UserListingPageDTO> getUsersListing(
+            UserListingFilterDTO filter,
+            @RequestParam(defaultValue="REGISTER_DATE") UserSortField sort,
+            @RequestParam(defaultValue="DESC") Sort.Direction direction,
+            @RequestParam(required=false) String cursor,
+            @RequestParam(defaultValue="50") int size
+    ) {
+        return ResponseEntity.ok(userService.retrieveUsers(filter, sort, direction, cursor, size));
+    }
+
+    /**
+     * Searches users by name, e-mail, bio and nationality, best matches first.
+     * This endpoint requires the user to have the {@link Permission}
+     * "READ_GENERAL" to search every user, or "READ_SELF" to only find
+     * themselves.
+     *
+     * @param q    The search terms; users matching all of them are returned.
+     * @param page The page to return, starting at 0.
+     * @param size The number of results per page (default 20, at most 100).
+     * @return A {@link UserSearchPageDTO} with the page of results and the
+     * total number of matches. 400 BAD REQUEST indicates a blank query or an
+     * invalid page.
+     */
+    @GetMapping(path="/users/search")
+    @PreAuthorize("hasAuthority('READ_SELF') or hasAuthority('READ_GENERAL')")
+    public ResponseEntity<UserSearchPageDTO> searchUsers(
+            @RequestParam String q,
+            @RequestParam(defaultValue="0") int page,
+            @RequestParam(defaultValue="20") int size
+    ) {
+
+        Long restrictToUserId = SecurityUtils.hasAuthority("READ_GENERAL")
+                ? null
+                : SecurityUtils.getAuthUserId();
+
+        return ResponseEntity.ok(userSearchService.search(q, restrictToUserId, page, size));
+
+    }
+
+    /**
+     * Suggests users whose name or e-mail starts with what was typed so far,
+     * for autocomplete fields. This endpoint requires the user to have the
+     * {@link Permission} "READ_GENERAL" for the request to be authorized.
+     *
+     * @param prefix What was typed so far, matched regardless of case and
+     *               accents against "first last", "last first" and the e-mail.
+     * @param limit  How many users to suggest (default 10, at most 50).
+     * @return A list of {@link UserSuggestionDTO} in alphabetical order. 400 BAD
+     * REQUEST indicates a blank prefix or an invalid limit.
+     */
+    @GetMapping(path="/users/autocomplete")
+    @PreAuthorize("hasAuthority('READ_GENERAL')")
+    public ResponseEntity<List<UserSuggestionDTO>> autocompleteUsers(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue="10") int limit
+    ) {
+        return ResponseEntity.ok(userSearchService.suggest(prefix, limit));
+    }
+
+    /**
+     * Rebuilds the user search and autocomplete indexes from the database,
+     * e.g. after users were changed directly in it. This endpoint is only
+     * accessible by the admin.
+     *
+     * @return A {@link ResponseEntity} with the code 200 - OK and a message
+     * with the number of users indexed.
+     */
+    @PostMapping(path="/users/search/rebuild")
+    @PreAuthorize("@securityUtils.getAuthRole() == 'ADMIN'")
+    public ResponseEntity<GenericValidResponse> rebuildSearchIndex() {
+
+        int users = userSearchService.rebuild();
+
+        GenericValidResponse response = new GenericValidResponse(
+                "User search index rebuilt (" + users + " users)."
+        );
+
+        return ResponseEntity.ok(response);
+
+    }
+
     /**
      * Retrieves a single user based on an ID tag. This endpoint requires either
      * the user making the request being the owner of the asset AND having the
      * {@link Permission} "READ_SELF", or the {@link Permission} "READ_GENERAL"
-     * for the request to be authorized.
+     * for the request to be authorized. The user is served conditionally,
+     * validated by their version; the role details in it never change once the
+     * role is created, and assigning another one changes the user.
      *
-     * @param userId The unique identifier (Long) of the user to be retrieved.
+     * @param userId  The unique identifier (Long) of the user to be retrieved.
+     * @param request The current request, with its conditional headers.
      * @return containing a {@link UserDTO} object representing the found user,
-     * or a {@link ResponseEntity} with a 404 Not Found status code if no user
-     * is found.
+     * with the user's version as the ETag header, or a {@link ResponseEntity}
+     * with a 404 Not Found status code if no user is found. 304 NOT MODIFIED
+     * indicates the client's copy is still current.
      * @throws ResourceNotFoundException if the user is not found.
      */
     @GetMapping(path="/users/{userId}")
     @PreAuthorize(
             "@securityUtils.getAuthUserId() == #userId and hasAuthority('READ_SELF') or hasAuthority('READ_GENERAL')"
     )
-    public ResponseEntity<UserDTO> getSingleUser(@PathVariable Long userId) {
+    public ResponseEntity<UserDTO> getSingleUser(@PathVariable Long userId, WebRequest request) {
 
-        return userService.retrieveSingleUser(userId)
-                .map(user -> ResponseEntity.ok(userDTOMapper.apply(user)))
-                .orElseThrow(
-                        () -> new ResourceNotFoundException("User not found.")
-                );
+        return ConditionalGets.respond(
+                request, resourceVersionService.retrieveUserVersion(userId),
+                () -> userService.retrieveSingleUser(userId)
+                        .map(userDTOMapper)
+                        .orElseThrow(() -> new ResourceNotFoundException("User not found."))
+        );
 
     }
 
@@ -94,7 +213,9 @@ public class UserController {
      * validation) will result in a 400 BAD REQUEST. If the user was created
      * successfully, the response will include a Location header pointing to the
      * URI of the newly created user. The response body also contains a message
-     * for users indicating said status.
+     * for users indicating said status. If the activation e-mail can't be
+     * queued, the user isn't created and a 503 SERVICE UNAVAILABLE with a
+     * Retry-After header is returned instead.
      * @throws NameTakenException if the username (e-mail) is already in use.
      */
     @PostMapping(path="/users")
@@ -103,13 +224,7 @@ public class UserController {
             @Valid @RequestBody User user
     ) {
 
-        User savedUser = userService.createUser(user);
-        String code = accManagementService.createEmailCode(user, "ENABLE_ACC");
-
-        new Thread(() -> emailSenderService.sendEmail(
-                user.getUsername(), "ENABLE_ACC", code)
-        ).start();
-
+        User savedUser = accManagementService.registerUser(user);
 
         URI uri = ServletUriComponentsBuilder
                 .fromCurrentRequest()
@@ -134,10 +249,15 @@ public class UserController {
      * @param updatedUserDTO The {@link UserUpdateDTO} object containing the
      *                       update information for the user. Only fields
      *                       present in the DTO will be updated.
+     * @param ifMatch        Optional ETag of the user as last read by the
+     *                       client, or a comma separated list of them. When
+     *                       present, the update is only applied if the user is
+     *                       still at one of those versions.
      * @return A {@link ResponseEntity} with the according status code. 200 OK
      * indicates the resource was updated successfully. 400 BAD REQUEST
      * indicates issues on request (including validation). 404 NOT FOUND
-     * indicates the requested resource does not exist or couldn't be found. If
+     * indicates the requested resource does not exist or couldn't be found.
+     * 412 PRECONDITION FAILED indicates the user was modified concurrently. If
      * the user was updated successfully, the response will include a Location
      * header pointing to the URI of the newly updated user. The response body
      * also contains a message for users indicating said status.
@@ -146,10 +266,11 @@ public class UserController {
     @PreAuthorize("hasAuthority('UPDATE_GENERAL')")
     public ResponseEntity<GenericValidResponse> updateUserById(
             @Valid @RequestBody UserUpdateDTO updatedUserDTO,
-            @PathVariable Long userId
+            @PathVariable Long userId,
+            @RequestHeader(value=HttpHeaders.IF_MATCH, required=false) String ifMatch
     ) {
 
-        userService.updateUser(userId, updatedUserDTO);
+        userService.updateUser(userId, updatedUserDTO, ETagUtils.parseIfMatch(ifMatch));
 
         GenericValidResponse response = new GenericValidResponse(
                 "User updated successfully."
@@ -186,4 +307,32 @@ public class UserController {
 
     }
 
+    /**
+     * Deletes several users at once, e.g. when offboarding a team. This
+     * endpoint requires the user to have the {@link Permission}
+     * "DELETE_GENERAL" for the request to be authorized.
+     *
+     * @param userIds The unique identifiers (Long) of the users to delete,
+     *                passed as {@code ?ids=1,2,3}. IDs that don't match any
+     *                user are ignored.
+     * @return A {@link ResponseEntity} with the according status code. 200 OK
+     * indicates the request was processed, with the number of deleted users in
+     * the response message. 400 BAD REQUEST indicates no IDs were provided.
+     */
+    @DeleteMapping(path="/users")
+    @PreAuthorize("hasAuthority('DELETE_GENERAL')")
+    public ResponseEntity<GenericValidResponse> deleteUsers(
+            @RequestParam(name="ids") List<Long> userIds
+    ) {
+
+        int deletedUsers = userService.deleteUsers(userIds);
+
+        GenericValidResponse response = new GenericValidResponse(
+                deletedUsers + " user(s) deleted successfully."
+        );
+
+        return ResponseEntity.ok(response);
+
+    }
+
 }
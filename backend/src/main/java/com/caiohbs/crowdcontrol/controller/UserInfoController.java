@@ -6,11 +6,14 @@ import com.caiohbs.crowdcontrol.dto.mapper.UserInfoDTOMapper;
 import com.caiohbs.crowdcontrol.model.GenericValidResponse;
 import com.caiohbs.crowdcontrol.model.Permission;
 import com.caiohbs.crowdcontrol.model.UserInfo;
+import com.caiohbs.crowdcontrol.service.ResourceVersionService;
 import com.caiohbs.crowdcontrol.service.UserInfoService;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import org.springframework.web.util.UriComponentsBuilder;
 
@@ -22,28 +25,35 @@ import java.util.Objects;
 public class UserInfoController {
 
     private final UserInfoService userInfoService;
+    private final ResourceVersionService resourceVersionService;
 
-    public UserInfoController(UserInfoService userInfoService) {
+    public UserInfoController(
+            UserInfoService userInfoService, ResourceVersionService resourceVersionService
+    ) {
         this.userInfoService = userInfoService;
+        this.resourceVersionService = resourceVersionService;
     }
 
     /**
      * Retrieves user information for a given user ID. This endpoint requires
      * the user to either have the {@link Permission} "READ_SELF", or
-     * "READ_GENERAL" for the request to be authorized.
+     * "READ_GENERAL" for the request to be authorized. The information is
+     * served conditionally, validated by its version.
      *
-     * @param userId The ID of the user whose information to retrieve.
+     * @param userId  The ID of the user whose information to retrieve.
+     * @param request The current request, with its conditional headers.
      * @return A ResponseEntity with an OK status and the user's information as
-     * a {@link UserInfoDTO} object.
+     * a {@link UserInfoDTO} object, with its version as the ETag header. 304 NOT
+     * MODIFIED indicates the client's copy is still current.
      */
     @GetMapping(path="users/{userId}/info")
     @PreAuthorize("hasAuthority('READ_SELF') or hasAuthority('READ_GENERAL')")
-    public ResponseEntity<UserInfoDTO> getUserInfo(@PathVariable Long userId) {
-
-        UserInfo foundInfo = userInfoService.retrieveInfo(userId);
-        UserInfoDTO userInfoDTO = new UserInfoDTOMapper().apply(foundInfo);
+    public ResponseEntity<UserInfoDTO> getUserInfo(@PathVariable Long userId, WebRequest request) {
 
-        return ResponseEntity.ok(userInfoDTO);
+        return ConditionalGets.respond(
+                request, resourceVersionService.retrieveUserInfoVersion(userId),
+                () -> new UserInfoDTOMapper().apply(userInfoService.retrieveInfo(userId))
+        );
 
     }
 
@@ -90,6 +100,11 @@ public class UserInfoController {
      *
      * @param userId   The ID of the user whose information to update.
      * @param userInfo The updated user information to be applied.
+     * @param ifMatch  Optional ETag of the user information as last read by
+     *                 the client, or a comma separated list of them. When
+     *                 present, the update is only applied if it is still at
+     *                 one of those versions, otherwise 412 PRECONDITION
+     *                 FAILED is returned.
      * @return A ResponseEntity with a GenericValidResponse indicating success
      * or the result of the update operation.
      */
@@ -99,10 +114,11 @@ public class UserInfoController {
     )
     public ResponseEntity<GenericValidResponse> updateUserInfo(
             @PathVariable("userId") Long userId,
-            @Valid @RequestBody UserInfoUpdateDTO userInfo
+            @Valid @RequestBody UserInfoUpdateDTO userInfo,
+            @RequestHeader(value=HttpHeaders.IF_MATCH, required=false) String ifMatch
     ) {
 
-        String tryToUpdate = userInfoService.updateInfo(userId, userInfo);
+        String tryToUpdate = userInfoService.updateInfo(userId, userInfo, ETagUtils.parseIfMatch(ifMatch));
 
         GenericValidResponse response = new GenericValidResponse();
         if (Objects.equals(tryToUpdate, "Success")) {
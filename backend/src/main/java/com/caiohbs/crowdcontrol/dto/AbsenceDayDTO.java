@@ -0,0 +1,10 @@
+package com.caiohbs.crowdcontrol.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public record AbsenceDayDTO(
+        LocalDate date,
+        List<AbsentUserDTO> absentUsers
+) {
+}
@@ -0,0 +1,11 @@
+package com.caiohbs.crowdcontrol.dto;
+
+import java.time.LocalDate;
+
+public record AbsenceIntervalDTO(
+        Long sickNoteId,
+        Long userId,
+        LocalDate startDate,
+        LocalDate endDate
+) {
+}
@@ -0,0 +1,7 @@
+package com.caiohbs.crowdcontrol.dto;
+
+public record AbsenceTotalsDTO(
+        String group,
+        long sickDays
+) {
+}
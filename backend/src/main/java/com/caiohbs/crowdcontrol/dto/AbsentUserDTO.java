@@ -0,0 +1,8 @@
+package com.caiohbs.crowdcontrol.dto;
+
+public record AbsentUserDTO(
+        Long userId,
+        String firstName,
+        String lastName
+) {
+}
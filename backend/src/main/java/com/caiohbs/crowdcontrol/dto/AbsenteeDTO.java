@@ -0,0 +1,7 @@
+package com.caiohbs.crowdcontrol.dto;
+
+public record AbsenteeDTO(
+        Long userId,
+        long sickDays
+) {
+}
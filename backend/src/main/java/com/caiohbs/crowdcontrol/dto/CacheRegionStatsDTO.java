@@ -0,0 +1,10 @@
+package com.caiohbs.crowdcontrol.dto;
+
+public record CacheRegionStatsDTO(
+        String regionName,
+        long hitCount,
+        long missCount,
+        long putCount,
+        double hitRatio
+) {
+}
@@ -0,0 +1,13 @@
+package com.caiohbs.crowdcontrol.dto;
+
+public record MailDispatcherStatsDTO(
+        int queueDepth,
+        int queueCapacity,
+        long sentCount,
+        long retryCount,
+        long failedCount,
+        long droppedCount,
+        double averageSendMillis,
+        double maxSendMillis
+) {
+}
@@ -1,11 +1,13 @@
 package com.caiohbs.crowdcontrol.dto;
 
+import com.caiohbs.crowdcontrol.model.Money;
+
 import java.time.LocalDate;
 
 public record PaymentDTO(
         Long userId,
         Long paymentId,
-        double paymentAmount,
+        Money paymentAmount,
         LocalDate paymentDate
 ) {
 }
@@ -0,0 +1,13 @@
+package com.caiohbs.crowdcontrol.dto;
+
+import com.caiohbs.crowdcontrol.model.Money;
+
+public record PaymentSummaryDTO(
+        String group,
+        long paymentCount,
+        Money totalAmount,
+        Money averageAmount,
+        Money minAmount,
+        Money maxAmount
+) {
+}
@@ -0,0 +1,11 @@
+package com.caiohbs.crowdcontrol.dto;
+
+import com.caiohbs.crowdcontrol.model.Money;
+
+public record PaymentTotalsDTO(
+        String group,
+        long paymentCount,
+        Money totalAmount,
+        Money averageAmount
+) {
+}
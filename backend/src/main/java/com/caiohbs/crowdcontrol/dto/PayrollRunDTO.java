@@ -0,0 +1,20 @@
+package com.caiohbs.crowdcontrol.dto;
+
+import com.caiohbs.crowdcontrol.model.PayrollRunStatus;
+
+import java.time.LocalDateTime;
+
+public record PayrollRunDTO(
+        String payPeriod,
+        PayrollRunStatus status,
+        int totalUsers,
+        int processedUsers,
+        int paidUsers,
+        int chunkCount,
+        int completedChunks,
+        double percentComplete,
+        double usersPerSecond,
+        LocalDateTime startedAt,
+        LocalDateTime finishedAt
+) {
+}
@@ -1,12 +1,14 @@
 package com.caiohbs.crowdcontrol.dto;
 
+import com.caiohbs.crowdcontrol.model.Money;
+
 import java.util.List;
 
 public record RoleDTO(
         long roleId,
         String roleName,
         int maxNumberOfUsers,
-        double salary,
+        Money salary,
         List<String> permissions,
         List<String> usersInGroup
 ) {
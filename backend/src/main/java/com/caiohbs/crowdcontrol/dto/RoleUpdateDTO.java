@@ -1,5 +1,7 @@
 package com.caiohbs.crowdcontrol.dto;
 
+import com.caiohbs.crowdcontrol.model.Money;
+
 import java.util.List;
 
 public record RoleUpdateDTO(
@@ -7,6 +9,6 @@ public record RoleUpdateDTO(
         int maxNumberOfUsers,
 
         boolean isSalaryPresent,
-        double salary
+        Money salary
 ) {
 }
@@ -6,6 +6,7 @@ public record SickNoteDTO(
         Long userId,
         Long sickNoteId,
         String sickNote,
-        LocalDate sickNoteDate
+        LocalDate sickNoteDate,
+        LocalDate sickNoteEndDate
 ) {
 }
@@ -0,0 +1,16 @@
+package com.caiohbs.crowdcontrol.dto;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+public record UserListingFilterDTO(
+        String role,
+        Boolean isEnabled,
+        Boolean isAccountNonLocked,
+        @DateTimeFormat(iso=DateTimeFormat.ISO.DATE) LocalDate registeredFrom,
+        @DateTimeFormat(iso=DateTimeFormat.ISO.DATE) LocalDate registeredTo,
+        @DateTimeFormat(iso=DateTimeFormat.ISO.DATE) LocalDate bornFrom,
+        @DateTimeFormat(iso=DateTimeFormat.ISO.DATE) LocalDate bornTo
+) {
+}
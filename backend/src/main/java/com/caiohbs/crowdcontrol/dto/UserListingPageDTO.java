@@ -0,0 +1,10 @@
+package com.caiohbs.crowdcontrol.dto;
+
+import java.util.List;
+
+public record UserListingPageDTO(
+        int size,
+        String nextCursor,
+        List<UserDTO> users
+) {
+}
@@ -0,0 +1,11 @@
+package com.caiohbs.crowdcontrol.dto;
+
+import java.util.List;
+
+public record UserSearchPageDTO(
+        int page,
+        int size,
+        long totalHits,
+        List<UserSearchResultDTO> results
+) {
+}
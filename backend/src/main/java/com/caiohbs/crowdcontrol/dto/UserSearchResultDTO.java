@@ -0,0 +1,11 @@
+package com.caiohbs.crowdcontrol.dto;
+
+public record UserSearchResultDTO(
+        Long userId,
+        String username,
+        String firstName,
+        String lastName,
+        String nationality,
+        float score
+) {
+}
@@ -0,0 +1,9 @@
+package com.caiohbs.crowdcontrol.dto;
+
+public record UserSuggestionDTO(
+        Long userId,
+        String username,
+        String firstName,
+        String lastName
+) {
+}
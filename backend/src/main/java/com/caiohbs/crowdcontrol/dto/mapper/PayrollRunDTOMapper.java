@@ -0,0 +1,41 @@
+package com.caiohbs.crowdcontrol.dto.mapper;
+
+import com.caiohbs.crowdcontrol.dto.PayrollRunDTO;
+import com.caiohbs.crowdcontrol.model.PayrollRun;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.function.Function;
+
+@Service
+public class PayrollRunDTOMapper implements Function<PayrollRun, PayrollRunDTO> {
+
+    @Override
+    public PayrollRunDTO apply(PayrollRun run) {
+
+        double percentComplete = run.getChunkCount() == 0
+                ? 100.0
+                : 100.0 * run.getCompletedChunks() / run.getChunkCount();
+
+        // Average since the run started, up to now while it is still going.
+        LocalDateTime end = run.getFinishedAt() != null ? run.getFinishedAt() : LocalDateTime.now();
+        long elapsedMillis = Math.max(1, Duration.between(run.getStartedAt(), end).toMillis());
+        double usersPerSecond = run.getProcessedUsers() * 1000.0 / elapsedMillis;
+
+        return new PayrollRunDTO(
+                run.getPayPeriod(),
+                run.getStatus(),
+                run.getTotalUsers(),
+                run.getProcessedUsers(),
+                run.getPaidUsers(),
+                run.getChunkCount(),
+                run.getCompletedChunks(),
+                percentComplete,
+                usersPerSecond,
+                run.getStartedAt(),
+                run.getFinishedAt()
+        );
+
+    }
+}
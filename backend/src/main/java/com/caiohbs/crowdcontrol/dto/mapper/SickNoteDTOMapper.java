@@ -15,7 +15,8 @@ public class SickNoteDTOMapper implements Function<SickNote, SickNoteDTO> {
                 sickNote.getUser().getUserId(),
                 sickNote.getSickNoteId(),
                 "/" + sickNote.getSickNote(),
-                sickNote.getSickNoteDate()
+                sickNote.getSickNoteDate(),
+                sickNote.getSickNoteEndDate()
         );
     }
 
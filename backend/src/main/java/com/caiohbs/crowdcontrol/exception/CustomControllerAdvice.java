@@ -4,6 +4,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -44,6 +45,50 @@ public class CustomControllerAdvice extends ResponseEntityExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
     }
 
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<ErrorDetails> handlePreconditionFailedException(
+            PreconditionFailedException e
+    ) {
+        ErrorDetails errorResponse = new ErrorDetails();
+        errorResponse.setMessage(e.getMessage());
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(errorResponse);
+    }
+
+    // Raised on commit when another transaction updated the same row after it
+    // was read. With an If-Match the client's precondition no longer holds;
+    // without one the update simply lost the race.
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorDetails> handleOptimisticLockingFailureException(
+            ObjectOptimisticLockingFailureException e, WebRequest request
+    ) {
+        ErrorDetails errorResponse = new ErrorDetails();
+        errorResponse.setMessage("Resource was modified by another request.");
+        HttpStatus status = request.getHeader(HttpHeaders.IF_MATCH) != null
+                ? HttpStatus.PRECONDITION_FAILED
+                : HttpStatus.CONFLICT;
+        return ResponseEntity.status(status).body(errorResponse);
+    }
+
+    @ExceptionHandler(MailUnavailableException.class)
+    public ResponseEntity<ErrorDetails> handleMailUnavailableException(
+            MailUnavailableException e
+    ) {
+        ErrorDetails errorResponse = new ErrorDetails();
+        errorResponse.setMessage(e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfter().toSeconds()))
+                .body(errorResponse);
+    }
+
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<ErrorDetails> handleIdempotencyConflictException(
+            IdempotencyConflictException e
+    ) {
+        ErrorDetails errorResponse = new ErrorDetails();
+        errorResponse.setMessage(e.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+    }
+
     @ExceptionHandler(ValidationErrorException.class)
     public ResponseEntity<ErrorDetails> handleValidationErrorException(
             ValidationErrorException e
@@ -0,0 +1,18 @@
+package com.caiohbs.crowdcontrol.exception;
+
+import java.time.Duration;
+
+public class MailUnavailableException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public MailUnavailableException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+}
@@ -0,0 +1,7 @@
+package com.caiohbs.crowdcontrol.exception;
+
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,13 @@
+package com.caiohbs.crowdcontrol.model;
+
+/**
+ * Dimensions sick day totals can be grouped by. {@code NONE} produces a
+ * single total over every matching sick day.
+ */
+public enum AbsenceGrouping {
+    NONE,
+    ROLE,
+    USER,
+    MONTH,
+    YEAR
+}
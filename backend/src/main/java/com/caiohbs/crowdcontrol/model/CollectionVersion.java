@@ -0,0 +1,41 @@
+package com.caiohbs.crowdcontrol.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * The change counter of a collection no single row owns (e.g. the list of
+ * roles), bumped by every write that changes what the collection's endpoint
+ * returns. Only ever updated in bulk through its repository.
+ */
+@Entity
+@Table(name="collection_version")
+public class CollectionVersion {
+
+    public static final String ROLES = "roles";
+
+    @Id
+    @Column(length=50)
+    private String collectionName;
+    @Column(nullable=false)
+    private long version;
+    @Column(nullable=false)
+    private LocalDateTime modifiedAt;
+
+    public CollectionVersion() {
+    }
+
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public LocalDateTime getModifiedAt() {
+        return modifiedAt;
+    }
+
+}
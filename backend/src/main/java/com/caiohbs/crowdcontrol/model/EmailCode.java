@@ -1,6 +1,10 @@
 package com.caiohbs.crowdcontrol.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
 
 @Entity
 public class EmailCode {
@@ -8,23 +12,40 @@ public class EmailCode {
     @Id
     @GeneratedValue
     private Long emailId;
+    // SHA-256 digest of the code, hex encoded. The raw code only ever goes out
+    // in the e-mail sent to the user.
+    @Column(length=64, nullable=false, unique=true)
     private String emailCode;
     private boolean isCodeActive;
     @Enumerated(EnumType.STRING)
     private EmailType emailType;
     @ManyToOne
+    @OnDelete(action=OnDeleteAction.CASCADE)
     private User user;
+    private LocalDateTime createdAt;
+    private LocalDateTime expiresAt;
 
     public EmailCode() {
     }
 
     public EmailCode(
-            String emailCode, boolean isCodeActive, EmailType emailType, User user
+            String emailCode, boolean isCodeActive, EmailType emailType, User user,
+            LocalDateTime expiresAt
     ) {
         this.emailCode = emailCode;
         this.isCodeActive = isCodeActive;
         this.emailType = emailType;
         this.user = user;
+        this.createdAt = LocalDateTime.now();
+        this.expiresAt = expiresAt;
+    }
+
+    public Long getEmailId() {
+        return emailId;
+    }
+
+    public void setEmailId(Long emailId) {
+        this.emailId = emailId;
     }
 
     public String getEmailCode() {
@@ -65,4 +86,31 @@ public class EmailCode {
     public void setCodeActive(boolean codeActive) {
         isCodeActive = codeActive;
     }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Checks whether the code is past its expiration time.
+     *
+     * @return {@code true} if the code can no longer be used, {@code false}
+     * otherwise.
+     */
+    public boolean isExpired() {
+        return expiresAt == null || LocalDateTime.now().isAfter(expiresAt);
+    }
+
 }
@@ -0,0 +1,109 @@
+package com.caiohbs.crowdcontrol.model;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * A request made with an {@code Idempotency-Key} header and, once it
+ * finished, the response that was sent back for it.
+ */
+@Entity
+@Table(name="idempotency_key")
+public class IdempotencyKey implements Persistable<String> {
+
+    // "<userId>:<header value>", so users can't replay each other's requests.
+    @Id
+    @Column(length=150)
+    private String recordKey;
+    // SHA-256 of the request the key was first used for, hex encoded.
+    @Column(length=64, nullable=false)
+    private String requestHash;
+    private Integer statusCode;
+    @Column(length=4000)
+    private String responseBody;
+    @Column(length=2048)
+    private String location;
+    @Column(nullable=false)
+    private LocalDateTime createdAt;
+    @Column(nullable=false)
+    private LocalDateTime expiresAt;
+    // Keys are assigned by the application, so saving a new one has to be an
+    // INSERT (failing on a duplicate key) rather than a merge.
+    @Transient
+    private boolean isNew;
+
+    public IdempotencyKey() {
+    }
+
+    public IdempotencyKey(String recordKey, String requestHash, LocalDateTime expiresAt) {
+        this.recordKey = recordKey;
+        this.requestHash = requestHash;
+        this.createdAt = LocalDateTime.now();
+        this.expiresAt = expiresAt;
+        this.isNew = true;
+    }
+
+    @Override
+    public String getId() {
+        return recordKey;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    public String getRecordKey() {
+        return recordKey;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public Integer getStatusCode() {
+        return statusCode;
+    }
+
+    public String getResponseBody() {
+        return responseBody;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isCompleted() {
+        return statusCode != null;
+    }
+
+    public boolean isExpired(LocalDateTime now) {
+        return expiresAt.isBefore(now);
+    }
+
+    /**
+     * Records the response sent for the request.
+     *
+     * @param statusCode   The HTTP status code.
+     * @param responseBody The response body as JSON, possibly {@code null}.
+     * @param location     The {@code Location} header, possibly {@code null}.
+     */
+    public void complete(int statusCode, String responseBody, String location) {
+        this.statusCode = statusCode;
+        this.responseBody = responseBody;
+        this.location = location;
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.caiohbs.crowdcontrol.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An amount of money held as a whole number of cents. Sums stay exact and can
+ * be computed on plain {@code long} values; {@link BigDecimal} is only used at
+ * the edges, to read and write the decimal amounts clients exchange.
+ *
+ * @param cents The amount in cents (minor units).
+ */
+public record Money(long cents) implements Comparable<Money>, Serializable {
+
+    public static final Money ZERO = new Money(0);
+
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    /**
+     * Reads a decimal amount, e.g. {@code 1234.5} or {@code "1234.50"}.
+     *
+     * @param amount The amount in currency units.
+     * @return The equivalent {@link Money}.
+     * @throws IllegalArgumentException If the amount has fractions of a cent.
+     */
+    @JsonCreator(mode=JsonCreator.Mode.DELEGATING)
+    public static Money of(BigDecimal amount) throws IllegalArgumentException {
+        try {
+            return ofCents(amount.setScale(2, RoundingMode.UNNECESSARY).unscaledValue().longValueExact());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amounts can't have fractions of a cent: " + amount);
+        }
+    }
+
+    public static Money of(String amount) throws IllegalArgumentException {
+        return of(new BigDecimal(amount));
+    }
+
+    /**
+     * Averages a total over a number of items, rounding half up to the cent.
+     * Computed on longs, so it stays exact for totals a double can't hold.
+     *
+     * @param totalCents The total in cents.
+     * @param count      The number of items, not negative.
+     * @return The average, or {@link #ZERO} when there are no items.
+     */
+    public static Money average(long totalCents, long count) {
+
+        if (count == 0) {
+            return ZERO;
+        }
+
+        long quotient = Math.floorDiv(totalCents, count);
+        long remainder = Math.floorMod(totalCents, count);
+        // Rounds up when the remainder is at least half the count.
+        return ofCents(remainder >= count - remainder ? quotient + 1 : quotient);
+
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return ofCents(Math.subtractExact(cents, other.cents));
+    }
+
+    public Money negate() {
+        return ofCents(-cents);
+    }
+
+    public boolean isPositive() {
+        return cents > 0;
+    }
+
+    @JsonValue
+    public BigDecimal toDecimal() {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public String toString() {
+        return toDecimal().toPlainString();
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.caiohbs.crowdcontrol.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores {@link Money} attributes as their amount in cents (a {@code bigint}
+ * column).
+ */
+@Converter(autoApply=true)
+public class MoneyConverter implements AttributeConverter<Money, Long> {
+
+    @Override
+    public Long convertToDatabaseColumn(Money money) {
+        return money != null ? money.cents() : null;
+    }
+
+    @Override
+    public Money convertToEntityAttribute(Long cents) {
+        return cents != null ? Money.ofCents(cents) : null;
+    }
+
+}
@@ -2,8 +2,10 @@ package com.caiohbs.crowdcontrol.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.NotNull;
-import jakarta.validation.constraints.Positive;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
 
 import java.time.LocalDate;
 
@@ -14,27 +16,41 @@ public class Payment {
     @GeneratedValue
     private Long paymentId;
     @NotNull
-    @Positive
-    private double paymentAmount;
+    @Column(name="payment_amount_cents")
+    private Money paymentAmount;
     private LocalDate paymentDate;
+    // Role of the user at the time of the payment.
+    @JsonIgnore
+    private String roleName;
+    // Set on salary payments, made by a payroll run (see PayrollService) or a
+    // role's auto payment; one-off payments have none.
+    @JsonIgnore
+    @Column(length=7)
+    private String payPeriod;
     @JsonIgnore
     @ManyToOne(fetch=FetchType.EAGER)
+    @OnDelete(action=OnDeleteAction.CASCADE)
     private User user;
+    @JsonIgnore
+    @Version
+    private Long version;
 
     public Payment() {
     }
 
-    public Payment(User user, double paymentAmount) {
+    public Payment(User user, Money paymentAmount) {
         this.user = user;
         this.paymentAmount = paymentAmount;
         this.paymentDate = LocalDate.now();
+        this.roleName = roleNameOf(user);
     }
 
-    public Payment(Long paymentId, User user, double paymentAmount) {
+    public Payment(Long paymentId, User user, Money paymentAmount) {
         this.paymentId = paymentId;
         this.user = user;
         this.paymentAmount = paymentAmount;
         this.paymentDate = LocalDate.now();
+        this.roleName = roleNameOf(user);
     }
 
     public Long getPaymentId() {
@@ -53,14 +69,20 @@ public class Payment {
         this.user = user;
     }
 
-    public double getPaymentAmount() {
+    public Money getPaymentAmount() {
         return paymentAmount;
     }
 
-    public void setPaymentAmount(double paymentAmount) {
+    public void setPaymentAmount(Money paymentAmount) {
         this.paymentAmount = paymentAmount;
     }
 
+    @JsonIgnore
+    @AssertTrue(message="field 'paymentAmount' has to be positive")
+    public boolean isPaymentAmountPositive() {
+        return paymentAmount == null || paymentAmount.isPositive();
+    }
+
     public LocalDate getPaymentDate() {
         return paymentDate;
     }
@@ -69,6 +91,26 @@ public class Payment {
         this.paymentDate = paymentDate;
     }
 
+    public String getRoleName() {
+        return roleName;
+    }
+
+    public void setRoleName(String roleName) {
+        this.roleName = roleName;
+    }
+
+    public String getPayPeriod() {
+        return payPeriod;
+    }
+
+    public void setPayPeriod(String payPeriod) {
+        this.payPeriod = payPeriod;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
     @Override
     public String toString() {
         return "Payment{" +
@@ -79,4 +121,8 @@ public class Payment {
                '}';
     }
 
+    private static String roleNameOf(User user) {
+        return user != null && user.getRole() != null ? user.getRole().getRoleName() : null;
+    }
+
 }
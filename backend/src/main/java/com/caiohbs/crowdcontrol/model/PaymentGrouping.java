@@ -0,0 +1,13 @@
+package com.caiohbs.crowdcontrol.model;
+
+/**
+ * Dimensions payment summaries can be grouped by. {@code NONE} produces a
+ * single summary over every matching payment.
+ */
+public enum PaymentGrouping {
+    NONE,
+    ROLE,
+    USER,
+    MONTH,
+    YEAR
+}
@@ -0,0 +1,94 @@
+package com.caiohbs.crowdcontrol.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Running totals of the payments made to a user in a month, under the role
+ * they had when paid. Kept up to date by
+ * {@link com.caiohbs.crowdcontrol.service.PaymentRollupService} in the same
+ * transaction as the payments themselves.
+ */
+@Entity
+@Table(name="payment_monthly_rollup")
+@IdClass(PaymentMonthlyRollup.RollupKey.class)
+public class PaymentMonthlyRollup {
+
+    // Year and month as a yyyyMM number, e.g. 202403.
+    @Id
+    private int paymentMonth;
+    @Id
+    private String roleName;
+    @Id
+    @Column(name="user_user_id")
+    private Long userId;
+    private long totalAmountCents;
+    private long paymentCount;
+
+    public PaymentMonthlyRollup() {
+    }
+
+    public PaymentMonthlyRollup(
+            int paymentMonth, String roleName, Long userId, long totalAmountCents, long paymentCount
+    ) {
+        this.paymentMonth = paymentMonth;
+        this.roleName = roleName;
+        this.userId = userId;
+        this.totalAmountCents = totalAmountCents;
+        this.paymentCount = paymentCount;
+    }
+
+    public int getPaymentMonth() {
+        return paymentMonth;
+    }
+
+    public String getRoleName() {
+        return roleName;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public long getTotalAmountCents() {
+        return totalAmountCents;
+    }
+
+    public long getPaymentCount() {
+        return paymentCount;
+    }
+
+    public static class RollupKey implements Serializable {
+
+        private int paymentMonth;
+        private String roleName;
+        private Long userId;
+
+        public RollupKey() {
+        }
+
+        public RollupKey(int paymentMonth, String roleName, Long userId) {
+            this.paymentMonth = paymentMonth;
+            this.roleName = roleName;
+            this.userId = userId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof RollupKey that)) return false;
+            return paymentMonth == that.paymentMonth
+                   && Objects.equals(roleName, that.roleName)
+                   && Objects.equals(userId, that.userId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(paymentMonth, roleName, userId);
+        }
+
+    }
+
+}
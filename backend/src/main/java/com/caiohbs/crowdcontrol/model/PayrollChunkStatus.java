@@ -0,0 +1,11 @@
+package com.caiohbs.crowdcontrol.model;
+
+/**
+ * State of a {@link PayrollRunChunk}. Only {@code DONE} chunks are skipped
+ * when a run is resumed.
+ */
+public enum PayrollChunkStatus {
+    PENDING,
+    DONE,
+    FAILED
+}
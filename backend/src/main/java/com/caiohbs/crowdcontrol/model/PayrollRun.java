@@ -0,0 +1,98 @@
+package com.caiohbs.crowdcontrol.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A payroll run for one pay period (yyyy-MM). There is at most one run per
+ * period; its counters are advanced by each chunk in the same transaction as
+ * the chunk's payments.
+ */
+@Entity
+public class PayrollRun {
+
+    @Id
+    @GeneratedValue
+    private Long runId;
+    @Column(length=7, nullable=false, unique=true)
+    private String payPeriod;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable=false)
+    private PayrollRunStatus status;
+    private int totalUsers;
+    private int processedUsers;
+    private int paidUsers;
+    private int chunkCount;
+    private int completedChunks;
+    @Column(nullable=false)
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    public PayrollRun() {
+    }
+
+    public PayrollRun(String payPeriod, int totalUsers, int chunkCount) {
+        this.payPeriod = payPeriod;
+        this.status = PayrollRunStatus.RUNNING;
+        this.totalUsers = totalUsers;
+        this.chunkCount = chunkCount;
+        this.startedAt = LocalDateTime.now();
+    }
+
+    public Long getRunId() {
+        return runId;
+    }
+
+    public String getPayPeriod() {
+        return payPeriod;
+    }
+
+    public PayrollRunStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(PayrollRunStatus status) {
+        this.status = status;
+    }
+
+    public int getTotalUsers() {
+        return totalUsers;
+    }
+
+    public int getProcessedUsers() {
+        return processedUsers;
+    }
+
+    public int getPaidUsers() {
+        return paidUsers;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    public int getCompletedChunks() {
+        return completedChunks;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "PayrollRun{" +
+               "runId=" + runId +
+               ", payPeriod='" + payPeriod + '\'' +
+               ", status=" + status +
+               ", processedUsers=" + processedUsers +
+               ", totalUsers=" + totalUsers +
+               '}';
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.caiohbs.crowdcontrol.model;
+
+import jakarta.persistence.*;
+
+/**
+ * A slice of a {@link PayrollRun}: the users whose IDs fall between
+ * {@code firstUserId} and {@code lastUserId}, both inclusive.
+ */
+@Entity
+public class PayrollRunChunk {
+
+    @Id
+    @GeneratedValue
+    private Long chunkId;
+    @Column(nullable=false)
+    private Long runId;
+    private int chunkIndex;
+    @Column(nullable=false)
+    private Long firstUserId;
+    @Column(nullable=false)
+    private Long lastUserId;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable=false)
+    private PayrollChunkStatus status;
+    private int paidUsers;
+
+    public PayrollRunChunk() {
+    }
+
+    public PayrollRunChunk(Long runId, int chunkIndex, Long firstUserId, Long lastUserId) {
+        this.runId = runId;
+        this.chunkIndex = chunkIndex;
+        this.firstUserId = firstUserId;
+        this.lastUserId = lastUserId;
+        this.status = PayrollChunkStatus.PENDING;
+    }
+
+    public Long getChunkId() {
+        return chunkId;
+    }
+
+    public Long getRunId() {
+        return runId;
+    }
+
+    public int getChunkIndex() {
+        return chunkIndex;
+    }
+
+    public Long getFirstUserId() {
+        return firstUserId;
+    }
+
+    public Long getLastUserId() {
+        return lastUserId;
+    }
+
+    public PayrollChunkStatus getStatus() {
+        return status;
+    }
+
+    public int getPaidUsers() {
+        return paidUsers;
+    }
+
+}
@@ -0,0 +1,12 @@
+package com.caiohbs.crowdcontrol.model;
+
+/**
+ * Lifecycle of a {@link PayrollRun}. A {@code RUNNING} run that is no longer
+ * being executed (e.g. after a crash) and a {@code FAILED} one are both
+ * resumed the next time payroll runs for their period.
+ */
+public enum PayrollRunStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
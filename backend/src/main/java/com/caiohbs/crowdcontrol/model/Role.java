@@ -1,12 +1,18 @@
 package com.caiohbs.crowdcontrol.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import java.time.LocalDateTime;
 import java.util.*;
 
 import static jakarta.persistence.FetchType.EAGER;
 
 @Entity
+@Cacheable
+@Cache(usage=CacheConcurrencyStrategy.READ_WRITE)
 public class Role {
 
     @Id
@@ -15,18 +21,25 @@ public class Role {
     @Column(unique=true)
     private String roleName;
     private int maxNumberOfUsers;
-    private double salary;
+    @Column(name="salary_cents")
+    private Money salary = Money.ZERO;
     @ElementCollection(fetch=EAGER)
+    @Cache(usage=CacheConcurrencyStrategy.READ_WRITE)
     @Enumerated(EnumType.STRING)
     @CollectionTable(name="role_permissions")
     @Column(name="permission")
     private List<String> permissions;
+    @JsonIgnore
+    @Version
+    private Long version;
+    @JsonIgnore
+    private LocalDateTime lastModifiedAt;
 
     public Role() {
     }
 
     public Role(String roleName, int maxNumberOfUsers,
-                double salary, List<String> permissions
+                Money salary, List<String> permissions
     ) {
         this.roleName = roleName;
         this.maxNumberOfUsers = maxNumberOfUsers;
@@ -58,11 +71,11 @@ public class Role {
         this.maxNumberOfUsers = maxNumberOfUsers;
     }
 
-    public double getSalary() {
+    public Money getSalary() {
         return salary;
     }
 
-    public void setSalary(double salary) {
+    public void setSalary(Money salary) {
         this.salary = salary;
     }
 
@@ -83,6 +96,20 @@ public class Role {
         this.permissions = validPermissions;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public LocalDateTime getLastModifiedAt() {
+        return lastModifiedAt;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void touch() {
+        this.lastModifiedAt = LocalDateTime.now();
+    }
+
     @Override
     public String toString() {
         return "Role{" +
@@ -2,8 +2,11 @@ package com.caiohbs.crowdcontrol.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.PastOrPresent;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
 
 import java.time.LocalDate;
 
@@ -18,7 +21,13 @@ public class SickNote {
     @NotNull
     @PastOrPresent(message="sickNoteDate has to be a past or present date.")
     private LocalDate sickNoteDate;
+    // Last day covered by the sick note; defaults to sickNoteDate.
+    private LocalDate sickNoteEndDate;
+    // Role of the user at the time the sick note was handed in.
+    @JsonIgnore
+    private String roleName;
     @ManyToOne(fetch=FetchType.EAGER)
+    @OnDelete(action=OnDeleteAction.CASCADE)
     @JsonIgnore
     private User user;
 
@@ -26,9 +35,15 @@ public class SickNote {
     }
 
     public SickNote(String sickNote, LocalDate sickNoteDate, User user) {
+        this(sickNote, sickNoteDate, sickNoteDate, user);
+    }
+
+    public SickNote(String sickNote, LocalDate sickNoteDate, LocalDate sickNoteEndDate, User user) {
         this.sickNote = sickNote;
         this.sickNoteDate = sickNoteDate;
+        this.sickNoteEndDate = sickNoteEndDate;
         this.user = user;
+        this.roleName = user != null && user.getRole() != null ? user.getRole().getRoleName() : null;
     }
 
     public Long getSickNoteId() {
@@ -55,6 +70,28 @@ public class SickNote {
         this.sickNoteDate = sickNoteDate;
     }
 
+    public LocalDate getSickNoteEndDate() {
+        return sickNoteEndDate;
+    }
+
+    public void setSickNoteEndDate(LocalDate sickNoteEndDate) {
+        this.sickNoteEndDate = sickNoteEndDate;
+    }
+
+    public String getRoleName() {
+        return roleName;
+    }
+
+    public void setRoleName(String roleName) {
+        this.roleName = roleName;
+    }
+
+    @JsonIgnore
+    @AssertTrue(message="sickNoteEndDate can't be before sickNoteDate.")
+    public boolean isSickNoteRangeValid() {
+        return sickNoteDate == null || sickNoteEndDate == null || !sickNoteEndDate.isBefore(sickNoteDate);
+    }
+
     public User getUser() {
         return user;
     }
@@ -69,6 +106,7 @@ public class SickNote {
                "sickNoteId=" + sickNoteId +
                ", sickNote='" + sickNote + '\'' +
                ", sickNoteDate=" + sickNoteDate +
+               ", sickNoteEndDate=" + sickNoteEndDate +
                ", user=" + user +
                '}';
     }
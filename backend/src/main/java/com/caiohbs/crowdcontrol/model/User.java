@@ -10,6 +10,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.*;
 
 @Entity
@@ -38,10 +39,11 @@ public class User implements UserDetails {
     @JsonIgnore
     @CreatedDate
     private LocalDate registerDate;
-    @OneToMany(mappedBy="user", fetch=FetchType.EAGER, cascade=CascadeType.REMOVE)
+    // Children are removed by the ON DELETE CASCADE foreign keys (see V7).
+    @OneToMany(mappedBy="user", fetch=FetchType.EAGER)
     @JsonIgnore
     private List<Payment> payments;
-    @OneToMany(mappedBy="user", fetch=FetchType.EAGER, cascade=CascadeType.REMOVE)
+    @OneToMany(mappedBy="user", fetch=FetchType.EAGER)
     @JsonIgnore
     private List<SickNote> sickNotes;
     @JsonIgnore
@@ -50,11 +52,30 @@ public class User implements UserDetails {
     private boolean isEnabled;
     private boolean isAccountNonLocked;
     @JsonIgnore
-    @OneToOne(mappedBy="user", cascade=CascadeType.REMOVE)
+    @OneToOne(mappedBy="user")
     private UserInfo userInfo;
     @JsonIgnore
-    @OneToMany(mappedBy="user", fetch=FetchType.EAGER, cascade=CascadeType.REMOVE)
+    @OneToMany(mappedBy="user", fetch=FetchType.EAGER)
     private List<EmailCode> emailCodes;
+    @JsonIgnore
+    @Version
+    private Long version;
+    @JsonIgnore
+    private LocalDateTime lastModifiedAt;
+    // Change counters of the user's payments and sick notes, only written by
+    // UserRepository's bulk updates (see V17).
+    @JsonIgnore
+    @Column(insertable=false, updatable=false)
+    private long paymentsVersion;
+    @JsonIgnore
+    @Column(insertable=false, updatable=false)
+    private LocalDateTime paymentsModifiedAt;
+    @JsonIgnore
+    @Column(insertable=false, updatable=false)
+    private long sickNotesVersion;
+    @JsonIgnore
+    @Column(insertable=false, updatable=false)
+    private LocalDateTime sickNotesModifiedAt;
 
     public User() {
     }
@@ -81,6 +102,12 @@ public class User implements UserDetails {
     public void prePersist() {
         this.registerDate = LocalDate.now();
         this.isAccountNonLocked = true;
+        this.lastModifiedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    public void preUpdate() {
+        this.lastModifiedAt = LocalDateTime.now();
     }
 
     @Override
@@ -224,6 +251,14 @@ public class User implements UserDetails {
         this.emailCodes = emailCodes;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public LocalDateTime getLastModifiedAt() {
+        return lastModifiedAt;
+    }
+
     @Override
     public String toString() {
         return "User{" +
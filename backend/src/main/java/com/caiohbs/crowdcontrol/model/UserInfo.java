@@ -1,9 +1,13 @@
 package com.caiohbs.crowdcontrol.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -16,6 +20,7 @@ public class UserInfo {
     @GeneratedValue
     private Long userInfoId;
     @OneToOne(fetch=FetchType.EAGER)
+    @OnDelete(action=OnDeleteAction.CASCADE)
     private User user;
     @NotNull
     private String pfp;
@@ -23,6 +28,11 @@ public class UserInfo {
     @Size(max=250, message="field 'bio' has to be between 0 and 250 characters")
     private String bio;
     private String nationality;
+    @JsonIgnore
+    @Version
+    private Long version;
+    @JsonIgnore
+    private LocalDateTime lastModifiedAt;
 
     public UserInfo() {
     }
@@ -94,4 +104,18 @@ public class UserInfo {
     public void setUser(User user) {
         this.user = user;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public LocalDateTime getLastModifiedAt() {
+        return lastModifiedAt;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void touch() {
+        this.lastModifiedAt = LocalDateTime.now();
+    }
 }
@@ -0,0 +1,25 @@
+package com.caiohbs.crowdcontrol.model;
+
+/**
+ * Fields the user listing can be sorted by. Ties are broken by user ID, so
+ * every field gives a total order to page through.
+ */
+public enum UserSortField {
+    USER_ID("userId"),
+    LAST_NAME("lastName"),
+    BIRTH_DATE("birthDate"),
+    REGISTER_DATE("registerDate");
+
+    private final String attribute;
+
+    UserSortField(String attribute) {
+        this.attribute = attribute;
+    }
+
+    /**
+     * @return The name of the {@link User} attribute sorted by.
+     */
+    public String getAttribute() {
+        return attribute;
+    }
+}
@@ -0,0 +1,23 @@
+package com.caiohbs.crowdcontrol.repository;
+
+import com.caiohbs.crowdcontrol.model.CollectionVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface CollectionVersionRepository extends JpaRepository<CollectionVersion, String> {
+
+    @Query("SELECT c.version AS version, c.modifiedAt AS modifiedAt " +
+           "FROM CollectionVersion c WHERE c.collectionName = :name")
+    Optional<ResourceVersion> findResourceVersion(@Param("name") String name);
+
+    @Modifying
+    @Query("UPDATE CollectionVersion c SET c.version = c.version + 1, c.modifiedAt = :now " +
+           "WHERE c.collectionName = :name")
+    int increment(@Param("name") String name, @Param("now") LocalDateTime now);
+
+}
@@ -1,10 +1,35 @@
 package com.caiohbs.crowdcontrol.repository;
 
 import com.caiohbs.crowdcontrol.model.EmailCode;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 public interface EmailCodeRepository extends JpaRepository<EmailCode, Long> {
 
-    EmailCode findByEmailCode(String code);
+    @Query("SELECT e FROM EmailCode e JOIN FETCH e.user WHERE e.emailCode = :code")
+    EmailCode findByEmailCode(@Param("code") String code);
+
+    // A used code also expires on the spot, so the purge finds used and
+    // expired codes alike with a range scan on email_code_expires_at_idx.
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailCode e SET e.isCodeActive = false, e.expiresAt = :now " +
+           "WHERE e.emailId = :id AND e.isCodeActive = true AND e.expiresAt > :now")
+    int deactivateIfUsable(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Query("SELECT e.emailId FROM EmailCode e WHERE e.expiresAt < :now")
+    List<Long> findExpiredIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM EmailCode e WHERE e.emailId IN :ids")
+    int deleteByIds(@Param("ids") List<Long> ids);
 
 }
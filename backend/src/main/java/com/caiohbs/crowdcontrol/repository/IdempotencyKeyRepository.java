@@ -0,0 +1,33 @@
+package com.caiohbs.crowdcontrol.repository;
+
+import com.caiohbs.crowdcontrol.model.IdempotencyKey;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyKey k SET k.statusCode = :statusCode, k.responseBody = :body, " +
+           "k.location = :location WHERE k.recordKey = :key")
+    int complete(
+            @Param("key") String key, @Param("statusCode") int statusCode,
+            @Param("body") String body, @Param("location") String location
+    );
+
+    @Query("SELECT k.recordKey FROM IdempotencyKey k WHERE k.expiresAt < :now")
+    List<String> findExpiredKeys(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.recordKey IN :keys")
+    int deleteByKeys(@Param("keys") List<String> keys);
+
+}
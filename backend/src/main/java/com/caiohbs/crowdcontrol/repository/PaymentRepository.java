@@ -1,12 +1,74 @@
 package com.caiohbs.crowdcontrol.repository;
 
+import com.caiohbs.crowdcontrol.model.Money;
 import com.caiohbs.crowdcontrol.model.Payment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
 import java.util.List;
 
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
 
     List<Payment> findByUserUserId(Long userId);
 
+    // Aggregations over a date range, computed by the database. The range
+    // scans are served by payment_date_user_amount_idx (see V8 and V10), which holds
+    // every column these queries read.
+
+    @Query("SELECT 'ALL' AS groupKey, COUNT(p) AS paymentCount, SUM(p.paymentAmount) AS totalAmountCents, " +
+           "MIN(p.paymentAmount) AS minAmount, MAX(p.paymentAmount) AS maxAmount " +
+           "FROM Payment p WHERE p.paymentDate BETWEEN :from AND :to")
+    List<PaymentAggregate> summarize(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("SELECT COALESCE(r.roleName, 'NO_ROLE') AS groupKey, COUNT(p) AS paymentCount, " +
+           "SUM(p.paymentAmount) AS totalAmountCents, MIN(p.paymentAmount) AS minAmount, " +
+           "MAX(p.paymentAmount) AS maxAmount " +
+           "FROM Payment p JOIN p.user u LEFT JOIN u.role r " +
+           "WHERE p.paymentDate BETWEEN :from AND :to " +
+           "GROUP BY r.roleName ORDER BY r.roleName")
+    List<PaymentAggregate> summarizeByRole(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("SELECT CAST(p.user.userId AS String) AS groupKey, COUNT(p) AS paymentCount, " +
+           "SUM(p.paymentAmount) AS totalAmountCents, MIN(p.paymentAmount) AS minAmount, " +
+           "MAX(p.paymentAmount) AS maxAmount " +
+           "FROM Payment p WHERE p.paymentDate BETWEEN :from AND :to " +
+           "GROUP BY p.user.userId ORDER BY p.user.userId")
+    List<PaymentAggregate> summarizeByUser(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Months are keyed as yyyyMM numbers, formatted by PaymentService.
+    @Query("SELECT CAST(YEAR(p.paymentDate) * 100 + MONTH(p.paymentDate) AS String) AS groupKey, " +
+           "COUNT(p) AS paymentCount, SUM(p.paymentAmount) AS totalAmountCents, " +
+           "MIN(p.paymentAmount) AS minAmount, MAX(p.paymentAmount) AS maxAmount " +
+           "FROM Payment p WHERE p.paymentDate BETWEEN :from AND :to " +
+           "GROUP BY YEAR(p.paymentDate), MONTH(p.paymentDate) " +
+           "ORDER BY YEAR(p.paymentDate), MONTH(p.paymentDate)")
+    List<PaymentAggregate> summarizeByMonth(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("SELECT CAST(YEAR(p.paymentDate) AS String) AS groupKey, COUNT(p) AS paymentCount, " +
+           "SUM(p.paymentAmount) AS totalAmountCents, MIN(p.paymentAmount) AS minAmount, " +
+           "MAX(p.paymentAmount) AS maxAmount " +
+           "FROM Payment p WHERE p.paymentDate BETWEEN :from AND :to " +
+           "GROUP BY YEAR(p.paymentDate) ORDER BY YEAR(p.paymentDate)")
+    List<PaymentAggregate> summarizeByYear(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * One row of a payment aggregation. Sums come in cents, while minimum and
+     * maximum keep the {@link Money} type of the column. Amount aggregates are
+     * {@code null} when no payment matched. There is no average: SQL AVG comes
+     * back as a floating point, so PaymentService derives it from the sum and count.
+     */
+    interface PaymentAggregate {
+        String getGroupKey();
+
+        long getPaymentCount();
+
+        Long getTotalAmountCents();
+
+        Money getMinAmount();
+
+        Money getMaxAmount();
+    }
+
 }
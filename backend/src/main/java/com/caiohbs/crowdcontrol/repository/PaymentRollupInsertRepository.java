@@ -0,0 +1,20 @@
+package com.caiohbs.crowdcontrol.repository;
+
+/**
+ * Inserts the first rollup row of a month, role and user without breaking
+ * the surrounding transaction when a concurrent one inserted it first.
+ */
+public interface PaymentRollupInsertRepository {
+
+    /**
+     * Inserts a rollup row unless another transaction already inserted one
+     * with the same key. The insert runs under a savepoint that is rolled back
+     * on a primary key violation, so the caller's transaction stays usable.
+     * Has to be called within a transaction.
+     *
+     * @return {@code true} if the row was inserted, {@code false} if it
+     * already existed.
+     */
+    boolean insertRollupIfAbsent(int month, String roleName, Long userId, long amountCents, long count);
+
+}
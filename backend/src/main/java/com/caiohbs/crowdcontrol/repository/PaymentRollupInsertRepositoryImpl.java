@@ -0,0 +1,42 @@
+package com.caiohbs.crowdcontrol.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Savepoint;
+
+// Plain JDBC on the transaction's connection: a failed Hibernate query would
+// mark the whole transaction rollback-only, even after rolling back to the
+// savepoint.
+class PaymentRollupInsertRepositoryImpl implements PaymentRollupInsertRepository {
+
+    private static final String INSERT_ROLLUP =
+            "insert into payment_monthly_rollup " +
+            "(payment_month, role_name, user_user_id, total_amount_cents, payment_count) values (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    PaymentRollupInsertRepositoryImpl(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public boolean insertRollupIfAbsent(int month, String roleName, Long userId, long amountCents, long count) {
+
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            try {
+                jdbcTemplate.update(INSERT_ROLLUP, month, roleName, userId, amountCents, count);
+            } catch (DuplicateKeyException e) {
+                connection.rollback(savepoint);
+                return false;
+            }
+            connection.releaseSavepoint(savepoint);
+            return true;
+        }));
+
+    }
+
+}
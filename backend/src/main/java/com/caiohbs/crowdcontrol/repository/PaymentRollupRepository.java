@@ -0,0 +1,85 @@
+package com.caiohbs.crowdcontrol.repository;
+
+import com.caiohbs.crowdcontrol.model.PaymentMonthlyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface PaymentRollupRepository
+        extends JpaRepository<PaymentMonthlyRollup, PaymentMonthlyRollup.RollupKey>, PaymentRollupInsertRepository {
+
+    @Modifying
+    @Query("UPDATE PaymentMonthlyRollup r " +
+           "SET r.totalAmountCents = r.totalAmountCents + :amountCents, r.paymentCount = r.paymentCount + :count " +
+           "WHERE r.paymentMonth = :month AND r.roleName = :roleName AND r.userId = :userId")
+    int addToRollup(
+            @Param("month") int month, @Param("roleName") String roleName, @Param("userId") Long userId,
+            @Param("amountCents") long amountCents, @Param("count") long count
+    );
+
+    @Modifying
+    @Query("DELETE FROM PaymentMonthlyRollup r WHERE r.paymentMonth = :month " +
+           "AND r.roleName = :roleName AND r.userId = :userId AND r.paymentCount <= 0")
+    int deleteIfEmpty(
+            @Param("month") int month, @Param("roleName") String roleName, @Param("userId") Long userId
+    );
+
+    @Modifying
+    @Query("DELETE FROM PaymentMonthlyRollup r")
+    int deleteAllRollups();
+
+    // Recomputes every rollup row from the payment table.
+    @Modifying
+    @Query(value="insert into payment_monthly_rollup " +
+                 "(payment_month, role_name, user_user_id, total_amount_cents, payment_count) " +
+                 "select extract(year from payment_date) * 100 + extract(month from payment_date), " +
+                 "coalesce(role_name, 'NO_ROLE'), user_user_id, sum(payment_amount_cents), count(*) " +
+                 "from payment where user_user_id is not null and payment_date is not null " +
+                 "group by extract(year from payment_date) * 100 + extract(month from payment_date), " +
+                 "coalesce(role_name, 'NO_ROLE'), user_user_id",
+           nativeQuery=true)
+    int rebuildFromPayments();
+
+    // Totals over a range of yyyyMM months.
+
+    @Query("SELECT 'ALL' AS groupKey, SUM(r.paymentCount) AS paymentCount, SUM(r.totalAmountCents) AS totalAmountCents " +
+           "FROM PaymentMonthlyRollup r WHERE r.paymentMonth BETWEEN :from AND :to")
+    List<PaymentTotals> totals(@Param("from") int from, @Param("to") int to);
+
+    @Query("SELECT r.roleName AS groupKey, SUM(r.paymentCount) AS paymentCount, " +
+           "SUM(r.totalAmountCents) AS totalAmountCents FROM PaymentMonthlyRollup r " +
+           "WHERE r.paymentMonth BETWEEN :from AND :to GROUP BY r.roleName ORDER BY r.roleName")
+    List<PaymentTotals> totalsByRole(@Param("from") int from, @Param("to") int to);
+
+    @Query("SELECT CAST(r.userId AS String) AS groupKey, SUM(r.paymentCount) AS paymentCount, " +
+           "SUM(r.totalAmountCents) AS totalAmountCents FROM PaymentMonthlyRollup r " +
+           "WHERE r.paymentMonth BETWEEN :from AND :to GROUP BY r.userId ORDER BY r.userId")
+    List<PaymentTotals> totalsByUser(@Param("from") int from, @Param("to") int to);
+
+    @Query("SELECT CAST(r.paymentMonth AS String) AS groupKey, SUM(r.paymentCount) AS paymentCount, " +
+           "SUM(r.totalAmountCents) AS totalAmountCents FROM PaymentMonthlyRollup r " +
+           "WHERE r.paymentMonth BETWEEN :from AND :to GROUP BY r.paymentMonth ORDER BY r.paymentMonth")
+    List<PaymentTotals> totalsByMonth(@Param("from") int from, @Param("to") int to);
+
+    @Query("SELECT CAST(r.paymentMonth / 100 AS String) AS groupKey, SUM(r.paymentCount) AS paymentCount, " +
+           "SUM(r.totalAmountCents) AS totalAmountCents FROM PaymentMonthlyRollup r " +
+           "WHERE r.paymentMonth BETWEEN :from AND :to " +
+           "GROUP BY CAST(r.paymentMonth / 100 AS String) ORDER BY CAST(r.paymentMonth / 100 AS String)")
+    List<PaymentTotals> totalsByYear(@Param("from") int from, @Param("to") int to);
+
+    /**
+     * One row of rollup totals, amounts in cents. The amount is {@code null}
+     * when no rollup row matched.
+     */
+    interface PaymentTotals {
+        String getGroupKey();
+
+        Long getPaymentCount();
+
+        Long getTotalAmountCents();
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.caiohbs.crowdcontrol.repository;
+
+import com.caiohbs.crowdcontrol.model.PayrollChunkStatus;
+import com.caiohbs.crowdcontrol.model.PayrollRunChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface PayrollRunChunkRepository extends JpaRepository<PayrollRunChunk, Long> {
+
+    List<PayrollRunChunk> findByRunIdAndStatusNotOrderByChunkIndex(Long runId, PayrollChunkStatus status);
+
+    // Only one worker can move a chunk to DONE; a second one gets 0 back.
+    @Modifying
+    @Query("UPDATE PayrollRunChunk c SET c.status = :status, c.paidUsers = :paid " +
+           "WHERE c.chunkId = :chunkId AND c.status <> com.caiohbs.crowdcontrol.model.PayrollChunkStatus.DONE")
+    int updateStatus(
+            @Param("chunkId") Long chunkId, @Param("status") PayrollChunkStatus status, @Param("paid") int paid
+    );
+
+}
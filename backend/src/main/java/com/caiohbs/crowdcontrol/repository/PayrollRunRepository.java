@@ -0,0 +1,39 @@
+package com.caiohbs.crowdcontrol.repository;
+
+import com.caiohbs.crowdcontrol.model.PayrollRun;
+import com.caiohbs.crowdcontrol.model.PayrollRunStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface PayrollRunRepository extends JpaRepository<PayrollRun, Long> {
+
+    Optional<PayrollRun> findByPayPeriod(String payPeriod);
+
+    List<PayrollRun> findAllByOrderByPayPeriodDesc();
+
+    List<PayrollRun> findByStatusNot(PayrollRunStatus status);
+
+    // Chunks run in parallel, so counters are advanced in the database rather
+    // than read, changed and written back.
+    @Modifying
+    @Query("UPDATE PayrollRun r SET r.processedUsers = r.processedUsers + :processed, " +
+           "r.paidUsers = r.paidUsers + :paid, r.completedChunks = r.completedChunks + 1 " +
+           "WHERE r.runId = :runId")
+    int recordChunkDone(
+            @Param("runId") Long runId, @Param("processed") int processed, @Param("paid") int paid
+    );
+
+    @Modifying
+    @Query("UPDATE PayrollRun r SET r.status = :status, r.finishedAt = :finishedAt WHERE r.runId = :runId")
+    int updateStatus(
+            @Param("runId") Long runId, @Param("status") PayrollRunStatus status,
+            @Param("finishedAt") LocalDateTime finishedAt
+    );
+
+}
@@ -0,0 +1,13 @@
+package com.caiohbs.crowdcontrol.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * The validators of a resource served with conditional GETs: a number that
+ * grows with every change and when it last changed.
+ */
+public interface ResourceVersion {
+    Long getVersion();
+
+    LocalDateTime getModifiedAt();
+}
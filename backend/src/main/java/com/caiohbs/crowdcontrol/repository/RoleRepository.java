@@ -1,10 +1,21 @@
 package com.caiohbs.crowdcontrol.repository;
 
 import com.caiohbs.crowdcontrol.model.Role;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.util.List;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
 
 public interface RoleRepository extends JpaRepository<Role, Long> {
 
+    @QueryHints(@QueryHint(name=HINT_CACHEABLE, value="true"))
     Role findByRoleName(String roleName);
 
+    @Override
+    @QueryHints(@QueryHint(name=HINT_CACHEABLE, value="true"))
+    List<Role> findAll();
+
 }
@@ -2,11 +2,69 @@ package com.caiohbs.crowdcontrol.repository;
 
 import com.caiohbs.crowdcontrol.model.SickNote;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
 import java.util.List;
 
 public interface SickNoteRepository extends JpaRepository<SickNote, Long> {
 
     List<SickNote> findByUserUserId(long userId);
 
+    // Sick notes sharing at least one day with a range, served by
+    // sick_note_date_range_idx and sick_note_user_date_idx (see V13 and V14).
+
+    @Query("SELECT s FROM SickNote s WHERE s.sickNoteDate <= :to AND s.sickNoteEndDate >= :from " +
+           "ORDER BY s.sickNoteDate")
+    List<SickNote> findOverlapping(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("SELECT s FROM SickNote s WHERE s.user.userId = :userId " +
+           "AND s.sickNoteDate <= :to AND s.sickNoteEndDate >= :from ORDER BY s.sickNoteDate")
+    List<SickNote> findOverlappingForUser(
+            @Param("userId") long userId, @Param("from") LocalDate from, @Param("to") LocalDate to
+    );
+
+    @Query("SELECT s.sickNoteDate AS startDate, s.sickNoteEndDate AS endDate, u.userId AS userId, " +
+           "u.firstName AS firstName, u.lastName AS lastName " +
+           "FROM SickNote s JOIN s.user u WHERE s.sickNoteDate <= :to AND s.sickNoteEndDate >= :from " +
+           "ORDER BY u.userId")
+    List<Absence> findAbsences(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Every sick note's range, loaded into AbsenceIndexService and
+    // AbsenceAnalyticsService on startup.
+    @Query("SELECT s.sickNoteId AS sickNoteId, s.user.userId AS userId, s.roleName AS roleName, " +
+           "s.sickNoteDate AS startDate, s.sickNoteEndDate AS endDate FROM SickNote s")
+    List<Interval> findAllIntervals();
+
+    /**
+     * A user absent from a given day to another.
+     */
+    interface Absence {
+        LocalDate getStartDate();
+
+        LocalDate getEndDate();
+
+        Long getUserId();
+
+        String getFirstName();
+
+        String getLastName();
+    }
+
+    /**
+     * The range of days covered by a sick note.
+     */
+    interface Interval {
+        Long getSickNoteId();
+
+        Long getUserId();
+
+        String getRoleName();
+
+        LocalDate getStartDate();
+
+        LocalDate getEndDate();
+    }
+
 }
@@ -2,6 +2,15 @@ package com.caiohbs.crowdcontrol.repository;
 
 import com.caiohbs.crowdcontrol.model.UserInfo;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
 
 public interface UserInfoRespository extends JpaRepository<UserInfo, Long> {
+
+    @Query("SELECT i.version AS version, i.lastModifiedAt AS modifiedAt " +
+           "FROM UserInfo i WHERE i.user.userId = :userId")
+    Optional<ResourceVersion> findResourceVersion(@Param("userId") Long userId);
+
 }
@@ -0,0 +1,53 @@
+package com.caiohbs.crowdcontrol.repository;
+
+import com.caiohbs.crowdcontrol.model.User;
+import com.caiohbs.crowdcontrol.model.UserSortField;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Filtered, sorted listing of users with keyset pagination, implemented with
+ * the Criteria API in {@link UserListingRepositoryImpl}.
+ */
+public interface UserListingRepository {
+
+    /**
+     * Reads a page of users matching a filter, selecting only the listed
+     * columns so the users' eagerly fetched collections are never loaded.
+     *
+     * @param filter     Which users to list, or {@code null} for everyone.
+     * @param sortField  The field to sort by; ties are broken by user ID.
+     * @param direction  The direction of both the field and the user ID.
+     * @param afterValue The sort field's value on the last user of the previous
+     *                   page, or {@code null} for the first page.
+     * @param afterId    The ID of the last user of the previous page, or
+     *                   {@code null} for the first page.
+     * @param limit      How many users to read at most.
+     * @return The users following the previous page, in order.
+     */
+    List<ListedUser> findListing(
+            Specification<User> filter, UserSortField sortField, Sort.Direction direction,
+            Comparable<?> afterValue, Long afterId, int limit
+    );
+
+    /**
+     * The listed columns of a user and of their role, if any.
+     */
+    record ListedUser(
+            Long userId,
+            String email,
+            String firstName,
+            String lastName,
+            LocalDate birthDate,
+            LocalDate registerDate,
+            boolean isEnabled,
+            boolean isAccountNonLocked,
+            Long roleId,
+            String roleName
+    ) {
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.caiohbs.crowdcontrol.repository;
+
+import com.caiohbs.crowdcontrol.model.Role;
+import com.caiohbs.crowdcontrol.model.User;
+import com.caiohbs.crowdcontrol.model.UserSortField;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.*;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class UserListingRepositoryImpl implements UserListingRepository {
+
+    private final EntityManager entityManager;
+
+    UserListingRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public List<ListedUser> findListing(
+            Specification<User> filter, UserSortField sortField, Sort.Direction direction,
+            Comparable<?> afterValue, Long afterId, int limit
+    ) {
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ListedUser> query = builder.createQuery(ListedUser.class);
+        Root<User> user = query.from(User.class);
+        Join<User, Role> role = user.join("role", JoinType.LEFT);
+
+        query.select(builder.construct(
+                ListedUser.class,
+                user.get("userId"), user.get("email"), user.get("firstName"), user.get("lastName"),
+                user.get("birthDate"), user.get("registerDate"), user.get("isEnabled"),
+                user.get("isAccountNonLocked"), role.get("roleId"), role.get("roleName")
+        ));
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter != null) {
+            Predicate filterPredicate = filter.toPredicate(user, query, builder);
+            if (filterPredicate != null) {
+                predicates.add(filterPredicate);
+            }
+        }
+
+        Path<Long> userId = user.get("userId");
+        Path<Comparable> sortPath = user.get(sortField.getAttribute());
+        boolean ascending = direction.isAscending();
+
+        // Keyset: strictly after the last user of the previous page in
+        // (sort field, user ID) order, which the composite indexes of V16 serve.
+        // The redundant bound on the sort field alone gives the planner the
+        // start of the index range; the OR alone would not.
+        if (afterId != null) {
+            Predicate afterUserId = ascending ? builder.greaterThan(userId, afterId) : builder.lessThan(userId, afterId);
+            if (sortField == UserSortField.USER_ID) {
+                predicates.add(afterUserId);
+            } else {
+                Comparable value = afterValue;
+                predicates.add(ascending
+                        ? builder.greaterThanOrEqualTo(sortPath, value)
+                        : builder.lessThanOrEqualTo(sortPath, value));
+                predicates.add(builder.or(
+                        ascending ? builder.greaterThan(sortPath, value) : builder.lessThan(sortPath, value),
+                        builder.and(builder.equal(sortPath, value), afterUserId)
+                ));
+            }
+        }
+        query.where(predicates.toArray(Predicate[]::new));
+
+        List<Order> order = new ArrayList<>();
+        if (sortField != UserSortField.USER_ID) {
+            order.add(ascending ? builder.asc(sortPath) : builder.desc(sortPath));
+        }
+        order.add(ascending ? builder.asc(userId) : builder.desc(userId));
+        query.orderBy(order);
+
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+
+    }
+
+}
@@ -1,18 +1,123 @@
 package com.caiohbs.crowdcontrol.repository;
 
+import com.caiohbs.crowdcontrol.model.Money;
 import com.caiohbs.crowdcontrol.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserListingRepository {
 
     @Query("SELECT u.email FROM User u JOIN u.role r WHERE r.roleId = :roleId")
     List<String> findUsernamesByRoleId(@RequestParam("roleId") Long roleId);
 
     Optional<User> findByEmail(String email);
 
+    // Payroll: who gets paid, read as plain IDs and projections so the users'
+    // eagerly fetched collections are never loaded.
+
+    @Query("SELECT u.userId FROM User u WHERE u.role IS NOT NULL ORDER BY u.userId")
+    List<Long> findIdsOfUsersWithRole();
+
+    @Query("SELECT u.userId AS userId, r.roleName AS roleName, r.salary AS salary " +
+           "FROM User u JOIN u.role r WHERE u.userId BETWEEN :firstId AND :lastId " +
+           "AND NOT EXISTS (SELECT p.paymentId FROM Payment p " +
+           "WHERE p.user = u AND p.payPeriod = :payPeriod) " +
+           "ORDER BY u.userId")
+    List<PayableUser> findUnpaidInRange(
+            @Param("firstId") Long firstId, @Param("lastId") Long lastId,
+            @Param("payPeriod") String payPeriod
+    );
+
+    @Query("SELECT u.userId AS userId, r.roleName AS roleName, r.salary AS salary " +
+           "FROM User u JOIN u.role r WHERE r.roleId = :roleId " +
+           "AND NOT EXISTS (SELECT p.paymentId FROM Payment p " +
+           "WHERE p.user = u AND p.payPeriod = :payPeriod) " +
+           "ORDER BY u.userId")
+    List<PayableUser> findUnpaidByRoleId(@Param("roleId") Long roleId, @Param("payPeriod") String payPeriod);
+
+    boolean existsByRoleRoleId(Long roleId);
+
+    // Search: the indexed fields of users and their info, read in keyset
+    // batches when the index is rebuilt and by ID for a page of results.
+
+    @Query("SELECT u.userId AS userId, u.firstName AS firstName, u.lastName AS lastName, " +
+           "u.email AS email, i.bio AS bio, i.nationality AS nationality " +
+           "FROM User u LEFT JOIN u.userInfo i WHERE u.userId > :afterId ORDER BY u.userId")
+    List<SearchDocument> findSearchDocuments(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT u.userId AS userId, u.firstName AS firstName, u.lastName AS lastName, " +
+           "u.email AS email, i.bio AS bio, i.nationality AS nationality " +
+           "FROM User u LEFT JOIN u.userInfo i WHERE u.userId IN :ids")
+    List<SearchDocument> findSearchDocumentsByIds(@Param("ids") Collection<Long> ids);
+
+    // Set-based delete; the database removes the users' child rows through
+    // the ON DELETE CASCADE foreign keys without loading them.
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM User u WHERE u.userId IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    // Conditional GETs: the validators of a user and of the collections they
+    // own, read without loading the user. The collection counters are bumped
+    // in bulk, which leaves the user's own @Version alone.
+
+    @Query("SELECT u.version AS version, u.lastModifiedAt AS modifiedAt FROM User u WHERE u.userId = :userId")
+    Optional<ResourceVersion> findResourceVersion(@Param("userId") Long userId);
+
+    @Query("SELECT u.paymentsVersion AS version, u.paymentsModifiedAt AS modifiedAt " +
+           "FROM User u WHERE u.userId = :userId")
+    Optional<ResourceVersion> findPaymentsVersion(@Param("userId") Long userId);
+
+    @Query("SELECT u.sickNotesVersion AS version, u.sickNotesModifiedAt AS modifiedAt " +
+           "FROM User u WHERE u.userId = :userId")
+    Optional<ResourceVersion> findSickNotesVersion(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("UPDATE User u SET u.paymentsVersion = u.paymentsVersion + 1, u.paymentsModifiedAt = :now " +
+           "WHERE u.userId IN :ids")
+    int incrementPaymentsVersion(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE User u SET u.sickNotesVersion = u.sickNotesVersion + 1, u.sickNotesModifiedAt = :now " +
+           "WHERE u.userId = :userId")
+    int incrementSickNotesVersion(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    /**
+     * A user to be paid by payroll, with their role's salary.
+     */
+    interface PayableUser {
+        Long getUserId();
+
+        String getRoleName();
+
+        Money getSalary();
+    }
+
+    /**
+     * The searchable fields of a user.
+     */
+    interface SearchDocument {
+        Long getUserId();
+
+        String getFirstName();
+
+        String getLastName();
+
+        String getEmail();
+
+        String getBio();
+
+        String getNationality();
+    }
+
 }
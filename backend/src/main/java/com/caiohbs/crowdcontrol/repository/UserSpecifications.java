@@ -0,0 +1,77 @@
+package com.caiohbs.crowdcontrol.repository;
+
+import com.caiohbs.crowdcontrol.model.User;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+
+/**
+ * Filters of the user listing, to be combined with
+ * {@link Specification#allOf(Specification[])}. Each returns {@code null},
+ * which matches everyone, when its value is not given.
+ */
+public final class UserSpecifications {
+
+    // Users without a role, as shown by UserDTOMapper.
+    public static final String NO_ROLE = "NO_ROLE";
+
+    private UserSpecifications() {
+    }
+
+    /**
+     * @param roleName The name of the role, or {@value #NO_ROLE} for users without one.
+     */
+    public static Specification<User> hasRole(String roleName) {
+        if (roleName == null) {
+            return null;
+        }
+        if (roleName.equals(NO_ROLE)) {
+            return (user, query, builder) -> builder.isNull(user.get("role"));
+        }
+        return (user, query, builder) -> builder.equal(user.get("role").get("roleName"), roleName);
+    }
+
+    public static Specification<User> isEnabled(Boolean enabled) {
+        if (enabled == null) {
+            return null;
+        }
+        return (user, query, builder) -> builder.equal(user.get("isEnabled"), enabled);
+    }
+
+    public static Specification<User> isAccountNonLocked(Boolean nonLocked) {
+        if (nonLocked == null) {
+            return null;
+        }
+        return (user, query, builder) -> builder.equal(user.get("isAccountNonLocked"), nonLocked);
+    }
+
+    /**
+     * @param from First register date to include, or {@code null} for no lower bound.
+     * @param to   Last register date to include, or {@code null} for no upper bound.
+     */
+    public static Specification<User> registeredBetween(LocalDate from, LocalDate to) {
+        return between("registerDate", from, to);
+    }
+
+    /**
+     * @param from First birth date to include, or {@code null} for no lower bound.
+     * @param to   Last birth date to include, or {@code null} for no upper bound.
+     */
+    public static Specification<User> bornBetween(LocalDate from, LocalDate to) {
+        return between("birthDate", from, to);
+    }
+
+    private static Specification<User> between(String attribute, LocalDate from, LocalDate to) {
+        if (from == null && to == null) {
+            return null;
+        }
+        if (to == null) {
+            return (user, query, builder) -> builder.greaterThanOrEqualTo(user.get(attribute), from);
+        }
+        if (from == null) {
+            return (user, query, builder) -> builder.lessThanOrEqualTo(user.get(attribute), to);
+        }
+        return (user, query, builder) -> builder.between(user.get(attribute), from, to);
+    }
+
+}
@@ -0,0 +1,372 @@
+package com.caiohbs.crowdcontrol.service;
+
+import com.caiohbs.crowdcontrol.dto.AbsenceTotalsDTO;
+import com.caiohbs.crowdcontrol.dto.AbsenteeDTO;
+import com.caiohbs.crowdcontrol.exception.ValidationErrorException;
+import com.caiohbs.crowdcontrol.model.AbsenceGrouping;
+import com.caiohbs.crowdcontrol.model.SickNote;
+import com.caiohbs.crowdcontrol.repository.SickNoteRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Service class responsible for absence analytics: the number of sick days
+ * per month, role and user, kept in memory. The aggregates are loaded from
+ * the sick notes on startup and updated incrementally when
+ * {@link SickNoteService} or {@link UserService} commit a change, so reads
+ * only touch the months asked for, no matter how long the history is.
+ * <p>
+ * Sick days are attributed to the role the user had when the sick note was
+ * handed in, and a sick note spanning several months counts in each of them.
+ * Changes made by other instances or directly in the database are picked up
+ * by {@link #rebuild()}. Changes committed while it runs are replayed onto the
+ * rebuilt aggregates, and the sick notes counted are tracked by ID, so none is
+ * lost or counted twice whether the rebuild read it or not.
+ */
+@Service
+public class AbsenceAnalyticsService {
+
+    private static final Logger log = LoggerFactory.getLogger(AbsenceAnalyticsService.class);
+    static final String NO_ROLE = "NO_ROLE";
+    static final int MAX_TOP_ABSENTEES = 100;
+
+    private final SickNoteRepository sickNoteRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock rebuildLock = new ReentrantLock();
+
+    private Aggregates aggregates = new Aggregates();
+    // Changes committed since the running rebuild started, or null if none is
+    // running. Guarded by the write lock.
+    private List<Consumer<Aggregates>> changesDuringRebuild;
+
+    public AbsenceAnalyticsService(SickNoteRepository sickNoteRepository) {
+        this.sickNoteRepository = sickNoteRepository;
+    }
+
+    /**
+     * Recomputes every aggregate from the sick notes in the database.
+     *
+     * @return The number of sick notes read.
+     */
+    @PostConstruct
+    public int rebuild() {
+
+        rebuildLock.lock();
+        try {
+            lock.writeLock().lock();
+            try {
+                changesDuringRebuild = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Aggregates rebuilt = new Aggregates();
+            List<SickNoteRepository.Interval> intervals = null;
+            try {
+                intervals = sickNoteRepository.findAllIntervals();
+                for (SickNoteRepository.Interval interval : intervals) {
+                    rebuilt.addSickNote(interval.getSickNoteId(), new CountedSickNote(
+                            new RoleUser(roleNameOrDefault(interval.getRoleName()), interval.getUserId()),
+                            interval.getStartDate(), interval.getEndDate()
+                    ));
+                }
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    if (intervals != null) {
+                        changesDuringRebuild.forEach(change -> change.accept(rebuilt));
+                        aggregates = rebuilt;
+                    }
+                    changesDuringRebuild = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            log.info("Rebuilt absence analytics from {} sick notes.", intervals.size());
+
+            return intervals.size();
+        } finally {
+            rebuildLock.unlock();
+        }
+
+    }
+
+    /**
+     * Adds a new sick note's days once the current transaction commits.
+     *
+     * @param sickNote The sick note being created.
+     */
+    public void addSickNote(SickNote sickNote) {
+        applySickNote(sickNote, 1);
+    }
+
+    /**
+     * Takes a deleted sick note's days out once the current transaction
+     * commits.
+     *
+     * @param sickNote The sick note being deleted.
+     */
+    public void removeSickNote(SickNote sickNote) {
+        applySickNote(sickNote, -1);
+    }
+
+    /**
+     * Takes the sick days of deleted users out once the current transaction
+     * commits.
+     *
+     * @param userIds The IDs of the deleted users.
+     */
+    public void removeUsers(Collection<Long> userIds) {
+
+        Set<Long> removedIds = Set.copyOf(userIds);
+        applyAfterCommit(aggregates -> aggregates.removeUsers(removedIds));
+
+    }
+
+    /**
+     * Retrieves the number of sick days over a range of months.
+     *
+     * @param grouping The dimension to group the totals by.
+     * @param from     First month to include, or {@code null} for no lower bound.
+     * @param to       Last month to include, or {@code null} for no upper bound.
+     * @return A list of {@link AbsenceTotalsDTO}, one per group, ordered by group.
+     * @throws ValidationErrorException If the range ends before it starts.
+     */
+    public List<AbsenceTotalsDTO> retrieveSickDayTotals(
+            AbsenceGrouping grouping, YearMonth from, YearMonth to
+    ) throws ValidationErrorException {
+
+        validateRange(from, to);
+
+        lock.readLock().lock();
+        try {
+            Collection<Map.Entry<YearMonth, Map<RoleUser, Long>>> months = monthsBetween(from, to);
+            return switch (grouping) {
+                case NONE -> {
+                    long total = 0;
+                    for (Map.Entry<YearMonth, Map<RoleUser, Long>> month : months) {
+                        for (long sickDays : month.getValue().values()) {
+                            total += sickDays;
+                        }
+                    }
+                    yield List.of(new AbsenceTotalsDTO("ALL", total));
+                }
+                case ROLE -> totalBy(months, (month, roleUser) -> roleUser.roleName());
+                case USER -> totalBy(months, (month, roleUser) -> roleUser.userId());
+                case MONTH -> totalBy(months, (month, roleUser) -> month);
+                case YEAR -> totalBy(months, (month, roleUser) -> month.getYear());
+            };
+        } finally {
+            lock.readLock().unlock();
+        }
+
+    }
+
+    /**
+     * Retrieves the users with the most sick days over a range of months.
+     *
+     * @param from  First month to include, or {@code null} for no lower bound.
+     * @param to    Last month to include, or {@code null} for no upper bound.
+     * @param limit How many users to return, at most {@value #MAX_TOP_ABSENTEES}.
+     * @return A list of {@link AbsenteeDTO}, most sick days first.
+     * @throws ValidationErrorException If the range ends before it starts or the limit is out of bounds.
+     */
+    public List<AbsenteeDTO> retrieveTopAbsentees(
+            YearMonth from, YearMonth to, int limit
+    ) throws ValidationErrorException {
+
+        validateRange(from, to);
+        if (limit < 1 || limit > MAX_TOP_ABSENTEES) {
+            throw new ValidationErrorException("'limit' has to be between 1 and " + MAX_TOP_ABSENTEES + ".");
+        }
+
+        Map<Long, Long> sickDaysByUser = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<YearMonth, Map<RoleUser, Long>> month : monthsBetween(from, to)) {
+                month.getValue().forEach((roleUser, sickDays) ->
+                        sickDaysByUser.merge(roleUser.userId(), sickDays, Long::sum)
+                );
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Most sick days first, ties broken by user ID.
+        Comparator<AbsenteeDTO> ranking = Comparator.comparingLong(AbsenteeDTO::sickDays).reversed()
+                .thenComparing(AbsenteeDTO::userId);
+
+        // Keeps only the best `limit` users, with the worst of them on top.
+        PriorityQueue<AbsenteeDTO> top = new PriorityQueue<>(limit + 1, ranking.reversed());
+        sickDaysByUser.forEach((userId, sickDays) -> {
+            top.add(new AbsenteeDTO(userId, sickDays));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        });
+
+        return top.stream().sorted(ranking).toList();
+
+    }
+
+    private void applySickNote(SickNote sickNote, int sign) {
+
+        Long sickNoteId = sickNote.getSickNoteId();
+        RoleUser roleUser = new RoleUser(roleNameOrDefault(sickNote.getRoleName()), sickNote.getUser().getUserId());
+        LocalDate startDate = sickNote.getSickNoteDate();
+        LocalDate endDate = sickNote.getSickNoteEndDate() != null ? sickNote.getSickNoteEndDate() : startDate;
+
+        if (sign > 0) {
+            CountedSickNote counted = new CountedSickNote(roleUser, startDate, endDate);
+            applyAfterCommit(aggregates -> aggregates.addSickNote(sickNoteId, counted));
+        } else {
+            applyAfterCommit(aggregates -> aggregates.removeSickNote(sickNoteId));
+        }
+
+    }
+
+    /**
+     * Applies a change once the current transaction commits, recording it for
+     * the rebuild in progress, if any.
+     */
+    private void applyAfterCommit(Consumer<Aggregates> change) {
+
+        TransactionCallbacks.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                change.accept(aggregates);
+                if (changesDuringRebuild != null) {
+                    changesDuringRebuild.add(change);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+
+    }
+
+    private Collection<Map.Entry<YearMonth, Map<RoleUser, Long>>> monthsBetween(YearMonth from, YearMonth to) {
+
+        NavigableMap<YearMonth, Map<RoleUser, Long>> months = aggregates.sickDaysByMonth;
+        if (from != null) {
+            months = months.tailMap(from, true);
+        }
+        if (to != null) {
+            months = months.headMap(to, true);
+        }
+        return months.entrySet();
+
+    }
+
+    private static <K extends Comparable<K>> List<AbsenceTotalsDTO> totalBy(
+            Collection<Map.Entry<YearMonth, Map<RoleUser, Long>>> months,
+            BiFunction<YearMonth, RoleUser, K> groupOf
+    ) {
+
+        Map<K, Long> totals = new TreeMap<>();
+        for (Map.Entry<YearMonth, Map<RoleUser, Long>> month : months) {
+            month.getValue().forEach((roleUser, sickDays) ->
+                    totals.merge(groupOf.apply(month.getKey(), roleUser), sickDays, Long::sum)
+            );
+        }
+
+        return totals.entrySet().stream()
+                .map(total -> new AbsenceTotalsDTO(total.getKey().toString(), total.getValue()))
+                .toList();
+
+    }
+
+    /**
+     * Adds (or, with a negative sign, subtracts) the days of a sick note to
+     * each month it covers.
+     */
+    private static void addSickDays(
+            NavigableMap<YearMonth, Map<RoleUser, Long>> sickDaysByMonth, RoleUser roleUser,
+            LocalDate startDate, LocalDate endDate, int sign
+    ) {
+
+        for (YearMonth month = YearMonth.from(startDate); !month.isAfter(YearMonth.from(endDate));
+             month = month.plusMonths(1)) {
+            LocalDate first = startDate.isAfter(month.atDay(1)) ? startDate : month.atDay(1);
+            LocalDate last = endDate.isBefore(month.atEndOfMonth()) ? endDate : month.atEndOfMonth();
+            long sickDays = sign * (ChronoUnit.DAYS.between(first, last) + 1);
+
+            Map<RoleUser, Long> monthSickDays = sickDaysByMonth.computeIfAbsent(month, key -> new HashMap<>());
+            if (monthSickDays.merge(roleUser, sickDays, Long::sum) == 0) {
+                monthSickDays.remove(roleUser);
+                if (monthSickDays.isEmpty()) {
+                    sickDaysByMonth.remove(month);
+                }
+            }
+        }
+
+    }
+
+    private static void validateRange(YearMonth from, YearMonth to) throws ValidationErrorException {
+        if (from != null && to != null && to.isBefore(from)) {
+            throw new ValidationErrorException("'from' has to be before 'to'.");
+        }
+    }
+
+    private static String roleNameOrDefault(String roleName) {
+        return roleName != null ? roleName : NO_ROLE;
+    }
+
+    private record RoleUser(String roleName, Long userId) {
+    }
+
+    private record CountedSickNote(RoleUser roleUser, LocalDate startDate, LocalDate endDate) {
+    }
+
+    /**
+     * The sick days per month along with the sick notes they were counted
+     * from. Adding a sick note already counted, or removing one that isn't,
+     * does nothing.
+     */
+    private static class Aggregates {
+
+        // Sick days per month, then per role and user. Months and entries
+        // without sick days are removed.
+        private final NavigableMap<YearMonth, Map<RoleUser, Long>> sickDaysByMonth = new TreeMap<>();
+        private final Map<Long, CountedSickNote> sickNotes = new HashMap<>();
+
+        void addSickNote(Long sickNoteId, CountedSickNote sickNote) {
+            if (sickNotes.putIfAbsent(sickNoteId, sickNote) == null) {
+                addSickDays(sickDaysByMonth, sickNote.roleUser(), sickNote.startDate(), sickNote.endDate(), 1);
+            }
+        }
+
+        void removeSickNote(Long sickNoteId) {
+            CountedSickNote sickNote = sickNotes.remove(sickNoteId);
+            if (sickNote != null) {
+                addSickDays(sickDaysByMonth, sickNote.roleUser(), sickNote.startDate(), sickNote.endDate(), -1);
+            }
+        }
+
+        void removeUsers(Set<Long> userIds) {
+            sickNotes.values().removeIf(sickNote -> userIds.contains(sickNote.roleUser().userId()));
+            for (Iterator<Map<RoleUser, Long>> months = sickDaysByMonth.values().iterator(); months.hasNext(); ) {
+                Map<RoleUser, Long> month = months.next();
+                month.keySet().removeIf(roleUser -> userIds.contains(roleUser.userId()));
+                if (month.isEmpty()) {
+                    months.remove();
+                }
+            }
+        }
+
+    }
+
+}
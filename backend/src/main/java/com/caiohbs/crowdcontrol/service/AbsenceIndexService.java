@@ -0,0 +1,240 @@
+package com.caiohbs.crowdcontrol.service;
+
+import com.caiohbs.crowdcontrol.dto.AbsenceIntervalDTO;
+import com.caiohbs.crowdcontrol.exception.ValidationErrorException;
+import com.caiohbs.crowdcontrol.model.SickNote;
+import com.caiohbs.crowdcontrol.repository.SickNoteRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Service class keeping the sick notes' date ranges in memory, in one
+ * {@link IntervalTree} per user and one for the whole organization. It answers
+ * "who is out between X and Y" and "does this overlap an earlier sick note"
+ * without touching the database.
+ * <p>
+ * The trees are loaded on startup and kept in sync by {@link SickNoteService}
+ * and {@link UserService}: additions are applied at once, so concurrent
+ * overlapping submissions see each other, and undone if the transaction rolls
+ * back; removals are applied once the transaction commits. Sick notes written
+ * by other instances are not seen until a restart.
+ */
+@Service
+public class AbsenceIndexService {
+
+    private static final Logger log = LoggerFactory.getLogger(AbsenceIndexService.class);
+
+    private final SickNoteRepository sickNoteRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private IntervalTree<AbsenceIntervalDTO> organizationTree = new IntervalTree<>();
+    private Map<Long, IntervalTree<AbsenceIntervalDTO>> userTrees = new HashMap<>();
+
+    public AbsenceIndexService(SickNoteRepository sickNoteRepository) {
+        this.sickNoteRepository = sickNoteRepository;
+    }
+
+    /**
+     * (Re)loads the trees from every sick note in the database.
+     */
+    @PostConstruct
+    public void load() {
+
+        IntervalTree<AbsenceIntervalDTO> loadedOrganizationTree = new IntervalTree<>();
+        Map<Long, IntervalTree<AbsenceIntervalDTO>> loadedUserTrees = new HashMap<>();
+
+        for (SickNoteRepository.Interval interval : sickNoteRepository.findAllIntervals()) {
+            AbsenceIntervalDTO absence = new AbsenceIntervalDTO(
+                    interval.getSickNoteId(), interval.getUserId(),
+                    interval.getStartDate(), interval.getEndDate()
+            );
+            insert(loadedOrganizationTree, absence);
+            insert(loadedUserTrees.computeIfAbsent(absence.userId(), userId -> new IntervalTree<>()), absence);
+        }
+
+        lock.writeLock().lock();
+        try {
+            organizationTree = loadedOrganizationTree;
+            userTrees = loadedUserTrees;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Loaded {} sick note intervals into the absence index.", loadedOrganizationTree.size());
+
+    }
+
+    /**
+     * Checks that a user has no sick note sharing a day with a range.
+     *
+     * @param userId The ID of the user.
+     * @param from   First day of the range.
+     * @param to     Last day of the range.
+     * @throws ValidationErrorException If the range overlaps one of the user's sick notes.
+     */
+    public void checkNoOverlap(Long userId, LocalDate from, LocalDate to) throws ValidationErrorException {
+
+        lock.readLock().lock();
+        try {
+            checkNoOverlapLocked(userId, from, to);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+    }
+
+    /**
+     * Adds a newly saved sick note, unless it overlaps one of its user's
+     * sick notes. The check and the insert are atomic. If the current
+     * transaction rolls back, the sick note is removed again.
+     *
+     * @param sickNote The saved sick note, with its ID assigned.
+     * @throws ValidationErrorException If the sick note overlaps one of its user's sick notes.
+     */
+    public void add(SickNote sickNote) throws ValidationErrorException {
+
+        AbsenceIntervalDTO absence = toInterval(sickNote);
+
+        lock.writeLock().lock();
+        try {
+            checkNoOverlapLocked(absence.userId(), absence.startDate(), absence.endDate());
+            insert(organizationTree, absence);
+            insert(userTrees.computeIfAbsent(absence.userId(), userId -> new IntervalTree<>()), absence);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        TransactionCallbacks.afterRollback(() -> removeNow(absence));
+
+    }
+
+    /**
+     * Removes a deleted sick note once the current transaction commits.
+     *
+     * @param sickNote The deleted sick note.
+     */
+    public void remove(SickNote sickNote) {
+
+        AbsenceIntervalDTO absence = toInterval(sickNote);
+        TransactionCallbacks.afterCommit(() -> removeNow(absence));
+
+    }
+
+    /**
+     * Removes every sick note of deleted users once the current transaction
+     * commits.
+     *
+     * @param userIds The IDs of the deleted users.
+     */
+    public void removeUsers(Collection<Long> userIds) {
+
+        List<Long> removedIds = List.copyOf(userIds);
+        TransactionCallbacks.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                for (Long userId : removedIds) {
+                    IntervalTree<AbsenceIntervalDTO> userTree = userTrees.remove(userId);
+                    if (userTree == null) {
+                        continue;
+                    }
+                    for (AbsenceIntervalDTO absence : userTree.findOverlapping(Long.MIN_VALUE, Long.MAX_VALUE)) {
+                        organizationTree.remove(absence.startDate().toEpochDay(), absence.sickNoteId());
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+
+    }
+
+    /**
+     * Finds the sick notes, of any user, sharing at least one day with a range.
+     *
+     * @param from First day of the range.
+     * @param to   Last day of the range.
+     * @return The overlapping sick notes' intervals, in order of start.
+     */
+    public List<AbsenceIntervalDTO> findOverlapping(LocalDate from, LocalDate to) {
+
+        lock.readLock().lock();
+        try {
+            return organizationTree.findOverlapping(from.toEpochDay(), to.toEpochDay());
+        } finally {
+            lock.readLock().unlock();
+        }
+
+    }
+
+    /**
+     * Finds the sick notes of a user sharing at least one day with a range.
+     *
+     * @param userId The ID of the user.
+     * @param from   First day of the range.
+     * @param to     Last day of the range.
+     * @return The overlapping sick notes' intervals, in order of start.
+     */
+    public List<AbsenceIntervalDTO> findOverlappingForUser(Long userId, LocalDate from, LocalDate to) {
+
+        lock.readLock().lock();
+        try {
+            IntervalTree<AbsenceIntervalDTO> userTree = userTrees.get(userId);
+            return userTree != null ? userTree.findOverlapping(from.toEpochDay(), to.toEpochDay()) : List.of();
+        } finally {
+            lock.readLock().unlock();
+        }
+
+    }
+
+    private void checkNoOverlapLocked(Long userId, LocalDate from, LocalDate to) throws ValidationErrorException {
+
+        IntervalTree<AbsenceIntervalDTO> userTree = userTrees.get(userId);
+        if (userTree != null && userTree.overlapsAny(from.toEpochDay(), to.toEpochDay())) {
+            throw new ValidationErrorException("Sick note overlaps an existing sick note of the user.");
+        }
+
+    }
+
+    private void removeNow(AbsenceIntervalDTO absence) {
+
+        lock.writeLock().lock();
+        try {
+            long start = absence.startDate().toEpochDay();
+            organizationTree.remove(start, absence.sickNoteId());
+            IntervalTree<AbsenceIntervalDTO> userTree = userTrees.get(absence.userId());
+            if (userTree != null) {
+                userTree.remove(start, absence.sickNoteId());
+                if (userTree.isEmpty()) {
+                    userTrees.remove(absence.userId());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+    }
+
+    private static AbsenceIntervalDTO toInterval(SickNote sickNote) {
+        return new AbsenceIntervalDTO(
+                sickNote.getSickNoteId(), sickNote.getUser().getUserId(),
+                sickNote.getSickNoteDate(), sickNote.getSickNoteEndDate()
+        );
+    }
+
+    private static void insert(IntervalTree<AbsenceIntervalDTO> tree, AbsenceIntervalDTO absence) {
+        tree.insert(
+                absence.startDate().toEpochDay(), absence.endDate().toEpochDay(),
+                absence.sickNoteId(), absence
+        );
+    }
+
+}
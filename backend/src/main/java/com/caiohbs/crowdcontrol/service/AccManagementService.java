@@ -1,18 +1,30 @@
 package com.caiohbs.crowdcontrol.service;
 
 import com.caiohbs.crowdcontrol.dto.UserUpdateDTO;
+import com.caiohbs.crowdcontrol.exception.MailUnavailableException;
+import com.caiohbs.crowdcontrol.exception.NameTakenException;
 import com.caiohbs.crowdcontrol.exception.ResourceNotFoundException;
 import com.caiohbs.crowdcontrol.exception.ValidationErrorException;
 import com.caiohbs.crowdcontrol.model.*;
 import com.caiohbs.crowdcontrol.repository.EmailCodeRepository;
 import com.caiohbs.crowdcontrol.repository.RoleRepository;
 import com.caiohbs.crowdcontrol.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.stereotype.Service;
-
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,13 +35,27 @@ public class AccManagementService {
     private final EmailCodeRepository emailCodeRepository;
     private final JwtService jwtService;
     private final RoleRepository roleRepository;
+    private final UserSearchService userSearchService;
+    private final ResourceVersionService resourceVersionService;
+    private final UserService userService;
+    private final MailDispatcherService mailDispatcherService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration emailCodeTtl;
+    private final Duration mailRetryAfter;
 
     public AccManagementService(
             UserRepository userRepository,
             EmailCodeRepository emailCodeRepository,
             AuthenticationManager authenticationManager,
             JwtService jwtService,
-            RoleRepository roleRepository
+            RoleRepository roleRepository,
+            UserSearchService userSearchService,
+            ResourceVersionService resourceVersionService,
+            UserService userService,
+            MailDispatcherService mailDispatcherService,
+            PlatformTransactionManager transactionManager,
+            @Value("${crowdcontrol.vars.EMAIL_CODE_TTL:PT24H}") Duration emailCodeTtl,
+            @Value("${crowdcontrol.vars.MAIL_RETRY_AFTER:PT30S}") Duration mailRetryAfter
     ) {
 
         this.userRepository = userRepository;
@@ -37,6 +63,13 @@ public class AccManagementService {
         this.authenticationManager = authenticationManager;
         this.jwtService = jwtService;
         this.roleRepository = roleRepository;
+        this.userSearchService = userSearchService;
+        this.resourceVersionService = resourceVersionService;
+        this.userService = userService;
+        this.mailDispatcherService = mailDispatcherService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.emailCodeTtl = emailCodeTtl;
+        this.mailRetryAfter = mailRetryAfter;
     }
 
     /**
@@ -75,6 +108,7 @@ public class AccManagementService {
      * @return The generated email verification code.
      * @throws ResourceNotFoundException If the provided email type is invalid.
      */
+    @Transactional
     public String createEmailCode(
             User user, String emailType
     ) throws ResourceNotFoundException {
@@ -87,7 +121,10 @@ public class AccManagementService {
 
         String generatedCode = generateCode();
 
-        EmailCode newEmailCode = new EmailCode(generatedCode, true, EmailType.valueOf(emailType), user);
+        EmailCode newEmailCode = new EmailCode(
+                digestCode(generatedCode), true, EmailType.valueOf(emailType), user,
+                LocalDateTime.now().plus(emailCodeTtl)
+        );
         emailCodeRepository.save(newEmailCode);
 
         return generatedCode;
@@ -95,30 +132,67 @@ public class AccManagementService {
     }
 
     /**
-     * Creates a new superuser with administrator privileges if none exists.
+     * Generates an email verification code for a user and queues the email
+     * carrying it. If there is no room in the mail queue nothing is stored,
+     * so the request can simply be retried.
+     *
+     * @param user      The user to send the email to.
+     * @param emailType The type of email to send ({@code ENABLE_ACC} or {@code RECOV_PASS}).
+     * @throws ResourceNotFoundException If the provided email type is invalid.
+     * @throws MailUnavailableException  If the mail queue is full or shutting down.
+     */
+    public void sendEmailCode(
+            User user, String emailType
+    ) throws ResourceNotFoundException, MailUnavailableException {
+        inTransactionSendingEmailCode(() -> user, emailType);
+    }
+
+    /**
+     * Creates a new user and sends them the e-mail to enable their account.
+     * If there is no room in the mail queue the user isn't created either.
+     *
+     * @param user The user to be created.
+     * @return The newly created user.
+     * @throws NameTakenException       If the provided email is already registered in the system.
+     * @throws MailUnavailableException If the mail queue is full or shutting down.
+     */
+    public User registerUser(User user) throws NameTakenException, MailUnavailableException {
+        return inTransactionSendingEmailCode(() -> userService.createUser(user), "ENABLE_ACC");
+    }
+
+    /**
+     * Creates a new superuser with administrator privileges if none exists and
+     * sends them the e-mail to enable their account. The role, the user and
+     * the e-mail code are inserted in the same transaction, so a failure
+     * (including there being no room in the mail queue) leaves none of them
+     * behind.
      *
      * @param user The user to be assigned superuser privileges.
      * @throws ValidationErrorException If a superuser already exists.
+     * @throws MailUnavailableException If the mail queue is full or shutting down.
      */
-    public void createSuperUser(User user) throws ValidationErrorException {
-
-        Role roleCheck = roleRepository.findByRoleName("ADMIN");
+    public void createSuperUser(User user) throws ValidationErrorException, MailUnavailableException {
 
-        if (roleCheck != null) {
-            throw new ValidationErrorException("Super user already exists.");
-        }
+        inTransactionSendingEmailCode(() -> {
+            Role roleCheck = roleRepository.findByRoleName("ADMIN");
 
-        userRepository.save(user);
+            if (roleCheck != null) {
+                throw new ValidationErrorException("Super user already exists.");
+            }
 
-        Permission[] permissions = Permission.values();
-        Role adminRole = new Role("ADMIN", 1, 0,
-                Arrays.stream(permissions).map(Enum::name).collect(Collectors.toList())
-        );
+            Permission[] permissions = Permission.values();
+            Role adminRole = new Role("ADMIN", 1, Money.ZERO,
+                    Arrays.stream(permissions).map(Enum::name).collect(Collectors.toList())
+            );
 
-        roleRepository.save(adminRole);
+            roleRepository.save(adminRole);
 
-        user.setRole(adminRole);
-        userRepository.save(user);
+            user.setRole(adminRole);
+            userRepository.save(user);
+            userSearchService.indexUser(user, null);
+            resourceVersionService.rolesChanged();
+            return user;
+        }, "ENABLE_ACC");
 
     }
 
@@ -128,40 +202,52 @@ public class AccManagementService {
      * @param emailCode The email verification code to be validated.
      * @return True if the code is valid and the corresponding action is successful, otherwise throws an exception.
      * @throws ResourceNotFoundException If the provided email code is not found.
-     * @throws ValidationErrorException  If the code has already been used.
+     * @throws ValidationErrorException  If the code has already been used or has expired.
      */
+    @Transactional
     public boolean isEmailCodeValid(
             String emailCode
     ) throws ResourceNotFoundException, ValidationErrorException {
 
-        EmailCode foundCode = emailCodeRepository.findByEmailCode(emailCode);
+        EmailCode foundCode = findUsableCode(emailCode);
+        deactivateCode(foundCode);
 
-        if (foundCode == null) {
-            throw new ResourceNotFoundException("Email code not found.");
+        if (foundCode.getEmailType() == EmailType.ENABLE_ACC) {
+            User foundUser = foundCode.getUser();
+            foundUser.setIsEnabled(true);
+            userRepository.save(foundUser);
         }
 
-        if (!foundCode.isCodeActive()) {
-            throw new ValidationErrorException("Code was already used.");
-        }
+        return true;
 
-        User foundUser = foundCode.getUser();
+    }
 
-        if (Objects.equals(foundCode.getEmailType().toString(), "ENABLE_ACC")) {
-            foundUser.setIsEnabled(true);
-            foundCode.setCodeActive(false);
-            emailCodeRepository.save(foundCode);
-            userRepository.save(foundUser);
+    /**
+     * Validates an email verification code of the given type and consumes it,
+     * returning the user it was issued to. The code is deactivated through a
+     * conditional update, so two requests racing with the same code can never
+     * both succeed.
+     *
+     * @param emailCode The email verification code sent to the user.
+     * @param emailType The type the code is expected to have.
+     * @return The {@link User} the code belongs to.
+     * @throws ResourceNotFoundException If the provided email code is not found.
+     * @throws ValidationErrorException  If the code is of another type, has already been used or has expired.
+     */
+    @Transactional
+    public User consumeEmailCode(
+            String emailCode, EmailType emailType
+    ) throws ResourceNotFoundException, ValidationErrorException {
 
-            return true;
-        } else if (Objects.equals(foundCode.getEmailType().toString(), "RECOV_PASS")) {
-            foundCode.setCodeActive(false);
-            emailCodeRepository.save(foundCode);
+        EmailCode foundCode = findUsableCode(emailCode);
 
-            return true;
-        } else {
-            throw new ResourceNotFoundException("Email type not valid.");
+        if (foundCode.getEmailType() != emailType) {
+            throw new ValidationErrorException("Invalid email code.");
         }
 
+        deactivateCode(foundCode);
+        return foundCode.getUser();
+
     }
 
     /**
@@ -171,6 +257,7 @@ public class AccManagementService {
      * @param dto  The data transfer object containing new password and confirmation details.
      * @throws ValidationErrorException If the new password and confirm password do not match.
      */
+    @Transactional
     public void resetPassword(
             User user, UserUpdateDTO dto
     ) throws ValidationErrorException {
@@ -192,6 +279,7 @@ public class AccManagementService {
      * @param userId The identifier of the user to unlock.
      * @throws ResourceNotFoundException If the user with the provided ID is not found.
      */
+    @Transactional
     public void unlockUser(Long userId) {
 
         Optional<User> foundUser = userRepository.findById(userId);
@@ -207,6 +295,78 @@ public class AccManagementService {
 
     }
 
+    /**
+     * Looks up an email code (along with its user) by the digest of the raw
+     * code and checks it can still be used.
+     *
+     * @param emailCode The raw email code.
+     * @return The matching {@link EmailCode}.
+     * @throws ResourceNotFoundException If the provided email code is not found.
+     * @throws ValidationErrorException  If the code has already been used or has expired.
+     */
+    private EmailCode findUsableCode(
+            String emailCode
+    ) throws ResourceNotFoundException, ValidationErrorException {
+
+        EmailCode foundCode = emailCodeRepository.findByEmailCode(digestCode(emailCode));
+
+        if (foundCode == null) {
+            throw new ResourceNotFoundException("Email code not found.");
+        }
+
+        if (!foundCode.isCodeActive()) {
+            throw new ValidationErrorException("Code was already used.");
+        }
+
+        if (foundCode.isExpired()) {
+            throw new ValidationErrorException("Code has expired.");
+        }
+
+        return foundCode;
+
+    }
+
+    /**
+     * Deactivates an email code, provided nobody else did it first. The code
+     * expires at the same time, so the next purge removes it.
+     *
+     * @param emailCode The code to deactivate.
+     * @throws ValidationErrorException If the code was consumed or expired in the meantime.
+     */
+    private void deactivateCode(EmailCode emailCode) throws ValidationErrorException {
+
+        LocalDateTime now = LocalDateTime.now();
+        int updated = emailCodeRepository.deactivateIfUsable(emailCode.getEmailId(), now);
+
+        if (updated == 0) {
+            throw new ValidationErrorException("Code was already used.");
+        }
+        emailCode.setCodeActive(false);
+        emailCode.setExpiresAt(now);
+
+    }
+
+    /**
+     * Computes the value stored in the database for a raw email code. Only the
+     * SHA-256 digest is persisted, so a leaked table does not expose usable
+     * codes and every lookup hits a fixed-width unique index.
+     *
+     * @param emailCode The raw email code.
+     * @return The hex encoded SHA-256 digest of the code.
+     */
+    static String digestCode(String emailCode) {
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(
+                    digest.digest(emailCode.getBytes(StandardCharsets.UTF_8))
+            );
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+    }
+
     /**
      * Generates a random UUID as a string.
      *
@@ -216,4 +376,42 @@ public class AccManagementService {
         return UUID.randomUUID().toString();
     }
 
+    /**
+     * Runs the work in a transaction that also creates an e-mail code for the
+     * user it returns, and queues the e-mail once that transaction commits.
+     * Room in the mail queue is reserved before the transaction starts, so
+     * waiting for it doesn't hold a database connection, and given back if
+     * the transaction rolls back.
+     *
+     * @param work      Creates or looks up the user to send the e-mail to.
+     * @param emailType The type of email to send.
+     * @return The user returned by the work.
+     * @throws MailUnavailableException If the mail queue is full or shutting down.
+     */
+    private User inTransactionSendingEmailCode(
+            Supplier<User> work, String emailType
+    ) throws MailUnavailableException {
+
+        if (!mailDispatcherService.reserve()) {
+            throw new MailUnavailableException(
+                    "The e-mail could not be sent right now, please try again later.", mailRetryAfter
+            );
+        }
+
+        try {
+            return transactionTemplate.execute(status -> {
+                User user = work.get();
+                String code = createEmailCode(user, emailType);
+                TransactionCallbacks.afterCommit(
+                        () -> mailDispatcherService.submit(user.getUsername(), emailType, code)
+                );
+                return user;
+            });
+        } catch (RuntimeException e) {
+            mailDispatcherService.release();
+            throw e;
+        }
+
+    }
+
 }
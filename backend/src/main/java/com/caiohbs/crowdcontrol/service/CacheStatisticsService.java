@@ -0,0 +1,68 @@
+package com.caiohbs.crowdcontrol.service;
+
+import com.caiohbs.crowdcontrol.dto.CacheRegionStatsDTO;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Service class exposing the Hibernate second-level and query cache counters,
+ * so the effectiveness of the role cache can be checked at runtime.
+ */
+@Service
+public class CacheStatisticsService {
+
+    private final Statistics statistics;
+
+    public CacheStatisticsService(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+    }
+
+    /**
+     * Retrieves hit, miss and put counts for every second-level cache region,
+     * followed by the totals for the query cache.
+     *
+     * @return A {@link List} of {@link CacheRegionStatsDTO}, one per region.
+     */
+    public List<CacheRegionStatsDTO> retrieveCacheStatistics() {
+
+        List<CacheRegionStatsDTO> regions = new ArrayList<>();
+
+        String[] regionNames = statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(regionNames);
+        for (String regionName : regionNames) {
+            CacheRegionStatistics region = statistics.getDomainDataRegionStatistics(regionName);
+            regions.add(toDTO(
+                    regionName, region.getHitCount(), region.getMissCount(), region.getPutCount()
+            ));
+        }
+
+        regions.add(toDTO(
+                "query-cache",
+                statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount(),
+                statistics.getQueryCachePutCount()
+        ));
+
+        return regions;
+
+    }
+
+    private CacheRegionStatsDTO toDTO(String regionName, long hits, long misses, long puts) {
+
+        long lookups = hits + misses;
+        double hitRatio = lookups == 0 ? 0.0 : (double) hits / lookups;
+
+        return new CacheRegionStatsDTO(regionName, hits, misses, puts, hitRatio);
+
+    }
+
+}
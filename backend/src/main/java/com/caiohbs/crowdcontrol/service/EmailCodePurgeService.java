@@ -0,0 +1,68 @@
+package com.caiohbs.crowdcontrol.service;
+
+import com.caiohbs.crowdcontrol.repository.EmailCodeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Service class responsible for removing e-mail codes that can no longer be
+ * used, either because they were already consumed or because they expired.
+ */
+@Service
+public class EmailCodePurgeService {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailCodePurgeService.class);
+
+    private final EmailCodeRepository emailCodeRepository;
+    private final int batchSize;
+
+    public EmailCodePurgeService(
+            EmailCodeRepository emailCodeRepository,
+            @Value("${crowdcontrol.vars.EMAIL_CODE_PURGE_BATCH_SIZE:500}") int batchSize
+    ) {
+        this.emailCodeRepository = emailCodeRepository;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Deletes used and expired e-mail codes (used codes expire when they are
+     * consumed). The rows are removed in batches, each one in its own short
+     * transaction, so the table is never locked for the whole purge.
+     *
+     * @return The total number of codes deleted.
+     */
+    @Scheduled(
+            initialDelayString="${crowdcontrol.vars.EMAIL_CODE_PURGE_INTERVAL:PT1H}",
+            fixedDelayString="${crowdcontrol.vars.EMAIL_CODE_PURGE_INTERVAL:PT1H}"
+    )
+    public int purgeStaleCodes() {
+
+        LocalDateTime now = LocalDateTime.now();
+        PageRequest firstBatch = PageRequest.of(0, batchSize);
+        int totalDeleted = 0;
+
+        List<Long> ids;
+        do {
+            // Deleted rows drop out of the result, so the first page is always
+            // the next batch.
+            ids = emailCodeRepository.findExpiredIds(now, firstBatch);
+            if (!ids.isEmpty()) {
+                totalDeleted += emailCodeRepository.deleteByIds(ids);
+            }
+        } while (ids.size() == batchSize);
+
+        if (totalDeleted > 0) {
+            log.info("Purged {} used or expired e-mail codes.", totalDeleted);
+        }
+        return totalDeleted;
+
+    }
+
+}
@@ -1,23 +1,33 @@
 package com.caiohbs.crowdcontrol.service;
 
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
 import java.util.Objects;
 
 @Service
 public class EmailSenderService {
 
+    private static final String TEMPLATE_PATH = "templates/emails/";
+
     @Value("${spring.mail.username}")
     private String appEmail;
     @Value("${crowdcontrol.vars.WEBSITE_ADDRESS}")
     private String baseAddress;
+    // Re-reads the templates before every email, to edit them without a
+    // restart in development.
+    @Value("${crowdcontrol.vars.EMAIL_TEMPLATES_RELOAD:false}")
+    private boolean reloadTemplates = false;
     private final JavaMailSender mailSender;
+    private volatile EmailTemplate enableAccountTemplate;
+    private volatile EmailTemplate resetPasswordTemplate;
 
 
     public EmailSenderService(JavaMailSender mailSender) {
@@ -50,39 +60,49 @@ public class EmailSenderService {
     }
 
     /**
-     * Retrieves the email body content based on the specified email type and
-     * replaces placeholders with provided data.
+     * Loads and compiles the email templates from the classpath. Called once
+     * at startup, and before every email when template reloading is on.
+     *
+     * @throws IllegalStateException If a template can't be read.
+     */
+    @PostConstruct
+    void loadTemplates() throws IllegalStateException {
+        enableAccountTemplate = loadTemplate("enable-account.txt");
+        resetPasswordTemplate = loadTemplate("reset-password.txt");
+    }
+
+    /**
+     * Renders the email body for the specified email type, with the link
+     * carrying the verification code.
      *
      * @param type The type of email ({@code ENABLE_ACC} or {@code RECOV_PASS}).
      * @param code The verification code to be included in the email body.
      * @return The formatted email body content.
-     * @throws RuntimeException If any errors occur while reading the email
-     *                          template file.
+     * @throws IllegalStateException If templates are reloaded and one can't be
+     *                               read.
      */
-    private String getEmailText(String type, String code) throws RuntimeException {
+    private String getEmailText(String type, String code) throws IllegalStateException {
 
-        String basePath = "src/main/resources/templates/emails/";
+        if (reloadTemplates) {
+            loadTemplates();
+        }
 
         if (type.equals("ENABLE_ACC")) {
-            basePath += "enable-account.txt";
+            return enableAccountTemplate.render(Map.of("LINK", baseAddress + "/enable-acc?code=" + code));
         } else {
-            basePath += "reset-password.txt";
+            return resetPasswordTemplate.render(Map.of("LINK", baseAddress + "/reset-pass?code=" + code));
         }
 
+    }
+
+    private EmailTemplate loadTemplate(String name) throws IllegalStateException {
+
         try {
-            String fullPath = new String(Files.readAllBytes(Paths.get(basePath)));
-
-            if (type.equals("ENABLE_ACC")) {
-                return fullPath.replace(
-                        "[LINK]", baseAddress + "/enable-acc?code=" + code
-                );
-            } else {
-                return fullPath.replace(
-                        "[LINK]", baseAddress + "/reset-pass?code=" + code
-                );
-            }
+            return EmailTemplate.compile(
+                    new ClassPathResource(TEMPLATE_PATH + name).getContentAsString(StandardCharsets.UTF_8)
+            );
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            throw new IllegalStateException("Could not read email template " + name + ".", e);
         }
 
     }
@@ -0,0 +1,104 @@
+package com.caiohbs.crowdcontrol.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A text template with {@code [PLACEHOLDER]} markers (upper case letters,
+ * digits and underscores between square brackets), compiled once into the
+ * literal text between placeholders and the placeholder names. Rendering
+ * joins them with the values in a single pass, allocating little more than
+ * the rendered text itself.
+ * <p>
+ * Immutable and thread-safe.
+ */
+public class EmailTemplate {
+
+    // literals[i] comes before placeholders[i]; the last literal ends the text.
+    private final String[] literals;
+    private final String[] placeholders;
+
+    private EmailTemplate(String[] literals, String[] placeholders) {
+        this.literals = literals;
+        this.placeholders = placeholders;
+    }
+
+    /**
+     * Splits a template's text at its placeholders. Square brackets that
+     * don't enclose a placeholder name are kept as text.
+     *
+     * @param text The template's text.
+     * @return The compiled {@link EmailTemplate}.
+     */
+    public static EmailTemplate compile(String text) {
+
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+
+        int literalStart = 0;
+        int open = text.indexOf('[');
+        while (open >= 0) {
+            int close = placeholderEnd(text, open);
+            if (close < 0) {
+                open = text.indexOf('[', open + 1);
+                continue;
+            }
+            literals.add(text.substring(literalStart, open));
+            placeholders.add(text.substring(open + 1, close));
+            literalStart = close + 1;
+            open = text.indexOf('[', literalStart);
+        }
+        literals.add(text.substring(literalStart));
+
+        return new EmailTemplate(literals.toArray(String[]::new), placeholders.toArray(String[]::new));
+
+    }
+
+    /**
+     * Renders the template, replacing every placeholder with its value.
+     *
+     * @param values The value of each placeholder, by name.
+     * @return The rendered text.
+     * @throws IllegalArgumentException If a placeholder has no value.
+     */
+    public String render(Map<String, String> values) throws IllegalArgumentException {
+
+        String[] parts = new String[literals.length + placeholders.length];
+        for (int i = 0; i < placeholders.length; i++) {
+            String value = values.get(placeholders[i]);
+            if (value == null) {
+                throw new IllegalArgumentException("No value for placeholder [" + placeholders[i] + "].");
+            }
+            parts[2 * i] = literals[i];
+            parts[2 * i + 1] = value;
+        }
+        parts[parts.length - 1] = literals[placeholders.length];
+
+        // Sizes the result up front and fills it without an intermediate copy.
+        return String.join("", parts);
+
+    }
+
+    /**
+     * Returns the index of the bracket closing the placeholder opened at
+     * {@code open}, or -1 if no placeholder name follows it.
+     */
+    private static int placeholderEnd(String text, int open) {
+
+        int i = open + 1;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == ']') {
+                return i > open + 1 ? i : -1;
+            }
+            if (!(c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_')) {
+                return -1;
+            }
+            i++;
+        }
+        return -1;
+
+    }
+
+}
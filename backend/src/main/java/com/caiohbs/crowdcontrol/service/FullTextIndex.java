@@ -0,0 +1,294 @@
+package com.caiohbs.crowdcontrol.service;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.function.LongPredicate;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over documents made of weighted text fields,
+ * identified by a long key. Queries match documents containing every term
+ * and rank them with BM25F: term frequencies and document lengths are
+ * weighted per field, so a hit on a heavier field scores higher.
+ * <p>
+ * Each document gets an increasing ordinal, so every postings list is sorted
+ * and lists are intersected by walking the shortest one and binary searching
+ * the others. Re-indexed and removed documents leave a tombstone behind that
+ * is compacted away once tombstones make up a quarter of the index.
+ * <p>
+ * Not thread-safe; {@link UserSearchService} guards it with a lock.
+ */
+public class FullTextIndex {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int MIN_TOMBSTONES_TO_COMPACT = 1024;
+
+    // Per ordinal: the document key, its weighted length and whether it was removed.
+    private long[] keys = new long[16];
+    private float[] lengths = new float[16];
+    private final BitSet removed = new BitSet();
+    private int nextOrdinal;
+
+    private final Map<Long, Integer> ordinalsByKey = new HashMap<>();
+    private final Map<String, Postings> postingsByTerm = new HashMap<>();
+    private double totalLength;
+
+    /**
+     * A text field of a document and how much a term found in it weighs.
+     *
+     * @param text   The text, possibly {@code null}.
+     * @param weight The weight of every term of the field.
+     */
+    public record Field(String text, float weight) {
+    }
+
+    /**
+     * A matching document and its score.
+     */
+    public record Hit(long key, float score) {
+    }
+
+    /**
+     * A page of matching documents, best first, and how many matched in total.
+     */
+    public record Hits(int totalHits, List<Hit> hits) {
+    }
+
+    /**
+     * Adds a document, replacing any document with the same key.
+     *
+     * @param key    The key of the document.
+     * @param fields The fields of the document.
+     */
+    public void index(long key, List<Field> fields) {
+
+        remove(key);
+
+        Map<String, Float> frequencies = new HashMap<>();
+        float length = 0;
+        for (Field field : fields) {
+            for (String term : tokenize(field.text())) {
+                frequencies.merge(term, field.weight(), Float::sum);
+                length += field.weight();
+            }
+        }
+
+        int ordinal = nextOrdinal++;
+        if (ordinal == keys.length) {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+            lengths = Arrays.copyOf(lengths, lengths.length * 2);
+        }
+        keys[ordinal] = key;
+        lengths[ordinal] = length;
+        ordinalsByKey.put(key, ordinal);
+        totalLength += length;
+
+        frequencies.forEach((term, frequency) ->
+                postingsByTerm.computeIfAbsent(term, newTerm -> new Postings()).add(ordinal, frequency)
+        );
+
+    }
+
+    /**
+     * Removes a document.
+     *
+     * @param key The key of the document.
+     * @return True if the document was indexed.
+     */
+    public boolean remove(long key) {
+
+        Integer ordinal = ordinalsByKey.remove(key);
+        if (ordinal == null) {
+            return false;
+        }
+        removed.set(ordinal);
+        totalLength -= lengths[ordinal];
+
+        int tombstones = nextOrdinal - ordinalsByKey.size();
+        if (tombstones >= MIN_TOMBSTONES_TO_COMPACT && tombstones * 4 >= nextOrdinal) {
+            compact();
+        }
+        return true;
+
+    }
+
+    /**
+     * Finds the documents containing every term of a query, best first.
+     *
+     * @param query  The query text, tokenized like the documents.
+     * @param filter Which document keys may be returned.
+     * @param offset How many of the best hits to skip.
+     * @param limit  How many hits to return at most.
+     * @return The requested page of hits and the total number of matches.
+     */
+    public Hits search(String query, LongPredicate filter, int offset, int limit) {
+
+        List<Postings> termPostings = new ArrayList<>();
+        for (String term : new LinkedHashSet<>(tokenize(query))) {
+            Postings postings = postingsByTerm.get(term);
+            if (postings == null) {
+                return new Hits(0, List.of());
+            }
+            termPostings.add(postings);
+        }
+        if (termPostings.isEmpty() || ordinalsByKey.isEmpty()) {
+            return new Hits(0, List.of());
+        }
+        termPostings.sort(Comparator.comparingInt(postings -> postings.size));
+
+        int documents = ordinalsByKey.size();
+        float averageLength = (float) Math.max(totalLength / documents, 1);
+        float[] idfs = new float[termPostings.size()];
+        for (int i = 0; i < idfs.length; i++) {
+            // The document frequency counts tombstones until the next compaction.
+            int documentFrequency = Math.min(termPostings.get(i).size, documents);
+            idfs[i] = (float) Math.log(1 + (documents - documentFrequency + 0.5) / (documentFrequency + 0.5));
+        }
+
+        // Keeps the best offset + limit hits, the worst of them on top.
+        Comparator<Hit> ranking = Comparator.comparingDouble(Hit::score).reversed()
+                .thenComparingLong(Hit::key);
+        int wanted = offset + limit;
+        PriorityQueue<Hit> best = new PriorityQueue<>(Math.max(wanted, 1), ranking.reversed());
+        int totalHits = 0;
+
+        Postings shortest = termPostings.getFirst();
+        for (int i = 0; i < shortest.size; i++) {
+            int ordinal = shortest.ordinals[i];
+            if (removed.get(ordinal) || !filter.test(keys[ordinal])) {
+                continue;
+            }
+
+            float lengthNorm = K1 * (1 - B + B * lengths[ordinal] / averageLength);
+            float score = idfs[0] * termScore(shortest.frequencies[i], lengthNorm);
+            boolean matchesAll = true;
+            for (int term = 1; term < termPostings.size() && matchesAll; term++) {
+                Postings postings = termPostings.get(term);
+                int position = Arrays.binarySearch(postings.ordinals, 0, postings.size, ordinal);
+                if (position < 0) {
+                    matchesAll = false;
+                } else {
+                    score += idfs[term] * termScore(postings.frequencies[position], lengthNorm);
+                }
+            }
+            if (!matchesAll) {
+                continue;
+            }
+
+            totalHits++;
+            if (wanted == 0) {
+                continue;
+            }
+            if (best.size() < wanted) {
+                best.add(new Hit(keys[ordinal], score));
+            } else {
+                Hit worst = best.peek();
+                if (score > worst.score() || score == worst.score() && keys[ordinal] < worst.key()) {
+                    best.poll();
+                    best.add(new Hit(keys[ordinal], score));
+                }
+            }
+        }
+
+        List<Hit> page = best.stream().sorted(ranking).skip(offset).toList();
+        return new Hits(totalHits, page);
+
+    }
+
+    public int size() {
+        return ordinalsByKey.size();
+    }
+
+    /**
+     * Splits a text into lower-case terms without diacritics, on anything that
+     * is not a letter or a digit.
+     *
+     * @param text The text, possibly {@code null}.
+     * @return The terms, in order.
+     */
+    public static List<String> tokenize(String text) {
+
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        return Arrays.stream(SEPARATORS.split(normalized)).filter(term -> !term.isEmpty()).toList();
+
+    }
+
+    private static float termScore(float frequency, float lengthNorm) {
+        return frequency * (K1 + 1) / (frequency + lengthNorm);
+    }
+
+    /**
+     * Drops removed documents, renumbering the remaining ones in the same
+     * order so postings stay sorted.
+     */
+    private void compact() {
+
+        int[] newOrdinals = new int[nextOrdinal];
+        int live = 0;
+        for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+            if (removed.get(ordinal)) {
+                newOrdinals[ordinal] = -1;
+            } else {
+                newOrdinals[ordinal] = live;
+                keys[live] = keys[ordinal];
+                lengths[live] = lengths[ordinal];
+                live++;
+            }
+        }
+
+        for (Iterator<Postings> iterator = postingsByTerm.values().iterator(); iterator.hasNext(); ) {
+            Postings postings = iterator.next();
+            postings.renumber(newOrdinals);
+            if (postings.size == 0) {
+                iterator.remove();
+            }
+        }
+        ordinalsByKey.replaceAll((key, ordinal) -> newOrdinals[ordinal]);
+        removed.clear();
+        nextOrdinal = live;
+
+    }
+
+    /**
+     * The documents containing a term, by increasing ordinal, with the
+     * weighted frequency of the term in each.
+     */
+    private static final class Postings {
+
+        private int[] ordinals = new int[2];
+        private float[] frequencies = new float[2];
+        private int size;
+
+        private void add(int ordinal, float frequency) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            ordinals[size] = ordinal;
+            frequencies[size] = frequency;
+            size++;
+        }
+
+        private void renumber(int[] newOrdinals) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int newOrdinal = newOrdinals[ordinals[i]];
+                if (newOrdinal >= 0) {
+                    ordinals[kept] = newOrdinal;
+                    frequencies[kept] = frequencies[i];
+                    kept++;
+                }
+            }
+            size = kept;
+        }
+
+    }
+
+}
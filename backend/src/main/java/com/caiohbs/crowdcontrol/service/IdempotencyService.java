@@ -0,0 +1,274 @@
+package com.caiohbs.crowdcontrol.service;
+
+import com.caiohbs.crowdcontrol.config.SecurityUtils;
+import com.caiohbs.crowdcontrol.exception.IdempotencyConflictException;
+import com.caiohbs.crowdcontrol.exception.ValidationErrorException;
+import com.caiohbs.crowdcontrol.model.IdempotencyKey;
+import com.caiohbs.crowdcontrol.repository.IdempotencyKeyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Service class responsible for the {@code Idempotency-Key} header: the first
+ * request made with a key is executed and its response stored; requests
+ * repeating the key get that response back without being executed again.
+ * Finished keys are kept in the database for a TTL and the most recently used
+ * ones in a bounded in-memory cache in front of it. A key is completed in the
+ * same transaction as the work of its request, so a key still pending means
+ * nothing was committed for it yet.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 100;
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration keyTtl;
+    private final int purgeBatchSize;
+
+    // Finished keys by record key, least recently used first. Guarded by a
+    // lock rather than synchronized, which would pin virtual threads.
+    private final Map<String, IdempotencyKey> cache;
+    private final Lock cacheLock = new ReentrantLock();
+
+    public IdempotencyService(
+            IdempotencyKeyRepository idempotencyKeyRepository,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${crowdcontrol.vars.IDEMPOTENCY_KEY_TTL:PT24H}") Duration keyTtl,
+            @Value("${crowdcontrol.vars.IDEMPOTENCY_CACHE_SIZE:10000}") int cacheSize,
+            @Value("${crowdcontrol.vars.IDEMPOTENCY_PURGE_BATCH_SIZE:500}") int purgeBatchSize
+    ) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.keyTtl = keyTtl;
+        this.purgeBatchSize = purgeBatchSize;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IdempotencyKey> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Executes a request at most once per idempotency key. Without a key the
+     * request is simply executed. Otherwise the request runs in a transaction
+     * that also stores its response, so either both are committed or neither
+     * is and the key is released for a retry.
+     *
+     * @param idempotencyKey   The {@code Idempotency-Key} header, possibly {@code null}.
+     * @param requestSignature What identifies the request (method, path and
+     *                         relevant parameters). Reusing a key for a
+     *                         different request is rejected.
+     * @param bodyType         The type of the response body, to read it back
+     *                         when replaying.
+     * @param request          Executes the request.
+     * @return The response of the request, or the stored one when replaying.
+     * @throws ValidationErrorException     If the key is invalid or was used
+     *                                      for a different request.
+     * @throws IdempotencyConflictException If the first request with the key
+     *                                      is still being processed.
+     */
+    public <T> ResponseEntity<T> execute(
+            String idempotencyKey, String requestSignature, Class<T> bodyType,
+            Supplier<ResponseEntity<T>> request
+    ) throws ValidationErrorException, IdempotencyConflictException {
+
+        if (idempotencyKey == null) {
+            return request.get();
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new ValidationErrorException(
+                    IDEMPOTENCY_KEY_HEADER + " has to be between 1 and " + MAX_KEY_LENGTH + " characters."
+            );
+        }
+
+        String recordKey = SecurityUtils.getAuthUserId() + ":" + idempotencyKey;
+        String requestHash = sha256(requestSignature);
+
+        IdempotencyKey existingKey = findUnexpired(recordKey);
+        if (existingKey == null) {
+            try {
+                idempotencyKeyRepository.saveAndFlush(
+                        new IdempotencyKey(recordKey, requestHash, LocalDateTime.now().plus(keyTtl))
+                );
+            } catch (DataIntegrityViolationException e) {
+                // Another request with the same key got there first.
+                existingKey = idempotencyKeyRepository.findById(recordKey).orElseThrow(() ->
+                        new IdempotencyConflictException("Request with this idempotency key is being processed.")
+                );
+            }
+        }
+        if (existingKey != null) {
+            return replay(existingKey, requestHash, bodyType);
+        }
+
+        try {
+            return transactionTemplate.execute(status -> {
+                ResponseEntity<T> response = request.get();
+                String body = toJson(response.getBody());
+                String location = response.getHeaders().getFirst(HttpHeaders.LOCATION);
+                idempotencyKeyRepository.complete(recordKey, response.getStatusCode().value(), body, location);
+
+                IdempotencyKey completedKey = new IdempotencyKey(
+                        recordKey, requestHash, LocalDateTime.now().plus(keyTtl)
+                );
+                completedKey.complete(response.getStatusCode().value(), body, location);
+                TransactionCallbacks.afterCommit(() -> cache(completedKey));
+                return response;
+            });
+        } catch (RuntimeException e) {
+            // The transaction rolled back, so nothing was done and the request
+            // may be retried with the same key.
+            idempotencyKeyRepository.deleteByKeys(List.of(recordKey));
+            throw e;
+        }
+
+    }
+
+    /**
+     * Deletes expired idempotency keys from the database, in batches of their
+     * own transaction each.
+     *
+     * @return The total number of keys deleted.
+     */
+    @Scheduled(
+            initialDelayString="${crowdcontrol.vars.IDEMPOTENCY_PURGE_INTERVAL:PT1H}",
+            fixedDelayString="${crowdcontrol.vars.IDEMPOTENCY_PURGE_INTERVAL:PT1H}"
+    )
+    public int purgeExpiredKeys() {
+
+        LocalDateTime now = LocalDateTime.now();
+        PageRequest firstBatch = PageRequest.of(0, purgeBatchSize);
+        int totalDeleted = 0;
+
+        List<String> keys;
+        do {
+            keys = idempotencyKeyRepository.findExpiredKeys(now, firstBatch);
+            if (!keys.isEmpty()) {
+                totalDeleted += idempotencyKeyRepository.deleteByKeys(keys);
+            }
+        } while (keys.size() == purgeBatchSize);
+
+        if (totalDeleted > 0) {
+            log.info("Purged {} expired idempotency keys.", totalDeleted);
+        }
+        return totalDeleted;
+
+    }
+
+    /**
+     * Looks a key up in the cache, then in the database. A key found expired
+     * but not purged yet is deleted, so it can be used again.
+     */
+    private IdempotencyKey findUnexpired(String recordKey) {
+
+        LocalDateTime now = LocalDateTime.now();
+        IdempotencyKey key;
+        cacheLock.lock();
+        try {
+            key = cache.get(recordKey);
+            if (key != null && key.isExpired(now)) {
+                cache.remove(recordKey);
+                key = null;
+            }
+        } finally {
+            cacheLock.unlock();
+        }
+        if (key != null) {
+            return key;
+        }
+
+        key = idempotencyKeyRepository.findById(recordKey).orElse(null);
+        if (key != null && key.isExpired(now)) {
+            idempotencyKeyRepository.deleteByKeys(List.of(recordKey));
+            return null;
+        }
+        return key;
+
+    }
+
+    private void cache(IdempotencyKey completedKey) {
+        cacheLock.lock();
+        try {
+            cache.put(completedKey.getRecordKey(), completedKey);
+        } finally {
+            cacheLock.unlock();
+        }
+    }
+
+    private <T> ResponseEntity<T> replay(IdempotencyKey key, String requestHash, Class<T> bodyType) {
+
+        if (!key.getRequestHash().equals(requestHash)) {
+            throw new ValidationErrorException(
+                    IDEMPOTENCY_KEY_HEADER + " was already used for a different request."
+            );
+        }
+        if (!key.isCompleted()) {
+            throw new IdempotencyConflictException("Request with this idempotency key is being processed.");
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(key.getStatusCode())
+                .header(REPLAYED_HEADER, "true");
+        if (key.getLocation() != null) {
+            response.header(HttpHeaders.LOCATION, key.getLocation());
+        }
+
+        try {
+            T body = key.getResponseBody() != null ? objectMapper.readValue(key.getResponseBody(), bodyType) : null;
+            return response.body(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored response can't be read.", e);
+        }
+
+    }
+
+    private String toJson(Object body) {
+        try {
+            return body != null ? objectMapper.writeValueAsString(body) : null;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Response can't be stored.", e);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
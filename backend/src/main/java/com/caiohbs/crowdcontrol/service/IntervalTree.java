@@ -0,0 +1,267 @@
+package com.caiohbs.crowdcontrol.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Balanced (AVL) interval tree over closed intervals {@code [start, end]} of
+ * longs. Entries are ordered by start and then by a caller supplied ID, and
+ * every node keeps the largest end of its subtree, so overlap and stabbing
+ * queries skip whole subtrees that end before the queried range: they run in
+ * O(log n + k) for k results. Inserts and removals are O(log n).
+ * <p>
+ * Not thread-safe; {@link AbsenceIndexService} guards its trees with a lock.
+ *
+ * @param <T> The type of the value stored with each interval.
+ */
+public class IntervalTree<T> {
+
+    private Node<T> root;
+    private int size;
+
+    /**
+     * Adds an interval. IDs are expected to be unique among intervals with
+     * the same start.
+     *
+     * @param start First point of the interval.
+     * @param end   Last point of the interval, not before {@code start}.
+     * @param id    Identifies the interval, used to remove it.
+     * @param value The value to return from queries.
+     * @throws IllegalArgumentException If the interval ends before it starts.
+     */
+    public void insert(long start, long end, long id, T value) {
+
+        if (end < start) {
+            throw new IllegalArgumentException("Interval ends before it starts.");
+        }
+        root = insert(root, new Node<>(start, end, id, value));
+
+    }
+
+    /**
+     * Removes the interval with the given start and ID, if present.
+     *
+     * @param start First point of the interval.
+     * @param id    The ID it was inserted with.
+     * @return True if an interval was removed.
+     */
+    public boolean remove(long start, long id) {
+
+        int sizeBefore = size;
+        root = remove(root, start, id);
+        return size < sizeBefore;
+
+    }
+
+    /**
+     * Finds the values of every interval sharing at least one point with
+     * {@code [from, to]}, in order of start.
+     *
+     * @param from First point of the queried range.
+     * @param to   Last point of the queried range.
+     * @return The values of the overlapping intervals.
+     */
+    public List<T> findOverlapping(long from, long to) {
+
+        List<T> result = new ArrayList<>();
+        collectOverlapping(root, from, to, result);
+        return result;
+
+    }
+
+    /**
+     * Finds the values of every interval containing a point.
+     *
+     * @param point The queried point.
+     * @return The values of the intervals containing it, in order of start.
+     */
+    public List<T> findContaining(long point) {
+        return findOverlapping(point, point);
+    }
+
+    /**
+     * Checks whether any interval shares a point with {@code [from, to]},
+     * walking a single path of the tree.
+     *
+     * @param from First point of the queried range.
+     * @param to   Last point of the queried range.
+     * @return True if at least one interval overlaps the range.
+     */
+    public boolean overlapsAny(long from, long to) {
+
+        Node<T> node = root;
+        while (node != null) {
+            if (node.start <= to && node.end >= from) {
+                return true;
+            }
+            // If the left subtree reaches the range, either it holds an
+            // overlap or every interval starts after the range, including
+            // those on the right.
+            node = node.left != null && node.left.maxEnd >= from ? node.left : node.right;
+        }
+        return false;
+
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void collectOverlapping(Node<T> node, long from, long to, List<T> result) {
+
+        if (node == null || node.maxEnd < from) {
+            return;
+        }
+        collectOverlapping(node.left, from, to, result);
+        if (node.start > to) {
+            // Everything to the right starts even later.
+            return;
+        }
+        if (node.end >= from) {
+            result.add(node.value);
+        }
+        collectOverlapping(node.right, from, to, result);
+
+    }
+
+    private Node<T> insert(Node<T> node, Node<T> added) {
+
+        if (node == null) {
+            size++;
+            return added;
+        }
+        if (compare(added.start, added.id, node) < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        return rebalance(node);
+
+    }
+
+    private Node<T> remove(Node<T> node, long start, long id) {
+
+        if (node == null) {
+            return null;
+        }
+
+        int comparison = compare(start, id, node);
+        if (comparison < 0) {
+            node.left = remove(node.left, start, id);
+        } else if (comparison > 0) {
+            node.right = remove(node.right, start, id);
+        } else {
+            size--;
+            if (node.left == null || node.right == null) {
+                return node.left != null ? node.left : node.right;
+            }
+            // Replace the node with its successor.
+            Node<T> successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = removeMin(node.right);
+            successor.left = node.left;
+            node = successor;
+        }
+        return rebalance(node);
+
+    }
+
+    private Node<T> removeMin(Node<T> node) {
+
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = removeMin(node.left);
+        return rebalance(node);
+
+    }
+
+    private Node<T> rebalance(Node<T> node) {
+
+        update(node);
+        int balance = height(node.left) - height(node.right);
+
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+
+    }
+
+    private Node<T> rotateRight(Node<T> node) {
+
+        Node<T> pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+
+    }
+
+    private Node<T> rotateLeft(Node<T> node) {
+
+        Node<T> pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+
+    }
+
+    private static int compare(long start, long id, Node<?> node) {
+        int comparison = Long.compare(start, node.start);
+        return comparison != 0 ? comparison : Long.compare(id, node.id);
+    }
+
+    private static void update(Node<?> node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        node.maxEnd = Math.max(node.end, Math.max(maxEnd(node.left), maxEnd(node.right)));
+    }
+
+    private static int height(Node<?> node) {
+        return node != null ? node.height : 0;
+    }
+
+    private static long maxEnd(Node<?> node) {
+        return node != null ? node.maxEnd : Long.MIN_VALUE;
+    }
+
+    private static final class Node<T> {
+
+        private final long start;
+        private final long end;
+        private final long id;
+        private final T value;
+        private long maxEnd;
+        private int height = 1;
+        private Node<T> left;
+        private Node<T> right;
+
+        private Node(long start, long end, long id, T value) {
+            this.start = start;
+            this.end = end;
+            this.id = id;
+            this.value = value;
+            this.maxEnd = end;
+        }
+
+    }
+
+}
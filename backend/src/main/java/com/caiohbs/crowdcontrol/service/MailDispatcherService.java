@@ -0,0 +1,244 @@
+package com.caiohbs.crowdcontrol.service;
+
+import com.caiohbs.crowdcontrol.dto.MailDispatcherStatsDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service class sending emails in the background, so requests don't wait on
+ * the SMTP server. Emails are sent by a fixed pool of worker threads from a
+ * bounded queue: when it is full, callers wait a short while for room and the
+ * email is dropped if none frees up, so a burst of sign-ups slows down instead
+ * of piling up threads. Sends that fail are retried with exponential backoff,
+ * and emails still queued (or waiting for a retry) when the application
+ * stops are sent before it exits.
+ */
+@Service
+public class MailDispatcherService {
+
+    private static final Logger log = LoggerFactory.getLogger(MailDispatcherService.class);
+
+    private final EmailSenderService emailSenderService;
+    private final int workers;
+    private final int queueCapacity;
+    private final Duration queueWaitTimeout;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Duration shutdownTimeout;
+
+    private ScheduledThreadPoolExecutor executor;
+    private volatile boolean accepting = true;
+    // One permit per email accepted and not yet sent or given up on, including
+    // those waiting for a retry.
+    private final Semaphore queueSlots;
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong totalSendNanos = new AtomicLong();
+    private final AtomicLong maxSendNanos = new AtomicLong();
+
+    public MailDispatcherService(
+            EmailSenderService emailSenderService,
+            @Value("${crowdcontrol.vars.MAIL_WORKERS:2}") int workers,
+            @Value("${crowdcontrol.vars.MAIL_QUEUE_CAPACITY:1000}") int queueCapacity,
+            @Value("${crowdcontrol.vars.MAIL_QUEUE_WAIT_TIMEOUT:PT2S}") Duration queueWaitTimeout,
+            @Value("${crowdcontrol.vars.MAIL_MAX_ATTEMPTS:5}") int maxAttempts,
+            @Value("${crowdcontrol.vars.MAIL_RETRY_BACKOFF:PT2S}") Duration retryBackoff,
+            @Value("${crowdcontrol.vars.MAIL_SHUTDOWN_TIMEOUT:PT30S}") Duration shutdownTimeout
+    ) {
+        this.emailSenderService = emailSenderService;
+        this.workers = workers;
+        this.queueCapacity = queueCapacity;
+        this.queueWaitTimeout = queueWaitTimeout;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.shutdownTimeout = shutdownTimeout;
+        this.queueSlots = new Semaphore(queueCapacity);
+    }
+
+    @PostConstruct
+    void startExecutor() {
+        executor = new ScheduledThreadPoolExecutor(workers, new CustomizableThreadFactory("mail-sender-"));
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Stops accepting emails and waits, up to the shutdown timeout, for the
+     * queued ones to be sent, retries included.
+     */
+    @PreDestroy
+    void stopExecutor() throws InterruptedException {
+
+        accepting = false;
+        if (queueSlots.tryAcquire(queueCapacity, shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            queueSlots.release(queueCapacity);
+        } else {
+            log.warn("Stopped with {} emails still queued.", queueCapacity - queueSlots.availablePermits());
+        }
+        executor.shutdownNow();
+
+    }
+
+    /**
+     * Queues an email to be sent in the background. Waits for room in the
+     * queue when it is full, and drops the email if none frees up in time.
+     *
+     * @param to   The recipient's email address.
+     * @param type The type of email to send ({@code ENABLE_ACC} or {@code RECOV_PASS}).
+     * @param code A verification code to be included in the email body.
+     * @return {@code true} if the email was queued, {@code false} if it was
+     * dropped.
+     */
+    public boolean dispatch(String to, String type, String code) {
+
+        if (!reserve()) {
+            log.warn("Mail queue is full or shutting down, dropped {} email to {}.", type, to);
+            return false;
+        }
+        return submit(to, type, code);
+
+    }
+
+    /**
+     * Reserves room in the queue for an email that is sent later with
+     * {@link #submit}, waiting for it when the queue is full. A reservation
+     * that ends up not being used has to be given back with {@link #release}.
+     *
+     * @return {@code true} if room was reserved, {@code false} if the queue
+     * stayed full or the dispatcher is shutting down.
+     */
+    public boolean reserve() {
+
+        if (!accepting) {
+            droppedCount.incrementAndGet();
+            return false;
+        }
+
+        try {
+            if (!queueSlots.tryAcquire(queueWaitTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                droppedCount.incrementAndGet();
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            droppedCount.incrementAndGet();
+            return false;
+        }
+        return true;
+
+    }
+
+    /**
+     * Queues an email in the room reserved for it with {@link #reserve}.
+     *
+     * @param to   The recipient's email address.
+     * @param type The type of email to send ({@code ENABLE_ACC} or {@code RECOV_PASS}).
+     * @param code A verification code to be included in the email body.
+     * @return {@code true} if the email was queued, {@code false} if it was
+     * dropped because the dispatcher stopped in the meantime.
+     */
+    public boolean submit(String to, String type, String code) {
+
+        try {
+            executor.execute(() -> send(to, type, code, 1));
+        } catch (RejectedExecutionException e) {
+            queueSlots.release();
+            droppedCount.incrementAndGet();
+            log.warn("Mail dispatcher is shutting down, dropped {} email to {}.", type, to);
+            return false;
+        }
+        return true;
+
+    }
+
+    /**
+     * Gives back room reserved with {@link #reserve} for an email that won't
+     * be sent.
+     */
+    public void release() {
+        queueSlots.release();
+    }
+
+    /**
+     * Retrieves the queue depth along with the send, retry and failure counts
+     * and send latencies since startup.
+     *
+     * @return A {@link MailDispatcherStatsDTO} with the current figures.
+     */
+    public MailDispatcherStatsDTO retrieveStatistics() {
+
+        long sent = sentCount.get();
+        double averageSendMillis = sent == 0 ? 0.0 : totalSendNanos.get() / 1_000_000.0 / sent;
+
+        return new MailDispatcherStatsDTO(
+                queueCapacity - queueSlots.availablePermits(),
+                queueCapacity,
+                sent,
+                retryCount.get(),
+                failedCount.get(),
+                droppedCount.get(),
+                averageSendMillis,
+                maxSendNanos.get() / 1_000_000.0
+        );
+
+    }
+
+    private void send(String to, String type, String code, int attempt) {
+
+        long start = System.nanoTime();
+        try {
+            emailSenderService.sendEmail(to, type, code);
+        } catch (MailException e) {
+            if (attempt < maxAttempts && scheduleRetry(to, type, code, attempt)) {
+                log.info("Sending {} email to {} failed (attempt {}), retrying.", type, to, attempt);
+                return;
+            }
+            fail(to, type, e);
+            return;
+        } catch (RuntimeException e) {
+            fail(to, type, e);
+            return;
+        }
+
+        long elapsed = System.nanoTime() - start;
+        totalSendNanos.addAndGet(elapsed);
+        maxSendNanos.accumulateAndGet(elapsed, Math::max);
+        sentCount.incrementAndGet();
+        queueSlots.release();
+
+    }
+
+    private boolean scheduleRetry(String to, String type, String code, int attempt) {
+
+        long delay = retryBackoff.toMillis() << Math.min(attempt - 1, 20);
+        try {
+            executor.schedule(() -> send(to, type, code, attempt + 1), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+        retryCount.incrementAndGet();
+        return true;
+
+    }
+
+    private void fail(String to, String type, RuntimeException e) {
+        failedCount.incrementAndGet();
+        queueSlots.release();
+        log.error("Could not send {} email to {}.", type, to, e);
+    }
+
+}
@@ -0,0 +1,184 @@
+package com.caiohbs.crowdcontrol.service;
+
+import com.caiohbs.crowdcontrol.dto.PaymentTotalsDTO;
+import com.caiohbs.crowdcontrol.exception.ValidationErrorException;
+import com.caiohbs.crowdcontrol.model.Money;
+import com.caiohbs.crowdcontrol.model.Payment;
+import com.caiohbs.crowdcontrol.model.PaymentGrouping;
+import com.caiohbs.crowdcontrol.model.PaymentMonthlyRollup;
+import com.caiohbs.crowdcontrol.repository.PaymentRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service class responsible for the monthly payment rollup: sum and count of
+ * the payments per month, role and user. The rollup is updated in the same
+ * transaction as the payments it reflects, so dashboards can read totals from
+ * a few rows per month instead of scanning the payment table.
+ */
+@Service
+public class PaymentRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentRollupService.class);
+    static final String NO_ROLE = "NO_ROLE";
+
+    private final PaymentRollupRepository paymentRollupRepository;
+
+    public PaymentRollupService(PaymentRollupRepository paymentRollupRepository) {
+        this.paymentRollupRepository = paymentRollupRepository;
+    }
+
+    /**
+     * Adds newly created payments to the rollup. Payments sharing the same
+     * month, role and user are combined first, so each rollup row is written
+     * once per call. When two transactions make the first payment for the
+     * same row at once, the one that loses the insert adds to the other's row.
+     *
+     * @param payments The payments being created.
+     */
+    @Transactional
+    public void addPayments(Collection<Payment> payments) {
+
+        Map<PaymentMonthlyRollup.RollupKey, PaymentMonthlyRollup> deltas = new LinkedHashMap<>();
+
+        for (Payment payment : payments) {
+            int month = monthKey(payment.getPaymentDate());
+            String roleName = payment.getRoleName() != null ? payment.getRoleName() : NO_ROLE;
+            Long userId = payment.getUser().getUserId();
+
+            deltas.merge(
+                    new PaymentMonthlyRollup.RollupKey(month, roleName, userId),
+                    new PaymentMonthlyRollup(month, roleName, userId, payment.getPaymentAmount().cents(), 1),
+                    (current, added) -> new PaymentMonthlyRollup(
+                            month, roleName, userId,
+                            current.getTotalAmountCents() + added.getTotalAmountCents(),
+                            current.getPaymentCount() + 1
+                    )
+            );
+        }
+
+        for (PaymentMonthlyRollup delta : deltas.values()) {
+            int updated = paymentRollupRepository.addToRollup(
+                    delta.getPaymentMonth(), delta.getRoleName(), delta.getUserId(),
+                    delta.getTotalAmountCents(), delta.getPaymentCount()
+            );
+            // First payment of this user, under this role, in this month,
+            // unless a concurrent transaction just inserted the row; the update
+            // then waits for that transaction and adds to its row.
+            if (updated == 0 && !paymentRollupRepository.insertRollupIfAbsent(
+                    delta.getPaymentMonth(), delta.getRoleName(), delta.getUserId(),
+                    delta.getTotalAmountCents(), delta.getPaymentCount()
+            )) {
+                paymentRollupRepository.addToRollup(
+                        delta.getPaymentMonth(), delta.getRoleName(), delta.getUserId(),
+                        delta.getTotalAmountCents(), delta.getPaymentCount()
+                );
+            }
+        }
+
+    }
+
+    /**
+     * Takes a payment that is being deleted out of the rollup, removing the
+     * rollup row once no payment is left in it.
+     *
+     * @param payment The payment being deleted.
+     */
+    @Transactional
+    public void removePayment(Payment payment) {
+
+        int month = monthKey(payment.getPaymentDate());
+        String roleName = payment.getRoleName() != null ? payment.getRoleName() : NO_ROLE;
+        Long userId = payment.getUser().getUserId();
+
+        paymentRollupRepository.addToRollup(month, roleName, userId, -payment.getPaymentAmount().cents(), -1);
+        paymentRollupRepository.deleteIfEmpty(month, roleName, userId);
+
+    }
+
+    /**
+     * Recomputes the whole rollup from the payment table, e.g. after payments
+     * were changed directly in the database. Meant to be run while no
+     * payments are being created or deleted.
+     *
+     * @return The number of rollup rows written.
+     */
+    @Transactional
+    public int rebuild() {
+
+        int deleted = paymentRollupRepository.deleteAllRollups();
+        int inserted = paymentRollupRepository.rebuildFromPayments();
+        log.info("Rebuilt payment rollup: {} rows replaced by {}.", deleted, inserted);
+
+        return inserted;
+
+    }
+
+    /**
+     * Retrieves payment totals over a range of months from the rollup.
+     * Payments are attributed to the role their user had when paid.
+     *
+     * @param grouping The dimension to group the totals by.
+     * @param from     First month to include, or {@code null} for no lower bound.
+     * @param to       Last month to include, or {@code null} for no upper bound.
+     * @return A list of {@link PaymentTotalsDTO}, one per group, ordered by group.
+     * @throws ValidationErrorException If the range ends before it starts.
+     */
+    @Transactional(readOnly=true)
+    public List<PaymentTotalsDTO> retrieveMonthlyTotals(
+            PaymentGrouping grouping, YearMonth from, YearMonth to
+    ) throws ValidationErrorException {
+
+        int rangeStart = from != null ? monthKey(from.atDay(1)) : 0;
+        int rangeEnd = to != null ? monthKey(to.atDay(1)) : Integer.MAX_VALUE;
+
+        if (rangeEnd < rangeStart) {
+            throw new ValidationErrorException("'from' has to be before 'to'.");
+        }
+
+        List<PaymentRollupRepository.PaymentTotals> totals = switch (grouping) {
+            case NONE -> paymentRollupRepository.totals(rangeStart, rangeEnd);
+            case ROLE -> paymentRollupRepository.totalsByRole(rangeStart, rangeEnd);
+            case USER -> paymentRollupRepository.totalsByUser(rangeStart, rangeEnd);
+            case MONTH -> paymentRollupRepository.totalsByMonth(rangeStart, rangeEnd);
+            case YEAR -> paymentRollupRepository.totalsByYear(rangeStart, rangeEnd);
+        };
+
+        return totals.stream()
+                .map(total -> {
+                    long count = total.getPaymentCount() != null ? total.getPaymentCount() : 0;
+                    long amountCents = total.getTotalAmountCents() != null ? total.getTotalAmountCents() : 0;
+                    String group = grouping == PaymentGrouping.MONTH
+                            ? YearMonth.of(
+                                    Integer.parseInt(total.getGroupKey()) / 100,
+                                    Integer.parseInt(total.getGroupKey()) % 100
+                            ).toString()
+                            : total.getGroupKey();
+                    return new PaymentTotalsDTO(
+                            group, count, Money.ofCents(amountCents), Money.average(amountCents, count)
+                    );
+                })
+                .toList();
+
+    }
+
+    /**
+     * Computes the yyyyMM key of the month a date falls in.
+     *
+     * @param date The date.
+     * @return The month key, e.g. 202403 for any day of March 2024.
+     */
+    static int monthKey(LocalDate date) {
+        return date.getYear() * 100 + date.getMonthValue();
+    }
+
+}
@@ -1,12 +1,20 @@
 package com.caiohbs.crowdcontrol.service;
 
+import com.caiohbs.crowdcontrol.dto.PaymentSummaryDTO;
 import com.caiohbs.crowdcontrol.exception.ResourceNotFoundException;
+import com.caiohbs.crowdcontrol.exception.ValidationErrorException;
+import com.caiohbs.crowdcontrol.model.Money;
 import com.caiohbs.crowdcontrol.model.Payment;
+import com.caiohbs.crowdcontrol.model.PaymentGrouping;
 import com.caiohbs.crowdcontrol.model.User;
 import com.caiohbs.crowdcontrol.repository.PaymentRepository;
 import com.caiohbs.crowdcontrol.repository.UserRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
@@ -14,21 +22,37 @@ import java.util.Optional;
 @Service
 public class PaymentService {
 
+    // Bounds used for open-ended ranges, valid dates in every supported database.
+    private static final LocalDate EARLIEST_DATE = LocalDate.of(1, 1, 1);
+    private static final LocalDate LATEST_DATE = LocalDate.of(9999, 12, 31);
+
     private final UserRepository userRepository;
     private final PaymentRepository paymentRepository;
-
-    public PaymentService(UserRepository userRepository, PaymentRepository paymentRepository) {
+    private final PaymentRollupService paymentRollupService;
+    private final ResourceVersionService resourceVersionService;
+
+    public PaymentService(
+            UserRepository userRepository,
+            PaymentRepository paymentRepository,
+            PaymentRollupService paymentRollupService,
+            ResourceVersionService resourceVersionService
+    ) {
         this.userRepository = userRepository;
         this.paymentRepository = paymentRepository;
+        this.paymentRollupService = paymentRollupService;
+        this.resourceVersionService = resourceVersionService;
     }
 
     /**
-     * Creates a new payment for a given user though the repository.
+     * Creates a new payment for a given user though the repository. It is a
+     * one-off payment outside of any pay period, so it doesn't count as the
+     * user's salary for the month.
      *
      * @param payment The payment information containing the payment amount.
      * @param userId  The ID of the user for whom the payment is being created.
      * @throws ResourceNotFoundException If the user with the provided ID is not found.
      */
+    @Transactional
     public void createPayment(Payment payment, Long userId) throws ResourceNotFoundException {
 
         Optional<User> foundUser = userRepository.findById(userId);
@@ -39,28 +63,44 @@ public class PaymentService {
 
         Payment newPayment = new Payment(foundUser.get(), payment.getPaymentAmount());
         paymentRepository.save(newPayment);
+        paymentRollupService.addPayments(List.of(newPayment));
+        resourceVersionService.paymentsChanged(List.of(userId));
     }
 
     /**
-     * Creates a new payment with the same amount for ALL the users in a given
-     * role.
+     * Pays ALL the users in a given role their role's salary for the current
+     * month. These are salary payments like the ones made by payroll, so
+     * they carry the pay period and users already paid for it, by payroll
+     * or an earlier auto payment, are skipped. Either every remaining user
+     * gets paid or, if anything fails, none of them does. The users are read
+     * in one query, without loading them, and the inserts are sent to the
+     * database in batches.
      *
      * @param roleId The ID of the role for whom the auto payment is being created.
      * @throws ResourceNotFoundException If the role with the provided ID is not found.
      */
+    @Transactional
     public void createPaymentForRole(Long roleId) throws ResourceNotFoundException {
 
-        List<String> foundUsersInRole = userRepository.findUsernamesByRoleId(roleId);
-
-        if (!foundUsersInRole.isEmpty()) {
-            for (String username : foundUsersInRole) {
-                Optional<User> foundUser = userRepository.findByEmail(username);
-
-                if (foundUser.isPresent()) {
-                    Payment newPayment = new Payment(foundUser.get(), foundUser.get().getRole().getSalary());
-                    paymentRepository.save(newPayment);
-                }
+        String payPeriod = YearMonth.now().toString();
+        List<UserRepository.PayableUser> foundUsersInRole = userRepository.findUnpaidByRoleId(roleId, payPeriod);
+
+        if (!foundUsersInRole.isEmpty() || userRepository.existsByRoleRoleId(roleId)) {
+            List<Payment> newPayments = new ArrayList<>(foundUsersInRole.size());
+            for (UserRepository.PayableUser user : foundUsersInRole) {
+                Payment newPayment = new Payment();
+                newPayment.setUser(userRepository.getReferenceById(user.getUserId()));
+                newPayment.setPaymentAmount(user.getSalary());
+                newPayment.setPaymentDate(LocalDate.now());
+                newPayment.setRoleName(user.getRoleName());
+                newPayment.setPayPeriod(payPeriod);
+                newPayments.add(newPayment);
             }
+            paymentRepository.saveAll(newPayments);
+            paymentRollupService.addPayments(newPayments);
+            resourceVersionService.paymentsChanged(
+                    foundUsersInRole.stream().map(UserRepository.PayableUser::getUserId).toList()
+            );
         } else {
             throw new ResourceNotFoundException("No users in role.");
         }
@@ -70,6 +110,7 @@ public class PaymentService {
     /**
      * Returns all the payments registered on the database.
      */
+    @Transactional(readOnly=true)
     public List<Payment> retrieveAllPayments() {
         return paymentRepository.findAll();
     }
@@ -79,25 +120,94 @@ public class PaymentService {
      *
      * @param userId The ID of the user you wish to see the payments for.
      */
+    @Transactional(readOnly=true)
     public List<Payment> retrieveAllPaymentsForSingleUser(Long userId) {
         return paymentRepository.findByUserUserId(userId);
     }
 
+    /**
+     * Summarizes the payments made within a date range, computed by the
+     * database. Payments are attributed to the role their user currently has.
+     *
+     * @param grouping The dimension to group the payments by.
+     * @param from     First payment date to include, or {@code null} for no lower bound.
+     * @param to       Last payment date to include, or {@code null} for no upper bound.
+     * @return A list of {@link PaymentSummaryDTO}, one per group, ordered by group.
+     * @throws ValidationErrorException If the range ends before it starts.
+     */
+    @Transactional(readOnly=true)
+    public List<PaymentSummaryDTO> summarizePayments(
+            PaymentGrouping grouping, LocalDate from, LocalDate to
+    ) throws ValidationErrorException {
+
+        LocalDate rangeStart = from != null ? from : EARLIEST_DATE;
+        LocalDate rangeEnd = to != null ? to : LATEST_DATE;
+
+        if (rangeEnd.isBefore(rangeStart)) {
+            throw new ValidationErrorException("'from' has to be before 'to'.");
+        }
+
+        List<PaymentRepository.PaymentAggregate> aggregates = switch (grouping) {
+            case NONE -> paymentRepository.summarize(rangeStart, rangeEnd);
+            case ROLE -> paymentRepository.summarizeByRole(rangeStart, rangeEnd);
+            case USER -> paymentRepository.summarizeByUser(rangeStart, rangeEnd);
+            case MONTH -> paymentRepository.summarizeByMonth(rangeStart, rangeEnd);
+            case YEAR -> paymentRepository.summarizeByYear(rangeStart, rangeEnd);
+        };
+
+        return aggregates.stream()
+                .map(aggregate -> {
+                    long totalCents = aggregate.getTotalAmountCents() != null
+                            ? aggregate.getTotalAmountCents()
+                            : 0;
+                    return new PaymentSummaryDTO(
+                            grouping == PaymentGrouping.MONTH
+                                    ? formatMonthKey(aggregate.getGroupKey())
+                                    : aggregate.getGroupKey(),
+                            aggregate.getPaymentCount(),
+                            Money.ofCents(totalCents),
+                            Money.average(totalCents, aggregate.getPaymentCount()),
+                            orZero(aggregate.getMinAmount()),
+                            orZero(aggregate.getMaxAmount())
+                    );
+                })
+                .toList();
+
+    }
+
     /**
      * Deletes a payment though it's id.
      *
      * @param paymentId The ID of the payment to be deleted.
      * @throws ResourceNotFoundException If the payment with the provided ID is not found.
      */
+    @Transactional
     public void deletePayment(Long paymentId) throws ResourceNotFoundException {
 
         try {
             Payment foundPayment = paymentRepository.findById(paymentId).orElseThrow();
+            paymentRollupService.removePayment(foundPayment);
             paymentRepository.delete(foundPayment);
+            resourceVersionService.paymentsChanged(List.of(foundPayment.getUser().getUserId()));
         } catch (NoSuchElementException e) {
             throw new ResourceNotFoundException("Payment not found.");
         }
 
     }
 
+    /**
+     * Turns the yyyyMM key produced by the monthly aggregation into "yyyy-MM".
+     *
+     * @param monthKey The numeric month key.
+     * @return The month in ISO format.
+     */
+    private String formatMonthKey(String monthKey) {
+        int key = Integer.parseInt(monthKey);
+        return YearMonth.of(key / 100, key % 100).toString();
+    }
+
+    private Money orZero(Money value) {
+        return value != null ? value : Money.ZERO;
+    }
+
 }
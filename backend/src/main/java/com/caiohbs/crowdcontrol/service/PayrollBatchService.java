@@ -0,0 +1,161 @@
+package com.caiohbs.crowdcontrol.service;
+
+import com.caiohbs.crowdcontrol.model.*;
+import com.caiohbs.crowdcontrol.repository.PaymentRepository;
+import com.caiohbs.crowdcontrol.repository.PayrollRunChunkRepository;
+import com.caiohbs.crowdcontrol.repository.PayrollRunRepository;
+import com.caiohbs.crowdcontrol.repository.UserRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The transactional steps of a payroll run, called by {@link PayrollService}.
+ * Each method is a unit of work of its own, so a chunk is either fully paid
+ * and marked DONE or not touched at all.
+ */
+@Service
+public class PayrollBatchService {
+
+    private final UserRepository userRepository;
+    private final PaymentRepository paymentRepository;
+    private final PaymentRollupService paymentRollupService;
+    private final PayrollRunRepository payrollRunRepository;
+    private final PayrollRunChunkRepository payrollRunChunkRepository;
+    private final ResourceVersionService resourceVersionService;
+
+    public PayrollBatchService(
+            UserRepository userRepository,
+            PaymentRepository paymentRepository,
+            PaymentRollupService paymentRollupService,
+            PayrollRunRepository payrollRunRepository,
+            PayrollRunChunkRepository payrollRunChunkRepository,
+            ResourceVersionService resourceVersionService
+    ) {
+        this.userRepository = userRepository;
+        this.paymentRepository = paymentRepository;
+        this.paymentRollupService = paymentRollupService;
+        this.payrollRunRepository = payrollRunRepository;
+        this.payrollRunChunkRepository = payrollRunChunkRepository;
+        this.resourceVersionService = resourceVersionService;
+    }
+
+    /**
+     * Returns the run for a pay period, creating it if needed. A new run
+     * splits every user with a role into chunks of consecutive IDs; an
+     * existing run that did not complete is marked RUNNING again and keeps
+     * its chunks.
+     *
+     * @param period    The pay period.
+     * @param chunkSize The maximum number of users per chunk.
+     * @return The {@link PayrollRun} for the period.
+     */
+    @Transactional
+    public PayrollRun prepareRun(YearMonth period, int chunkSize) {
+
+        PayrollRun existingRun = payrollRunRepository.findByPayPeriod(period.toString()).orElse(null);
+
+        if (existingRun != null) {
+            if (existingRun.getStatus() == PayrollRunStatus.FAILED) {
+                existingRun.setStatus(PayrollRunStatus.RUNNING);
+            }
+            return existingRun;
+        }
+
+        List<Long> userIds = userRepository.findIdsOfUsersWithRole();
+        int chunkCount = (userIds.size() + chunkSize - 1) / chunkSize;
+        PayrollRun newRun = payrollRunRepository.save(
+                new PayrollRun(period.toString(), userIds.size(), chunkCount)
+        );
+
+        List<PayrollRunChunk> chunks = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            int first = i * chunkSize;
+            int last = Math.min(first + chunkSize, userIds.size()) - 1;
+            chunks.add(new PayrollRunChunk(newRun.getRunId(), i, userIds.get(first), userIds.get(last)));
+        }
+        payrollRunChunkRepository.saveAll(chunks);
+
+        return newRun;
+
+    }
+
+    /**
+     * Pays every user of a chunk who has not been paid for the period yet,
+     * then marks the chunk DONE and advances the run's counters, all in one
+     * transaction. Users are paid their role's current salary; roles without
+     * a positive salary are skipped.
+     *
+     * @param chunk  The chunk to process.
+     * @param period The pay period.
+     * @return The number of payments made.
+     * @throws IllegalStateException If the chunk was already completed by
+     *                               someone else, which rolls this attempt back.
+     */
+    @Transactional
+    public int processChunk(PayrollRunChunk chunk, YearMonth period) throws IllegalStateException {
+
+        List<UserRepository.PayableUser> users = userRepository.findUnpaidInRange(
+                chunk.getFirstUserId(), chunk.getLastUserId(), period.toString()
+        );
+
+        List<Payment> payments = new ArrayList<>(users.size());
+        for (UserRepository.PayableUser user : users) {
+            if (user.getSalary() == null || !user.getSalary().isPositive()) {
+                continue;
+            }
+            Payment payment = new Payment();
+            payment.setUser(userRepository.getReferenceById(user.getUserId()));
+            payment.setPaymentAmount(user.getSalary());
+            payment.setPaymentDate(LocalDate.now());
+            payment.setRoleName(user.getRoleName());
+            payment.setPayPeriod(period.toString());
+            payments.add(payment);
+        }
+        paymentRepository.saveAll(payments);
+        paymentRollupService.addPayments(payments);
+        resourceVersionService.paymentsChanged(
+                payments.stream().map(payment -> payment.getUser().getUserId()).toList()
+        );
+
+        if (payrollRunChunkRepository.updateStatus(chunk.getChunkId(), PayrollChunkStatus.DONE, payments.size()) == 0) {
+            throw new IllegalStateException("Payroll chunk " + chunk.getChunkId() + " was already completed.");
+        }
+        payrollRunRepository.recordChunkDone(chunk.getRunId(), users.size(), payments.size());
+
+        return payments.size();
+
+    }
+
+    /**
+     * Flags a chunk whose processing failed, so it is retried when the run is
+     * resumed.
+     *
+     * @param chunk The chunk that failed.
+     */
+    @Transactional
+    public void markChunkFailed(PayrollRunChunk chunk) {
+        payrollRunChunkRepository.updateStatus(chunk.getChunkId(), PayrollChunkStatus.FAILED, 0);
+    }
+
+    /**
+     * Records the outcome of a run once all its chunks were attempted.
+     *
+     * @param runId     The ID of the run.
+     * @param succeeded Whether every chunk is DONE.
+     */
+    @Transactional
+    public void finishRun(Long runId, boolean succeeded) {
+        if (succeeded) {
+            payrollRunRepository.updateStatus(runId, PayrollRunStatus.COMPLETED, LocalDateTime.now());
+        } else {
+            payrollRunRepository.updateStatus(runId, PayrollRunStatus.FAILED, null);
+        }
+    }
+
+}
@@ -0,0 +1,214 @@
+package com.caiohbs.crowdcontrol.service;
+
+import com.caiohbs.crowdcontrol.exception.ResourceNotFoundException;
+import com.caiohbs.crowdcontrol.exception.ValidationErrorException;
+import com.caiohbs.crowdcontrol.model.PayrollChunkStatus;
+import com.caiohbs.crowdcontrol.model.PayrollRun;
+import com.caiohbs.crowdcontrol.model.PayrollRunChunk;
+import com.caiohbs.crowdcontrol.model.PayrollRunStatus;
+import com.caiohbs.crowdcontrol.repository.PayrollRunChunkRepository;
+import com.caiohbs.crowdcontrol.repository.PayrollRunRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Service class responsible for payroll runs: paying every user with a role
+ * their salary once per pay period. A run is split into chunks that are paid
+ * in parallel on a fixed pool of worker threads. Progress is checkpointed per
+ * chunk (see {@link PayrollBatchService}), so a run that stopped halfway is
+ * resumed where it left off, and the unique (user, pay period) index on
+ * payments guarantees nobody is paid twice for a period.
+ */
+@Service
+public class PayrollService {
+
+    private static final Logger log = LoggerFactory.getLogger(PayrollService.class);
+
+    private final PayrollBatchService payrollBatchService;
+    private final PayrollRunRepository payrollRunRepository;
+    private final PayrollRunChunkRepository payrollRunChunkRepository;
+    // Only one run is executed at a time per instance; the others wait.
+    private final Lock runLock = new ReentrantLock();
+    private final int threads;
+    private final int chunkSize;
+
+    private ExecutorService workers;
+    private ExecutorService coordinator;
+
+    public PayrollService(
+            PayrollBatchService payrollBatchService,
+            PayrollRunRepository payrollRunRepository,
+            PayrollRunChunkRepository payrollRunChunkRepository,
+            @Value("${crowdcontrol.vars.PAYROLL_THREADS:4}") int threads,
+            @Value("${crowdcontrol.vars.PAYROLL_CHUNK_SIZE:500}") int chunkSize
+    ) {
+        this.payrollBatchService = payrollBatchService;
+        this.payrollRunRepository = payrollRunRepository;
+        this.payrollRunChunkRepository = payrollRunChunkRepository;
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    @PostConstruct
+    void startExecutors() {
+        workers = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("payroll-worker-"));
+        coordinator = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("payroll-run-"));
+    }
+
+    @PreDestroy
+    void stopExecutors() {
+        coordinator.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Starts payroll for the current month in the background on the
+     * configured schedule (by default at 06:00 on the first day of every
+     * month), so the scheduler thread is free for the other jobs while it runs.
+     */
+    @Scheduled(cron="${crowdcontrol.vars.PAYROLL_CRON:0 0 6 1 * *}")
+    public void runScheduledPayroll() {
+        startInBackground(YearMonth.now());
+    }
+
+    /**
+     * Resumes, in the background, the runs that were interrupted by a
+     * shutdown or a crash, or that failed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinishedRuns() {
+        for (PayrollRun run : payrollRunRepository.findByStatusNot(PayrollRunStatus.COMPLETED)) {
+            log.info("Resuming payroll run for {}.", run.getPayPeriod());
+            startInBackground(YearMonth.parse(run.getPayPeriod()));
+        }
+    }
+
+    /**
+     * Starts (or resumes) the payroll run for a pay period in the background.
+     *
+     * @param period The pay period.
+     * @throws ValidationErrorException If the period is in the future.
+     */
+    public void startPayroll(YearMonth period) throws ValidationErrorException {
+
+        if (period.isAfter(YearMonth.now())) {
+            throw new ValidationErrorException("Payroll can't be run for a future pay period.");
+        }
+
+        startInBackground(period);
+
+    }
+
+    /**
+     * Runs payroll for a pay period and waits for it to finish, first waiting
+     * for any run already in progress. Runs that already completed are left
+     * as they are; unfinished ones only process the chunks that are not DONE
+     * yet.
+     *
+     * @param period The pay period.
+     * @return The run as it stands afterwards.
+     */
+    public PayrollRun runPayroll(YearMonth period) {
+
+        runLock.lock();
+        try {
+            PayrollRun run = payrollBatchService.prepareRun(period, chunkSize);
+            if (run.getStatus() != PayrollRunStatus.COMPLETED) {
+                executeRun(run, period);
+            }
+            return payrollRunRepository.findById(run.getRunId()).orElse(run);
+        } finally {
+            runLock.unlock();
+        }
+
+    }
+
+    /**
+     * Retrieves the payroll run of a pay period.
+     *
+     * @param period The pay period.
+     * @return The {@link PayrollRun}.
+     * @throws ResourceNotFoundException If payroll never ran for the period.
+     */
+    @Transactional(readOnly=true)
+    public PayrollRun retrieveRun(YearMonth period) throws ResourceNotFoundException {
+        return payrollRunRepository.findByPayPeriod(period.toString())
+                .orElseThrow(() -> new ResourceNotFoundException("No payroll run for " + period + "."));
+    }
+
+    /**
+     * Returns all payroll runs, latest pay period first.
+     */
+    @Transactional(readOnly=true)
+    public List<PayrollRun> retrieveAllRuns() {
+        return payrollRunRepository.findAllByOrderByPayPeriodDesc();
+    }
+
+    private void startInBackground(YearMonth period) {
+        coordinator.execute(() -> {
+            try {
+                runPayroll(period);
+            } catch (RuntimeException e) {
+                // Nobody waits on the run, so this is the only trace of it.
+                log.error("Payroll run for {} failed.", period, e);
+            }
+        });
+    }
+
+    private void executeRun(PayrollRun run, YearMonth period) {
+
+        List<PayrollRunChunk> chunks = payrollRunChunkRepository
+                .findByRunIdAndStatusNotOrderByChunkIndex(run.getRunId(), PayrollChunkStatus.DONE);
+        long startTime = System.nanoTime();
+
+        List<Future<Integer>> results = new ArrayList<>(chunks.size());
+        for (PayrollRunChunk chunk : chunks) {
+            results.add(workers.submit(() -> payrollBatchService.processChunk(chunk, period)));
+        }
+
+        int payments = 0;
+        int failedChunks = 0;
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                payments += results.get(i).get();
+            } catch (ExecutionException e) {
+                failedChunks++;
+                log.warn("Payroll chunk {} of {} failed.", chunks.get(i).getChunkIndex(), period, e.getCause());
+                payrollBatchService.markChunkFailed(chunks.get(i));
+            } catch (InterruptedException e) {
+                // Shutting down; the remaining chunks are picked up on resume.
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        payrollBatchService.finishRun(run.getRunId(), failedChunks == 0);
+
+        long elapsedMillis = Math.max(1, (System.nanoTime() - startTime) / 1_000_000);
+        log.info(
+                "Payroll run for {}: {} chunks, {} payments, {} failed chunks in {} ms ({} payments/s).",
+                period, chunks.size(), payments, failedChunks, elapsedMillis, payments * 1000L / elapsedMillis
+        );
+
+    }
+
+}
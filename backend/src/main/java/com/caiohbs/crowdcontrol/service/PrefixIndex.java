@@ -0,0 +1,396 @@
+package com.caiohbs.crowdcontrol.service;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory prefix index mapping normalized text keys to long owners, for
+ * typeahead lookups. A lookup returns the owners of the first keys, in
+ * alphabetical order, starting with a prefix.
+ * <p>
+ * Most keys live in a sorted, packed layout: the UTF-8 bytes of every key in
+ * one array, their offsets in another and their owners in a third, so a key
+ * costs its length plus 12 bytes and a lookup is a binary search followed by
+ * a sequential scan. Changes go to a small sorted delta instead; the packed
+ * keys of changed or removed owners are hidden until the delta is merged
+ * back, once there is one changed owner for every 64 packed keys.
+ * <p>
+ * Not thread-safe; {@link UserSearchService} guards it with a lock.
+ */
+public class PrefixIndex {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int MIN_CHANGES_TO_MERGE = 1024;
+    private static final Comparator<Entry> ENTRY_ORDER = (first, second) -> {
+        int order = Arrays.compareUnsigned(first.key(), second.key());
+        return order != 0 ? order : Long.compare(first.owner(), second.owner());
+    };
+
+    // The packed keys, sorted by key and then owner.
+    private byte[] keyBytes;
+    private int[] keyOffsets;
+    private long[] keyOwners;
+
+    // Keys written since the last merge, and the owners whose packed keys are
+    // outdated.
+    private final NavigableSet<Entry> delta = new TreeSet<>(ENTRY_ORDER);
+    private final Map<Long, List<Entry>> deltaEntriesByOwner = new HashMap<>();
+    private final Set<Long> changedOwners = new HashSet<>();
+
+    public PrefixIndex() {
+        this(new byte[0], new int[]{0}, new long[0]);
+    }
+
+    private PrefixIndex(byte[] keyBytes, int[] keyOffsets, long[] keyOwners) {
+        this.keyBytes = keyBytes;
+        this.keyOffsets = keyOffsets;
+        this.keyOwners = keyOwners;
+    }
+
+    /**
+     * Sets the keys of an owner, replacing any keys it had.
+     *
+     * @param owner The owner of the keys.
+     * @param keys  The keys, normalized with {@link #normalize(String)};
+     *              blank and {@code null} keys are skipped.
+     */
+    public void put(long owner, Collection<String> keys) {
+
+        removeDeltaEntries(owner);
+        changedOwners.add(owner);
+
+        List<Entry> entries = new ArrayList<>(keys.size());
+        for (String key : new LinkedHashSet<>(keys)) {
+            String normalized = normalize(key);
+            if (!normalized.isEmpty()) {
+                Entry entry = new Entry(normalized.getBytes(StandardCharsets.UTF_8), owner);
+                delta.add(entry);
+                entries.add(entry);
+            }
+        }
+        if (!entries.isEmpty()) {
+            deltaEntriesByOwner.put(owner, entries);
+        }
+
+        mergeIfNeeded();
+
+    }
+
+    /**
+     * Removes every key of an owner.
+     *
+     * @param owner The owner of the keys.
+     */
+    public void remove(long owner) {
+
+        removeDeltaEntries(owner);
+        changedOwners.add(owner);
+        mergeIfNeeded();
+
+    }
+
+    /**
+     * Finds the owners of the first keys starting with a prefix. Owners with
+     * several matching keys are returned once, at the position of their first.
+     *
+     * @param prefix The prefix, normalized like the keys; a trailing space is
+     *               kept, so "ann " matches "ann lee" but not "anna".
+     * @param limit  How many owners to return at most.
+     * @return The owners, in the alphabetical order of their first matching key.
+     */
+    public long[] lookup(String prefix, int limit) {
+
+        String normalizedPrefix = normalizePrefix(prefix);
+        if (normalizedPrefix.isEmpty() || limit < 1) {
+            return new long[0];
+        }
+        byte[] prefixBytes = normalizedPrefix.getBytes(StandardCharsets.UTF_8);
+
+        long[] found = new long[limit];
+        int foundCount = 0;
+
+        int packed = lowerBound(prefixBytes);
+        int packedEnd = keyOwners.length;
+        Iterator<Entry> changed = delta.tailSet(new Entry(prefixBytes, Long.MIN_VALUE), true).iterator();
+        Entry nextChanged = nextMatching(changed, prefixBytes);
+
+        while (foundCount < limit) {
+            boolean packedMatches = packed < packedEnd && startsWith(packed, prefixBytes);
+            if (!packedMatches && nextChanged == null) {
+                break;
+            }
+
+            long owner;
+            if (packedMatches && (nextChanged == null || comparePacked(packed, nextChanged) <= 0)) {
+                owner = keyOwners[packed++];
+                if (changedOwners.contains(owner)) {
+                    continue;
+                }
+            } else {
+                owner = nextChanged.owner();
+                nextChanged = nextMatching(changed, prefixBytes);
+            }
+
+            // Limits are small, so a linear scan beats hashing.
+            boolean duplicate = false;
+            for (int i = 0; i < foundCount && !duplicate; i++) {
+                duplicate = found[i] == owner;
+            }
+            if (!duplicate) {
+                found[foundCount++] = owner;
+            }
+        }
+
+        return foundCount == limit ? found : Arrays.copyOf(found, foundCount);
+
+    }
+
+    /**
+     * @return The number of keys, counting the outdated packed keys of changed
+     * owners until the next merge.
+     */
+    public int size() {
+        return keyOwners.length + delta.size();
+    }
+
+    /**
+     * Estimates the heap taken by the index: the packed arrays exactly, the
+     * delta roughly.
+     *
+     * @return An estimate of the retained size, in bytes.
+     */
+    public long memoryFootprint() {
+
+        long packed = 3L * 16 + keyBytes.length + 4L * keyOffsets.length + 8L * keyOwners.length;
+        // A tree node, an entry, its key array and the owner's list slot.
+        long deltaBytes = 0;
+        for (Entry entry : delta) {
+            deltaBytes += 40 + 24 + 16 + entry.key().length + 8;
+        }
+        // A hash set node and a boxed owner.
+        long changedBytes = 56L * changedOwners.size();
+        return packed + deltaBytes + changedBytes;
+
+    }
+
+    /**
+     * Normalizes a key: lower case, no diacritics, whitespace runs collapsed
+     * into a single space and trimmed.
+     *
+     * @param text The text, possibly {@code null}.
+     * @return The normalized key, empty if the text was blank.
+     */
+    public static String normalize(String text) {
+        return normalizePrefix(text).strip();
+    }
+
+    private static String normalizePrefix(String text) {
+
+        if (text == null || text.isBlank()) {
+            return "";
+        }
+        String stripped = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return WHITESPACE.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").stripLeading();
+
+    }
+
+    private void removeDeltaEntries(long owner) {
+        List<Entry> entries = deltaEntriesByOwner.remove(owner);
+        if (entries != null) {
+            entries.forEach(delta::remove);
+        }
+    }
+
+    private void mergeIfNeeded() {
+        if (changedOwners.size() >= MIN_CHANGES_TO_MERGE && changedOwners.size() * 64L >= keyOwners.length) {
+            merge();
+        }
+    }
+
+    /**
+     * Rewrites the packed arrays with the delta merged in and the keys of
+     * changed owners dropped.
+     */
+    private void merge() {
+
+        int packedKeys = 0;
+        long packedBytes = 0;
+        for (int i = 0; i < keyOwners.length; i++) {
+            if (!changedOwners.contains(keyOwners[i])) {
+                packedKeys++;
+                packedBytes += keyOffsets[i + 1] - keyOffsets[i];
+            }
+        }
+        for (Entry entry : delta) {
+            packedKeys++;
+            packedBytes += entry.key().length;
+        }
+
+        Packer packer = new Packer(packedKeys, Math.toIntExact(packedBytes));
+        Iterator<Entry> changed = delta.iterator();
+        Entry nextChanged = changed.hasNext() ? changed.next() : null;
+        for (int i = 0; i < keyOwners.length; i++) {
+            if (changedOwners.contains(keyOwners[i])) {
+                continue;
+            }
+            while (nextChanged != null && comparePacked(i, nextChanged) > 0) {
+                packer.add(nextChanged.key(), 0, nextChanged.key().length, nextChanged.owner());
+                nextChanged = changed.hasNext() ? changed.next() : null;
+            }
+            packer.add(keyBytes, keyOffsets[i], keyOffsets[i + 1] - keyOffsets[i], keyOwners[i]);
+        }
+        while (nextChanged != null) {
+            packer.add(nextChanged.key(), 0, nextChanged.key().length, nextChanged.owner());
+            nextChanged = changed.hasNext() ? changed.next() : null;
+        }
+
+        keyBytes = packer.bytes;
+        keyOffsets = packer.offsets;
+        keyOwners = packer.owners;
+        delta.clear();
+        deltaEntriesByOwner.clear();
+        changedOwners.clear();
+
+    }
+
+    /**
+     * @return The position of the first packed key not below the prefix.
+     */
+    private int lowerBound(byte[] prefix) {
+
+        int low = 0;
+        int high = keyOwners.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Arrays.compareUnsigned(keyBytes, keyOffsets[middle], keyOffsets[middle + 1],
+                    prefix, 0, prefix.length) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+
+    }
+
+    private boolean startsWith(int position, byte[] prefix) {
+        int start = keyOffsets[position];
+        return keyOffsets[position + 1] - start >= prefix.length
+                && Arrays.equals(keyBytes, start, start + prefix.length, prefix, 0, prefix.length);
+    }
+
+    private int comparePacked(int position, Entry entry) {
+        int order = Arrays.compareUnsigned(keyBytes, keyOffsets[position], keyOffsets[position + 1],
+                entry.key(), 0, entry.key().length);
+        return order != 0 ? order : Long.compare(keyOwners[position], entry.owner());
+    }
+
+    private static Entry nextMatching(Iterator<Entry> entries, byte[] prefix) {
+
+        if (!entries.hasNext()) {
+            return null;
+        }
+        Entry entry = entries.next();
+        byte[] key = entry.key();
+        boolean matches = key.length >= prefix.length
+                && Arrays.equals(key, 0, prefix.length, prefix, 0, prefix.length);
+        return matches ? entry : null;
+
+    }
+
+    private record Entry(byte[] key, long owner) {
+    }
+
+    /**
+     * Fills the packed arrays, in order.
+     */
+    private static final class Packer {
+
+        private final byte[] bytes;
+        private final int[] offsets;
+        private final long[] owners;
+        private int keys;
+
+        private Packer(int keyCount, int byteCount) {
+            bytes = new byte[byteCount];
+            offsets = new int[keyCount + 1];
+            owners = new long[keyCount];
+        }
+
+        private void add(byte[] source, int from, int length, long owner) {
+            int offset = offsets[keys];
+            System.arraycopy(source, from, bytes, offset, length);
+            owners[keys] = owner;
+            offsets[++keys] = offset + length;
+        }
+
+    }
+
+    /**
+     * Builds a packed index in one go, sorting every key once instead of
+     * going through the delta.
+     */
+    public static final class Builder {
+
+        private byte[] bytes = new byte[1024];
+        private int[] offsets = new int[65];
+        private long[] owners = new long[64];
+        private int keyCount;
+
+        /**
+         * Adds the keys of an owner, which must not have been added before.
+         *
+         * @param owner The owner of the keys.
+         * @param keys  The keys, as for {@link PrefixIndex#put(long, Collection)}.
+         * @return This builder.
+         */
+        public Builder add(long owner, Collection<String> keys) {
+
+            for (String key : new LinkedHashSet<>(keys)) {
+                String normalized = normalize(key);
+                if (normalized.isEmpty()) {
+                    continue;
+                }
+                byte[] keyBytes = normalized.getBytes(StandardCharsets.UTF_8);
+                int offset = offsets[keyCount];
+                if (offset + keyBytes.length > bytes.length) {
+                    bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, offset + keyBytes.length));
+                }
+                if (keyCount == owners.length) {
+                    owners = Arrays.copyOf(owners, keyCount * 2);
+                    offsets = Arrays.copyOf(offsets, keyCount * 2 + 1);
+                }
+                System.arraycopy(keyBytes, 0, bytes, offset, keyBytes.length);
+                owners[keyCount] = owner;
+                offsets[++keyCount] = offset + keyBytes.length;
+            }
+            return this;
+
+        }
+
+        public PrefixIndex build() {
+
+            Integer[] order = new Integer[keyCount];
+            for (int i = 0; i < keyCount; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (first, second) -> {
+                int keyOrder = Arrays.compareUnsigned(bytes, offsets[first], offsets[first + 1],
+                        bytes, offsets[second], offsets[second + 1]);
+                return keyOrder != 0 ? keyOrder : Long.compare(owners[first], owners[second]);
+            });
+
+            Packer packer = new Packer(keyCount, offsets[keyCount]);
+            for (int i : order) {
+                packer.add(bytes, offsets[i], offsets[i + 1] - offsets[i], owners[i]);
+            }
+            return new PrefixIndex(packer.bytes, packer.offsets, packer.owners);
+
+        }
+
+    }
+
+}
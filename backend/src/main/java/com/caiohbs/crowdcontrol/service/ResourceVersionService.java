@@ -0,0 +1,134 @@
+package com.caiohbs.crowdcontrol.service;
+
+import com.caiohbs.crowdcontrol.model.CollectionVersion;
+import com.caiohbs.crowdcontrol.repository.CollectionVersionRepository;
+import com.caiohbs.crowdcontrol.repository.ResourceVersion;
+import com.caiohbs.crowdcontrol.repository.UserInfoRespository;
+import com.caiohbs.crowdcontrol.repository.UserRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Service class reading and bumping the validators behind conditional GETs.
+ * Users, roles and user info carry their own {@code @Version} and last
+ * modification time; the payments and sick notes of a user have change
+ * counters that the services writing them bump in the same transaction. The
+ * list of roles has a single counter, bumped at the very end of the
+ * transaction that changed it so concurrent writers only queue up on its row
+ * while committing. Reads
+ * only touch the validator columns, so an unchanged resource is answered
+ * without loading it.
+ */
+@Service
+public class ResourceVersionService {
+
+    private final UserRepository userRepository;
+    private final UserInfoRespository userInfoRespository;
+    private final CollectionVersionRepository collectionVersionRepository;
+
+    public ResourceVersionService(
+            UserRepository userRepository,
+            UserInfoRespository userInfoRespository,
+            CollectionVersionRepository collectionVersionRepository
+    ) {
+        this.userRepository = userRepository;
+        this.userInfoRespository = userInfoRespository;
+        this.collectionVersionRepository = collectionVersionRepository;
+    }
+
+    /**
+     * Retrieves the validators of a user.
+     *
+     * @param userId The ID of the user.
+     * @return The user's version, or an empty {@link Optional} if the user is not found.
+     */
+    @Transactional(readOnly=true)
+    public Optional<ResourceVersion> retrieveUserVersion(Long userId) {
+        return userRepository.findResourceVersion(userId);
+    }
+
+    /**
+     * Retrieves the validators of a user's information.
+     *
+     * @param userId The ID of the user the information belongs to.
+     * @return The information's version, or an empty {@link Optional} if the user has none.
+     */
+    @Transactional(readOnly=true)
+    public Optional<ResourceVersion> retrieveUserInfoVersion(Long userId) {
+        return userInfoRespository.findResourceVersion(userId);
+    }
+
+    /**
+     * Retrieves the change counter of a user's payments.
+     *
+     * @param userId The ID of the user.
+     * @return The payments' version, or an empty {@link Optional} if the user is not found.
+     */
+    @Transactional(readOnly=true)
+    public Optional<ResourceVersion> retrievePaymentsVersion(Long userId) {
+        return userRepository.findPaymentsVersion(userId);
+    }
+
+    /**
+     * Retrieves the change counter of a user's sick notes.
+     *
+     * @param userId The ID of the user.
+     * @return The sick notes' version, or an empty {@link Optional} if the user is not found.
+     */
+    @Transactional(readOnly=true)
+    public Optional<ResourceVersion> retrieveSickNotesVersion(Long userId) {
+        return userRepository.findSickNotesVersion(userId);
+    }
+
+    /**
+     * Retrieves the change counter of the list of roles.
+     *
+     * @return The roles' version.
+     */
+    @Transactional(readOnly=true)
+    public Optional<ResourceVersion> retrieveRolesVersion() {
+        return collectionVersionRepository.findResourceVersion(CollectionVersion.ROLES);
+    }
+
+    /**
+     * Records that payments were created for or deleted from some users.
+     *
+     * @param userIds The IDs of the users whose payments changed.
+     */
+    @Transactional
+    public void paymentsChanged(Collection<Long> userIds) {
+
+        if (!userIds.isEmpty()) {
+            userRepository.incrementPaymentsVersion(userIds, LocalDateTime.now());
+        }
+
+    }
+
+    /**
+     * Records that a sick note was created for or deleted from a user.
+     *
+     * @param userId The ID of the user whose sick notes changed.
+     */
+    @Transactional
+    public void sickNotesChanged(Long userId) {
+        userRepository.incrementSickNotesVersion(userId, LocalDateTime.now());
+    }
+
+    /**
+     * Records that the list of roles changed: a role was created, updated or
+     * deleted, or users holding a role (which the list names) were. The
+     * counter is bumped in the caller's transaction, but only just before it
+     * commits, so its row isn't locked for the whole of that transaction.
+     */
+    @Transactional
+    public void rolesChanged() {
+        TransactionCallbacks.beforeCommit(
+                () -> collectionVersionRepository.increment(CollectionVersion.ROLES, LocalDateTime.now())
+        );
+    }
+
+}
@@ -2,26 +2,34 @@ package com.caiohbs.crowdcontrol.service;
 
 import com.caiohbs.crowdcontrol.dto.RoleUpdateDTO;
 import com.caiohbs.crowdcontrol.exception.NameTakenException;
+import com.caiohbs.crowdcontrol.exception.PreconditionFailedException;
 import com.caiohbs.crowdcontrol.exception.ResourceNotFoundException;
 import com.caiohbs.crowdcontrol.model.Role;
 import com.caiohbs.crowdcontrol.model.User;
 import com.caiohbs.crowdcontrol.repository.RoleRepository;
 import com.caiohbs.crowdcontrol.repository.UserRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class RoleService {
 
     private final RoleRepository roleRepository;
     private final UserRepository userRepository;
+    private final ResourceVersionService resourceVersionService;
 
-    public RoleService(RoleRepository roleRepository, UserRepository userRepository) {
+    public RoleService(
+            RoleRepository roleRepository, UserRepository userRepository,
+            ResourceVersionService resourceVersionService
+    ) {
         this.roleRepository = roleRepository;
         this.userRepository = userRepository;
+        this.resourceVersionService = resourceVersionService;
     }
 
     /**
@@ -31,6 +39,7 @@ public class RoleService {
      * @return The newly created Role object, or throws an exception if the role name is already in use.
      * @throws NameTakenException If the provided name for role is already registered in the system.
      */
+    @Transactional
     public Role createRole(Role role) throws NameTakenException {
 
         Role dbRoleNameCheck = roleRepository.findByRoleName(role.getRoleName());
@@ -40,6 +49,7 @@ public class RoleService {
         }
 
         roleRepository.save(role);
+        resourceVersionService.rolesChanged();
         return role;
 
     }
@@ -51,6 +61,7 @@ public class RoleService {
      * @return An {@link Optional} object containing the found role, or an empty {@link Optional} if the role was not
      * found.
      */
+    @Transactional(readOnly=true)
     public Optional<Role> retrieveSingleRole(Long roleId) {
         return roleRepository.findById(roleId);
     }
@@ -60,6 +71,7 @@ public class RoleService {
      *
      * @return A {@link List} containing all the roles present in the database.
      */
+    @Transactional(readOnly=true)
     public List<Role> retrieveAllRoles() {
         return roleRepository.findAll();
     }
@@ -67,11 +79,17 @@ public class RoleService {
     /**
      * Updates a role's information in the database.
      *
-     * @param roleId         The ID of the user to update.
-     * @param updateRoleInfo A {@link RoleUpdateDTO} object containing the update information.
-     * @throws ResourceNotFoundException If the role being assigned is not found.
+     * @param roleId           The ID of the user to update.
+     * @param updateRoleInfo   A {@link RoleUpdateDTO} object containing the update information.
+     * @param expectedVersions The versions of the role the caller may have read, or {@code null} to update
+     *                         unconditionally.
+     * @throws ResourceNotFoundException   If the role being assigned is not found.
+     * @throws PreconditionFailedException If the role was modified since the caller read it.
      */
-    public void updateRole(Long roleId, RoleUpdateDTO updateRoleInfo) throws ResourceNotFoundException {
+    @Transactional
+    public void updateRole(
+            Long roleId, RoleUpdateDTO updateRoleInfo, Set<Long> expectedVersions
+    ) throws ResourceNotFoundException, PreconditionFailedException {
 
         Optional<Role> roleToUpdate = roleRepository.findById(roleId);
         if (roleToUpdate.isEmpty()) {
@@ -79,6 +97,10 @@ public class RoleService {
         }
         Role foundRole = roleToUpdate.get();
 
+        if (expectedVersions != null && !expectedVersions.contains(foundRole.getVersion())) {
+            throw new PreconditionFailedException("Role was modified by another request.");
+        }
+
         if (updateRoleInfo.isMaxNumUsersPresent()) {
             foundRole.setMaxNumberOfUsers(updateRoleInfo.maxNumberOfUsers());
         }
@@ -86,6 +108,7 @@ public class RoleService {
             foundRole.setSalary(updateRoleInfo.salary());
         }
         roleRepository.save(foundRole);
+        resourceVersionService.rolesChanged();
 
     }
 
@@ -95,6 +118,7 @@ public class RoleService {
      * @param roleId The ID of the role to be deleted.
      * @throws ResourceNotFoundException If the role with the provided ID is not found.
      */
+    @Transactional
     public void deleteRole(Long roleId) throws ResourceNotFoundException {
 
         try {
@@ -113,6 +137,7 @@ public class RoleService {
             } else {
                 roleRepository.delete(foundRole);
             }
+            resourceVersionService.rolesChanged();
         } catch (NoSuchElementException e) {
             throw new ResourceNotFoundException("Role not found.");
         }
@@ -1,39 +1,72 @@
 package com.caiohbs.crowdcontrol.service;
 
+import com.caiohbs.crowdcontrol.dto.AbsenceDayDTO;
+import com.caiohbs.crowdcontrol.dto.AbsenceIntervalDTO;
+import com.caiohbs.crowdcontrol.dto.AbsentUserDTO;
 import com.caiohbs.crowdcontrol.exception.ResourceNotFoundException;
+import com.caiohbs.crowdcontrol.exception.ValidationErrorException;
 import com.caiohbs.crowdcontrol.model.SickNote;
 import com.caiohbs.crowdcontrol.model.User;
 import com.caiohbs.crowdcontrol.repository.SickNoteRepository;
 import com.caiohbs.crowdcontrol.repository.UserRepository;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.Optional;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
 
 @Service
 public class SickNoteService {
 
+    // Windows of the absence calendar, see ehcache.xml.
+    public static final String ABSENCE_CALENDAR_CACHE = "absence-calendar";
+    private static final LocalDate EARLIEST_DATE = LocalDate.of(1, 1, 1);
+    private static final LocalDate LATEST_DATE = LocalDate.of(9999, 12, 31);
+    private static final int MAX_CALENDAR_DAYS = 366;
+
     private final SickNoteRepository sickNoteRepository;
     private final UserRepository userRepository;
     private final UserInfoService userInfoService;
+    private final AbsenceIndexService absenceIndexService;
+    private final AbsenceAnalyticsService absenceAnalyticsService;
+    private final ResourceVersionService resourceVersionService;
 
     public SickNoteService(
-            UserRepository userRepository, UserInfoService userInfoService, SickNoteRepository sickNoteRepository
+            UserRepository userRepository, UserInfoService userInfoService, SickNoteRepository sickNoteRepository,
+            AbsenceIndexService absenceIndexService, AbsenceAnalyticsService absenceAnalyticsService,
+            ResourceVersionService resourceVersionService
     ) {
         this.userRepository = userRepository;
         this.userInfoService = userInfoService;
         this.sickNoteRepository = sickNoteRepository;
+        this.absenceIndexService = absenceIndexService;
+        this.absenceAnalyticsService = absenceAnalyticsService;
+        this.resourceVersionService = resourceVersionService;
     }
 
     /**
-     * Creates a new sick note for a given user though the repository.
+     * Creates a new sick note for a given user though the repository. A sick
+     * note sharing a day with one of the user's sick notes is rejected by the
+     * {@link AbsenceIndexService}, before the database is queried.
      *
      * @param sickNote The {@link SickNoteService} object containing the information to be saved.
      * @param userId   The ID of the user who's sick note is being saved.
      * @throws ResourceNotFoundException If the user with the provided ID is not found.
+     * @throws ValidationErrorException  If the sick note ends before it starts or overlaps an existing one.
      */
-    public void createSickNote(SickNote sickNote, Long userId) throws ResourceNotFoundException {
+    @Transactional
+    @CacheEvict(cacheNames=ABSENCE_CALENDAR_CACHE, allEntries=true)
+    public void createSickNote(
+            SickNote sickNote, Long userId
+    ) throws ResourceNotFoundException, ValidationErrorException {
+
+        LocalDate startDate = sickNote.getSickNoteDate();
+        LocalDate endDate = sickNote.getSickNoteEndDate() != null ? sickNote.getSickNoteEndDate() : startDate;
+        validateRange(startDate, endDate);
+        absenceIndexService.checkNoOverlap(userId, startDate, endDate);
 
         Optional<User> user = userRepository.findById(userId);
 
@@ -45,16 +78,21 @@ public class SickNoteService {
                 // See .convertFileName() documentation for information on how
                 // this method works.
                 userInfoService.convertFileName(sickNote.getSickNote()),
-                sickNote.getSickNoteDate(), user.get()
+                startDate, endDate, user.get()
         );
 
         sickNoteRepository.save(newSickNote);
+        // Checks again, atomically, in case a concurrent request got there first.
+        absenceIndexService.add(newSickNote);
+        absenceAnalyticsService.addSickNote(newSickNote);
+        resourceVersionService.sickNotesChanged(userId);
 
     }
 
     /**
      * Retrieves all the sick notes registered on the database.
      */
+    @Transactional(readOnly=true)
     public List<SickNote> retrieveAllSickNotes() {
         return sickNoteRepository.findAll();
     }
@@ -64,25 +102,151 @@ public class SickNoteService {
      *
      * @param userId The ID of the user you wish to see the sick notes.
      */
+    @Transactional(readOnly=true)
     public List<SickNote> retrieveAllSickNotesForSingleUser(Long userId) {
         return sickNoteRepository.findByUserUserId(userId);
     }
 
+    /**
+     * Retrieves the sick notes sharing at least one day with a range, ordered
+     * by start date.
+     *
+     * @param from First date to include, or {@code null} for no lower bound.
+     * @param to   Last date to include, or {@code null} for no upper bound.
+     * @throws ValidationErrorException If the range ends before it starts.
+     */
+    @Transactional(readOnly=true)
+    public List<SickNote> retrieveSickNotesBetween(
+            LocalDate from, LocalDate to
+    ) throws ValidationErrorException {
+
+        LocalDate rangeStart = from != null ? from : EARLIEST_DATE;
+        LocalDate rangeEnd = to != null ? to : LATEST_DATE;
+        validateRange(rangeStart, rangeEnd);
+
+        return sickNoteRepository.findOverlapping(rangeStart, rangeEnd);
+
+    }
+
+    /**
+     * Retrieves the sick notes of a given user sharing at least one day with a
+     * range, ordered by start date.
+     *
+     * @param userId The ID of the user you wish to see the sick notes.
+     * @param from   First date to include, or {@code null} for no lower bound.
+     * @param to     Last date to include, or {@code null} for no upper bound.
+     * @throws ValidationErrorException If the range ends before it starts.
+     */
+    @Transactional(readOnly=true)
+    public List<SickNote> retrieveSickNotesForSingleUserBetween(
+            Long userId, LocalDate from, LocalDate to
+    ) throws ValidationErrorException {
+
+        LocalDate rangeStart = from != null ? from : EARLIEST_DATE;
+        LocalDate rangeEnd = to != null ? to : LATEST_DATE;
+        validateRange(rangeStart, rangeEnd);
+
+        return sickNoteRepository.findOverlappingForUser(userId, rangeStart, rangeEnd);
+
+    }
+
+    /**
+     * Builds the organization's absence calendar: every day of a range with
+     * the users who handed in a sick note for it. Read with a single query
+     * and cached per window until the next sick note is created or deleted.
+     *
+     * @param from First day of the calendar.
+     * @param to   Last day of the calendar, at most a year after {@code from}.
+     * @return A list of {@link AbsenceDayDTO}, one per day of the range.
+     * @throws ValidationErrorException If the range is invalid or too long.
+     */
+    @Transactional(readOnly=true)
+    @Cacheable(cacheNames=ABSENCE_CALENDAR_CACHE)
+    public List<AbsenceDayDTO> retrieveAbsenceCalendar(
+            LocalDate from, LocalDate to
+    ) throws ValidationErrorException {
+
+        validateRange(from, to);
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_CALENDAR_DAYS) {
+            throw new ValidationErrorException(
+                    "The calendar can span at most " + MAX_CALENDAR_DAYS + " days."
+            );
+        }
+
+        // Absent users of each day by ID, as sick notes from before overlaps
+        // were rejected may cover the same day twice.
+        Map<LocalDate, Map<Long, AbsentUserDTO>> absentUsersByDay = new LinkedHashMap<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            absentUsersByDay.put(day, new LinkedHashMap<>());
+        }
+        for (SickNoteRepository.Absence absence : sickNoteRepository.findAbsences(from, to)) {
+            AbsentUserDTO absentUser = new AbsentUserDTO(
+                    absence.getUserId(), absence.getFirstName(), absence.getLastName()
+            );
+            LocalDate lastDay = absence.getEndDate().isBefore(to) ? absence.getEndDate() : to;
+            for (LocalDate day = absence.getStartDate().isAfter(from) ? absence.getStartDate() : from;
+                 !day.isAfter(lastDay); day = day.plusDays(1)) {
+                absentUsersByDay.get(day).putIfAbsent(absentUser.userId(), absentUser);
+            }
+        }
+
+        return absentUsersByDay.entrySet().stream()
+                .map(day -> new AbsenceDayDTO(day.getKey(), List.copyOf(day.getValue().values())))
+                .toList();
+
+    }
+
+    /**
+     * Finds who is out during a range: the sick notes, of any user, sharing at
+     * least one day with it. Answered from the in-memory
+     * {@link AbsenceIndexService} rather than the database.
+     *
+     * @param from First day of the range.
+     * @param to   Last day of the range, or {@code null} for the single day
+     *             {@code from}.
+     * @return A list of {@link AbsenceIntervalDTO}, in order of start date.
+     * @throws ValidationErrorException If the range is invalid.
+     */
+    public List<AbsenceIntervalDTO> retrieveAbsences(
+            LocalDate from, LocalDate to
+    ) throws ValidationErrorException {
+
+        LocalDate rangeEnd = to != null ? to : from;
+        validateRange(from, rangeEnd);
+
+        return absenceIndexService.findOverlapping(from, rangeEnd);
+
+    }
+
     /**
      * Deletes a sick note though it's id.
      *
      * @param sickNoteId The ID of the sick note to be deleted.
      * @throws ResourceNotFoundException If a sick note with the provided ID is not found.
      */
+    @Transactional
+    @CacheEvict(cacheNames=ABSENCE_CALENDAR_CACHE, allEntries=true)
     public void deleteSickNote(Long sickNoteId) throws ResourceNotFoundException {
 
         try {
             SickNote foundNote = sickNoteRepository.findById(sickNoteId).orElseThrow();
             sickNoteRepository.delete(foundNote);
+            absenceIndexService.remove(foundNote);
+            absenceAnalyticsService.removeSickNote(foundNote);
+            resourceVersionService.sickNotesChanged(foundNote.getUser().getUserId());
         } catch (NoSuchElementException e) {
             throw new ResourceNotFoundException("Sick note not found.");
         }
 
     }
 
+    private void validateRange(LocalDate from, LocalDate to) throws ValidationErrorException {
+        if (from == null || to == null) {
+            throw new ValidationErrorException("'from' and 'to' are required.");
+        }
+        if (to.isBefore(from)) {
+            throw new ValidationErrorException("'from' has to be before 'to'.");
+        }
+    }
+
 }
@@ -0,0 +1,77 @@
+package com.caiohbs.crowdcontrol.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Runs in-memory bookkeeping in step with the current transaction, for the
+ * services that keep state outside the database. Without a transaction the
+ * actions run (or are skipped) immediately.
+ */
+final class TransactionCallbacks {
+
+    private TransactionCallbacks() {
+    }
+
+    /**
+     * Runs an action at the end of the current transaction, just before it
+     * commits and still as part of it.
+     *
+     * @param action The action to run.
+     */
+    static void beforeCommit(Runnable action) {
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+
+    }
+
+    /**
+     * Runs an action once the current transaction commits.
+     *
+     * @param action The action to run.
+     */
+    static void afterCommit(Runnable action) {
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+
+    }
+
+    /**
+     * Runs an action if the current transaction does not commit.
+     *
+     * @param action The action to run.
+     */
+    static void afterRollback(Runnable action) {
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        action.run();
+                    }
+                }
+            });
+        }
+
+    }
+
+}
@@ -1,6 +1,7 @@
 package com.caiohbs.crowdcontrol.service;
 
 import com.caiohbs.crowdcontrol.dto.UserInfoUpdateDTO;
+import com.caiohbs.crowdcontrol.exception.PreconditionFailedException;
 import com.caiohbs.crowdcontrol.exception.ResourceNotFoundException;
 import com.caiohbs.crowdcontrol.exception.ValidationErrorException;
 import com.caiohbs.crowdcontrol.model.User;
@@ -8,8 +9,10 @@ import com.caiohbs.crowdcontrol.model.UserInfo;
 import com.caiohbs.crowdcontrol.repository.UserInfoRespository;
 import com.caiohbs.crowdcontrol.repository.UserRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -17,13 +20,16 @@ public class UserInfoService {
 
     private final UserRepository userRepository;
     private final UserInfoRespository userInfoRespository;
+    private final UserSearchService userSearchService;
 
     public UserInfoService(
             UserRepository userRepository,
-            UserInfoRespository userInfoRespository
+            UserInfoRespository userInfoRespository,
+            UserSearchService userSearchService
     ) {
         this.userRepository = userRepository;
         this.userInfoRespository = userInfoRespository;
+        this.userSearchService = userSearchService;
     }
 
     /**
@@ -37,6 +43,7 @@ public class UserInfoService {
      * @throws ResourceNotFoundException If a user with the provided userId is not found.
      * @throws ValidationErrorException  If the user already has existing user information.
      */
+    @Transactional
     public UserInfo createInfo(
             Long userId, UserInfo userInfo
     ) throws ResourceNotFoundException, ValidationErrorException {
@@ -59,6 +66,7 @@ public class UserInfoService {
         );
 
         userInfoRespository.save(newUserInfo);
+        userSearchService.indexUser(foundUser.get(), newUserInfo);
 
         return newUserInfo;
 
@@ -72,6 +80,7 @@ public class UserInfoService {
      * @return The UserInfo object for the specified user.
      * @throws ResourceNotFoundException If no user is found with the provided userId.
      */
+    @Transactional(readOnly=true)
     public UserInfo retrieveInfo(Long userId) {
 
         Optional<User> foundUser = userRepository.findById(userId);
@@ -90,17 +99,21 @@ public class UserInfoService {
      * Updates user information for a given user ID. This method allows updating specific fields of the user
      * information associated with the provided userId.
      *
-     * @param userId        The ID of the user whose information to update.
-     * @param updateInfoDTO The DTO object containing fields to be updated.
+     * @param userId           The ID of the user whose information to update.
+     * @param updateInfoDTO    The DTO object containing fields to be updated.
+     * @param expectedVersions The versions of the user information the caller may have read, or {@code null} to update
+     *                         unconditionally.
      * @return A message indicating success ("Success") or the converted image filename (if profile picture was
      * updated).
-     * @throws ResourceNotFoundException If no user is found with the provided userId.
-     * @throws ValidationErrorException  If the user has no existing user information or an exception occurs during
-     *                                   pronoun update.
+     * @throws ResourceNotFoundException   If no user is found with the provided userId.
+     * @throws ValidationErrorException    If the user has no existing user information or an exception occurs during
+     *                                     pronoun update.
+     * @throws PreconditionFailedException If the user information was modified since the caller read it.
      */
+    @Transactional
     public String updateInfo(
-            Long userId, UserInfoUpdateDTO updateInfoDTO
-    ) throws ResourceNotFoundException, ValidationErrorException {
+            Long userId, UserInfoUpdateDTO updateInfoDTO, Set<Long> expectedVersions
+    ) throws ResourceNotFoundException, ValidationErrorException, PreconditionFailedException {
 
         Optional<User> user = userRepository.findById(userId);
         String result = "Success";
@@ -115,6 +128,10 @@ public class UserInfoService {
             throw new ValidationErrorException("User info not initialized.");
         }
 
+        if (expectedVersions != null && !expectedVersions.contains(foundUser.getVersion())) {
+            throw new PreconditionFailedException("User info was modified by another request.");
+        }
+
         if (updateInfoDTO.isPfpPresent()) {
             result = convertFileName(updateInfoDTO.pfp());
             foundUser.setPfp(result);
@@ -134,6 +151,7 @@ public class UserInfoService {
         }
 
         userInfoRespository.save(foundUser);
+        userSearchService.indexUser(user.get(), foundUser);
         return result;
 
     }
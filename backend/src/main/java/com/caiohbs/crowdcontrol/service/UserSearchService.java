@@ -0,0 +1,339 @@
+package com.caiohbs.crowdcontrol.service;
+
+import com.caiohbs.crowdcontrol.dto.UserSearchPageDTO;
+import com.caiohbs.crowdcontrol.dto.UserSearchResultDTO;
+import com.caiohbs.crowdcontrol.dto.UserSuggestionDTO;
+import com.caiohbs.crowdcontrol.exception.ValidationErrorException;
+import com.caiohbs.crowdcontrol.model.User;
+import com.caiohbs.crowdcontrol.model.UserInfo;
+import com.caiohbs.crowdcontrol.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Service class responsible for searching users by name, e-mail, bio and
+ * nationality through an in-memory {@link FullTextIndex}, and for suggesting
+ * users by the start of their name or e-mail through an in-memory
+ * {@link PrefixIndex}. Both indexes are built from the database on startup and
+ * updated as soon as {@link UserService}, {@link UserInfoService} or
+ * {@link AccManagementService} commit a change to the indexed fields. Changes
+ * made by other instances or directly in the database are picked up by
+ * {@link #rebuild()}, run on demand by an admin. Changes committed while it
+ * runs are replayed onto the rebuilt indexes, so none is lost whether the
+ * rebuild read it or not.
+ */
+@Service
+public class UserSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserSearchService.class);
+    static final int MAX_PAGE_SIZE = 100;
+    // Deepest hit a page may reach, bounding the ranking heap.
+    static final int MAX_RESULT_WINDOW = 10000;
+    static final int MAX_SUGGESTIONS = 50;
+    private static final float NAME_WEIGHT = 3f;
+    private static final float EMAIL_WEIGHT = 2f;
+    private static final float NATIONALITY_WEIGHT = 1.5f;
+    private static final float BIO_WEIGHT = 1f;
+
+    private final UserRepository userRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock rebuildLock = new ReentrantLock();
+    private final int rebuildBatchSize;
+
+    private FullTextIndex index = new FullTextIndex();
+    private PrefixIndex prefixIndex = new PrefixIndex();
+    // Changes committed since the running rebuild started, or null if none is
+    // running. Guarded by the write lock.
+    private List<BiConsumer<FullTextIndex, PrefixIndex>> changesDuringRebuild;
+
+    public UserSearchService(
+            UserRepository userRepository,
+            @Value("${crowdcontrol.vars.SEARCH_REBUILD_BATCH_SIZE:5000}") int rebuildBatchSize
+    ) {
+        this.userRepository = userRepository;
+        this.rebuildBatchSize = rebuildBatchSize;
+    }
+
+    /**
+     * Rebuilds the indexes from every user in the database, reading them in
+     * batches. Searches keep using the previous indexes until it is done.
+     *
+     * @return The number of users indexed.
+     */
+    @PostConstruct
+    public int rebuild() {
+
+        rebuildLock.lock();
+        try {
+            lock.writeLock().lock();
+            try {
+                changesDuringRebuild = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            FullTextIndex rebuilt = new FullTextIndex();
+            PrefixIndex rebuiltPrefixIndex = null;
+            try {
+                PrefixIndex.Builder rebuiltPrefixes = new PrefixIndex.Builder();
+                PageRequest batch = PageRequest.of(0, rebuildBatchSize);
+                long lastId = Long.MIN_VALUE;
+
+                List<UserRepository.SearchDocument> documents;
+                do {
+                    documents = userRepository.findSearchDocuments(lastId, batch);
+                    for (UserRepository.SearchDocument document : documents) {
+                        rebuilt.index(document.getUserId(), fields(
+                                document.getFirstName(), document.getLastName(), document.getEmail(),
+                                document.getBio(), document.getNationality()
+                        ));
+                        rebuiltPrefixes.add(document.getUserId(), suggestionKeys(
+                                document.getFirstName(), document.getLastName(), document.getEmail()
+                        ));
+                        lastId = document.getUserId();
+                    }
+                } while (documents.size() == rebuildBatchSize);
+                rebuiltPrefixIndex = rebuiltPrefixes.build();
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    if (rebuiltPrefixIndex != null) {
+                        for (BiConsumer<FullTextIndex, PrefixIndex> change : changesDuringRebuild) {
+                            change.accept(rebuilt, rebuiltPrefixIndex);
+                        }
+                        index = rebuilt;
+                        prefixIndex = rebuiltPrefixIndex;
+                    }
+                    changesDuringRebuild = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            log.info("Rebuilt user search index with {} users.", rebuilt.size());
+
+            return rebuilt.size();
+        } finally {
+            rebuildLock.unlock();
+        }
+
+    }
+
+    /**
+     * (Re)indexes a user once the current transaction commits.
+     *
+     * @param user     The created or updated user.
+     * @param userInfo The user's info, or {@code null} if it has none.
+     */
+    public void indexUser(User user, UserInfo userInfo) {
+
+        long userId = user.getUserId();
+        List<FullTextIndex.Field> fields = fields(
+                user.getFirstName(), user.getLastName(), user.getUsername(),
+                userInfo != null ? userInfo.getBio() : null,
+                userInfo != null ? userInfo.getNationality() : null
+        );
+        List<String> keys = suggestionKeys(user.getFirstName(), user.getLastName(), user.getUsername());
+
+        applyAfterCommit((index, prefixIndex) -> {
+            index.index(userId, fields);
+            prefixIndex.put(userId, keys);
+        });
+
+    }
+
+    /**
+     * Removes deleted users from the index once the current transaction
+     * commits.
+     *
+     * @param userIds The IDs of the deleted users.
+     */
+    public void removeUsers(Collection<Long> userIds) {
+
+        List<Long> removedIds = List.copyOf(userIds);
+        applyAfterCommit((index, prefixIndex) -> {
+            for (Long userId : removedIds) {
+                index.remove(userId);
+                prefixIndex.remove(userId);
+            }
+        });
+
+    }
+
+    /**
+     * Searches users matching every term of a query, best matches first.
+     * Terms found in names weigh more than in the e-mail, nationality and bio.
+     *
+     * @param query            The search terms.
+     * @param restrictToUserId Only return this user, for callers allowed to
+     *                         read nothing but themselves, or {@code null}.
+     * @param page             The page to return, starting at 0.
+     * @param size             The number of results per page, at most
+     *                         {@value #MAX_PAGE_SIZE}.
+     * @return A {@link UserSearchPageDTO} with the page of results and the
+     * total number of matches.
+     * @throws ValidationErrorException If the query is blank or the page is out of bounds.
+     */
+    @Transactional(readOnly=true)
+    public UserSearchPageDTO search(
+            String query, Long restrictToUserId, int page, int size
+    ) throws ValidationErrorException {
+
+        if (query == null || query.isBlank()) {
+            throw new ValidationErrorException("'q' is required.");
+        }
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new ValidationErrorException("'size' has to be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        if (page < 0 || ((long) page + 1) * size > MAX_RESULT_WINDOW) {
+            throw new ValidationErrorException(
+                    "'page' has to be positive and reach at most result " + MAX_RESULT_WINDOW + "."
+            );
+        }
+
+        // Within the result window, so it fits in an int.
+        long offset = (long) page * size;
+
+        FullTextIndex.Hits hits;
+        lock.readLock().lock();
+        try {
+            hits = index.search(
+                    query, userId -> restrictToUserId == null || restrictToUserId == userId, (int) offset, size
+            );
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Map<Long, UserRepository.SearchDocument> documents = hits.hits().isEmpty()
+                ? Map.of()
+                : userRepository.findSearchDocumentsByIds(hits.hits().stream().map(FullTextIndex.Hit::key).toList())
+                .stream().collect(Collectors.toMap(UserRepository.SearchDocument::getUserId, Function.identity()));
+
+        List<UserSearchResultDTO> results = hits.hits().stream()
+                .map(hit -> {
+                    UserRepository.SearchDocument document = documents.get(hit.key());
+                    // Deleted since the search, its removal not applied yet.
+                    if (document == null) {
+                        return null;
+                    }
+                    return new UserSearchResultDTO(
+                            document.getUserId(), document.getEmail(), document.getFirstName(),
+                            document.getLastName(), document.getNationality(), hit.score()
+                    );
+                })
+                .filter(Objects::nonNull)
+                .toList();
+
+        return new UserSearchPageDTO(page, size, hits.totalHits(), results);
+
+    }
+
+    /**
+     * Suggests users whose full name, in either order, or e-mail starts with
+     * a prefix, for typeahead fields. Matching is case and accent insensitive.
+     *
+     * @param prefix What was typed so far.
+     * @param limit  How many users to suggest, at most {@value #MAX_SUGGESTIONS}.
+     * @return A list of {@link UserSuggestionDTO}, in the alphabetical order of
+     * the name or e-mail that matched.
+     * @throws ValidationErrorException If the prefix is blank or the limit is out of bounds.
+     */
+    @Transactional(readOnly=true)
+    public List<UserSuggestionDTO> suggest(String prefix, int limit) throws ValidationErrorException {
+
+        if (prefix == null || prefix.isBlank()) {
+            throw new ValidationErrorException("'prefix' is required.");
+        }
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            throw new ValidationErrorException("'limit' has to be between 1 and " + MAX_SUGGESTIONS + ".");
+        }
+
+        long[] userIds;
+        lock.readLock().lock();
+        try {
+            userIds = prefixIndex.lookup(prefix, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (userIds.length == 0) {
+            return List.of();
+        }
+
+        Map<Long, UserRepository.SearchDocument> documents = userRepository
+                .findSearchDocumentsByIds(Arrays.stream(userIds).boxed().toList())
+                .stream().collect(Collectors.toMap(UserRepository.SearchDocument::getUserId, Function.identity()));
+
+        // Users deleted since the lookup, their removal not applied yet, are skipped.
+        return Arrays.stream(userIds)
+                .mapToObj(documents::get)
+                .filter(Objects::nonNull)
+                .map(document -> new UserSuggestionDTO(
+                        document.getUserId(), document.getEmail(),
+                        document.getFirstName(), document.getLastName()
+                ))
+                .toList();
+
+    }
+
+    /**
+     * Applies a change to the indexes once the current transaction commits,
+     * recording it for the rebuild in progress, if any. Changes replace or
+     * remove whole users, so applying one again is harmless.
+     */
+    private void applyAfterCommit(BiConsumer<FullTextIndex, PrefixIndex> change) {
+
+        TransactionCallbacks.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                change.accept(index, prefixIndex);
+                if (changesDuringRebuild != null) {
+                    changesDuringRebuild.add(change);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+
+    }
+
+    /**
+     * The keys a user can be suggested by: the full name in both orders, so
+     * typing the last name first works too, and the e-mail.
+     */
+    private static List<String> suggestionKeys(String firstName, String lastName, String email) {
+        String first = Objects.toString(firstName, "");
+        String last = Objects.toString(lastName, "");
+        return Arrays.asList(first + " " + last, last + " " + first, email);
+    }
+
+    private static List<FullTextIndex.Field> fields(
+            String firstName, String lastName, String email, String bio, String nationality
+    ) {
+        return List.of(
+                new FullTextIndex.Field(firstName, NAME_WEIGHT),
+                new FullTextIndex.Field(lastName, NAME_WEIGHT),
+                new FullTextIndex.Field(email, EMAIL_WEIGHT),
+                new FullTextIndex.Field(nationality, NATIONALITY_WEIGHT),
+                new FullTextIndex.Field(bio, BIO_WEIGHT)
+        );
+    }
+
+}
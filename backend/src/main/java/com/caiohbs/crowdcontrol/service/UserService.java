@@ -1,52 +1,95 @@
 package com.caiohbs.crowdcontrol.service;
 
+import com.caiohbs.crowdcontrol.dto.UserDTO;
+import com.caiohbs.crowdcontrol.dto.UserListingFilterDTO;
+import com.caiohbs.crowdcontrol.dto.UserListingPageDTO;
 import com.caiohbs.crowdcontrol.dto.UserUpdateDTO;
 import com.caiohbs.crowdcontrol.exception.ResourceNotFoundException;
 import com.caiohbs.crowdcontrol.exception.RoleLimitExceededException;
 import com.caiohbs.crowdcontrol.exception.NameTakenException;
+import com.caiohbs.crowdcontrol.exception.PreconditionFailedException;
 import com.caiohbs.crowdcontrol.exception.ValidationErrorException;
 import com.caiohbs.crowdcontrol.model.Role;
 import com.caiohbs.crowdcontrol.model.User;
+import com.caiohbs.crowdcontrol.model.UserSortField;
 import com.caiohbs.crowdcontrol.repository.RoleRepository;
+import com.caiohbs.crowdcontrol.repository.UserListingRepository;
 import com.caiohbs.crowdcontrol.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.Objects;
-import java.util.Optional;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.caiohbs.crowdcontrol.repository.UserSpecifications.*;
 
 @Service
 public class UserService {
 
+    private static final String UNIQUE_VIOLATION_SQL_STATE = "23505";
+    static final int MAX_LISTING_SIZE = 200;
+
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
+    private final AbsenceIndexService absenceIndexService;
+    private final AbsenceAnalyticsService absenceAnalyticsService;
+    private final UserSearchService userSearchService;
+    private final ResourceVersionService resourceVersionService;
+    private final int deleteBatchSize;
 
     public UserService(
             UserRepository userRepository,
-            RoleRepository roleRepository
+            RoleRepository roleRepository,
+            AbsenceIndexService absenceIndexService,
+            AbsenceAnalyticsService absenceAnalyticsService,
+            UserSearchService userSearchService,
+            ResourceVersionService resourceVersionService,
+            @Value("${crowdcontrol.vars.USER_DELETE_BATCH_SIZE:500}") int deleteBatchSize
     ) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
+        this.absenceIndexService = absenceIndexService;
+        this.absenceAnalyticsService = absenceAnalyticsService;
+        this.userSearchService = userSearchService;
+        this.resourceVersionService = resourceVersionService;
+        this.deleteBatchSize = deleteBatchSize;
     }
 
     /**
-     * Creates a new user through the repository.
+     * Creates a new user through the repository. Instead of looking the e-mail
+     * up first, the insert is flushed right away and the unique constraint on
+     * the e-mail column decides, which also holds for concurrent sign-ups.
      *
      * @param user User object containing the data of the user to be created.
      * @return The newly created User object, or throws an exception if the username is already in use.
      * @throws NameTakenException If the provided email is already registered in the system.
      */
+    @Transactional
     public User createUser(User user) throws NameTakenException {
 
-        Optional<User> dbUsernameCheck = userRepository.findByEmail(user.getUsername());
-
-        if (dbUsernameCheck.isPresent()) {
-            throw new NameTakenException("Username (e-mail) already taken.");
+        try {
+            userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            if (isUniqueViolation(e)) {
+                throw new NameTakenException("Username (e-mail) already taken.");
+            }
+            throw e;
+        }
+        userSearchService.indexUser(user, null);
+        if (user.getRole() != null) {
+            resourceVersionService.rolesChanged();
         }
-
-        userRepository.save(user);
         return user;
 
     }
@@ -58,6 +101,7 @@ public class UserService {
      * @return An {@link Optional} object containing the found user, or an empty {@link Optional} if the user is not
      * found.
      */
+    @Transactional(readOnly=true)
     public Optional<User> retrieveSingleUser(Long userId) {
         return userRepository.findById(userId);
     }
@@ -67,22 +111,110 @@ public class UserService {
      *
      * @return A {@link List} containing all the users present in the database.
      */
+    @Transactional(readOnly=true)
     public List<User> retrieveAllUsers() {
         return userRepository.findAll();
     }
 
+    /**
+     * Lists the users matching a filter, one page at a time. Filtering,
+     * sorting and paging all happen in the database: a page is read with a
+     * keyset condition on the last user of the previous page, so deep pages
+     * cost as much as the first one, and only the listed columns are read.
+     *
+     * @param filter    The {@link UserListingFilterDTO} with the conditions the users have to meet; absent
+     *                  conditions are ignored.
+     * @param sortField The field to sort by; ties are broken by user ID.
+     * @param direction The direction to sort in.
+     * @param cursor    The {@code nextCursor} of the previous page, or {@code null} for the first page.
+     * @param size      The number of users per page, at most {@value #MAX_LISTING_SIZE}.
+     * @return A {@link UserListingPageDTO} with the users and, if more follow, the cursor to the next page.
+     * @throws ValidationErrorException If a range ends before it starts, the cursor is invalid or the size is
+     *                                  out of bounds.
+     */
+    @Transactional(readOnly=true)
+    public UserListingPageDTO retrieveUsers(
+            UserListingFilterDTO filter, UserSortField sortField, Sort.Direction direction, String cursor, int size
+    ) throws ValidationErrorException {
+
+        if (size < 1 || size > MAX_LISTING_SIZE) {
+            throw new ValidationErrorException("'size' has to be between 1 and " + MAX_LISTING_SIZE + ".");
+        }
+        validateRange(filter.registeredFrom(), filter.registeredTo(), "registered");
+        validateRange(filter.bornFrom(), filter.bornTo(), "born");
+
+        Specification<User> specification = Specification.allOf(
+                hasRole(filter.role()),
+                isEnabled(filter.isEnabled()),
+                isAccountNonLocked(filter.isAccountNonLocked()),
+                registeredBetween(filter.registeredFrom(), filter.registeredTo()),
+                bornBetween(filter.bornFrom(), filter.bornTo())
+        );
+
+        Long afterId = null;
+        Comparable<?> afterValue = null;
+        if (cursor != null) {
+            String[] position = decodeCursor(cursor, sortField, direction);
+            afterId = parseCursor(position[0], Long::valueOf);
+            afterValue = switch (sortField) {
+                case USER_ID -> afterId;
+                case LAST_NAME -> position[1];
+                case BIRTH_DATE, REGISTER_DATE -> parseCursor(position[1], LocalDate::parse);
+            };
+        }
+
+        // One more than asked for tells whether another page follows.
+        List<UserListingRepository.ListedUser> listed = userRepository.findListing(
+                specification, sortField, direction, afterValue, afterId, size + 1
+        );
+        boolean hasNext = listed.size() > size;
+        List<UserListingRepository.ListedUser> page = hasNext ? listed.subList(0, size) : listed;
+
+        // Roles are few and second-level cached, so their permissions are
+        // read per role rather than per user.
+        Set<Long> roleIds = page.stream()
+                .map(UserListingRepository.ListedUser::roleId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, Role> roles = roleIds.isEmpty()
+                ? Map.of()
+                : roleRepository.findAllById(roleIds).stream()
+                .collect(Collectors.toMap(Role::getRoleId, Function.identity()));
+
+        List<UserDTO> users = page.stream()
+                .map(user -> {
+                    Role role = user.roleId() != null ? roles.get(user.roleId()) : null;
+                    return new UserDTO(
+                            user.userId(), user.email(), user.firstName(), user.lastName(),
+                            user.birthDate(), user.registerDate(), user.isEnabled(), user.isAccountNonLocked(),
+                            role != null ? role.getRoleName() : NO_ROLE,
+                            role != null ? List.copyOf(role.getPermissions()) : List.of()
+                    );
+                })
+                .toList();
+
+        String nextCursor = hasNext ? encodeCursor(page.getLast(), sortField, direction) : null;
+        return new UserListingPageDTO(size, nextCursor, users);
+
+    }
+
     /**
      * Updates a user's information in the database.
      *
-     * @param userId     The ID of the user to update.
-     * @param updateInfo A {@link UserUpdateDTO} object containing the update information.
-     * @throws ResourceNotFoundException If the user or role being assigned is not found.
-     * @throws ValidationErrorException  If the provided old password is invalid or the new password and confirm
-     *                                   password do not match.
+     * @param userId           The ID of the user to update.
+     * @param updateInfo       A {@link UserUpdateDTO} object containing the update information.
+     * @param expectedVersions The versions of the user the caller may have read, or {@code null} to update
+     *                         unconditionally.
+     * @throws ResourceNotFoundException   If the user or role being assigned is not found.
+     * @throws ValidationErrorException    If the provided old password is invalid or the new password and confirm
+     *                                     password do not match.
+     * @throws PreconditionFailedException If the user was modified since the caller read it.
      */
+    @Transactional
+    @CacheEvict(cacheNames=SickNoteService.ABSENCE_CALENDAR_CACHE, allEntries=true)
     public void updateUser(
-            Long userId, UserUpdateDTO updateInfo
-    ) throws ResourceNotFoundException, ValidationErrorException {
+            Long userId, UserUpdateDTO updateInfo, Set<Long> expectedVersions
+    ) throws ResourceNotFoundException, ValidationErrorException, PreconditionFailedException {
 
         Optional<User> user = userRepository.findById(userId);
         if (user.isEmpty()) {
@@ -90,6 +222,11 @@ public class UserService {
         }
 
         User foundUser = user.get();
+        Role previousRole = foundUser.getRole();
+
+        if (expectedVersions != null && !expectedVersions.contains(foundUser.getVersion())) {
+            throw new PreconditionFailedException("User was modified by another request.");
+        }
 
         if (updateInfo.isUsernamePresent()) {
             foundUser.setUsername(updateInfo.username());
@@ -115,16 +252,24 @@ public class UserService {
             assignRole(foundUser, foundRole.getRoleId());
         }
         userRepository.save(foundUser);
+        userSearchService.indexUser(foundUser, foundUser.getUserInfo());
+        // The list of roles names the users holding each role.
+        if (previousRole != foundUser.getRole() || updateInfo.isUsernamePresent() && previousRole != null) {
+            resourceVersionService.rolesChanged();
+        }
 
     }
 
     /**
-     * Assigns a role to a user in the database.
+     * Assigns a role to a user. The user is not saved here; it is written
+     * together with the rest of the caller's changes when its transaction
+     * flushes.
      *
      * @param user   The {@link User} object to be assigned a role.
      * @param roleId The ID of the role to be assigned.
      * @throws RoleLimitExceededException If the role has reached its maximum number of users.
      */
+    @Transactional
     public void assignRole(
             User user, long roleId
     ) throws RoleLimitExceededException {
@@ -145,30 +290,147 @@ public class UserService {
                 );
             }
             user.setRole(role.get());
-            userRepository.save(user);
 
         } else if (role.isPresent()) {
             user.setRole(role.get());
-            userRepository.save(user);
         }
 
     }
 
     /**
-     * Deletes a user from the database based on the ID.
+     * Checks whether a data integrity violation was caused by a unique
+     * constraint, using the standard SQL state for it (shared by PostgreSQL and
+     * H2) since constraint names differ between databases.
+     *
+     * @param e The exception raised by the repository.
+     * @return True if a unique constraint was violated.
+     */
+    private boolean isUniqueViolation(DataIntegrityViolationException e) {
+
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException) {
+                return UNIQUE_VIOLATION_SQL_STATE.equals(sqlException.getSQLState());
+            }
+        }
+        return false;
+
+    }
+
+    /**
+     * Deletes a user from the database based on the ID. The user is deleted
+     * with a single statement; their payments, sick notes, e-mail codes and
+     * info are removed by the database along with it.
      *
      * @param userId The ID of the user to be deleted.
      * @throws ResourceNotFoundException If the user with the provided ID is not found.
      */
+    @Transactional
+    @CacheEvict(cacheNames=SickNoteService.ABSENCE_CALENDAR_CACHE, allEntries=true)
     public void deleteUser(Long userId) throws ResourceNotFoundException {
 
-        try {
-            User foundUser = userRepository.findById(userId).orElseThrow();
-            userRepository.delete(foundUser);
-        } catch (NoSuchElementException e) {
+        if (userRepository.deleteByIds(List.of(userId)) == 0) {
             throw new ResourceNotFoundException("User not found.");
         }
+        absenceIndexService.removeUsers(List.of(userId));
+        absenceAnalyticsService.removeUsers(List.of(userId));
+        userSearchService.removeUsers(List.of(userId));
+        resourceVersionService.rolesChanged();
 
     }
 
+    /**
+     * Deletes several users at once (e.g. when offboarding a team). IDs that
+     * don't match any user are ignored.
+     *
+     * @param userIds The IDs of the users to be deleted.
+     * @return The number of users actually deleted.
+     * @throws ValidationErrorException If no IDs were provided.
+     */
+    @Transactional
+    @CacheEvict(cacheNames=SickNoteService.ABSENCE_CALENDAR_CACHE, allEntries=true)
+    public int deleteUsers(Collection<Long> userIds) throws ValidationErrorException {
+
+        if (userIds == null || userIds.isEmpty()) {
+            throw new ValidationErrorException("No user IDs provided.");
+        }
+
+        List<Long> distinctIds = userIds.stream().distinct().toList();
+        int deleted = 0;
+
+        // Keeps the IN list (and its bind parameters) bounded.
+        for (int i = 0; i < distinctIds.size(); i += deleteBatchSize) {
+            deleted += userRepository.deleteByIds(
+                    distinctIds.subList(i, Math.min(i + deleteBatchSize, distinctIds.size()))
+            );
+        }
+        absenceIndexService.removeUsers(distinctIds);
+        absenceAnalyticsService.removeUsers(distinctIds);
+        userSearchService.removeUsers(distinctIds);
+        resourceVersionService.rolesChanged();
+
+        return deleted;
+
+    }
+
+    private static void validateRange(
+            LocalDate from, LocalDate to, String name
+    ) throws ValidationErrorException {
+        if (from != null && to != null && to.isBefore(from)) {
+            throw new ValidationErrorException("'" + name + "From' has to be before '" + name + "To'.");
+        }
+    }
+
+    /**
+     * A cursor is the sort it was made for and the ID and the sort field's
+     * value of the last user of a page, encoded so clients treat it as opaque.
+     */
+    private static String encodeCursor(
+            UserListingRepository.ListedUser user, UserSortField sortField, Sort.Direction direction
+    ) {
+
+        Object value = switch (sortField) {
+            case USER_ID -> user.userId();
+            case LAST_NAME -> user.lastName();
+            case BIRTH_DATE -> user.birthDate();
+            case REGISTER_DATE -> user.registerDate();
+        };
+        String position = sortField + ":" + direction + ":" + user.userId() + ":" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+
+    }
+
+    /**
+     * Reads the ID and the sort field's value out of a cursor, which has to
+     * have been made for the same sort: its position means nothing in
+     * another order.
+     */
+    private static String[] decodeCursor(
+            String cursor, UserSortField sortField, Sort.Direction direction
+    ) throws ValidationErrorException {
+
+        String[] parts;
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            parts = position.split(":", 4);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationErrorException("Invalid 'cursor'.");
+        }
+        if (parts.length != 4) {
+            throw new ValidationErrorException("Invalid 'cursor'.");
+        }
+        if (!parts[0].equals(sortField.name()) || !parts[1].equals(direction.name())) {
+            throw new ValidationErrorException("'cursor' was made for a different 'sort' or 'direction'.");
+        }
+        return new String[]{parts[2], parts[3]};
+
+    }
+
+    private static <T> T parseCursor(String value, Function<String, T> parser) throws ValidationErrorException {
+        try {
+            return parser.apply(value);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new ValidationErrorException("Invalid 'cursor'.");
+        }
+    }
+
 }
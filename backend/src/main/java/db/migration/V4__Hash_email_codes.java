@@ -0,0 +1,48 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.HexFormat;
+
+/**
+ * Replaces the raw e-mail codes stored so far with their SHA-256 digest, which
+ * is what the application looks codes up by from this version onwards. Written
+ * in Java because H2 and PostgreSQL have no common SQL digest function.
+ */
+public class V4__Hash_email_codes extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+
+        Connection connection = context.getConnection();
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        HexFormat hex = HexFormat.of();
+
+        try (
+                Statement select = connection.createStatement();
+                ResultSet codes = select.executeQuery(
+                        "select email_id, email_code from email_code where email_code is not null"
+                );
+                PreparedStatement update = connection.prepareStatement(
+                        "update email_code set email_code = ? where email_id = ?"
+                )
+        ) {
+            while (codes.next()) {
+                byte[] rawCode = codes.getString(2).getBytes(StandardCharsets.UTF_8);
+                update.setString(1, hex.formatHex(digest.digest(rawCode)));
+                update.setLong(2, codes.getLong(1));
+                update.addBatch();
+            }
+            update.executeBatch();
+        }
+
+    }
+
+}
@@ -0,0 +1,74 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recreates the foreign keys from the user's child tables with
+ * {@code ON DELETE CASCADE}, so deleting a user is a single statement and the
+ * database removes payments, sick notes, e-mail codes and profile information
+ * with it. Written in Java because databases baselined from the old ddl-auto
+ * schema carry Hibernate generated constraint names instead of the ones in
+ * V1, so the existing keys have to be looked up rather than dropped by name.
+ */
+public class V7__Cascade_user_deletes extends BaseJavaMigration {
+
+    private static final String[] CHILD_TABLES = {"payment", "sick_note", "email_code", "user_info"};
+
+    @Override
+    public void migrate(Context context) throws Exception {
+
+        Connection connection = context.getConnection();
+        DatabaseMetaData metaData = connection.getMetaData();
+
+        try (Statement statement = connection.createStatement()) {
+            for (String table : CHILD_TABLES) {
+                for (String foreignKey : findUserForeignKeys(metaData, connection.getSchema(), table)) {
+                    statement.execute("alter table " + table + " drop constraint " + foreignKey);
+                }
+                statement.execute(
+                        "alter table " + table + " add constraint " + table + "_user_fk " +
+                        "foreign key (user_user_id) references _user (user_id) on delete cascade"
+                );
+            }
+        }
+
+    }
+
+    /**
+     * Lists the foreign keys of a table that point to the user table.
+     *
+     * @param metaData The database metadata.
+     * @param schema   The schema being migrated.
+     * @param table    The (lower case) name of the child table.
+     * @return The names of the matching constraints.
+     */
+    private List<String> findUserForeignKeys(
+            DatabaseMetaData metaData, String schema, String table
+    ) throws Exception {
+
+        String storedTable = metaData.storesUpperCaseIdentifiers() ? table.toUpperCase() : table;
+        List<String> foreignKeys = new ArrayList<>();
+
+        try (ResultSet importedKeys = metaData.getImportedKeys(null, schema, storedTable)) {
+            while (importedKeys.next()) {
+                if ("_user".equalsIgnoreCase(importedKeys.getString("PKTABLE_NAME"))
+                    && !foreignKeys.contains(importedKeys.getString("FK_NAME"))
+                ) {
+                    foreignKeys.add(importedKeys.getString("FK_NAME"));
+                }
+            }
+        }
+
+        return foreignKeys;
+
+    }
+
+}
@@ -0,0 +1,20 @@
+-- Amounts are stored as a whole number of cents instead of floating point, so
+-- they add up exactly. Existing amounts are rounded to the nearest cent.
+drop index payment_date_user_amount_idx;
+
+alter table payment add column payment_amount_cents bigint;
+update payment set payment_amount_cents = cast(round(payment_amount * 100) as bigint);
+alter table payment alter column payment_amount_cents set not null;
+alter table payment drop column payment_amount;
+
+create index payment_date_user_amount_idx on payment (payment_date, user_user_id, payment_amount_cents);
+
+alter table role add column salary_cents bigint;
+update role set salary_cents = cast(round(salary * 100) as bigint);
+alter table role alter column salary_cents set not null;
+alter table role drop column salary;
+
+alter table payment_monthly_rollup add column total_amount_cents bigint;
+update payment_monthly_rollup set total_amount_cents = cast(round(total_amount * 100) as bigint);
+alter table payment_monthly_rollup alter column total_amount_cents set not null;
+alter table payment_monthly_rollup drop column total_amount;
@@ -0,0 +1,43 @@
+-- Payroll runs pay every user with a role their salary once per pay period.
+-- Users are split into chunks of consecutive IDs; a chunk's payments and its
+-- DONE status are committed together, so a run that stopped halfway resumes
+-- with the chunks that are not DONE yet.
+create sequence payroll_run_seq start with 1 increment by 50;
+create sequence payroll_run_chunk_seq start with 1 increment by 50;
+
+create table payroll_run (
+    run_id           bigint      not null,
+    pay_period       varchar(7)  not null,
+    status           varchar(20) not null,
+    total_users      integer     not null,
+    processed_users  integer     not null,
+    paid_users       integer     not null,
+    chunk_count      integer     not null,
+    completed_chunks integer     not null,
+    started_at       timestamp(6) not null,
+    finished_at      timestamp(6),
+    constraint payroll_run_pk primary key (run_id),
+    constraint payroll_run_pay_period_uk unique (pay_period),
+    constraint payroll_run_status_ck check (status in ('RUNNING', 'COMPLETED', 'FAILED'))
+);
+
+create table payroll_run_chunk (
+    chunk_id      bigint      not null,
+    run_id        bigint      not null,
+    chunk_index   integer     not null,
+    first_user_id bigint      not null,
+    last_user_id  bigint      not null,
+    status        varchar(20) not null,
+    paid_users    integer     not null,
+    constraint payroll_run_chunk_pk primary key (chunk_id),
+    constraint payroll_run_chunk_run_fk foreign key (run_id)
+        references payroll_run (run_id) on delete cascade,
+    constraint payroll_run_chunk_status_ck check (status in ('PENDING', 'DONE', 'FAILED'))
+);
+
+create index payroll_run_chunk_run_idx on payroll_run_chunk (run_id, chunk_index);
+
+-- Pay period (yyyy-MM) of payments made by a payroll run; null for payments
+-- made by hand. Unique per user, so a period can never be paid twice.
+alter table payment add column pay_period varchar(7);
+create unique index payment_user_pay_period_uk on payment (user_user_id, pay_period);
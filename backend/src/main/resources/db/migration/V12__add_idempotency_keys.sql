@@ -0,0 +1,16 @@
+-- Idempotency-Key values sent with payment requests, scoped to the user that
+-- sent them, and the response that was returned for them. A row without a
+-- status code is a request still being processed.
+create table idempotency_key (
+    record_key    varchar(150)  not null,
+    request_hash  varchar(64)   not null,
+    status_code   integer,
+    response_body varchar(4000),
+    location      varchar(2048),
+    created_at    timestamp(6)  not null,
+    expires_at    timestamp(6)  not null,
+    constraint idempotency_key_pk primary key (record_key)
+);
+
+-- IdempotencyKeyRepository.findExpiredKeys
+create index idempotency_key_expires_at_idx on idempotency_key (expires_at);
@@ -0,0 +1,6 @@
+-- Date-range reads of sick notes (SickNoteRepository): per-user ranges use the
+-- composite index, organization-wide ranges (the absence calendar) the date
+-- index. sick_note_user_idx stays, as H2 backs the user foreign key with it.
+create index sick_note_user_date_idx on sick_note (user_user_id, sick_note_date);
+
+create index sick_note_date_idx on sick_note (sick_note_date);
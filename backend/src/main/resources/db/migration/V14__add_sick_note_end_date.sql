@@ -0,0 +1,15 @@
+-- Sick notes cover a range of days: sick_note_date is the first one and
+-- sick_note_end_date the last. Existing notes cover a single day.
+alter table sick_note add column sick_note_end_date date;
+
+update sick_note set sick_note_end_date = sick_note_date;
+
+alter table sick_note alter column sick_note_end_date set not null;
+
+alter table sick_note add constraint sick_note_range_ck check (sick_note_end_date >= sick_note_date);
+
+-- Organization-wide overlap reads (start <= :to and end >= :from) are answered
+-- from the index alone.
+drop index sick_note_date_idx;
+
+create index sick_note_date_range_idx on sick_note (sick_note_date, sick_note_end_date);
@@ -0,0 +1,10 @@
+-- Sick notes remember the role their user had when they were handed in, so
+-- absence analytics can be attributed (and later reversed) under that role.
+-- Existing sick notes get the user's current role.
+alter table sick_note add column role_name varchar(255);
+
+update sick_note
+set role_name = (select r.role_name
+                 from _user u
+                          join role r on r.role_id = u.role_role_id
+                 where u.user_id = sick_note.user_user_id);
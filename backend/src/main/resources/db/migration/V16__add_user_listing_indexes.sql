@@ -0,0 +1,18 @@
+-- Users registered before @PrePersist set the date get the migration day, so
+-- the listing can page through register dates without special-casing nulls.
+update _user set register_date = current_date where register_date is null;
+
+alter table _user alter column register_date set not null;
+
+-- The user listing pages by (sort field, user_id); each sort field gets a
+-- composite index in that order so a page is a range scan of at most
+-- size + 1 entries, whatever the offset. Filtering by role while sorting by
+-- register date, the admin console's default, is served by the role index.
+-- The status flags are too coarse to be worth an index of their own.
+create index user_last_name_idx on _user (last_name, user_id);
+
+create index user_birth_date_idx on _user (birth_date, user_id);
+
+create index user_register_date_idx on _user (register_date, user_id);
+
+create index user_role_register_date_idx on _user (role_role_id, register_date, user_id);
@@ -0,0 +1,24 @@
+-- Validators for conditional GETs: when a resource last changed, next to the
+-- @Version columns added in V6. Existing rows count as changed now.
+alter table _user add column last_modified_at timestamp(6) default localtimestamp not null;
+alter table user_info add column last_modified_at timestamp(6) default localtimestamp not null;
+alter table role add column last_modified_at timestamp(6) default localtimestamp not null;
+
+-- Change counters of the collections a user owns, bumped in the transaction
+-- that inserts or deletes one of their payments or sick notes. They live on
+-- the user's row, which always exists and takes the counters with it when
+-- deleted, and are not part of the user's @Version.
+alter table _user add column payments_version bigint default 0 not null;
+alter table _user add column payments_modified_at timestamp(6) default localtimestamp not null;
+alter table _user add column sick_notes_version bigint default 0 not null;
+alter table _user add column sick_notes_modified_at timestamp(6) default localtimestamp not null;
+
+-- Change counters of collections no row owns.
+create table collection_version (
+    collection_name varchar(50)  not null,
+    version         bigint       not null,
+    modified_at     timestamp(6) not null,
+    constraint collection_version_pk primary key (collection_name)
+);
+
+insert into collection_version (collection_name, version, modified_at) values ('roles', 0, localtimestamp);
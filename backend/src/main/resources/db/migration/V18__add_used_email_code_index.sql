@@ -0,0 +1,4 @@
+-- EmailCodeRepository.findUsedIds. Used codes are purged every hour, so they
+-- are a small slice of the table and the index narrows the lookup to them.
+-- Expired codes are found through email_code_expires_at_idx (V3).
+create index email_code_is_code_active_idx on email_code (is_code_active);
@@ -0,0 +1,18 @@
+-- V10 converted the rollup totals by multiplying the old floating point sums
+-- by 100, which kept whatever rounding they had built up. Recompute every
+-- rollup row from the payments' exact cent amounts instead, the same way
+-- PaymentRollupRepository.rebuildFromPayments does.
+delete from payment_monthly_rollup;
+
+insert into payment_monthly_rollup (payment_month, role_name, user_user_id, total_amount_cents, payment_count)
+select extract(year from payment_date) * 100 + extract(month from payment_date),
+       coalesce(role_name, 'NO_ROLE'),
+       user_user_id,
+       sum(payment_amount_cents),
+       count(*)
+from payment
+where user_user_id is not null
+  and payment_date is not null
+group by extract(year from payment_date) * 100 + extract(month from payment_date),
+         coalesce(role_name, 'NO_ROLE'),
+         user_user_id;
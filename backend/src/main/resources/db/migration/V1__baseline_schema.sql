@@ -0,0 +1,82 @@
+-- Baseline schema. Mirrors what Hibernate used to generate through ddl-auto so
+-- that databases created before migrations were introduced can be baselined
+-- at this version (see spring.flyway.baseline-on-migrate).
+
+create sequence _user_seq start with 1 increment by 50;
+create sequence email_code_seq start with 1 increment by 50;
+create sequence payment_seq start with 1 increment by 50;
+create sequence role_seq start with 1 increment by 50;
+create sequence sick_note_seq start with 1 increment by 50;
+create sequence user_info_seq start with 1 increment by 50;
+
+create table role (
+    role_id             bigint           not null,
+    role_name           varchar(255),
+    max_number_of_users integer          not null,
+    salary              double precision not null,
+    constraint role_pk primary key (role_id),
+    constraint role_role_name_uk unique (role_name)
+);
+
+create table role_permissions (
+    role_role_id bigint not null,
+    permission   varchar(255),
+    constraint role_permissions_role_fk foreign key (role_role_id) references role (role_id)
+);
+
+create table _user (
+    user_id               bigint       not null,
+    first_name            varchar(50)  not null,
+    last_name             varchar(50)  not null,
+    email                 varchar(100) not null,
+    password              varchar(255) not null,
+    birth_date            date         not null,
+    register_date         date,
+    role_role_id          bigint,
+    is_enabled            boolean      not null,
+    is_account_non_locked boolean      not null,
+    constraint user_pk primary key (user_id),
+    constraint user_email_uk unique (email),
+    constraint user_role_fk foreign key (role_role_id) references role (role_id)
+);
+
+create table user_info (
+    user_info_id bigint       not null,
+    user_user_id bigint,
+    pfp          varchar(255) not null,
+    pronouns     varchar(255),
+    bio          varchar(250),
+    nationality  varchar(255),
+    constraint user_info_pk primary key (user_info_id),
+    constraint user_info_user_uk unique (user_user_id),
+    constraint user_info_user_fk foreign key (user_user_id) references _user (user_id)
+);
+
+create table payment (
+    payment_id     bigint           not null,
+    payment_amount double precision not null,
+    payment_date   date,
+    user_user_id   bigint,
+    constraint payment_pk primary key (payment_id),
+    constraint payment_user_fk foreign key (user_user_id) references _user (user_id)
+);
+
+create table sick_note (
+    sick_note_id   bigint       not null,
+    sick_note      varchar(255) not null,
+    sick_note_date date         not null,
+    user_user_id   bigint,
+    constraint sick_note_pk primary key (sick_note_id),
+    constraint sick_note_user_fk foreign key (user_user_id) references _user (user_id)
+);
+
+create table email_code (
+    email_id       bigint       not null,
+    email_code     varchar(255),
+    is_code_active boolean      not null,
+    email_type     varchar(255),
+    user_user_id   bigint,
+    constraint email_code_pk primary key (email_id),
+    constraint email_code_type_ck check (email_type in ('ENABLE_ACC', 'RECOV_PASS')),
+    constraint email_code_user_fk foreign key (user_user_id) references _user (user_id)
+);
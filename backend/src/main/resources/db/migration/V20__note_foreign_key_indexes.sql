@@ -0,0 +1,4 @@
+-- Corrects the note at the top of V2, which can't be edited once applied.
+-- PostgreSQL doesn't create indexes for foreign key columns on its own, but
+-- H2 does, so on H2 the single-column foreign key indexes from V2 sit next to
+-- the ones it already made. Nothing in the schema changes.
@@ -0,0 +1,10 @@
+-- Used e-mail codes now expire the moment they are consumed, so the purge
+-- finds them through email_code_expires_at_idx (V3) along with the expired
+-- ones. Codes used before this migration are expired now, and the index on
+-- the boolean flag from V18, too unselective to be of use, goes away.
+
+update email_code
+set expires_at = localtimestamp
+where is_code_active = false and expires_at > localtimestamp;
+
+drop index email_code_is_code_active_idx;
@@ -0,0 +1,18 @@
+-- Indexes for the columns the repositories filter on. Neither H2 nor
+-- PostgreSQL creates indexes for foreign key columns on its own.
+
+-- EmailCodeRepository.findByEmailCode
+create unique index email_code_email_code_idx on email_code (email_code);
+
+-- PaymentRepository.findByUserUserId and per-user date ranges. The leading
+-- column also serves plain lookups by user, so no single-column index is needed.
+create index payment_user_date_idx on payment (user_user_id, payment_date);
+
+-- SickNoteRepository.findByUserUserId
+create index sick_note_user_idx on sick_note (user_user_id);
+
+-- UserRepository.findUsernamesByRoleId
+create index user_role_idx on _user (role_role_id);
+
+-- Role.permissions element collection, loaded with every role.
+create index role_permissions_role_idx on role_permissions (role_role_id);
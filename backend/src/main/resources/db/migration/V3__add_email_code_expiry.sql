@@ -0,0 +1,15 @@
+-- E-mail codes now carry a creation time and an expiration time. Codes issued
+-- before this migration get a one day grace period from the moment it runs.
+
+alter table email_code add column created_at timestamp(6);
+alter table email_code add column expires_at timestamp(6);
+
+update email_code
+set created_at = current_timestamp,
+    expires_at = current_timestamp + interval '1' day;
+
+alter table email_code alter column created_at set not null;
+alter table email_code alter column expires_at set not null;
+
+-- EmailCodeRepository.findPurgeableIds
+create index email_code_expires_at_idx on email_code (expires_at);
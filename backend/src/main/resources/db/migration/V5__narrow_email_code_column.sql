@@ -0,0 +1,6 @@
+-- Codes are stored as hex encoded SHA-256 digests from V4 onwards.
+
+delete from email_code where email_code is null;
+
+alter table email_code alter column email_code set data type varchar(64);
+alter table email_code alter column email_code set not null;
@@ -0,0 +1,6 @@
+-- Optimistic locking: every update bumps the version and fails if another
+-- transaction changed the row first.
+alter table _user add column version bigint default 0 not null;
+alter table role add column version bigint default 0 not null;
+alter table user_info add column version bigint default 0 not null;
+alter table payment add column version bigint default 0 not null;
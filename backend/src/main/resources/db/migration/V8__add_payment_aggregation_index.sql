@@ -0,0 +1,4 @@
+-- Covers the date-range aggregations in PaymentRepository: the range is read
+-- straight from the index, with the user and the amount alongside it, so the
+-- table itself is never visited.
+create index payment_date_user_amount_idx on payment (payment_date, user_user_id, payment_amount);
@@ -0,0 +1,36 @@
+-- Payments remember the role their user had when paid, so monthly rollups can
+-- be attributed (and later reversed) under that role. Existing payments get
+-- the user's current role.
+alter table payment add column role_name varchar(255);
+
+update payment
+set role_name = (select r.role_name
+                 from _user u
+                          join role r on r.role_id = u.role_role_id
+                 where u.user_id = payment.user_user_id);
+
+-- Sum and count of payments per month (yyyyMM), role and user. Maintained by
+-- PaymentRollupService alongside every payment insert and delete.
+create table payment_monthly_rollup (
+    payment_month integer          not null,
+    role_name     varchar(255)     not null,
+    user_user_id  bigint           not null,
+    total_amount  double precision not null,
+    payment_count bigint           not null,
+    constraint payment_monthly_rollup_pk primary key (payment_month, role_name, user_user_id),
+    constraint payment_monthly_rollup_user_fk foreign key (user_user_id)
+        references _user (user_id) on delete cascade
+);
+
+insert into payment_monthly_rollup (payment_month, role_name, user_user_id, total_amount, payment_count)
+select extract(year from payment_date) * 100 + extract(month from payment_date),
+       coalesce(role_name, 'NO_ROLE'),
+       user_user_id,
+       sum(payment_amount),
+       count(*)
+from payment
+where user_user_id is not null
+  and payment_date is not null
+group by extract(year from payment_date) * 100 + extract(month from payment_date),
+         coalesce(role_name, 'NO_ROLE'),
+         user_user_id;
@@ -0,0 +1,178 @@
+package com.caiohbs.crowdcontrol.benchmark;
+
+import com.caiohbs.crowdcontrol.CrowdcontrolApplication;
+import com.caiohbs.crowdcontrol.model.Money;
+import com.caiohbs.crowdcontrol.model.Role;
+import com.caiohbs.crowdcontrol.model.User;
+import com.caiohbs.crowdcontrol.repository.RoleRepository;
+import com.caiohbs.crowdcontrol.repository.UserRepository;
+import com.caiohbs.crowdcontrol.service.JwtService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Starts the application on an in-memory database, with requests served on
+ * either platform or virtual threads, and has 2 thousand concurrent clients
+ * (each on a virtual thread of its own) fetch random users through
+ * {@code GET /api/v1/users/{id}} as fast as they can. Every request goes
+ * through the JWT filter and reads the database twice. Prints the throughput
+ * and latency percentiles once the warmup is over. Not part of the test suite;
+ * run it once per threading model with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.caiohbs.crowdcontrol.benchmark.ConcurrentClientsLoadBenchmark \
+ *     -Dexec.args="virtual"
+ * </pre>
+ * <p>
+ * ({@code -Dexec.args="platform"} for the default Tomcat pool; a second
+ * argument changes the number of clients). Add
+ * {@code -Djdk.tracePinnedThreads=short} to the JVM to have threads that get
+ * pinned to their carrier reported.
+ */
+public class ConcurrentClientsLoadBenchmark {
+
+    private static final int USERS = 1_000;
+    private static final Duration WARMUP = Duration.ofSeconds(10);
+    private static final Duration MEASUREMENT = Duration.ofSeconds(30);
+
+    public static void main(String[] args) throws Exception {
+
+        boolean virtual = args.length > 0 && args[0].equals("virtual");
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        // DevTools would otherwise restart the application on another thread.
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(CrowdcontrolApplication.class)
+                .profiles("test")
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtual,
+                        "logging.level.root=WARN",
+                        "H2_USERNAME=sa", "H2_PASSWORD=",
+                        "EMAIL_USERNAME=load@email.com", "EMAIL_PASSWORD=unused",
+                        "WEBSITE_ADDRESS=http://localhost"
+                )
+                .run();
+
+        try {
+            String baseUrl = "http://localhost:"
+                             + ((WebServerApplicationContext) context).getWebServer().getPort() + "/api/v1/users/";
+            List<Long> userIds = createUsers(context);
+            String token = "Bearer " + context.getBean(JwtService.class).generateToken(
+                    context.getBean(UserRepository.class).findById(userIds.getFirst()).orElseThrow()
+            );
+
+            System.out.printf("%nRequests on %s threads, %d clients%n", virtual ? "virtual" : "platform", clients);
+            run(baseUrl, token, userIds, clients);
+        } finally {
+            context.close();
+        }
+
+    }
+
+    private static List<Long> createUsers(ConfigurableApplicationContext context) {
+
+        Role role = context.getBean(RoleRepository.class).save(
+                new Role("LOAD_TEST", USERS, Money.of("1000.00"), List.of("READ_GENERAL"))
+        );
+        UserRepository userRepository = context.getBean(UserRepository.class);
+
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            User user = new User(
+                    "Load", "Test" + i, "load" + i + "@email.com", "password",
+                    LocalDate.of(1990, 1, 1), LocalDate.now(), null, List.of(), List.of(), role
+            );
+            user.setIsEnabled(true);
+            userIds.add(userRepository.save(user).getUserId());
+        }
+        return userIds;
+
+    }
+
+    private static void run(String baseUrl, String token, List<Long> userIds, int clients)
+            throws InterruptedException {
+
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+
+        long start = System.nanoTime();
+        long measureFrom = start + WARMUP.toNanos();
+        long measureUntil = measureFrom + MEASUREMENT.toNanos();
+        AtomicLong errors = new AtomicLong();
+        long[][] latencies = new long[clients][];
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                int clientIndex = c;
+                executor.submit(() -> {
+                    SplittableRandom random = new SplittableRandom(clientIndex);
+                    long[] measured = new long[1024];
+                    int count = 0;
+                    long now;
+                    while ((now = System.nanoTime()) < measureUntil) {
+                        HttpRequest request = HttpRequest.newBuilder(
+                                        URI.create(baseUrl + userIds.get(random.nextInt(userIds.size())))
+                                )
+                                .header("Authorization", token)
+                                .timeout(Duration.ofSeconds(60))
+                                .build();
+                        boolean failed;
+                        try {
+                            failed = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() != 200;
+                        } catch (Exception e) {
+                            failed = true;
+                        }
+                        long end = System.nanoTime();
+                        if (now >= measureFrom && end <= measureUntil) {
+                            if (failed) {
+                                errors.incrementAndGet();
+                            } else {
+                                if (count == measured.length) {
+                                    measured = Arrays.copyOf(measured, count * 2);
+                                }
+                                measured[count++] = end - now;
+                            }
+                        }
+                    }
+                    latencies[clientIndex] = Arrays.copyOf(measured, count);
+                });
+            }
+        }
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf(
+                "%d requests (%d failed) in %ds: %.0f req/s, latency p50 %.1f ms, p95 %.1f ms, "
+                + "p99 %.1f ms, max %.1f ms%n",
+                all.length, errors.get(), MEASUREMENT.toSeconds(), all.length / (double) MEASUREMENT.toSeconds(),
+                percentile(all, 0.50), percentile(all, 0.95), percentile(all, 0.99), percentile(all, 1.0)
+        );
+
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.caiohbs.crowdcontrol.benchmark;
+
+import com.caiohbs.crowdcontrol.service.EmailTemplate;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders the account activation email body the way it used to be done,
+ * reading the template file and replacing the link on every email, next to
+ * replacing the link in a template kept in memory and rendering the compiled
+ * {@link EmailTemplate}. Not part of the test suite; run it from the backend
+ * directory (the file is read from the source tree, as before) with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.caiohbs.crowdcontrol.benchmark.EmailTemplateBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=3, time=2)
+@Measurement(iterations=5, time=2)
+@Fork(value=1, jvmArgs={"-Xms512m", "-Xmx512m"})
+public class EmailTemplateBenchmark {
+
+    private static final Path TEMPLATE_FILE = Path.of("src/main/resources/templates/emails/enable-account.txt");
+
+    private String text;
+    private EmailTemplate template;
+    private long code;
+
+    @Setup
+    public void setUp() throws IOException {
+        text = new ClassPathResource("templates/emails/enable-account.txt").getContentAsString(StandardCharsets.UTF_8);
+        template = EmailTemplate.compile(text);
+    }
+
+    @Benchmark
+    public String readAndReplace() throws IOException {
+        return new String(Files.readAllBytes(TEMPLATE_FILE)).replace("[LINK]", link());
+    }
+
+    @Benchmark
+    public String replace() {
+        return text.replace("[LINK]", link());
+    }
+
+    @Benchmark
+    public String render() {
+        return template.render(Map.of("LINK", link()));
+    }
+
+    private String link() {
+        return "http://localhost:8080/enable-acc?code=" + code++;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EmailTemplateBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+
+}
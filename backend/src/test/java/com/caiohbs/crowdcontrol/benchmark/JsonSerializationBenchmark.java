@@ -0,0 +1,129 @@
+package com.caiohbs.crowdcontrol.benchmark;
+
+import com.caiohbs.crowdcontrol.dto.PaymentDTO;
+import com.caiohbs.crowdcontrol.dto.UserDTO;
+import com.caiohbs.crowdcontrol.model.Money;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serializes lists of 10 thousand {@link UserDTO} and {@link PaymentDTO}, as
+ * returned by {@code GET /users} and {@code GET /payments}, with an
+ * {@code ObjectMapper} built the way Spring Boot builds it, with and without
+ * the Blackbird module, and then gzips them the way the server's response
+ * compression does. The size of each list on the wire, raw and gzipped, is
+ * printed once. Not part of the test suite; run it with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.caiohbs.crowdcontrol.benchmark.JsonSerializationBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=3, time=2)
+@Measurement(iterations=5, time=2)
+@Fork(value=1, jvmArgs={"-Xms1g", "-Xmx1g"})
+public class JsonSerializationBenchmark {
+
+    private static final int ELEMENTS = 10_000;
+    private static final String[] NAMES = {"Maria", "João", "Ana", "Pedro", "Lucas", "Sebastião", "Rafaela"};
+    private static final List<String> PERMISSIONS = List.of(
+            "READ_SELF", "READ_GENERAL", "CREATE_SICK_NOTE_SELF", "CREATE_INFO_SELF"
+    );
+
+    @Param({"users", "payments"})
+    public String list;
+    @Param({"reflection", "blackbird"})
+    public String accessors;
+
+    private ObjectMapper objectMapper;
+    private List<?> elements;
+
+    @Setup
+    public void setUp() throws IOException {
+
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        if (accessors.equals("blackbird")) {
+            builder.modulesToInstall(new BlackbirdModule());
+        }
+        objectMapper = builder.build();
+
+        SplittableRandom random = new SplittableRandom(42);
+        List<Object> generated = new ArrayList<>(ELEMENTS);
+        for (long id = 1; id <= ELEMENTS; id++) {
+            generated.add(list.equals("users") ? user(id, random) : payment(id, random));
+        }
+        elements = generated;
+
+        byte[] json = serialize();
+        System.out.printf(
+                "%n%d %s: %d KB of JSON, %d KB gzipped%n",
+                ELEMENTS, list, json.length >> 10, gzip(json).length >> 10
+        );
+
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(elements);
+    }
+
+    @Benchmark
+    public byte[] serializeAndGzip() throws IOException {
+        return gzip(objectMapper.writeValueAsBytes(elements));
+    }
+
+    private static byte[] gzip(byte[] json) throws IOException {
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(json);
+        }
+        return compressed.toByteArray();
+
+    }
+
+    private static UserDTO user(long userId, SplittableRandom random) {
+
+        String firstName = NAMES[random.nextInt(NAMES.length)];
+        String lastName = NAMES[random.nextInt(NAMES.length)];
+        return new UserDTO(
+                userId, firstName.toLowerCase() + "." + userId + "@email.com", firstName, lastName,
+                LocalDate.of(1970, 1, 1).plusDays(random.nextInt(15_000)),
+                LocalDate.of(2020, 1, 1).plusDays(random.nextInt(1_500)),
+                true, true, "EMPLOYEE", PERMISSIONS
+        );
+
+    }
+
+    private static PaymentDTO payment(long paymentId, SplittableRandom random) {
+        return new PaymentDTO(
+                random.nextLong(1, 1_000), paymentId, Money.ofCents(random.nextLong(10_000, 1_000_000)),
+                LocalDate.of(2020, 1, 1).plusDays(random.nextInt(1_500))
+        );
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JsonSerializationBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.caiohbs.crowdcontrol.benchmark;
+
+import com.caiohbs.crowdcontrol.model.Money;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sums 10 million payment amounts held the different ways an amount can be
+ * represented: primitive cents (how {@link Money} stores them), {@link Money}
+ * instances, the {@code double} amounts used before, and {@link BigDecimal}.
+ * Not part of the test suite; run it with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.caiohbs.crowdcontrol.benchmark.PaymentAggregationBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=3, time=2)
+@Measurement(iterations=5, time=2)
+@Fork(value=1, jvmArgs={"-Xms4g", "-Xmx4g"})
+public class PaymentAggregationBenchmark {
+
+    private static final int PAYMENTS = 10_000_000;
+
+    private long[] cents;
+    private Money[] money;
+    private double[] doubles;
+    private BigDecimal[] decimals;
+
+    @Setup
+    public void setUp() {
+
+        SplittableRandom random = new SplittableRandom(42);
+        cents = new long[PAYMENTS];
+        money = new Money[PAYMENTS];
+        doubles = new double[PAYMENTS];
+        decimals = new BigDecimal[PAYMENTS];
+
+        for (int i = 0; i < PAYMENTS; i++) {
+            // Between 100.00 and 10,000.00.
+            long amount = random.nextLong(10_000, 1_000_000);
+            cents[i] = amount;
+            money[i] = Money.ofCents(amount);
+            doubles[i] = amount / 100.0;
+            decimals[i] = BigDecimal.valueOf(amount, 2);
+        }
+
+    }
+
+    @Benchmark
+    public long sumCents() {
+        long total = 0;
+        for (long amount : cents) {
+            total += amount;
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Money sumMoney() {
+        Money total = Money.ZERO;
+        for (Money amount : money) {
+            total = total.plus(amount);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double sumDoubles() {
+        double total = 0;
+        for (double amount : doubles) {
+            total += amount;
+        }
+        return total;
+    }
+
+    @Benchmark
+    public BigDecimal sumBigDecimals() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (BigDecimal amount : decimals) {
+            total = total.add(amount);
+        }
+        return total;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PaymentAggregationBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+
+}
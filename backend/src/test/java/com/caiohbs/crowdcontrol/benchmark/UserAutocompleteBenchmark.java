@@ -0,0 +1,115 @@
+package com.caiohbs.crowdcontrol.benchmark;
+
+import com.caiohbs.crowdcontrol.service.PrefixIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up the first 10 of 1 million users by prefixes of increasing length
+ * in the {@link PrefixIndex} behind user autocomplete, with 1% of the users
+ * updated since the last merge, and measures what updating a user costs.
+ * The heap footprint of the index, estimated and measured, is printed once
+ * it is built. Not part of the test suite; run it with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.caiohbs.crowdcontrol.benchmark.UserAutocompleteBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=3, time=2)
+@Measurement(iterations=5, time=2)
+@Fork(value=1, jvmArgs={"-Xms2g", "-Xmx2g"})
+public class UserAutocompleteBenchmark {
+
+    private static final int USERS = 1_000_000;
+    private static final int UPDATED_USERS = USERS / 100;
+    private static final String[] SYLLABLES = {
+            "ma", "ri", "jo", "ão", "an", "na", "pe", "dro", "lu", "ca", "se", "bas", "ti", "el", "ra", "fa"
+    };
+
+    @Param({"m", "mar", "mari", "maria s"})
+    public String prefix;
+
+    private PrefixIndex index;
+    private SplittableRandom random;
+
+    @Setup
+    public void setUp() {
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+
+        random = new SplittableRandom(42);
+        PrefixIndex.Builder builder = new PrefixIndex.Builder();
+        for (long userId = 1; userId <= USERS; userId++) {
+            builder.add(userId, keys(userId));
+        }
+        index = builder.build();
+        for (int i = 0; i < UPDATED_USERS; i++) {
+            long userId = random.nextLong(1, USERS + 1);
+            index.put(userId, keys(userId));
+        }
+
+        System.gc();
+        long heapAfter = memory.getHeapMemoryUsage().getUsed();
+        System.out.printf(
+                "%n%d keys, estimated footprint %d MB, measured heap growth %d MB%n",
+                index.size(), index.memoryFootprint() >> 20, (heapAfter - heapBefore) >> 20
+        );
+
+    }
+
+    @Benchmark
+    public long[] lookup() {
+        return index.lookup(prefix, 10);
+    }
+
+    @Benchmark
+    public long[] updateAndLookup() {
+        long userId = random.nextLong(1, USERS + 1);
+        index.put(userId, keys(userId));
+        return index.lookup(prefix, 10);
+    }
+
+    /**
+     * The same keys as user autocomplete: the full name in both orders and
+     * the e-mail.
+     */
+    private List<String> keys(long userId) {
+        String firstName = name();
+        String lastName = name();
+        return List.of(
+                firstName + " " + lastName, lastName + " " + firstName,
+                firstName + "." + lastName + userId + "@email.com"
+        );
+    }
+
+    private String name() {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0, length = random.nextInt(2, 5); i < length; i++) {
+            name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+        return name.toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UserAutocompleteBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+
+}
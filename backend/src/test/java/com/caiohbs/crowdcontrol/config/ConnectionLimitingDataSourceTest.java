@@ -0,0 +1,92 @@
+package com.caiohbs.crowdcontrol.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionLimitingDataSourceTest {
+
+    private ConnectionLimitingDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new ConnectionLimitingDataSource(
+                new DriverManagerDataSource("jdbc:h2:mem:limited;DB_CLOSE_DELAY=-1", "sa", ""),
+                2, Duration.ofMillis(100)
+        );
+    }
+
+    @Test
+    @DisplayName("Should hold a permit per open connection and give it back once on close")
+    void getConnection_HoldsPermitUntilClosed() throws Exception {
+
+        Connection first = dataSource.getConnection();
+        Connection second = dataSource.getConnection();
+        assertEquals(0, dataSource.availablePermits());
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+
+        first.close();
+        first.close();
+        assertEquals(1, dataSource.availablePermits());
+        assertTrue(first.isClosed());
+        assertFalse(second.isClosed());
+        assertEquals(second, second);
+        assertNotEquals(second, DataSourceUtils.getTargetConnection(second));
+
+        second.close();
+        assertEquals(2, dataSource.availablePermits());
+        assertEquals(1, new JdbcTemplate(dataSource).queryForObject("SELECT 1", Integer.class));
+        assertEquals(2, dataSource.availablePermits());
+
+    }
+
+    @Test
+    @DisplayName("Should let a waiting virtual thread through once a connection is closed")
+    void getConnection_WaitsForPermit() throws Exception {
+
+        dataSource = new ConnectionLimitingDataSource(
+                new DriverManagerDataSource("jdbc:h2:mem:limited;DB_CLOSE_DELAY=-1", "sa", ""),
+                1, Duration.ofSeconds(5)
+        );
+        Connection held = dataSource.getConnection();
+
+        CountDownLatch started = new CountDownLatch(1);
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletableFuture<Boolean> waiter = CompletableFuture.supplyAsync(() -> {
+                started.countDown();
+                try (Connection connection = dataSource.getConnection()) {
+                    return connection.isValid(1);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }, executor);
+
+            // Only closes the held connection once the waiter is queued on it.
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                while (dataSource.queuedThreads() == 0) {
+                    Thread.onSpinWait();
+                }
+            });
+            assertFalse(waiter.isDone());
+            held.close();
+            assertTrue(waiter.get());
+        }
+        assertEquals(1, dataSource.availablePermits());
+
+    }
+
+}
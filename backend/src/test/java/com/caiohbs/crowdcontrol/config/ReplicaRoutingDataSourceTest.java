@@ -0,0 +1,112 @@
+package com.caiohbs.crowdcontrol.config;
+
+import com.caiohbs.crowdcontrol.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the routing against two in-memory H2 databases standing in for the
+ * primary and a replica. Each one holds a single row naming itself, so the
+ * query result shows which database served it.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+
+        DataSource primary = createDatabase("primary");
+        DataSource replica = createDatabase("replica");
+
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(
+                primary, List.of(replica), new ReadYourWritesGuard(Duration.ofMinutes(1))
+        );
+        routingDataSource.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Should send read-write transactions to the primary")
+    void readWriteTransaction_UsesPrimary() {
+        assertEquals("primary", readWrite.execute(status -> whoAmI()));
+    }
+
+    @Test
+    @DisplayName("Should send read-only transactions to the replica")
+    void readOnlyTransaction_UsesReplica() {
+        assertEquals("replica", readOnly.execute(status -> whoAmI()));
+    }
+
+    @Test
+    @DisplayName("Should use the primary outside of transactions")
+    void noTransaction_UsesPrimary() {
+        assertEquals("primary", whoAmI());
+    }
+
+    @Test
+    @DisplayName("Should keep a user's reads on the primary right after they wrote")
+    void readOnlyTransaction_AfterOwnWrite_UsesPrimary() {
+
+        authenticateAs(1L);
+        readWrite.execute(status -> whoAmI());
+
+        assertEquals("primary", readOnly.execute(status -> whoAmI()));
+
+        authenticateAs(2L);
+        assertEquals("replica", readOnly.execute(status -> whoAmI()));
+
+    }
+
+    private String whoAmI() {
+        return jdbcTemplate.queryForObject("select name from database_name", String.class);
+    }
+
+    private void authenticateAs(Long userId) {
+        User user = new User();
+        user.setUserId(userId);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, List.of())
+        );
+    }
+
+    private DataSource createDatabase(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + "-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", ""
+        );
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("create table database_name (name varchar(20))");
+        template.update("insert into database_name values (?)", name);
+        return dataSource;
+    }
+
+}
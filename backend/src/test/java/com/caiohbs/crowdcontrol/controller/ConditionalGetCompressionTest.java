@@ -0,0 +1,98 @@
+package com.caiohbs.crowdcontrol.controller;
+
+import com.caiohbs.crowdcontrol.model.Money;
+import com.caiohbs.crowdcontrol.model.Permission;
+import com.caiohbs.crowdcontrol.model.Role;
+import com.caiohbs.crowdcontrol.model.User;
+import com.caiohbs.crowdcontrol.repository.RoleRepository;
+import com.caiohbs.crowdcontrol.repository.UserRepository;
+import com.caiohbs.crowdcontrol.service.JwtService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Compression is done by Tomcat, so this needs the real server.
+@SpringBootTest(webEnvironment=SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class ConditionalGetCompressionTest {
+
+    @LocalServerPort
+    int port;
+    @Autowired
+    RoleRepository roleRepository;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    JwtService jwtService;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final List<Role> roles = new ArrayList<>();
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+
+        List<String> permissions = Arrays.stream(Permission.values()).map(Enum::name).toList();
+        for (int i = 0; i < 20; i++) {
+            roles.add(roleRepository.save(new Role("COMPRESSED_" + i, 5, Money.of("1000.00"), permissions)));
+        }
+        user = new User(
+                "First", "Last", "compression@email.com", "123", LocalDate.now().minusYears(20),
+                LocalDate.now(), null, List.of(), List.of(), roles.getFirst()
+        );
+        user.setIsEnabled(true);
+        user = userRepository.save(user);
+
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteById(user.getUserId());
+        roleRepository.deleteAll(roles);
+    }
+
+    @Test
+    @DisplayName("Should gzip a large conditional list and still answer If-None-Match with a 304")
+    void getRolesList_Compressed() throws IOException, InterruptedException {
+
+        HttpResponse<byte[]> response = getRoles(null);
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        String eTag = response.headers().firstValue("ETag").orElseThrow();
+        assertThat(eTag).startsWith("W/\"");
+
+        assertThat(getRoles(eTag).statusCode()).isEqualTo(304);
+
+    }
+
+    private HttpResponse<byte[]> getRoles(String ifNoneMatch) throws IOException, InterruptedException {
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/roles"))
+                .header("Authorization", "Bearer " + jwtService.generateToken(user))
+                .header("Accept-Encoding", "gzip");
+        if (ifNoneMatch != null) {
+            request.header("If-None-Match", ifNoneMatch);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.caiohbs.crowdcontrol.controller;
+
+import com.caiohbs.crowdcontrol.exception.PreconditionFailedException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ETagUtilsTest {
+
+    @Test
+    @DisplayName("Should read a single strong tag as its version")
+    void parseIfMatch_Single() {
+        assertEquals(Set.of(3L), ETagUtils.parseIfMatch("\"3\""));
+    }
+
+    @Test
+    @DisplayName("Should read every version of a comma separated list, skipping weak tags")
+    void parseIfMatch_List() {
+        assertEquals(Set.of(3L, 5L), ETagUtils.parseIfMatch("\"3\", W/\"4\" ,\"5\""));
+    }
+
+    @Test
+    @DisplayName("Should match any current version when the header is absent or holds '*'")
+    void parseIfMatch_Any() {
+        assertNull(ETagUtils.parseIfMatch(null));
+        assertNull(ETagUtils.parseIfMatch(" * "));
+        assertNull(ETagUtils.parseIfMatch("\"3\", *"));
+    }
+
+    @Test
+    @DisplayName("Should fail the precondition when no listed tag can match")
+    void parseIfMatch_FailedNoUsableTag() {
+        assertThrows(PreconditionFailedException.class, () -> ETagUtils.parseIfMatch("W/\"3\""));
+        assertThrows(PreconditionFailedException.class, () -> ETagUtils.parseIfMatch("\"abc\", W/\"4\""));
+    }
+
+}
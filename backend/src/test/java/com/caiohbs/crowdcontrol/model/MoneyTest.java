@@ -0,0 +1,69 @@
+package com.caiohbs.crowdcontrol.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Should read decimal amounts as cents")
+    void of_Success() {
+        assertEquals(123450, Money.of("1234.5").cents());
+        assertEquals(Money.ofCents(1), Money.of(new BigDecimal("0.010")));
+    }
+
+    @Test
+    @DisplayName("Should reject amounts with fractions of a cent")
+    void of_FailedFractionOfCent() {
+        assertThrows(IllegalArgumentException.class, () -> Money.of("10.005"));
+    }
+
+    @Test
+    @DisplayName("Should add amounts exactly where doubles would drift")
+    void plus_Exact() {
+
+        Money total = Money.ZERO;
+        for (int i = 0; i < 10; i++) {
+            total = total.plus(Money.of("0.10"));
+        }
+
+        assertEquals(Money.of("1.00"), total);
+
+    }
+
+    @Test
+    @DisplayName("Should round averages half up to the cent")
+    void average_Success() {
+        assertEquals(Money.ofCents(334), Money.average(1001, 3));
+        assertEquals(Money.ofCents(3), Money.average(5, 2));
+        assertEquals(Money.ofCents(-2), Money.average(-5, 2));
+        assertEquals(Money.ZERO, Money.average(0, 0));
+    }
+
+    @Test
+    @DisplayName("Should average large totals exactly")
+    void average_LargeTotals() {
+        // 2^53 + 1 cents can't be held by a double.
+        assertEquals(Money.ofCents(9_007_199_254_740_993L), Money.average(9_007_199_254_740_993L, 1));
+        assertEquals(Money.ofCents(4_611_686_018_427_387_904L), Money.average(Long.MAX_VALUE, 2));
+    }
+
+    @Test
+    @DisplayName("Should be written to and read from JSON as a decimal number")
+    void json_RoundTrip() throws Exception {
+
+        assertEquals("1234.50", objectMapper.writeValueAsString(Money.of("1234.5")));
+        assertEquals(Money.of("99.99"), objectMapper.readValue("99.99", Money.class));
+        assertEquals(Money.of("100.00"), objectMapper.readValue("100", Money.class));
+
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.caiohbs.crowdcontrol.repository;
+
+import com.caiohbs.crowdcontrol.model.CollectionVersion;
+import com.caiohbs.crowdcontrol.service.ResourceVersionService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The roles counter is bumped as the caller's transaction commits, so the
+// transactions have to commit for real here.
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(ResourceVersionService.class)
+@Transactional(propagation=Propagation.NOT_SUPPORTED)
+class CollectionVersionBumpTest {
+
+    @Autowired
+    ResourceVersionService resourceVersionService;
+    @Autowired
+    CollectionVersionRepository collectionVersionRepository;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("Should bump the roles counter when the transaction commits, and not on a rollback")
+    void rolesChanged_OnCommit() {
+
+        long before = rolesVersion();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        transaction.executeWithoutResult(status -> {
+            resourceVersionService.rolesChanged();
+            assertThat(rolesVersion()).isEqualTo(before);
+        });
+        assertThat(rolesVersion()).isEqualTo(before + 1);
+
+        transaction.executeWithoutResult(status -> {
+            resourceVersionService.rolesChanged();
+            status.setRollbackOnly();
+        });
+        assertThat(rolesVersion()).isEqualTo(before + 1);
+
+    }
+
+    private long rolesVersion() {
+        return collectionVersionRepository.findResourceVersion(CollectionVersion.ROLES).orElseThrow().getVersion();
+    }
+
+}
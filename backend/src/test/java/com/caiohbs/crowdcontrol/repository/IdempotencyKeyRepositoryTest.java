@@ -0,0 +1,56 @@
+package com.caiohbs.crowdcontrol.repository;
+
+import com.caiohbs.crowdcontrol.model.IdempotencyKey;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class IdempotencyKeyRepositoryTest {
+
+    @Autowired
+    EntityManager entityManager;
+    @Autowired
+    IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Test
+    @DisplayName("Should insert a new key instead of overwriting an existing one")
+    void saveAndFlush_DuplicateKey_Fails() {
+
+        idempotencyKeyRepository.saveAndFlush(new IdempotencyKey("1:key", "hash", LocalDateTime.now().plusHours(1)));
+        entityManager.clear();
+
+        assertThrows(DataIntegrityViolationException.class, () -> idempotencyKeyRepository.saveAndFlush(
+                new IdempotencyKey("1:key", "other-hash", LocalDateTime.now().plusHours(1))
+        ));
+
+    }
+
+    @Test
+    @DisplayName("Should store the response of a key and find expired keys")
+    void completeAndFindExpired_Success() {
+
+        idempotencyKeyRepository.saveAndFlush(new IdempotencyKey("1:done", "hash", LocalDateTime.now().plusHours(1)));
+        idempotencyKeyRepository.saveAndFlush(new IdempotencyKey("1:old", "hash", LocalDateTime.now().minusHours(1)));
+
+        assertThat(idempotencyKeyRepository.complete("1:done", 201, "{}", "/api/v1/users/1")).isEqualTo(1);
+        entityManager.clear();
+
+        assertThat(idempotencyKeyRepository.findById("1:done").orElseThrow().getStatusCode()).isEqualTo(201);
+        assertThat(idempotencyKeyRepository.findExpiredKeys(LocalDateTime.now(), PageRequest.of(0, 10)))
+                .containsExactly("1:old");
+
+    }
+
+}
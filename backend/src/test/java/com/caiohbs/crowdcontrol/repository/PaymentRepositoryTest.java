@@ -0,0 +1,174 @@
+package com.caiohbs.crowdcontrol.repository;
+
+import com.caiohbs.crowdcontrol.model.Money;
+import com.caiohbs.crowdcontrol.model.Payment;
+import com.caiohbs.crowdcontrol.model.Role;
+import com.caiohbs.crowdcontrol.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class PaymentRepositoryTest {
+
+    private static final LocalDate FROM = LocalDate.of(2023, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2024, 12, 31);
+
+    @Autowired
+    PaymentRepository paymentRepository;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    RoleRepository roleRepository;
+
+    private User developer;
+    private User manager;
+
+    @BeforeEach
+    void setUp() {
+
+        Role developerRole = roleRepository.save(new Role("DEVELOPER", 5, Money.of("1000.00"), List.of("READ_SELF")));
+        Role managerRole = roleRepository.save(new Role("MANAGER", 5, Money.of("3000.00"), List.of("READ_SELF")));
+
+        developer = userRepository.save(createUser("dev@email.com", developerRole));
+        manager = userRepository.save(createUser("manager@email.com", managerRole));
+
+        createPayment(developer, Money.of("1000.00"), LocalDate.of(2023, 12, 5));
+        createPayment(developer, Money.of("1200.00"), LocalDate.of(2024, 1, 5));
+        createPayment(manager, Money.of("3000.00"), LocalDate.of(2024, 1, 5));
+        // Outside of the range, must not be counted.
+        createPayment(manager, Money.of("9999.00"), LocalDate.of(2022, 6, 1));
+
+    }
+
+    @Test
+    @DisplayName("Should summarize every payment in the range")
+    void summarize_Success() {
+
+        List<PaymentRepository.PaymentAggregate> result = paymentRepository.summarize(FROM, TO);
+
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).getPaymentCount()).isEqualTo(3);
+        assertThat(result.get(0).getTotalAmountCents()).isEqualTo(520000L);
+        assertThat(result.get(0).getMinAmount()).isEqualTo(Money.of("1000.00"));
+        assertThat(result.get(0).getMaxAmount()).isEqualTo(Money.of("3000.00"));
+
+    }
+
+    @Test
+    @DisplayName("Should summarize payments per role")
+    void summarizeByRole_Success() {
+
+        List<PaymentRepository.PaymentAggregate> result = paymentRepository.summarizeByRole(FROM, TO);
+
+        assertThat(result).extracting(PaymentRepository.PaymentAggregate::getGroupKey)
+                .containsExactly("DEVELOPER", "MANAGER");
+        assertThat(result.get(0).getTotalAmountCents()).isEqualTo(220000L);
+        assertThat(result.get(0).getPaymentCount()).isEqualTo(2);
+        assertThat(result.get(1).getPaymentCount()).isEqualTo(1);
+
+    }
+
+    @Test
+    @DisplayName("Should summarize payments per user")
+    void summarizeByUser_Success() {
+
+        List<PaymentRepository.PaymentAggregate> result = paymentRepository.summarizeByUser(FROM, TO);
+
+        assertThat(result).extracting(PaymentRepository.PaymentAggregate::getGroupKey)
+                .containsExactlyInAnyOrder(
+                        developer.getUserId().toString(), manager.getUserId().toString()
+                );
+
+    }
+
+    @Test
+    @DisplayName("Should summarize payments per month and per year")
+    void summarizeByMonthAndYear_Success() {
+
+        assertThat(paymentRepository.summarizeByMonth(FROM, TO))
+                .extracting(PaymentRepository.PaymentAggregate::getGroupKey)
+                .containsExactly("202312", "202401");
+        assertThat(paymentRepository.summarizeByYear(FROM, TO))
+                .extracting(PaymentRepository.PaymentAggregate::getTotalAmountCents)
+                .containsExactly(100000L, 420000L);
+
+    }
+
+    @Test
+    @DisplayName("Should only list users with a role who were not paid for the period yet")
+    void findUnpaidInRange_SkipsPaidUsers() {
+
+        Payment payrollPayment = new Payment(developer, Money.of("1000.00"));
+        payrollPayment.setPayPeriod("2024-03");
+        paymentRepository.save(payrollPayment);
+        userRepository.save(createUser("no-role@email.com", null));
+
+        List<UserRepository.PayableUser> unpaid = userRepository.findUnpaidInRange(0L, Long.MAX_VALUE, "2024-03");
+
+        assertThat(unpaid).extracting(UserRepository.PayableUser::getUserId)
+                .containsExactly(manager.getUserId());
+        assertThat(unpaid.get(0).getSalary()).isEqualTo(Money.of("3000.00"));
+        assertThat(userRepository.findUnpaidInRange(0L, Long.MAX_VALUE, "2024-04")).hasSize(2);
+
+    }
+
+    @Test
+    @DisplayName("Should list the users of a role not paid for the period yet, with the role's salary")
+    void findUnpaidByRoleId_SkipsPaidUsers() {
+
+        Long roleId = manager.getRole().getRoleId();
+        Payment salaryPayment = new Payment(manager, Money.of("3000.00"));
+        salaryPayment.setPayPeriod("2024-03");
+        paymentRepository.save(salaryPayment);
+
+        assertThat(userRepository.findUnpaidByRoleId(roleId, "2024-03")).isEmpty();
+        List<UserRepository.PayableUser> unpaid = userRepository.findUnpaidByRoleId(roleId, "2024-04");
+        assertThat(unpaid).extracting(UserRepository.PayableUser::getUserId)
+                .containsExactly(manager.getUserId());
+        assertThat(unpaid.get(0).getRoleName()).isEqualTo("MANAGER");
+        assertThat(unpaid.get(0).getSalary()).isEqualTo(Money.of("3000.00"));
+        assertThat(userRepository.existsByRoleRoleId(roleId)).isTrue();
+
+    }
+
+    @Test
+    @DisplayName("Should reject a second payroll payment to a user for the same period")
+    void save_DuplicatePayPeriod_Fails() {
+
+        Payment first = new Payment(developer, Money.of("1000.00"));
+        first.setPayPeriod("2024-03");
+        paymentRepository.saveAndFlush(first);
+
+        Payment second = new Payment(developer, Money.of("1000.00"));
+        second.setPayPeriod("2024-03");
+
+        assertThrows(DataIntegrityViolationException.class, () -> paymentRepository.saveAndFlush(second));
+
+    }
+
+    private User createUser(String email, Role role) {
+        return new User(
+                "First", "Last", email, "123", LocalDate.now().minusYears(20),
+                LocalDate.now(), null, List.of(), List.of(), role
+        );
+    }
+
+    private void createPayment(User user, Money amount, LocalDate date) {
+        Payment payment = new Payment(user, amount);
+        payment.setPaymentDate(date);
+        paymentRepository.save(payment);
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.caiohbs.crowdcontrol.repository;
+
+import com.caiohbs.crowdcontrol.model.Money;
+import com.caiohbs.crowdcontrol.model.Payment;
+import com.caiohbs.crowdcontrol.model.Role;
+import com.caiohbs.crowdcontrol.model.User;
+import com.caiohbs.crowdcontrol.service.PaymentRollupService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.AdditionalAnswers;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+// Each transaction commits for real here, so two of them can race for the
+// first rollup row of a month.
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation=Propagation.NOT_SUPPORTED)
+class PaymentRollupConcurrencyTest {
+
+    @Autowired
+    PaymentRollupRepository paymentRollupRepository;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    RoleRepository roleRepository;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        Role role = roleRepository.save(new Role("RACER", 5, Money.of("1000.00"), List.of("READ_SELF")));
+        user = userRepository.save(new User(
+                "First", "Last", "race@email.com", "123", LocalDate.now().minusYears(20),
+                LocalDate.now(), null, List.of(), List.of(), role
+        ));
+    }
+
+    @AfterEach
+    void tearDown() {
+        paymentRollupRepository.deleteAll();
+        userRepository.deleteAll();
+        roleRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Should combine two transactions making the first payment of the month at once")
+    void addPayments_ConcurrentFirstInsert() throws Exception {
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        CountDownLatch firstInserted = new CountDownLatch(1);
+        CountDownLatch secondInserting = new CountDownLatch(1);
+        Thread testThread = Thread.currentThread();
+
+        // Lets the first transaction commit only once the second one found no
+        // row to update and goes for the insert itself.
+        Answer<Object> delegate = AdditionalAnswers.delegatesTo(paymentRollupRepository);
+        PaymentRollupRepository racingRepository = mock(PaymentRollupRepository.class, delegate);
+        doAnswer(invocation -> {
+            if (Thread.currentThread() == testThread) {
+                secondInserting.countDown();
+            }
+            return delegate.answer(invocation);
+        }).when(racingRepository).insertRollupIfAbsent(anyInt(), any(), any(), anyLong(), anyLong());
+        PaymentRollupService paymentRollupService = new PaymentRollupService(racingRepository);
+
+        // The first transaction inserts the row and holds it uncommitted while
+        // the second one finds no row to update and tries to insert it too.
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> transaction.executeWithoutResult(status -> {
+            paymentRollupService.addPayments(List.of(payment("100.00")));
+            firstInserted.countDown();
+            await(secondInserting);
+        }));
+        assertThat(firstInserted.await(5, TimeUnit.SECONDS)).isTrue();
+        transaction.executeWithoutResult(status -> paymentRollupService.addPayments(List.of(payment("50.00"))));
+        first.get(10, TimeUnit.SECONDS);
+        verify(racingRepository, times(2)).insertRollupIfAbsent(anyInt(), any(), any(), anyLong(), anyLong());
+
+        int month = LocalDate.now().getYear() * 100 + LocalDate.now().getMonthValue();
+        List<PaymentRollupRepository.PaymentTotals> totals = paymentRollupRepository.totals(month, month);
+        assertThat(totals.get(0).getPaymentCount()).isEqualTo(2);
+        assertThat(totals.get(0).getTotalAmountCents()).isEqualTo(15000L);
+
+    }
+
+    private Payment payment(String amount) {
+        return new Payment(user, Money.of(amount));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
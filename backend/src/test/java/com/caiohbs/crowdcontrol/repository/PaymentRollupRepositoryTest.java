@@ -0,0 +1,109 @@
+package com.caiohbs.crowdcontrol.repository;
+
+import com.caiohbs.crowdcontrol.model.Money;
+import com.caiohbs.crowdcontrol.model.Payment;
+import com.caiohbs.crowdcontrol.model.PaymentMonthlyRollup;
+import com.caiohbs.crowdcontrol.model.Role;
+import com.caiohbs.crowdcontrol.model.User;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class PaymentRollupRepositoryTest {
+
+    @Autowired
+    EntityManager entityManager;
+    @Autowired
+    PaymentRollupRepository paymentRollupRepository;
+    @Autowired
+    PaymentRepository paymentRepository;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    RoleRepository roleRepository;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        Role role = roleRepository.save(new Role("DEVELOPER", 5, Money.of("1000.00"), List.of("READ_SELF")));
+        user = userRepository.save(new User(
+                "First", "Last", "rollup@email.com", "123", LocalDate.now().minusYears(20),
+                LocalDate.now(), null, List.of(), List.of(), role
+        ));
+    }
+
+    @Test
+    @DisplayName("Should add to an existing rollup row and report when there is none")
+    void addToRollup_Success() {
+
+        assertThat(paymentRollupRepository.addToRollup(202401, "DEVELOPER", user.getUserId(), 1000, 1))
+                .isZero();
+
+        paymentRollupRepository.save(new PaymentMonthlyRollup(202401, "DEVELOPER", user.getUserId(), 1000, 1));
+        assertThat(paymentRollupRepository.addToRollup(202401, "DEVELOPER", user.getUserId(), 500, 2))
+                .isEqualTo(1);
+        entityManager.clear();
+
+        List<PaymentRollupRepository.PaymentTotals> totals = paymentRollupRepository.totals(202401, 202401);
+        assertThat(totals.get(0).getPaymentCount()).isEqualTo(3);
+        assertThat(totals.get(0).getTotalAmountCents()).isEqualTo(1500L);
+
+    }
+
+    @Test
+    @DisplayName("Should rebuild the rollup from the payment table")
+    void rebuildFromPayments_Success() {
+
+        createPayment(Money.of("1000.00"), LocalDate.of(2024, 1, 5), "DEVELOPER");
+        createPayment(Money.of("500.00"), LocalDate.of(2024, 1, 20), "DEVELOPER");
+        createPayment(Money.of("2000.00"), LocalDate.of(2024, 2, 5), null);
+        entityManager.flush();
+
+        paymentRollupRepository.deleteAllRollups();
+        assertThat(paymentRollupRepository.rebuildFromPayments()).isEqualTo(2);
+        entityManager.clear();
+
+        assertThat(paymentRollupRepository.totalsByMonth(0, Integer.MAX_VALUE))
+                .extracting(PaymentRollupRepository.PaymentTotals::getGroupKey)
+                .containsExactly("202401", "202402");
+        assertThat(paymentRollupRepository.totalsByRole(0, Integer.MAX_VALUE))
+                .extracting(PaymentRollupRepository.PaymentTotals::getGroupKey)
+                .containsExactly("DEVELOPER", "NO_ROLE");
+        assertThat(paymentRollupRepository.totalsByYear(0, Integer.MAX_VALUE).get(0).getTotalAmountCents())
+                .isEqualTo(350000L);
+
+    }
+
+    @Test
+    @DisplayName("Should only delete rollup rows that no longer hold payments")
+    void deleteIfEmpty_Success() {
+
+        paymentRollupRepository.save(new PaymentMonthlyRollup(202401, "DEVELOPER", user.getUserId(), 1000, 1));
+        entityManager.flush();
+
+        assertThat(paymentRollupRepository.deleteIfEmpty(202401, "DEVELOPER", user.getUserId())).isZero();
+        paymentRollupRepository.addToRollup(202401, "DEVELOPER", user.getUserId(), -1000, -1);
+        assertThat(paymentRollupRepository.deleteIfEmpty(202401, "DEVELOPER", user.getUserId())).isEqualTo(1);
+
+    }
+
+    private void createPayment(Money amount, LocalDate date, String roleName) {
+        Payment payment = new Payment(user, amount);
+        payment.setPaymentDate(date);
+        payment.setRoleName(roleName);
+        paymentRepository.save(payment);
+    }
+
+}
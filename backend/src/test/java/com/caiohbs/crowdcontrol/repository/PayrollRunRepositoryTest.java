@@ -0,0 +1,101 @@
+package com.caiohbs.crowdcontrol.repository;
+
+import com.caiohbs.crowdcontrol.model.*;
+import com.caiohbs.crowdcontrol.service.PaymentRollupService;
+import com.caiohbs.crowdcontrol.service.PayrollBatchService;
+import com.caiohbs.crowdcontrol.service.ResourceVersionService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Runs the payroll steps against the database, through the service that
+// issues them.
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({PayrollBatchService.class, PaymentRollupService.class, ResourceVersionService.class})
+class PayrollRunRepositoryTest {
+
+    private static final YearMonth PERIOD = YearMonth.of(2024, 3);
+
+    @Autowired
+    EntityManager entityManager;
+    @Autowired
+    PayrollBatchService payrollBatchService;
+    @Autowired
+    PayrollRunRepository payrollRunRepository;
+    @Autowired
+    PayrollRunChunkRepository payrollRunChunkRepository;
+    @Autowired
+    PaymentRepository paymentRepository;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    RoleRepository roleRepository;
+
+    @Test
+    @DisplayName("Should split the users into chunks, pay them and record the progress")
+    void prepareAndProcessRun_Success() {
+
+        Role role = roleRepository.save(new Role("DEVELOPER", 10, Money.of("1000.00"), List.of("READ_SELF")));
+        for (int i = 0; i < 5; i++) {
+            userRepository.save(createUser("payroll" + i + "@email.com", role));
+        }
+
+        PayrollRun run = payrollBatchService.prepareRun(PERIOD, 2);
+        List<PayrollRunChunk> chunks = payrollRunChunkRepository
+                .findByRunIdAndStatusNotOrderByChunkIndex(run.getRunId(), PayrollChunkStatus.DONE);
+        assertThat(run.getTotalUsers()).isEqualTo(5);
+        assertThat(chunks).hasSize(3);
+
+        for (PayrollRunChunk chunk : chunks) {
+            payrollBatchService.processChunk(chunk, PERIOD);
+        }
+        payrollBatchService.finishRun(run.getRunId(), true);
+        entityManager.flush();
+        entityManager.clear();
+
+        PayrollRun finishedRun = payrollRunRepository.findByPayPeriod("2024-03").orElseThrow();
+        assertThat(finishedRun.getStatus()).isEqualTo(PayrollRunStatus.COMPLETED);
+        assertThat(finishedRun.getPaidUsers()).isEqualTo(5);
+        assertThat(finishedRun.getCompletedChunks()).isEqualTo(3);
+        assertThat(paymentRepository.findAll())
+                .allMatch(payment -> "2024-03".equals(payment.getPayPeriod()))
+                .hasSize(5);
+
+    }
+
+    @Test
+    @DisplayName("Should not process a chunk twice")
+    void processChunk_AlreadyDone_Fails() {
+
+        Role role = roleRepository.save(new Role("DEVELOPER", 10, Money.of("1000.00"), List.of("READ_SELF")));
+        userRepository.save(createUser("payroll@email.com", role));
+
+        PayrollRun run = payrollBatchService.prepareRun(PERIOD, 10);
+        PayrollRunChunk chunk = payrollRunChunkRepository
+                .findByRunIdAndStatusNotOrderByChunkIndex(run.getRunId(), PayrollChunkStatus.DONE).get(0);
+        payrollBatchService.processChunk(chunk, PERIOD);
+
+        assertThrows(IllegalStateException.class, () -> payrollBatchService.processChunk(chunk, PERIOD));
+
+    }
+
+    private User createUser(String email, Role role) {
+        return new User(
+                "First", "Last", email, "123", LocalDate.now().minusYears(20),
+                LocalDate.now(), null, List.of(), List.of(), role
+        );
+    }
+
+}
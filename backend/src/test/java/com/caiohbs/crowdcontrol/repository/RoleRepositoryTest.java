@@ -0,0 +1,122 @@
+package com.caiohbs.crowdcontrol.repository;
+
+import com.caiohbs.crowdcontrol.model.Money;
+import com.caiohbs.crowdcontrol.model.Role;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Every repository call runs in its own transaction here, the same way the
+// services use it, so entries actually reach the second-level cache.
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation=Propagation.NOT_SUPPORTED)
+class RoleRepositoryTest {
+
+    @Autowired
+    RoleRepository roleRepository;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        roleRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Should serve a role and its permissions from the second-level cache")
+    void findById_HitsSecondLevelCache() {
+
+        Role savedRole = roleRepository.save(
+                new Role("CACHED_ROLE", 2, Money.of("1000.00"), List.of("READ_SELF", "READ_GENERAL"))
+        );
+        roleRepository.findById(savedRole.getRoleId());
+
+        statistics.clear();
+        Role foundRole = roleRepository.findById(savedRole.getRoleId()).orElseThrow();
+
+        assertThat(foundRole.getPermissions()).containsExactly("READ_SELF", "READ_GENERAL");
+        assertThat(statistics.getSecondLevelCacheHitCount()).isGreaterThanOrEqualTo(2);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+
+    }
+
+    @Test
+    @DisplayName("Should return the updated role after a write evicts the cached one")
+    void save_InvalidatesCachedRole() {
+
+        Role savedRole = roleRepository.save(
+                new Role("UPDATED_ROLE", 2, Money.of("1000.00"), List.of("READ_SELF"))
+        );
+        Role cachedRole = roleRepository.findById(savedRole.getRoleId()).orElseThrow();
+
+        cachedRole.setSalary(Money.of("2500.00"));
+        roleRepository.save(cachedRole);
+
+        Role foundRole = roleRepository.findById(savedRole.getRoleId()).orElseThrow();
+        assertThat(foundRole.getSalary()).isEqualTo(Money.of("2500.00"));
+        assertThat(foundRole.getLastModifiedAt()).isAfter(savedRole.getLastModifiedAt());
+
+    }
+
+    @Test
+    @DisplayName("Should reject a write based on a stale version of the role")
+    void save_StaleVersion_Fails() {
+
+        Role savedRole = roleRepository.save(
+                new Role("VERSIONED_ROLE", 2, Money.of("1000.00"), List.of("READ_SELF"))
+        );
+        Role firstCopy = roleRepository.findById(savedRole.getRoleId()).orElseThrow();
+        Role secondCopy = roleRepository.findById(savedRole.getRoleId()).orElseThrow();
+
+        firstCopy.setSalary(Money.of("1500.00"));
+        roleRepository.save(firstCopy);
+
+        secondCopy.setSalary(Money.of("3000.00"));
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> roleRepository.save(secondCopy));
+        assertThat(roleRepository.findById(savedRole.getRoleId()).orElseThrow().getVersion()).isEqualTo(1L);
+
+    }
+
+    @Test
+    @DisplayName("Should cache role lookups by name and invalidate them on writes")
+    void findByRoleName_HitsQueryCache() {
+
+        roleRepository.save(new Role("NAMED_ROLE", 2, Money.of("1000.00"), List.of("READ_SELF")));
+        roleRepository.findByRoleName("NAMED_ROLE");
+
+        statistics.clear();
+        roleRepository.findByRoleName("NAMED_ROLE");
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+
+        roleRepository.save(new Role("OTHER_ROLE", 2, Money.of("1000.00"), List.of("READ_SELF")));
+
+        statistics.clear();
+        roleRepository.findByRoleName("NAMED_ROLE");
+        assertThat(statistics.getQueryCacheHitCount()).isZero();
+
+    }
+
+}
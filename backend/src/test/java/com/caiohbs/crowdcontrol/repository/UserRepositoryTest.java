@@ -6,11 +6,20 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.test.context.ActiveProfiles;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.sql.SQLException;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 
@@ -24,13 +33,15 @@ class UserRepositoryTest {
     UserRepository userRepository;
     @Autowired
     private RoleRepository roleRepository;
+    @Autowired
+    private CollectionVersionRepository collectionVersionRepository;
 
     @Test
     @DisplayName("Should get a populated List of users successfully from DB")
     void findUsernamesByRoleId_Success() {
 
         Role createdRole = this.createRole(
-                "TEST_ROLE_1", 3, 1000.0,
+                "TEST_ROLE_1", 3, Money.of("1000.00"),
                 List.of("CREATE_ROLE_GENERAL")
         );
 
@@ -63,7 +74,7 @@ class UserRepositoryTest {
     void findUsernamesByRoleId_Failed() {
 
         Role createdRole = this.createRole(
-                "TEST_ROLE_2", 1, 2000.0,
+                "TEST_ROLE_2", 1, Money.of("2000.00"),
                 List.of("DELETE_GENERAL")
         );
 
@@ -75,6 +86,170 @@ class UserRepositoryTest {
 
     }
 
+    @Test
+    @DisplayName("Should delete users together with all their child rows")
+    void deleteByIds_CascadesToChildren() {
+
+        User user = new User(
+                "Leaving", "Test", "leaving@email.com", "123",
+                LocalDate.now().minusYears(30), LocalDate.now(), null,
+                List.of(), List.of(), null
+        );
+        userRepository.save(user);
+        entityManager.persist(new Payment(user, Money.of("1000.00")));
+        entityManager.persist(new SickNote("note.pdf", LocalDate.now(), user));
+        entityManager.persist(new UserInfo(user, "pfp.png", "ANY", "", ""));
+        entityManager.persist(new EmailCode(
+                "digest", true, EmailType.ENABLE_ACC, user, LocalDateTime.now().plusDays(1)
+        ));
+        entityManager.flush();
+        entityManager.clear();
+
+        int deleted = userRepository.deleteByIds(List.of(user.getUserId(), -1L));
+
+        assertThat(deleted).isEqualTo(1);
+        assertThat(userRepository.findById(user.getUserId())).isEmpty();
+        for (String entity : List.of("Payment", "SickNote", "UserInfo", "EmailCode")) {
+            assertThat(entityManager
+                    .createQuery("SELECT COUNT(e) FROM " + entity + " e", Long.class)
+                    .getSingleResult()
+            ).isZero();
+        }
+
+    }
+
+    @Test
+    @DisplayName("Should reject a duplicate e-mail with the unique violation SQL state")
+    void saveAndFlush_DuplicateEmail_Fails() {
+
+        this.createUser(
+                "First", "Test", "taken@email.com", "123",
+                LocalDate.now().minusYears(18), LocalDate.now(), List.of(), List.of(), null
+        );
+        User duplicate = new User(
+                "Second", "Test", "taken@email.com", "456",
+                LocalDate.now().minusYears(18), LocalDate.now(), null, List.of(), List.of(), null
+        );
+
+        DataIntegrityViolationException exception = assertThrows(
+                DataIntegrityViolationException.class, () -> userRepository.saveAndFlush(duplicate)
+        );
+        assertThat(NestedExceptionUtils.getMostSpecificCause(exception))
+                .isInstanceOfSatisfying(SQLException.class, e -> assertThat(e.getSQLState()).isEqualTo("23505"));
+
+    }
+
+    @Test
+    @DisplayName("Should read the searchable fields of users with and without info in keyset batches")
+    void findSearchDocuments_Success() {
+
+        User withInfo = new User(
+                "First", "Test", "with-info@email.com", "123",
+                LocalDate.now().minusYears(30), LocalDate.now(), null, List.of(), List.of(), null
+        );
+        User withoutInfo = new User(
+                "Second", "Test", "without-info@email.com", "123",
+                LocalDate.now().minusYears(30), LocalDate.now(), null, List.of(), List.of(), null
+        );
+        userRepository.save(withInfo);
+        userRepository.save(withoutInfo);
+        entityManager.persist(new UserInfo(withInfo, "pfp.png", "ANY", "Likes chess", "Brazilian"));
+        entityManager.flush();
+
+        List<UserRepository.SearchDocument> firstBatch = userRepository.findSearchDocuments(
+                Long.MIN_VALUE, PageRequest.of(0, 1)
+        );
+        List<UserRepository.SearchDocument> secondBatch = userRepository.findSearchDocuments(
+                firstBatch.getFirst().getUserId(), PageRequest.of(0, 1)
+        );
+
+        assertThat(firstBatch).extracting(UserRepository.SearchDocument::getNationality).containsExactly("Brazilian");
+        assertThat(secondBatch).extracting(UserRepository.SearchDocument::getEmail)
+                .containsExactly("without-info@email.com");
+        assertThat(userRepository.findSearchDocumentsByIds(List.of(withoutInfo.getUserId())))
+                .extracting(UserRepository.SearchDocument::getBio).containsOnlyNulls();
+
+    }
+
+    @Test
+    @DisplayName("Should filter, sort and page users by keyset in the database")
+    void findListing_Success() {
+
+        Role role = this.createRole("LISTED_ROLE", 10, Money.of("1000.00"), List.of("READ_SELF"));
+        LocalDate sameBirthDate = LocalDate.of(1990, 5, 5);
+        for (int i = 0; i < 4; i++) {
+            this.createUser(
+                    "Listed", "Test" + i, "listed" + i + "@email.com", "123",
+                    i < 3 ? sameBirthDate : LocalDate.of(1980, 1, 1), LocalDate.now(),
+                    List.of(), List.of(), role
+            );
+        }
+        this.createUser(
+                "Other", "Test", "other@email.com", "123",
+                sameBirthDate, LocalDate.now(), List.of(), List.of(), null
+        );
+        entityManager.flush();
+
+        Specification<User> filter = Specification.allOf(
+                UserSpecifications.hasRole("LISTED_ROLE"),
+                UserSpecifications.bornBetween(LocalDate.of(1985, 1, 1), null),
+                UserSpecifications.isAccountNonLocked(true)
+        );
+
+        List<UserListingRepository.ListedUser> firstPage = userRepository.findListing(
+                filter, UserSortField.BIRTH_DATE, Sort.Direction.ASC, null, null, 2
+        );
+        UserListingRepository.ListedUser last = firstPage.getLast();
+        List<UserListingRepository.ListedUser> secondPage = userRepository.findListing(
+                filter, UserSortField.BIRTH_DATE, Sort.Direction.ASC, last.birthDate(), last.userId(), 2
+        );
+
+        // The three users sharing a birth date are paged through by user ID.
+        assertThat(firstPage).extracting(UserListingRepository.ListedUser::email)
+                .containsExactly("listed0@email.com", "listed1@email.com");
+        assertThat(secondPage).extracting(UserListingRepository.ListedUser::email)
+                .containsExactly("listed2@email.com");
+        assertThat(secondPage.getFirst().roleName()).isEqualTo("LISTED_ROLE");
+        assertThat(userRepository.findListing(
+                UserSpecifications.hasRole(UserSpecifications.NO_ROLE), UserSortField.LAST_NAME,
+                Sort.Direction.DESC, null, null, 10
+        )).extracting(UserListingRepository.ListedUser::email).containsExactly("other@email.com");
+
+    }
+
+    @Test
+    @DisplayName("Should bump the change counters of collections without touching the user's version")
+    void incrementCollectionVersions_Success() {
+
+        User user = new User(
+                "Counted", "Test", "counted@email.com", "123",
+                LocalDate.now().minusYears(30), LocalDate.now(), null, List.of(), List.of(), null
+        );
+        userRepository.save(user);
+        entityManager.flush();
+        ResourceVersion userVersion = userRepository.findResourceVersion(user.getUserId()).orElseThrow();
+        long rolesVersion = collectionVersionRepository.findResourceVersion(CollectionVersion.ROLES)
+                .orElseThrow().getVersion();
+        LocalDateTime now = LocalDateTime.now().plusMinutes(1).truncatedTo(ChronoUnit.SECONDS);
+
+        assertThat(userRepository.incrementPaymentsVersion(List.of(user.getUserId(), -1L), now)).isEqualTo(1);
+        userRepository.incrementSickNotesVersion(user.getUserId(), now);
+        userRepository.incrementSickNotesVersion(user.getUserId(), now);
+        collectionVersionRepository.increment(CollectionVersion.ROLES, now);
+
+        assertThat(userRepository.findPaymentsVersion(user.getUserId()).orElseThrow())
+                .returns(1L, ResourceVersion::getVersion)
+                .returns(now, ResourceVersion::getModifiedAt);
+        assertThat(userRepository.findSickNotesVersion(user.getUserId()).orElseThrow().getVersion()).isEqualTo(2L);
+        assertThat(userRepository.findResourceVersion(user.getUserId()).orElseThrow())
+                .returns(userVersion.getVersion(), ResourceVersion::getVersion)
+                .returns(userVersion.getModifiedAt(), ResourceVersion::getModifiedAt);
+        assertThat(collectionVersionRepository.findResourceVersion(CollectionVersion.ROLES).orElseThrow().getVersion())
+                .isEqualTo(rolesVersion + 1);
+        assertThat(userRepository.findPaymentsVersion(-1L)).isEmpty();
+
+    }
+
     private void createUser(
             String firstName, String lastName, String email, String password,
             LocalDate birthDate, LocalDate localDate, List<Payment> payments,
@@ -91,7 +266,7 @@ class UserRepositoryTest {
 
     private Role createRole(
             String roleName, int maxNumberOfUsers,
-            double salary, List<String> permissions
+            Money salary, List<String> permissions
     ) {
 
         Role newRole = new Role(roleName, maxNumberOfUsers, salary, permissions);
@@ -0,0 +1,186 @@
+package com.caiohbs.crowdcontrol.service;
+
+import com.caiohbs.crowdcontrol.dto.AbsenceTotalsDTO;
+import com.caiohbs.crowdcontrol.dto.AbsenteeDTO;
+import com.caiohbs.crowdcontrol.exception.ValidationErrorException;
+import com.caiohbs.crowdcontrol.model.AbsenceGrouping;
+import com.caiohbs.crowdcontrol.model.SickNote;
+import com.caiohbs.crowdcontrol.model.User;
+import com.caiohbs.crowdcontrol.repository.SickNoteRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("test")
+class AbsenceAnalyticsServiceTest {
+
+    private static final YearMonth JANUARY = YearMonth.of(2024, 1);
+    private static final YearMonth FEBRUARY = YearMonth.of(2024, 2);
+
+    @Mock
+    SickNoteRepository sickNoteRepository;
+    @InjectMocks
+    AbsenceAnalyticsService absenceAnalyticsService;
+
+    @BeforeEach
+    void setUp() {
+
+        MockitoAnnotations.openMocks(this);
+
+        // User 1 (DEVELOPER) is out from January 30th to February 2nd, user 2
+        // (MANAGER) on January 10th.
+        List<SickNoteRepository.Interval> intervals = List.of(
+                interval(1L, 1L, "DEVELOPER", LocalDate.of(2024, 1, 30), LocalDate.of(2024, 2, 2)),
+                interval(2L, 2L, "MANAGER", LocalDate.of(2024, 1, 10), LocalDate.of(2024, 1, 10))
+        );
+        when(sickNoteRepository.findAllIntervals()).thenReturn(intervals);
+
+        assertEquals(2, absenceAnalyticsService.rebuild());
+
+    }
+
+    @Test
+    @DisplayName("Should total sick days per role, month and year, splitting sick notes across months")
+    void retrieveSickDayTotals_Success() {
+
+        assertEquals(
+                List.of(new AbsenceTotalsDTO("ALL", 5)),
+                absenceAnalyticsService.retrieveSickDayTotals(AbsenceGrouping.NONE, null, null)
+        );
+        assertEquals(
+                List.of(new AbsenceTotalsDTO("DEVELOPER", 2), new AbsenceTotalsDTO("MANAGER", 1)),
+                absenceAnalyticsService.retrieveSickDayTotals(AbsenceGrouping.ROLE, JANUARY, JANUARY)
+        );
+        assertEquals(
+                List.of(new AbsenceTotalsDTO("2024-01", 3), new AbsenceTotalsDTO("2024-02", 2)),
+                absenceAnalyticsService.retrieveSickDayTotals(AbsenceGrouping.MONTH, null, null)
+        );
+        assertEquals(
+                List.of(new AbsenceTotalsDTO("2024", 5)),
+                absenceAnalyticsService.retrieveSickDayTotals(AbsenceGrouping.YEAR, null, null)
+        );
+
+    }
+
+    @Test
+    @DisplayName("Should keep the totals up to date as sick notes are added and removed")
+    void addAndRemoveSickNote_Success() {
+
+        SickNote sickNote = sickNote(3L, 2L, "MANAGER", LocalDate.of(2024, 2, 5), LocalDate.of(2024, 2, 9));
+
+        absenceAnalyticsService.addSickNote(sickNote);
+        assertEquals(
+                List.of(new AbsenteeDTO(2L, 6), new AbsenteeDTO(1L, 4)),
+                absenceAnalyticsService.retrieveTopAbsentees(null, null, 10)
+        );
+
+        absenceAnalyticsService.removeSickNote(sickNote);
+        absenceAnalyticsService.removeUsers(List.of(1L));
+        assertEquals(
+                List.of(new AbsenceTotalsDTO("2", 1)),
+                absenceAnalyticsService.retrieveSickDayTotals(AbsenceGrouping.USER, null, null)
+        );
+        assertEquals(
+                List.of(new AbsenceTotalsDTO("ALL", 0)),
+                absenceAnalyticsService.retrieveSickDayTotals(AbsenceGrouping.NONE, FEBRUARY, null)
+        );
+
+    }
+
+    @Test
+    @DisplayName("Should replay changes committed during a rebuild without counting any sick note twice")
+    void rebuild_ConcurrentChanges() {
+
+        SickNote readByRebuild = sickNote(3L, 2L, "MANAGER", LocalDate.of(2024, 2, 5), LocalDate.of(2024, 2, 9));
+        SickNote missedByRebuild = sickNote(4L, 2L, "MANAGER", LocalDate.of(2024, 2, 12), LocalDate.of(2024, 2, 12));
+        SickNote removed = sickNote(1L, 1L, "DEVELOPER", LocalDate.of(2024, 1, 30), LocalDate.of(2024, 2, 2));
+
+        // Sick note 3 was committed before the rebuild read the sick notes,
+        // 4 after it; both are applied while it runs, as is the removal of 1.
+        when(sickNoteRepository.findAllIntervals()).thenAnswer(invocation -> {
+            absenceAnalyticsService.addSickNote(readByRebuild);
+            absenceAnalyticsService.addSickNote(missedByRebuild);
+            absenceAnalyticsService.removeSickNote(removed);
+            return List.of(
+                    interval(1L, 1L, "DEVELOPER", LocalDate.of(2024, 1, 30), LocalDate.of(2024, 2, 2)),
+                    interval(2L, 2L, "MANAGER", LocalDate.of(2024, 1, 10), LocalDate.of(2024, 1, 10)),
+                    interval(3L, 2L, "MANAGER", LocalDate.of(2024, 2, 5), LocalDate.of(2024, 2, 9))
+            );
+        });
+
+        assertEquals(3, absenceAnalyticsService.rebuild());
+        // A change committed before the rebuild read it but applied after.
+        absenceAnalyticsService.addSickNote(readByRebuild);
+
+        assertEquals(
+                List.of(new AbsenteeDTO(2L, 7)),
+                absenceAnalyticsService.retrieveTopAbsentees(null, null, 10)
+        );
+
+    }
+
+    @Test
+    @DisplayName("Should only return the requested number of top absentees")
+    void retrieveTopAbsentees_Limit() {
+
+        assertEquals(
+                List.of(new AbsenteeDTO(1L, 4)),
+                absenceAnalyticsService.retrieveTopAbsentees(null, null, 1)
+        );
+        assertEquals(
+                List.of(new AbsenteeDTO(1L, 2), new AbsenteeDTO(2L, 1)),
+                absenceAnalyticsService.retrieveTopAbsentees(JANUARY, JANUARY, 5)
+        );
+
+    }
+
+    @Test
+    @DisplayName("Should fail on an invalid month range or limit")
+    void retrieveTopAbsentees_FailedInvalidParameters() {
+
+        assertThrows(ValidationErrorException.class,
+                () -> absenceAnalyticsService.retrieveTopAbsentees(FEBRUARY, JANUARY, 10));
+        assertThrows(ValidationErrorException.class,
+                () -> absenceAnalyticsService.retrieveTopAbsentees(null, null, 0));
+        assertThrows(ValidationErrorException.class,
+                () -> absenceAnalyticsService.retrieveSickDayTotals(AbsenceGrouping.ROLE, FEBRUARY, JANUARY));
+
+    }
+
+    private SickNoteRepository.Interval interval(
+            Long sickNoteId, Long userId, String roleName, LocalDate start, LocalDate end
+    ) {
+
+        SickNoteRepository.Interval interval = mock(SickNoteRepository.Interval.class);
+        when(interval.getSickNoteId()).thenReturn(sickNoteId);
+        when(interval.getUserId()).thenReturn(userId);
+        when(interval.getRoleName()).thenReturn(roleName);
+        when(interval.getStartDate()).thenReturn(start);
+        when(interval.getEndDate()).thenReturn(end);
+        return interval;
+
+    }
+
+    private SickNote sickNote(Long sickNoteId, Long userId, String roleName, LocalDate start, LocalDate end) {
+
+        User user = new User();
+        user.setUserId(userId);
+        SickNote sickNote = new SickNote("note.pdf", start, end, user);
+        sickNote.setSickNoteId(sickNoteId);
+        sickNote.setRoleName(roleName);
+        return sickNote;
+
+    }
+
+}
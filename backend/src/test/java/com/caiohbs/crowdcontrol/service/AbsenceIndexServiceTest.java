@@ -0,0 +1,100 @@
+package com.caiohbs.crowdcontrol.service;
+
+import com.caiohbs.crowdcontrol.dto.AbsenceIntervalDTO;
+import com.caiohbs.crowdcontrol.exception.ValidationErrorException;
+import com.caiohbs.crowdcontrol.model.SickNote;
+import com.caiohbs.crowdcontrol.model.User;
+import com.caiohbs.crowdcontrol.repository.SickNoteRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("test")
+class AbsenceIndexServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    @Mock
+    SickNoteRepository sickNoteRepository;
+    @InjectMocks
+    AbsenceIndexService absenceIndexService;
+
+    @BeforeEach
+    void setUp() {
+
+        MockitoAnnotations.openMocks(this);
+
+        SickNoteRepository.Interval interval = mock(SickNoteRepository.Interval.class);
+        when(interval.getSickNoteId()).thenReturn(1L);
+        when(interval.getUserId()).thenReturn(1L);
+        when(interval.getStartDate()).thenReturn(DAY);
+        when(interval.getEndDate()).thenReturn(DAY.plusDays(4));
+        when(sickNoteRepository.findAllIntervals()).thenReturn(List.of(interval));
+
+        absenceIndexService.load();
+
+    }
+
+    @Test
+    @DisplayName("Should find the absences loaded from the DB")
+    void findOverlapping_Success() {
+
+        AbsenceIntervalDTO absence = new AbsenceIntervalDTO(1L, 1L, DAY, DAY.plusDays(4));
+
+        assertEquals(List.of(absence), absenceIndexService.findOverlapping(DAY.plusDays(2), DAY.plusDays(2)));
+        assertEquals(List.of(absence), absenceIndexService.findOverlappingForUser(1L, DAY.minusDays(9), DAY));
+        assertTrue(absenceIndexService.findOverlappingForUser(2L, DAY, DAY).isEmpty());
+        assertTrue(absenceIndexService.findOverlapping(DAY.plusDays(5), DAY.plusDays(9)).isEmpty());
+
+    }
+
+    @Test
+    @DisplayName("Should add a sick note only if it doesn't overlap one of the same user")
+    void add_RejectsOverlap() {
+
+        assertThrows(ValidationErrorException.class, () -> absenceIndexService.add(sickNote(2L, 1L, DAY.plusDays(4))));
+        assertThrows(ValidationErrorException.class, () -> absenceIndexService.checkNoOverlap(1L, DAY, DAY));
+
+        absenceIndexService.add(sickNote(3L, 1L, DAY.plusDays(5)));
+        absenceIndexService.add(sickNote(4L, 2L, DAY));
+
+        assertEquals(3, absenceIndexService.findOverlapping(DAY, DAY.plusDays(5)).size());
+
+    }
+
+    @Test
+    @DisplayName("Should remove deleted sick notes and the sick notes of deleted users")
+    void remove_Success() {
+
+        SickNote otherUserNote = sickNote(2L, 2L, DAY);
+        absenceIndexService.add(otherUserNote);
+
+        absenceIndexService.remove(otherUserNote);
+        assertDoesNotThrow(() -> absenceIndexService.checkNoOverlap(2L, DAY, DAY));
+
+        absenceIndexService.removeUsers(List.of(1L));
+        assertTrue(absenceIndexService.findOverlapping(DAY, DAY.plusDays(4)).isEmpty());
+
+    }
+
+    private SickNote sickNote(Long sickNoteId, Long userId, LocalDate day) {
+
+        User user = new User();
+        user.setUserId(userId);
+        SickNote sickNote = new SickNote("note.pdf", day, user);
+        sickNote.setSickNoteId(sickNoteId);
+        return sickNote;
+
+    }
+
+}
@@ -1,6 +1,8 @@
 package com.caiohbs.crowdcontrol.service;
 
 import com.caiohbs.crowdcontrol.dto.UserUpdateDTO;
+import com.caiohbs.crowdcontrol.exception.MailUnavailableException;
+import com.caiohbs.crowdcontrol.exception.NameTakenException;
 import com.caiohbs.crowdcontrol.exception.ResourceNotFoundException;
 import com.caiohbs.crowdcontrol.exception.ValidationErrorException;
 import com.caiohbs.crowdcontrol.model.*;
@@ -10,7 +12,6 @@ import com.caiohbs.crowdcontrol.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
@@ -19,8 +20,11 @@ import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -39,19 +43,39 @@ class AccManagementServiceTest {
     JwtService jwtService;
     @Mock
     RoleRepository roleRepository;
-    @InjectMocks
-    AccManagementService accManagementService;
+    @Mock
+    UserSearchService userSearchService;
+    @Mock
+    ResourceVersionService resourceVersionService;
+    @Mock
+    UserService userService;
+    @Mock
+    MailDispatcherService mailDispatcherService;
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    private AccManagementService accManagementService;
 
     private final User newUser = new User("John", "Doe", "test@email.com", "789",
             LocalDate.now().minusYears(18), LocalDate.now(), null, List.of(), List.of(), null);
 
-    private final Role newRole = new Role("ADMIN", 1, 1.0, List.of("DELETE_GENERAL"));
+    private final Role newRole = new Role("ADMIN", 1, Money.of("1.00"), List.of("DELETE_GENERAL"));
+
+    private static final String CODE_DIGEST = AccManagementService.digestCode("code");
 
-    private final EmailCode newEmailCode = new EmailCode("this_is_a_code", true, EmailType.ENABLE_ACC, newUser);
+    private final EmailCode newEmailCode = new EmailCode(
+            "this_is_a_code", true, EmailType.ENABLE_ACC, newUser, LocalDateTime.now().plusHours(1)
+    );
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        accManagementService = new AccManagementService(
+                userRepository, emailCodeRepository, authenticationManager, jwtService, roleRepository,
+                userSearchService, resourceVersionService, userService, mailDispatcherService,
+                transactionManager, Duration.ofHours(24), Duration.ofSeconds(30)
+        );
+        when(mailDispatcherService.reserve()).thenReturn(true);
     }
 
     @Test
@@ -107,9 +131,11 @@ class AccManagementServiceTest {
     @DisplayName("Should successfully create e-mail code in DB")
     void createEmailCode_Success() {
 
-        accManagementService.createEmailCode(newUser, "RECOV_PASS");
+        String code = accManagementService.createEmailCode(newUser, "RECOV_PASS");
 
-        verify(emailCodeRepository, times(1)).save(Mockito.any(EmailCode.class));
+        verify(emailCodeRepository, times(1)).save(argThat(
+                saved -> saved.getEmailCode().equals(AccManagementService.digestCode(code))
+        ));
 
     }
 
@@ -119,6 +145,54 @@ class AccManagementServiceTest {
         assertThrows(ResourceNotFoundException.class, () -> accManagementService.createEmailCode(newUser, "WRONG_TYPE"));
     }
 
+    @Test
+    @DisplayName("Should save an e-mail code and queue the e-mail carrying it")
+    void sendEmailCode_Success() {
+
+        accManagementService.sendEmailCode(newUser, "RECOV_PASS");
+
+        verify(emailCodeRepository, times(1)).save(Mockito.any(EmailCode.class));
+        verify(mailDispatcherService, times(1)).submit(eq("test@email.com"), eq("RECOV_PASS"), any());
+
+    }
+
+    @Test
+    @DisplayName("Should throw MailUnavailableException when the e-mail can't be queued")
+    void sendEmailCode_FailedMailUnavailable() {
+
+        when(mailDispatcherService.reserve()).thenReturn(false);
+
+        assertThrows(MailUnavailableException.class, () -> accManagementService.sendEmailCode(newUser, "RECOV_PASS"));
+        verifyNoInteractions(transactionManager, emailCodeRepository);
+
+    }
+
+    @Test
+    @DisplayName("Should create a user and queue the e-mail to enable the account")
+    void registerUser_Success() {
+
+        when(userService.createUser(newUser)).thenReturn(newUser);
+
+        assertSame(newUser, accManagementService.registerUser(newUser));
+
+        verify(mailDispatcherService, times(1)).submit(eq("test@email.com"), eq("ENABLE_ACC"), any());
+
+    }
+
+    @Test
+    @DisplayName("Should give the mail queue slot back and send nothing when the user can't be created")
+    void registerUser_FailedReleasesMailSlot() {
+
+        when(userService.createUser(newUser)).thenThrow(new NameTakenException("Email already registered."));
+
+        assertThrows(NameTakenException.class, () -> accManagementService.registerUser(newUser));
+
+        verify(transactionManager, times(1)).rollback(any());
+        verify(mailDispatcherService, times(1)).release();
+        verify(mailDispatcherService, never()).submit(any(), any(), any());
+
+    }
+
     @Test
     @DisplayName("Should create a superuser successfully")
     void createSuperUser_Success() {
@@ -128,7 +202,9 @@ class AccManagementServiceTest {
         accManagementService.createSuperUser(newUser);
 
         verify(roleRepository, times(1)).save(Mockito.any(Role.class));
-        verify(userRepository, times(2)).save(Mockito.any(User.class));
+        verify(userRepository, times(1)).save(Mockito.any(User.class));
+        verify(mailDispatcherService, times(1)).submit(eq("test@email.com"), eq("ENABLE_ACC"), any());
+        assertEquals("ADMIN", newUser.getRole().getRoleName());
 
     }
 
@@ -146,11 +222,13 @@ class AccManagementServiceTest {
     @DisplayName("Should successfully enable account when code is valid")
     void isEmailCodeValid_SuccessEnabledAcc() {
 
-        when(emailCodeRepository.findByEmailCode("code")).thenReturn(newEmailCode);
+        when(emailCodeRepository.findByEmailCode(CODE_DIGEST)).thenReturn(newEmailCode);
+
+        when(emailCodeRepository.deactivateIfUsable(any(), any())).thenReturn(1);
 
         boolean isValid = accManagementService.isEmailCodeValid("code");
 
-        verify(emailCodeRepository, times(1)).save(Mockito.any(EmailCode.class));
+        verify(emailCodeRepository, times(1)).deactivateIfUsable(any(), any());
         verify(userRepository, times(1)).save(Mockito.any(User.class));
 
         assertTrue(isValid);
@@ -162,11 +240,14 @@ class AccManagementServiceTest {
     void isEmailCodeValid_SuccessRecoveredPassword() {
 
         newEmailCode.setEmailType(EmailType.RECOV_PASS);
-        when(emailCodeRepository.findByEmailCode("code")).thenReturn(newEmailCode);
+        when(emailCodeRepository.findByEmailCode(CODE_DIGEST)).thenReturn(newEmailCode);
+
+        when(emailCodeRepository.deactivateIfUsable(any(), any())).thenReturn(1);
 
         boolean isValid = accManagementService.isEmailCodeValid("code");
 
-        verify(emailCodeRepository, times(1)).save(Mockito.any(EmailCode.class));
+        verify(emailCodeRepository, times(1)).deactivateIfUsable(any(), any());
+        verify(userRepository, never()).save(Mockito.any(User.class));
 
         assertTrue(isValid);
 
@@ -176,7 +257,7 @@ class AccManagementServiceTest {
     @DisplayName("Should fail to find code on DB")
     void isEmailCodeValid_FailedCodeNotFound() throws ResourceNotFoundException {
 
-        when(emailCodeRepository.findByEmailCode("code")).thenReturn(null);
+        when(emailCodeRepository.findByEmailCode(CODE_DIGEST)).thenReturn(null);
 
         assertThrows(ResourceNotFoundException.class, () -> accManagementService.isEmailCodeValid("code"));
 
@@ -187,10 +268,67 @@ class AccManagementServiceTest {
     void isEmailCodeValid_FailedCodeUsedBefore() throws ValidationErrorException {
 
         newEmailCode.setCodeActive(false);
-        when(emailCodeRepository.findByEmailCode("code")).thenReturn(newEmailCode);
+        when(emailCodeRepository.findByEmailCode(CODE_DIGEST)).thenReturn(newEmailCode);
+
+        assertThrows(ValidationErrorException.class, () -> accManagementService.isEmailCodeValid("code"));
+
+    }
+
+    @Test
+    @DisplayName("Should prevent code from being used after it expired")
+    void isEmailCodeValid_FailedCodeExpired() throws ValidationErrorException {
+
+        newEmailCode.setExpiresAt(LocalDateTime.now().minusMinutes(1));
+        when(emailCodeRepository.findByEmailCode(CODE_DIGEST)).thenReturn(newEmailCode);
+
+        assertThrows(ValidationErrorException.class, () -> accManagementService.isEmailCodeValid("code"));
+
+        verify(emailCodeRepository, never()).deactivateIfUsable(any(), any());
+
+    }
+
+    @Test
+    @DisplayName("Should fail when another request consumed the code first")
+    void isEmailCodeValid_FailedConcurrentUse() throws ValidationErrorException {
+
+        when(emailCodeRepository.findByEmailCode(CODE_DIGEST)).thenReturn(newEmailCode);
+        when(emailCodeRepository.deactivateIfUsable(any(), any())).thenReturn(0);
 
         assertThrows(ValidationErrorException.class, () -> accManagementService.isEmailCodeValid("code"));
 
+        verify(userRepository, never()).save(Mockito.any(User.class));
+
+    }
+
+    @Test
+    @DisplayName("Should consume a recovery code and return its user")
+    void consumeEmailCode_Success() {
+
+        newEmailCode.setEmailType(EmailType.RECOV_PASS);
+        when(emailCodeRepository.findByEmailCode(CODE_DIGEST)).thenReturn(newEmailCode);
+        when(emailCodeRepository.deactivateIfUsable(any(), any())).thenReturn(1);
+
+        User foundUser = accManagementService.consumeEmailCode("code", EmailType.RECOV_PASS);
+
+        assertEquals(newUser, foundUser);
+        assertFalse(newEmailCode.isCodeActive());
+        assertFalse(newEmailCode.getExpiresAt().isAfter(LocalDateTime.now()));
+
+    }
+
+    @Test
+    @DisplayName("Should refuse to consume a code of another type")
+    void consumeEmailCode_FailedWrongType() throws ValidationErrorException {
+
+        when(emailCodeRepository.findByEmailCode(CODE_DIGEST)).thenReturn(newEmailCode);
+
+        assertThrows(
+                ValidationErrorException.class,
+                () -> accManagementService.consumeEmailCode("code", EmailType.RECOV_PASS)
+        );
+
+        verify(emailCodeRepository, never()).deactivateIfUsable(any(), any());
+
     }
 
     @Test
@@ -0,0 +1,64 @@
+package com.caiohbs.crowdcontrol.service;
+
+import com.caiohbs.crowdcontrol.repository.EmailCodeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("test")
+class EmailCodePurgeServiceTest {
+
+    @Mock
+    EmailCodeRepository emailCodeRepository;
+
+    private EmailCodePurgeService emailCodePurgeService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        emailCodePurgeService = new EmailCodePurgeService(emailCodeRepository, 2);
+    }
+
+    @Test
+    @DisplayName("Should delete stale codes in batches until a partial batch is found")
+    void purgeStaleCodes_SuccessMultipleBatches() {
+
+        when(emailCodeRepository.findExpiredIds(any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(1L, 2L), List.of(3L));
+        when(emailCodeRepository.deleteByIds(anyList())).thenReturn(2, 1);
+
+        int deleted = emailCodePurgeService.purgeStaleCodes();
+
+        verify(emailCodeRepository, times(1)).deleteByIds(List.of(1L, 2L));
+        verify(emailCodeRepository, times(1)).deleteByIds(List.of(3L));
+        assertEquals(3, deleted);
+
+    }
+
+    @Test
+    @DisplayName("Should not issue deletes when there are no stale codes")
+    void purgeStaleCodes_NothingToDelete() {
+
+        when(emailCodeRepository.findExpiredIds(any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of());
+
+        int deleted = emailCodePurgeService.purgeStaleCodes();
+
+        verify(emailCodeRepository, never()).deleteByIds(anyList());
+        assertEquals(0, deleted);
+
+    }
+
+}
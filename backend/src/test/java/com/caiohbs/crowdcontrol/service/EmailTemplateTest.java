@@ -0,0 +1,50 @@
+package com.caiohbs.crowdcontrol.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+class EmailTemplateTest {
+
+    @Test
+    @DisplayName("Should replace every placeholder and keep the text around them")
+    void render_Success() {
+
+        EmailTemplate template = EmailTemplate.compile("[GREETING] there!\n\nClick [LINK] or copy [LINK].");
+
+        String rendered = template.render(Map.of("GREETING", "Hello", "LINK", "http://localhost/enable-acc?code=1"));
+
+        assertEquals(
+                "Hello there!\n\nClick http://localhost/enable-acc?code=1 or copy http://localhost/enable-acc?code=1.",
+                rendered
+        );
+
+    }
+
+    @Test
+    @DisplayName("Should keep brackets that don't enclose a placeholder name as text")
+    void render_KeepsOtherBrackets() {
+
+        EmailTemplate template = EmailTemplate.compile("[] [link] [ LINK] [LINK [LINK]] [");
+
+        assertEquals("[] [link] [ LINK] [LINK x] [", template.render(Map.of("LINK", "x")));
+        assertEquals("No placeholders.", EmailTemplate.compile("No placeholders.").render(Map.of()));
+
+    }
+
+    @Test
+    @DisplayName("Should fail when a placeholder has no value")
+    void render_MissingValue() {
+
+        EmailTemplate template = EmailTemplate.compile("Click [LINK].");
+
+        assertThrows(IllegalArgumentException.class, () -> template.render(Map.of("CODE", "1")));
+
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.caiohbs.crowdcontrol.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+class FullTextIndexTest {
+
+    private FullTextIndex index;
+
+    @BeforeEach
+    void setUp() {
+
+        index = new FullTextIndex();
+        index.index(1L, document("John", "Silva", "john@email.com", "Loves hiking"));
+        index.index(2L, document("Maria", "João", "maria@email.com", "Friend of John"));
+        index.index(3L, document("Pedro", "Souza", "pedro@email.com", null));
+
+    }
+
+    @Test
+    @DisplayName("Should rank a match on the name above a match on the bio")
+    void search_RanksByFieldWeight() {
+
+        FullTextIndex.Hits result = index.search("john", key -> true, 0, 10);
+
+        assertEquals(2, result.totalHits());
+        assertEquals(List.of(1L, 2L), result.hits().stream().map(FullTextIndex.Hit::key).toList());
+        assertTrue(result.hits().get(0).score() > result.hits().get(1).score());
+
+    }
+
+    @Test
+    @DisplayName("Should only match documents containing every term, ignoring case and accents")
+    void search_MatchesAllTerms() {
+
+        assertEquals(
+                List.of(2L),
+                index.search("JOAO friend", key -> true, 0, 10).hits().stream().map(FullTextIndex.Hit::key).toList()
+        );
+        assertEquals(0, index.search("john pedro", key -> true, 0, 10).totalHits());
+        assertEquals(0, index.search("  ", key -> true, 0, 10).totalHits());
+
+    }
+
+    @Test
+    @DisplayName("Should filter and paginate hits")
+    void search_FiltersAndPaginates() {
+
+        FullTextIndex.Hits secondPage = index.search("email", key -> true, 1, 1);
+        assertEquals(3, secondPage.totalHits());
+        assertEquals(1, secondPage.hits().size());
+
+        FullTextIndex.Hits filtered = index.search("email", key -> key == 3L, 0, 10);
+        assertEquals(1, filtered.totalHits());
+        assertEquals(3L, filtered.hits().getFirst().key());
+
+    }
+
+    @Test
+    @DisplayName("Should replace re-indexed documents and drop removed ones, across compactions")
+    void indexAndRemove_Success() {
+
+        index.index(1L, document("Johnny", "Silva", "johnny@email.com", null));
+        assertEquals(List.of(2L), keys(index.search("john", key -> true, 0, 10)));
+
+        assertTrue(index.remove(2L));
+        assertFalse(index.remove(2L));
+        assertEquals(0, index.search("john", key -> true, 0, 10).totalHits());
+
+        // Enough churn to trigger a compaction.
+        for (long key = 100; key < 5100; key++) {
+            index.index(key, document("Temp", "User", null, null));
+            index.remove(key);
+        }
+        assertEquals(2, index.size());
+        assertEquals(List.of(1L), keys(index.search("johnny silva", key -> true, 0, 10)));
+        assertEquals(List.of(3L), keys(index.search("souza", key -> true, 0, 10)));
+
+    }
+
+    private static List<Long> keys(FullTextIndex.Hits hits) {
+        return hits.hits().stream().map(FullTextIndex.Hit::key).toList();
+    }
+
+    private static List<FullTextIndex.Field> document(String firstName, String lastName, String email, String bio) {
+        return List.of(
+                new FullTextIndex.Field(firstName, 3f),
+                new FullTextIndex.Field(lastName, 3f),
+                new FullTextIndex.Field(email, 2f),
+                new FullTextIndex.Field(bio, 1f)
+        );
+    }
+
+}
@@ -0,0 +1,204 @@
+package com.caiohbs.crowdcontrol.service;
+
+import com.caiohbs.crowdcontrol.exception.IdempotencyConflictException;
+import com.caiohbs.crowdcontrol.exception.ValidationErrorException;
+import com.caiohbs.crowdcontrol.model.GenericValidResponse;
+import com.caiohbs.crowdcontrol.model.IdempotencyKey;
+import com.caiohbs.crowdcontrol.repository.IdempotencyKeyRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("test")
+class IdempotencyServiceTest {
+
+    @Mock
+    IdempotencyKeyRepository idempotencyKeyRepository;
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    private IdempotencyService idempotencyService;
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        idempotencyService = new IdempotencyService(
+                idempotencyKeyRepository, new ObjectMapper(), transactionManager, Duration.ofHours(24), 10000, 500
+        );
+        executions.set(0);
+    }
+
+    @Test
+    @DisplayName("Should execute a request only once and replay its response afterwards")
+    void execute_SuccessReplay() {
+
+        when(idempotencyKeyRepository.findById(any())).thenReturn(Optional.empty());
+
+        ResponseEntity<GenericValidResponse> first = idempotencyService.execute(
+                "key-1", "POST /users/1/payment 10.00", GenericValidResponse.class, this::createPayment
+        );
+        ResponseEntity<GenericValidResponse> second = idempotencyService.execute(
+                "key-1", "POST /users/1/payment 10.00", GenericValidResponse.class, this::createPayment
+        );
+
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.CREATED, second.getStatusCode());
+        assertEquals(first.getBody().getMessage(), second.getBody().getMessage());
+        assertEquals("true", second.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        verify(idempotencyKeyRepository, times(1)).complete(eq("null:key-1"), eq(201), any(), any());
+        verify(transactionManager, times(1)).commit(any());
+
+    }
+
+    @Test
+    @DisplayName("Should replay a response stored by another instance")
+    void execute_SuccessReplayFromDatabase() {
+
+        IdempotencyKey storedKey = new IdempotencyKey(
+                "null:key-1", sha256Of("POST /roles/1/auto-payment"), LocalDateTime.now().plusHours(1)
+        );
+        storedKey.complete(200, "{\"message\":\"Auto payment created successfully.\"}", null);
+        when(idempotencyKeyRepository.findById("null:key-1")).thenReturn(Optional.of(storedKey));
+
+        ResponseEntity<GenericValidResponse> response = idempotencyService.execute(
+                "key-1", "POST /roles/1/auto-payment", GenericValidResponse.class, this::createPayment
+        );
+
+        assertEquals(0, executions.get());
+        assertEquals("Auto payment created successfully.", response.getBody().getMessage());
+
+    }
+
+    @Test
+    @DisplayName("Should reject a key reused for a different request")
+    void execute_FailedDifferentRequest() {
+
+        when(idempotencyKeyRepository.findById(any())).thenReturn(Optional.empty());
+        idempotencyService.execute("key-1", "POST /users/1/payment 10.00", GenericValidResponse.class, this::createPayment);
+
+        assertThrows(ValidationErrorException.class, () -> idempotencyService.execute(
+                "key-1", "POST /users/1/payment 99.00", GenericValidResponse.class, this::createPayment
+        ));
+        assertEquals(1, executions.get());
+
+    }
+
+    @Test
+    @DisplayName("Should throw IdempotencyConflictException while the first request is in progress")
+    void execute_FailedInProgress() {
+
+        IdempotencyKey pendingKey = new IdempotencyKey(
+                "null:key-1", sha256Of("POST /roles/1/auto-payment"), LocalDateTime.now().plusHours(1)
+        );
+        when(idempotencyKeyRepository.findById("null:key-1"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(pendingKey));
+        when(idempotencyKeyRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        assertThrows(IdempotencyConflictException.class, () -> idempotencyService.execute(
+                "key-1", "POST /roles/1/auto-payment", GenericValidResponse.class, this::createPayment
+        ));
+        assertEquals(0, executions.get());
+
+    }
+
+    @Test
+    @DisplayName("Should roll the request back and release the key when its response can't be stored")
+    void execute_FailedCompleteRollsBack() {
+
+        when(idempotencyKeyRepository.findById(any())).thenReturn(Optional.empty());
+        when(idempotencyKeyRepository.complete(any(), anyInt(), any(), any()))
+                .thenThrow(new DataIntegrityViolationException("boom"));
+
+        assertThrows(DataIntegrityViolationException.class, () -> idempotencyService.execute(
+                "key-1", "POST /roles/1/auto-payment", GenericValidResponse.class, this::createPayment
+        ));
+
+        verify(transactionManager, times(1)).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        verify(idempotencyKeyRepository, times(1)).deleteByKeys(List.of("null:key-1"));
+
+    }
+
+    @Test
+    @DisplayName("Should release the key when the request fails")
+    void execute_FailedRequestReleasesKey() {
+
+        when(idempotencyKeyRepository.findById(any())).thenReturn(Optional.empty());
+
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute(
+                "key-1", "POST /roles/1/auto-payment", GenericValidResponse.class,
+                () -> { throw new IllegalStateException("boom"); }
+        ));
+
+        verify(transactionManager, times(1)).rollback(any());
+        verify(idempotencyKeyRepository, times(1)).deleteByKeys(List.of("null:key-1"));
+        verify(idempotencyKeyRepository, never()).complete(any(), anyInt(), any(), any());
+
+    }
+
+    @Test
+    @DisplayName("Should execute requests without a key every time")
+    void execute_SuccessWithoutKey() {
+
+        idempotencyService.execute(null, "POST /roles/1/auto-payment", GenericValidResponse.class, this::createPayment);
+        idempotencyService.execute(null, "POST /roles/1/auto-payment", GenericValidResponse.class, this::createPayment);
+
+        assertEquals(2, executions.get());
+        verifyNoInteractions(idempotencyKeyRepository);
+
+    }
+
+    @Test
+    @DisplayName("Should purge expired keys in batches until none is left")
+    void purgeExpiredKeys_Success() {
+
+        List<String> fullBatch = Collections.nCopies(500, "key");
+        when(idempotencyKeyRepository.findExpiredKeys(any(), any()))
+                .thenReturn(fullBatch)
+                .thenReturn(List.of("last"));
+        when(idempotencyKeyRepository.deleteByKeys(fullBatch)).thenReturn(500);
+        when(idempotencyKeyRepository.deleteByKeys(List.of("last"))).thenReturn(1);
+
+        assertEquals(501, idempotencyService.purgeExpiredKeys());
+
+    }
+
+    private ResponseEntity<GenericValidResponse> createPayment() {
+        executions.incrementAndGet();
+        return ResponseEntity.status(HttpStatus.CREATED).body(new GenericValidResponse("Created."));
+    }
+
+    private static String sha256Of(String value) throws IllegalStateException {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
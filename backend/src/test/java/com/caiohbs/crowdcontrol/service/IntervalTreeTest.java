@@ -0,0 +1,95 @@
+package com.caiohbs.crowdcontrol.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+class IntervalTreeTest {
+
+    private record Interval(long start, long end, long id) {
+        boolean overlaps(long from, long to) {
+            return start <= to && end >= from;
+        }
+    }
+
+    @Test
+    @DisplayName("Should find overlapping and containing intervals")
+    void findOverlapping_Success() {
+
+        IntervalTree<String> tree = new IntervalTree<>();
+        tree.insert(1, 5, 1, "a");
+        tree.insert(10, 12, 2, "b");
+        tree.insert(4, 4, 3, "c");
+
+        assertEquals(List.of("a", "c"), tree.findOverlapping(3, 4));
+        assertEquals(List.of("b"), tree.findContaining(12));
+        assertTrue(tree.findOverlapping(6, 9).isEmpty());
+        assertTrue(tree.overlapsAny(5, 10));
+        assertFalse(tree.overlapsAny(13, 20));
+
+    }
+
+    @Test
+    @DisplayName("Should remove intervals by start and ID")
+    void remove_Success() {
+
+        IntervalTree<String> tree = new IntervalTree<>();
+        tree.insert(1, 5, 1, "a");
+        tree.insert(1, 3, 2, "b");
+
+        assertTrue(tree.remove(1, 1));
+        assertFalse(tree.remove(1, 1));
+        assertEquals(1, tree.size());
+        assertEquals(List.of("b"), tree.findContaining(2));
+        assertFalse(tree.overlapsAny(4, 5));
+
+    }
+
+    @Test
+    @DisplayName("Should reject an interval ending before it starts")
+    void insert_FailedInvalidInterval() {
+        assertThrows(IllegalArgumentException.class, () -> new IntervalTree<String>().insert(5, 4, 1, "a"));
+    }
+
+    @Test
+    @DisplayName("Should answer like a linear scan through random inserts and removals")
+    void randomOperations_MatchLinearScan() {
+
+        Random random = new Random(42);
+        IntervalTree<Interval> tree = new IntervalTree<>();
+        List<Interval> intervals = new ArrayList<>();
+
+        for (int i = 0; i < 5000; i++) {
+            if (!intervals.isEmpty() && random.nextInt(3) == 0) {
+                Interval removed = intervals.remove(random.nextInt(intervals.size()));
+                assertTrue(tree.remove(removed.start(), removed.id()));
+            } else {
+                long start = random.nextInt(1000);
+                Interval added = new Interval(start, start + random.nextInt(30), i);
+                tree.insert(added.start(), added.end(), added.id(), added);
+                intervals.add(added);
+            }
+
+            long from = random.nextInt(1000);
+            long to = from + random.nextInt(20);
+            List<Interval> expected = intervals.stream()
+                    .filter(interval -> interval.overlaps(from, to))
+                    .sorted(Comparator.comparingLong(Interval::start).thenComparingLong(Interval::id))
+                    .toList();
+
+            assertEquals(expected, tree.findOverlapping(from, to));
+            assertEquals(!expected.isEmpty(), tree.overlapsAny(from, to));
+            assertEquals(intervals.size(), tree.size());
+        }
+
+    }
+
+}
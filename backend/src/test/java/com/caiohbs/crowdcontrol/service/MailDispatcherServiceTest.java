@@ -0,0 +1,138 @@
+package com.caiohbs.crowdcontrol.service;
+
+import com.caiohbs.crowdcontrol.dto.MailDispatcherStatsDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mail.MailSendException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("test")
+class MailDispatcherServiceTest {
+
+    @Mock
+    EmailSenderService emailSenderService;
+
+    private MailDispatcherService mailDispatcherService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        mailDispatcherService = new MailDispatcherService(
+                emailSenderService, 1, 2, Duration.ofMillis(50), 3, Duration.ofMillis(10), Duration.ofSeconds(5)
+        );
+        mailDispatcherService.startExecutor();
+    }
+
+    @Test
+    @DisplayName("Should retry a failed send with backoff until it goes through")
+    void dispatch_RetriesUntilSent() throws InterruptedException {
+
+        doThrow(new MailSendException("SMTP down"))
+                .doThrow(new MailSendException("SMTP down"))
+                .doNothing()
+                .when(emailSenderService).sendEmail("user@email.com", "ENABLE_ACC", "code");
+
+        assertTrue(mailDispatcherService.dispatch("user@email.com", "ENABLE_ACC", "code"));
+        mailDispatcherService.stopExecutor();
+
+        verify(emailSenderService, times(3)).sendEmail("user@email.com", "ENABLE_ACC", "code");
+        MailDispatcherStatsDTO stats = mailDispatcherService.retrieveStatistics();
+        assertEquals(1, stats.sentCount());
+        assertEquals(2, stats.retryCount());
+        assertEquals(0, stats.failedCount());
+        assertEquals(0, stats.queueDepth());
+
+    }
+
+    @Test
+    @DisplayName("Should give up on an email after the maximum number of attempts")
+    void dispatch_FailsAfterMaxAttempts() throws InterruptedException {
+
+        doThrow(new MailSendException("SMTP down"))
+                .when(emailSenderService).sendEmail("user@email.com", "RECOV_PASS", "code");
+
+        assertTrue(mailDispatcherService.dispatch("user@email.com", "RECOV_PASS", "code"));
+        mailDispatcherService.stopExecutor();
+
+        verify(emailSenderService, times(3)).sendEmail("user@email.com", "RECOV_PASS", "code");
+        MailDispatcherStatsDTO stats = mailDispatcherService.retrieveStatistics();
+        assertEquals(0, stats.sentCount());
+        assertEquals(1, stats.failedCount());
+        assertEquals(0, stats.queueDepth());
+
+    }
+
+    @Test
+    @DisplayName("Should drop emails once the queue is full and send the queued ones on shutdown")
+    void dispatch_DropsWhenQueueFull() throws InterruptedException {
+
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            sending.countDown();
+            release.await();
+            return null;
+        }).when(emailSenderService).sendEmail("first@email.com", "ENABLE_ACC", "code");
+
+        assertTrue(mailDispatcherService.dispatch("first@email.com", "ENABLE_ACC", "code"));
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+        assertTrue(mailDispatcherService.dispatch("second@email.com", "ENABLE_ACC", "code"));
+        assertFalse(mailDispatcherService.dispatch("third@email.com", "ENABLE_ACC", "code"));
+        assertEquals(2, mailDispatcherService.retrieveStatistics().queueDepth());
+
+        release.countDown();
+        mailDispatcherService.stopExecutor();
+
+        verify(emailSenderService, times(1)).sendEmail("second@email.com", "ENABLE_ACC", "code");
+        verify(emailSenderService, never()).sendEmail("third@email.com", "ENABLE_ACC", "code");
+        MailDispatcherStatsDTO stats = mailDispatcherService.retrieveStatistics();
+        assertEquals(2, stats.sentCount());
+        assertEquals(1, stats.droppedCount());
+        assertFalse(mailDispatcherService.dispatch("late@email.com", "ENABLE_ACC", "code"));
+
+    }
+
+    @Test
+    @DisplayName("Should give the queue slot back when the executor rejects an email")
+    void dispatch_ReleasesSlotWhenRejected() {
+
+        ((ExecutorService) ReflectionTestUtils.getField(mailDispatcherService, "executor")).shutdownNow();
+
+        assertFalse(mailDispatcherService.dispatch("user@email.com", "ENABLE_ACC", "code"));
+
+        MailDispatcherStatsDTO stats = mailDispatcherService.retrieveStatistics();
+        assertEquals(0, stats.queueDepth());
+        assertEquals(1, stats.droppedCount());
+
+    }
+
+    @Test
+    @DisplayName("Should hold a reserved slot until the email is submitted or the slot released")
+    void reserve_HoldsSlotUntilReleased() {
+
+        assertTrue(mailDispatcherService.reserve());
+        assertTrue(mailDispatcherService.reserve());
+        assertFalse(mailDispatcherService.reserve());
+        assertEquals(2, mailDispatcherService.retrieveStatistics().queueDepth());
+
+        mailDispatcherService.release();
+        mailDispatcherService.release();
+
+        assertEquals(0, mailDispatcherService.retrieveStatistics().queueDepth());
+        assertEquals(1, mailDispatcherService.retrieveStatistics().droppedCount());
+
+    }
+
+}
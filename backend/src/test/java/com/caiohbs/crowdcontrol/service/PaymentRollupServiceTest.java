@@ -0,0 +1,133 @@
+package com.caiohbs.crowdcontrol.service;
+
+import com.caiohbs.crowdcontrol.dto.PaymentTotalsDTO;
+import com.caiohbs.crowdcontrol.exception.ValidationErrorException;
+import com.caiohbs.crowdcontrol.model.Money;
+import com.caiohbs.crowdcontrol.model.Payment;
+import com.caiohbs.crowdcontrol.model.PaymentGrouping;
+import com.caiohbs.crowdcontrol.model.Role;
+import com.caiohbs.crowdcontrol.model.User;
+import com.caiohbs.crowdcontrol.repository.PaymentRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("test")
+class PaymentRollupServiceTest {
+
+    @Mock
+    PaymentRollupRepository paymentRollupRepository;
+    @InjectMocks
+    PaymentRollupService paymentRollupService;
+
+    private final Role newRole = new Role("TEST_ROLE", 5, Money.of("1000.00"), List.of("READ_SELF"));
+
+    private final User newUser = new User("John", "Doe", "test@email.com", "789",
+            LocalDate.now().minusYears(18), LocalDate.now(), null, null, List.of(), newRole);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        newUser.setUserId(1L);
+    }
+
+    @Test
+    @DisplayName("Should combine payments for the same month, role and user into one update")
+    void addPayments_SuccessCombined() {
+
+        when(paymentRollupRepository.addToRollup(anyInt(), any(), any(), anyLong(), anyLong())).thenReturn(1);
+        int month = PaymentRollupService.monthKey(LocalDate.now());
+
+        paymentRollupService.addPayments(List.of(new Payment(newUser, Money.of("100.00")), new Payment(newUser, Money.of("50.00"))));
+
+        verify(paymentRollupRepository, times(1)).addToRollup(month, "TEST_ROLE", 1L, 15000L, 2L);
+        verify(paymentRollupRepository, never())
+                .insertRollupIfAbsent(anyInt(), any(), any(), anyLong(), anyLong());
+
+    }
+
+    @Test
+    @DisplayName("Should insert the rollup row for the first payment of the month")
+    void addPayments_SuccessFirstPayment() {
+
+        when(paymentRollupRepository.addToRollup(anyInt(), any(), any(), anyLong(), anyLong())).thenReturn(0);
+        when(paymentRollupRepository.insertRollupIfAbsent(anyInt(), any(), any(), anyLong(), anyLong()))
+                .thenReturn(true);
+        int month = PaymentRollupService.monthKey(LocalDate.now());
+
+        paymentRollupService.addPayments(List.of(new Payment(newUser, Money.of("100.00"))));
+
+        verify(paymentRollupRepository, times(1)).insertRollupIfAbsent(month, "TEST_ROLE", 1L, 10000L, 1L);
+        verify(paymentRollupRepository, times(1)).addToRollup(anyInt(), any(), any(), anyLong(), anyLong());
+
+    }
+
+    @Test
+    @DisplayName("Should add to the row a concurrent transaction inserted first")
+    void addPayments_SuccessLostInsert() {
+
+        when(paymentRollupRepository.addToRollup(anyInt(), any(), any(), anyLong(), anyLong())).thenReturn(0, 1);
+        when(paymentRollupRepository.insertRollupIfAbsent(anyInt(), any(), any(), anyLong(), anyLong()))
+                .thenReturn(false);
+        int month = PaymentRollupService.monthKey(LocalDate.now());
+
+        paymentRollupService.addPayments(List.of(new Payment(newUser, Money.of("100.00"))));
+
+        verify(paymentRollupRepository, times(2)).addToRollup(month, "TEST_ROLE", 1L, 10000L, 1L);
+
+    }
+
+    @Test
+    @DisplayName("Should reverse a deleted payment and drop the row once empty")
+    void removePayment_Success() {
+
+        Payment payment = new Payment(newUser, Money.of("100.00"));
+        payment.setRoleName(null);
+        int month = PaymentRollupService.monthKey(payment.getPaymentDate());
+
+        paymentRollupService.removePayment(payment);
+
+        verify(paymentRollupRepository, times(1)).addToRollup(month, "NO_ROLE", 1L, -10000L, -1L);
+        verify(paymentRollupRepository, times(1)).deleteIfEmpty(month, "NO_ROLE", 1L);
+
+    }
+
+    @Test
+    @DisplayName("Should compute averages and ISO months from the rollup totals")
+    void retrieveMonthlyTotals_SuccessByMonth() {
+
+        PaymentRollupRepository.PaymentTotals totals = mock(PaymentRollupRepository.PaymentTotals.class);
+        when(totals.getGroupKey()).thenReturn("202402");
+        when(totals.getPaymentCount()).thenReturn(4L);
+        when(totals.getTotalAmountCents()).thenReturn(10000L);
+        when(paymentRollupRepository.totalsByMonth(202401, 202412)).thenReturn(List.of(totals));
+
+        List<PaymentTotalsDTO> result = paymentRollupService.retrieveMonthlyTotals(
+                PaymentGrouping.MONTH, YearMonth.of(2024, 1), YearMonth.of(2024, 12)
+        );
+
+        assertEquals("2024-02", result.get(0).group());
+        assertEquals(Money.of("25.00"), result.get(0).averageAmount());
+
+    }
+
+    @Test
+    @DisplayName("Should refuse a month range that ends before it starts")
+    void retrieveMonthlyTotals_FailedInvalidRange() {
+        assertThrows(ValidationErrorException.class, () -> paymentRollupService.retrieveMonthlyTotals(
+                PaymentGrouping.NONE, YearMonth.of(2024, 5), YearMonth.of(2024, 1)
+        ));
+    }
+
+}
@@ -1,7 +1,11 @@
 package com.caiohbs.crowdcontrol.service;
 
+import com.caiohbs.crowdcontrol.dto.PaymentSummaryDTO;
 import com.caiohbs.crowdcontrol.exception.ResourceNotFoundException;
+import com.caiohbs.crowdcontrol.exception.ValidationErrorException;
+import com.caiohbs.crowdcontrol.model.Money;
 import com.caiohbs.crowdcontrol.model.Payment;
+import com.caiohbs.crowdcontrol.model.PaymentGrouping;
 import com.caiohbs.crowdcontrol.model.Role;
 import com.caiohbs.crowdcontrol.model.User;
 import com.caiohbs.crowdcontrol.repository.PaymentRepository;
@@ -15,6 +19,7 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -29,15 +34,19 @@ class PaymentServiceTest {
     UserRepository userRepository;
     @Mock
     PaymentRepository paymentRepository;
+    @Mock
+    PaymentRollupService paymentRollupService;
+    @Mock
+    ResourceVersionService resourceVersionService;
     @InjectMocks
     PaymentService paymentService;
 
-    private final Role newRole = new Role("TEST_ROLE", 1, 1000, List.of("DELETE_GENERAL"));
+    private final Role newRole = new Role("TEST_ROLE", 1, Money.of("1000.00"), List.of("DELETE_GENERAL"));
 
     private final User newUser = new User("John", "Doe", "test@email.com", "789",
             LocalDate.now().minusYears(18), LocalDate.now(), null, null, List.of(), newRole);
 
-    private final Payment newPayment = new Payment(null, 20.00);
+    private final Payment newPayment = new Payment(null, Money.of("20.00"));
 
     @BeforeEach
     void setUp() {
@@ -55,6 +64,8 @@ class PaymentServiceTest {
         paymentService.createPayment(newPayment, 1L);
 
         verify(paymentRepository, times(1)).save(any(Payment.class));
+        verify(paymentRollupService, times(1)).addPayments(argThat(payments -> payments.size() == 1));
+        verify(resourceVersionService, times(1)).paymentsChanged(List.of(1L));
 
     }
 
@@ -72,12 +83,21 @@ class PaymentServiceTest {
     @DisplayName("Should successfully create payment for entire Role")
     void createPaymentForRole_Success() {
 
-        when(userRepository.findUsernamesByRoleId(1L)).thenReturn(List.of("test@email.com"));
-        when(userRepository.findByEmail("test@email.com")).thenReturn(Optional.of(newUser));
+        UserRepository.PayableUser payableUser = mock(UserRepository.PayableUser.class);
+        when(payableUser.getUserId()).thenReturn(1L);
+        when(payableUser.getRoleName()).thenReturn("TEST_ROLE");
+        when(payableUser.getSalary()).thenReturn(Money.of("1000.00"));
+        when(userRepository.findUnpaidByRoleId(1L, YearMonth.now().toString())).thenReturn(List.of(payableUser));
+        when(userRepository.getReferenceById(1L)).thenReturn(newUser);
 
         paymentService.createPaymentForRole(1L);
 
-        verify(paymentRepository, times(1)).save(any(Payment.class));
+        verify(paymentRepository, times(1)).saveAll(argThat(
+                (List<Payment> payments) -> payments.size() == 1
+                        && payments.get(0).getPaymentAmount().equals(Money.of("1000.00"))
+                        && payments.get(0).getPayPeriod().equals(YearMonth.now().toString())
+        ));
+        verify(userRepository, never()).findByEmail(any());
 
     }
 
@@ -85,9 +105,23 @@ class PaymentServiceTest {
     @DisplayName("Should fail to create payment for Role because there are no Users in it")
     void createPaymentForRole_FailedNoUsersInRole() throws ResourceNotFoundException {
 
-        when(userRepository.findUsernamesByRoleId(1L)).thenReturn(List.of());
+        when(userRepository.findUnpaidByRoleId(eq(1L), any())).thenReturn(List.of());
+        when(userRepository.existsByRoleRoleId(1L)).thenReturn(false);
 
-        assertThrows(ResourceNotFoundException.class, () -> paymentService.createPayment(newPayment, 1L));
+        assertThrows(ResourceNotFoundException.class, () -> paymentService.createPaymentForRole(1L));
+
+    }
+
+    @Test
+    @DisplayName("Should pay nobody for Role when every User in it was already paid for the month")
+    void createPaymentForRole_AlreadyPaid() {
+
+        when(userRepository.findUnpaidByRoleId(eq(1L), any())).thenReturn(List.of());
+        when(userRepository.existsByRoleRoleId(1L)).thenReturn(true);
+
+        paymentService.createPaymentForRole(1L);
+
+        verify(paymentRepository, times(1)).saveAll(argThat((List<Payment> payments) -> payments.isEmpty()));
 
     }
 
@@ -95,7 +129,7 @@ class PaymentServiceTest {
     @DisplayName("Should successfully retrieve all payments in DB")
     void retrieveAllPayments_Success() {
 
-        Payment newPayment_ = new Payment(null, 0.0);
+        Payment newPayment_ = new Payment(null, Money.of("0.00"));
         List<Payment> payments = Arrays.asList(newPayment, newPayment_);
 
         when(paymentRepository.findAll()).thenReturn(payments);
@@ -106,8 +140,8 @@ class PaymentServiceTest {
 
         assertNotNull(allPayments);
         assertEquals(2, allPayments.size());
-        assertEquals(20.0, allPayments.get(0).getPaymentAmount());
-        assertEquals(0.0, allPayments.get(1).getPaymentAmount());
+        assertEquals(Money.of("20.00"), allPayments.get(0).getPaymentAmount());
+        assertEquals(Money.of("0.00"), allPayments.get(1).getPaymentAmount());
 
     }
 
@@ -127,7 +161,7 @@ class PaymentServiceTest {
     @DisplayName("Should successfully retrieve all payments for a single user")
     void retrieveAllPaymentsForSingleUser_Success() {
 
-        Payment newPayment_ = new Payment(null, 0.0);
+        Payment newPayment_ = new Payment(null, Money.of("0.00"));
 
         newPayment.setUser(newUser);
         newPayment_.setUser(newUser);
@@ -141,8 +175,8 @@ class PaymentServiceTest {
 
         assertNotNull(result);
         assertEquals(2, result.size());
-        assertEquals(20.0, result.get(0).getPaymentAmount());
-        assertEquals(0.0, result.get(1).getPaymentAmount());
+        assertEquals(Money.of("20.00"), result.get(0).getPaymentAmount());
+        assertEquals(Money.of("0.00"), result.get(1).getPaymentAmount());
 
     }
 
@@ -162,11 +196,16 @@ class PaymentServiceTest {
     @DisplayName("Should successfully delete a payment in DB")
     void deletePayment_Success() {
 
+        newUser.setUserId(1L);
+        newPayment.setUser(newUser);
+
         when(paymentRepository.findById(1L)).thenReturn(Optional.of(newPayment));
 
         paymentService.deletePayment(1L);
 
+        verify(paymentRollupService, times(1)).removePayment(newPayment);
         verify(paymentRepository, times(1)).delete(newPayment);
+        verify(resourceVersionService, times(1)).paymentsChanged(List.of(1L));
 
     }
 
@@ -180,4 +219,69 @@ class PaymentServiceTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("Should format monthly summaries as ISO year-months")
+    void summarizePayments_SuccessByMonth() {
+
+        PaymentRepository.PaymentAggregate aggregate = mockAggregate("202403", 2, 30000L);
+        when(paymentRepository.summarizeByMonth(any(), any())).thenReturn(List.of(aggregate));
+
+        List<PaymentSummaryDTO> result = paymentService.summarizePayments(
+                PaymentGrouping.MONTH, LocalDate.of(2024, 1, 1), null
+        );
+
+        assertEquals(1, result.size());
+        assertEquals("2024-03", result.get(0).group());
+        assertEquals(Money.of("300.00"), result.get(0).totalAmount());
+        assertEquals(Money.of("150.00"), result.get(0).averageAmount());
+
+    }
+
+    @Test
+    @DisplayName("Should average the cents exactly, rounding half up")
+    void summarizePayments_AverageRounded() {
+
+        PaymentRepository.PaymentAggregate aggregate = mockAggregate("ALL", 2, 9_007_199_254_740_993L);
+        when(paymentRepository.summarize(any(), any())).thenReturn(List.of(aggregate));
+
+        List<PaymentSummaryDTO> result = paymentService.summarizePayments(PaymentGrouping.NONE, null, null);
+
+        assertEquals(Money.ofCents(4_503_599_627_370_497L), result.get(0).averageAmount());
+
+    }
+
+    @Test
+    @DisplayName("Should report zeroes instead of nulls when no payment matches")
+    void summarizePayments_SuccessEmpty() {
+
+        PaymentRepository.PaymentAggregate aggregate = mockAggregate("ALL", 0, null);
+        when(paymentRepository.summarize(any(), any())).thenReturn(List.of(aggregate));
+
+        List<PaymentSummaryDTO> result = paymentService.summarizePayments(PaymentGrouping.NONE, null, null);
+
+        assertEquals(0, result.get(0).paymentCount());
+        assertEquals(Money.ZERO, result.get(0).totalAmount());
+        assertEquals(Money.ZERO, result.get(0).averageAmount());
+
+    }
+
+    @Test
+    @DisplayName("Should refuse to summarize a range that ends before it starts")
+    void summarizePayments_FailedInvalidRange() {
+
+        assertThrows(ValidationErrorException.class, () -> paymentService.summarizePayments(
+                PaymentGrouping.NONE, LocalDate.of(2024, 2, 1), LocalDate.of(2024, 1, 1)
+        ));
+        verifyNoInteractions(paymentRepository);
+
+    }
+
+    private PaymentRepository.PaymentAggregate mockAggregate(String groupKey, long count, Long totalCents) {
+        PaymentRepository.PaymentAggregate aggregate = mock(PaymentRepository.PaymentAggregate.class);
+        when(aggregate.getGroupKey()).thenReturn(groupKey);
+        when(aggregate.getPaymentCount()).thenReturn(count);
+        when(aggregate.getTotalAmountCents()).thenReturn(totalCents);
+        return aggregate;
+    }
+
+}
@@ -0,0 +1,148 @@
+package com.caiohbs.crowdcontrol.service;
+
+import com.caiohbs.crowdcontrol.exception.ResourceNotFoundException;
+import com.caiohbs.crowdcontrol.exception.ValidationErrorException;
+import com.caiohbs.crowdcontrol.model.PayrollChunkStatus;
+import com.caiohbs.crowdcontrol.model.PayrollRun;
+import com.caiohbs.crowdcontrol.model.PayrollRunChunk;
+import com.caiohbs.crowdcontrol.model.PayrollRunStatus;
+import com.caiohbs.crowdcontrol.repository.PayrollRunChunkRepository;
+import com.caiohbs.crowdcontrol.repository.PayrollRunRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("test")
+class PayrollServiceTest {
+
+    private static final YearMonth PERIOD = YearMonth.of(2024, 3);
+
+    @Mock
+    PayrollBatchService payrollBatchService;
+    @Mock
+    PayrollRunRepository payrollRunRepository;
+    @Mock
+    PayrollRunChunkRepository payrollRunChunkRepository;
+
+    private PayrollService payrollService;
+
+    private final PayrollRun newRun = new PayrollRun("2024-03", 3, 3);
+    private final PayrollRunChunk firstChunk = new PayrollRunChunk(1L, 0, 1L, 1L);
+    private final PayrollRunChunk secondChunk = new PayrollRunChunk(1L, 1, 2L, 2L);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        payrollService = new PayrollService(
+                payrollBatchService, payrollRunRepository, payrollRunChunkRepository, 4, 500
+        );
+        payrollService.startExecutors();
+        when(payrollBatchService.prepareRun(eq(PERIOD), anyInt())).thenReturn(newRun);
+        when(payrollRunChunkRepository.findByRunIdAndStatusNotOrderByChunkIndex(any(), eq(PayrollChunkStatus.DONE)))
+                .thenReturn(List.of(firstChunk, secondChunk));
+    }
+
+    @AfterEach
+    void tearDown() {
+        payrollService.stopExecutors();
+    }
+
+    @Test
+    @DisplayName("Should process every unfinished chunk and complete the run")
+    void runPayroll_Success() {
+
+        when(payrollBatchService.processChunk(any(), eq(PERIOD))).thenReturn(1);
+
+        payrollService.runPayroll(PERIOD);
+
+        verify(payrollBatchService, times(1)).processChunk(firstChunk, PERIOD);
+        verify(payrollBatchService, times(1)).processChunk(secondChunk, PERIOD);
+        verify(payrollBatchService, times(1)).finishRun(newRun.getRunId(), true);
+
+    }
+
+    @Test
+    @DisplayName("Should leave a completed run alone")
+    void runPayroll_AlreadyCompleted() {
+
+        newRun.setStatus(PayrollRunStatus.COMPLETED);
+
+        payrollService.runPayroll(PERIOD);
+
+        verify(payrollBatchService, never()).processChunk(any(), any());
+        verify(payrollBatchService, never()).finishRun(any(), anyBoolean());
+
+    }
+
+    @Test
+    @DisplayName("Should mark failed chunks and the run as failed, keeping the other chunks")
+    void runPayroll_ChunkFails() {
+
+        when(payrollBatchService.processChunk(firstChunk, PERIOD)).thenReturn(1);
+        when(payrollBatchService.processChunk(secondChunk, PERIOD)).thenThrow(new IllegalStateException("boom"));
+
+        payrollService.runPayroll(PERIOD);
+
+        verify(payrollBatchService, times(1)).markChunkFailed(secondChunk);
+        verify(payrollBatchService, never()).markChunkFailed(firstChunk);
+        verify(payrollBatchService, times(1)).finishRun(newRun.getRunId(), false);
+
+    }
+
+    @Test
+    @DisplayName("Should queue the scheduled run behind one in progress without blocking the scheduler")
+    void runScheduledPayroll_QueuedBehindRunningPayroll() throws InterruptedException {
+
+        YearMonth currentPeriod = YearMonth.now();
+        PayrollRun currentRun = new PayrollRun(currentPeriod.toString(), 3, 3);
+        when(payrollBatchService.prepareRun(eq(currentPeriod), anyInt())).thenReturn(currentRun);
+        CountDownLatch processing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(payrollBatchService.processChunk(any(), eq(PERIOD))).thenAnswer(invocation -> {
+            processing.countDown();
+            release.await();
+            return 1;
+        });
+
+        payrollService.startPayroll(PERIOD);
+        assertTrue(processing.await(5, TimeUnit.SECONDS));
+        payrollService.runScheduledPayroll();
+        verify(payrollBatchService, never()).prepareRun(eq(currentPeriod), anyInt());
+
+        release.countDown();
+        verify(payrollBatchService, timeout(5000).times(2)).processChunk(any(), eq(currentPeriod));
+        verify(payrollBatchService, timeout(5000).times(2)).finishRun(any(), eq(true));
+
+    }
+
+    @Test
+    @DisplayName("Should refuse to run payroll for a future period")
+    void startPayroll_FailedFuturePeriod() {
+        assertThrows(ValidationErrorException.class,
+                () -> payrollService.startPayroll(YearMonth.now().plusMonths(1)));
+    }
+
+    @Test
+    @DisplayName("Should throw ResourceNotFoundException when payroll never ran for the period")
+    void retrieveRun_Failed() {
+
+        when(payrollRunRepository.findByPayPeriod("2024-03")).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> payrollService.retrieveRun(PERIOD));
+
+    }
+
+}
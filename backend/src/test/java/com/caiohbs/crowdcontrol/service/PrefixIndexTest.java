@@ -0,0 +1,132 @@
+package com.caiohbs.crowdcontrol.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+class PrefixIndexTest {
+
+    private PrefixIndex index;
+
+    @BeforeEach
+    void setUp() {
+
+        index = new PrefixIndex.Builder()
+                .add(1L, List.of("John Silva", "Silva John", "john@email.com"))
+                .add(2L, List.of("Maria João", "João Maria", "maria@email.com"))
+                .add(3L, List.of("Joana Souza", "Souza Joana", "joana@email.com"))
+                .build();
+
+    }
+
+    @Test
+    @DisplayName("Should find owners by prefix in alphabetical order, ignoring case and accents")
+    void lookup_Success() {
+
+        assertArrayEquals(new long[]{3L, 2L, 1L}, index.lookup("JO", 10));
+        assertArrayEquals(new long[]{2L}, index.lookup("joão", 10));
+        assertArrayEquals(new long[]{3L, 2L}, index.lookup("jo", 2));
+        assertArrayEquals(new long[]{1L}, index.lookup("silva   j", 10));
+        assertArrayEquals(new long[0], index.lookup("pedro", 10));
+        assertArrayEquals(new long[0], index.lookup(" ", 10));
+
+    }
+
+    @Test
+    @DisplayName("Should keep a trailing space so only whole words match")
+    void lookup_TrailingSpace() {
+
+        assertArrayEquals(new long[]{3L, 2L, 1L}, index.lookup("jo", 10));
+        assertArrayEquals(new long[]{1L}, index.lookup("john ", 10));
+
+    }
+
+    @Test
+    @DisplayName("Should return an owner once even if several of its keys match")
+    void lookup_DeduplicatesOwners() {
+
+        index.put(4L, List.of("Mari Mari", "mari@email.com"));
+
+        assertArrayEquals(new long[]{4L, 2L}, index.lookup("mari", 10));
+
+    }
+
+    @Test
+    @DisplayName("Should apply updates and removals")
+    void putAndRemove_Success() {
+
+        index.put(1L, List.of("Johnny Souza", "Souza Johnny", "johnny@email.com"));
+        index.remove(3L);
+
+        assertArrayEquals(new long[]{2L, 1L}, index.lookup("jo", 10));
+        assertArrayEquals(new long[0], index.lookup("silva", 10));
+        assertArrayEquals(new long[]{1L}, index.lookup("souza", 10));
+
+    }
+
+    @Test
+    @DisplayName("Should match a brute force scan through random changes and merges")
+    void lookup_MatchesBruteForce() {
+
+        Random random = new Random(42);
+        Map<Long, List<String>> keysByOwner = new HashMap<>();
+        PrefixIndex.Builder builder = new PrefixIndex.Builder();
+        for (long owner = 0; owner < 3000; owner++) {
+            List<String> keys = List.of(randomWord(random), randomWord(random) + " " + randomWord(random));
+            builder.add(owner, keys);
+            keysByOwner.put(owner, keys);
+        }
+        PrefixIndex randomIndex = builder.build();
+
+        // Enough changes to go through several merges.
+        for (int change = 0; change < 20000; change++) {
+            long owner = random.nextInt(4000);
+            if (random.nextInt(4) == 0) {
+                randomIndex.remove(owner);
+                keysByOwner.remove(owner);
+            } else {
+                List<String> keys = List.of(randomWord(random), randomWord(random));
+                randomIndex.put(owner, keys);
+                keysByOwner.put(owner, keys);
+            }
+
+            if (change % 100 == 0) {
+                String prefix = randomWord(random).substring(0, 1 + random.nextInt(2));
+                assertArrayEquals(bruteForce(keysByOwner, prefix, 20), randomIndex.lookup(prefix, 20), prefix);
+            }
+        }
+
+    }
+
+    private static long[] bruteForce(Map<Long, List<String>> keysByOwner, String prefix, int limit) {
+
+        // The first matching key of each owner, in key and then owner order.
+        TreeMap<String, TreeSet<Long>> matches = new TreeMap<>();
+        keysByOwner.forEach((owner, keys) -> keys.stream()
+                .map(PrefixIndex::normalize)
+                .filter(key -> key.startsWith(prefix))
+                .forEach(key -> matches.computeIfAbsent(key, newKey -> new TreeSet<>()).add(owner)));
+
+        LinkedHashSet<Long> owners = new LinkedHashSet<>();
+        matches.values().forEach(owners::addAll);
+        return owners.stream().limit(limit).mapToLong(Long::longValue).toArray();
+
+    }
+
+    private static String randomWord(Random random) {
+
+        StringBuilder word = new StringBuilder();
+        for (int i = 0, length = 3 + random.nextInt(4); i < length; i++) {
+            word.append((char) ('a' + random.nextInt(6)));
+        }
+        return word.toString();
+
+    }
+
+}
@@ -2,7 +2,9 @@ package com.caiohbs.crowdcontrol.service;
 
 import com.caiohbs.crowdcontrol.dto.RoleUpdateDTO;
 import com.caiohbs.crowdcontrol.exception.NameTakenException;
+import com.caiohbs.crowdcontrol.exception.PreconditionFailedException;
 import com.caiohbs.crowdcontrol.exception.ResourceNotFoundException;
+import com.caiohbs.crowdcontrol.model.Money;
 import com.caiohbs.crowdcontrol.model.Role;
 import com.caiohbs.crowdcontrol.model.User;
 import com.caiohbs.crowdcontrol.repository.RoleRepository;
@@ -16,6 +18,7 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.time.LocalDate;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,10 +32,12 @@ class RoleServiceTest {
     RoleRepository roleRepository;
     @Mock
     UserRepository userRepository;
+    @Mock
+    ResourceVersionService resourceVersionService;
     @InjectMocks
     RoleService roleService;
 
-    private final Role newRole = new Role("TEST_ROLE", 1, 20.0, List.of("DELETE_GENERAL"));
+    private final Role newRole = new Role("TEST_ROLE", 1, Money.of("20.00"), List.of("DELETE_GENERAL"));
 
     private final User newUser = new User("John", "Doe", "test@email.com", "789",
             LocalDate.now().minusYears(18), LocalDate.now(), null, null, List.of(), null);
@@ -51,6 +56,7 @@ class RoleServiceTest {
         roleService.createRole(newRole);
 
         verify(roleRepository, times(1)).save(newRole);
+        verify(resourceVersionService, times(1)).rolesChanged();
 
     }
 
@@ -97,7 +103,7 @@ class RoleServiceTest {
     @DisplayName("Should successfully retrieve all Roles in DB")
     void retrieveAllRoles_Success() {
 
-        Role newRole_ = new Role("NEW_TEST_ROLE", 1, 20.0, List.of("UPDATE_GENERAL"));
+        Role newRole_ = new Role("NEW_TEST_ROLE", 1, Money.of("20.00"), List.of("UPDATE_GENERAL"));
 
         when(roleRepository.findAll()).thenReturn(List.of(newRole, newRole_));
 
@@ -127,11 +133,11 @@ class RoleServiceTest {
     @DisplayName("Should successfully update an existing Role")
     void updateRole_SuccessMaxNumUsers() {
 
-        RoleUpdateDTO updateDTO = new RoleUpdateDTO(true, 2, false, 0);
+        RoleUpdateDTO updateDTO = new RoleUpdateDTO(true, 2, false, null);
 
         when(roleRepository.findById(1L)).thenReturn(Optional.of(newRole));
 
-        roleService.updateRole(1L, updateDTO);
+        roleService.updateRole(1L, updateDTO, null);
 
         verify(roleRepository, times(1)).save(newRole);
 
@@ -141,25 +147,39 @@ class RoleServiceTest {
     @DisplayName("Should successfully update an existing Role")
     void updateRole_SuccessSalary() {
 
-        RoleUpdateDTO updateDTO = new RoleUpdateDTO(false, 0, true, 200.0);
+        RoleUpdateDTO updateDTO = new RoleUpdateDTO(false, 0, true, Money.of("200.00"));
 
         when(roleRepository.findById(1L)).thenReturn(Optional.of(newRole));
 
-        roleService.updateRole(1L, updateDTO);
+        roleService.updateRole(1L, updateDTO, null);
 
         verify(roleRepository, times(1)).save(newRole);
 
     }
 
+    @Test
+    @DisplayName("Should fail to update Role because it was modified since the client read it")
+    void updateRole_FailedVersionMismatch() {
+
+        RoleUpdateDTO updateDTO = new RoleUpdateDTO(false, 0, true, Money.of("200.00"));
+
+        when(roleRepository.findById(1L)).thenReturn(Optional.of(newRole));
+
+        assertThrows(PreconditionFailedException.class, () -> roleService.updateRole(1L, updateDTO, Collections.singleton(3L)));
+        verify(roleRepository, never()).save(newRole);
+        verify(resourceVersionService, never()).rolesChanged();
+
+    }
+
     @Test
     @DisplayName("Should fail to update Role because it was not found")
     void updateRole_FailedRoleNotFound() throws ResourceNotFoundException {
 
-        RoleUpdateDTO updateDTO = new RoleUpdateDTO(false, 0, false, 0.0);
+        RoleUpdateDTO updateDTO = new RoleUpdateDTO(false, 0, false, null);
 
         when(roleRepository.findById(1L)).thenReturn(Optional.empty());
 
-        assertThrows(ResourceNotFoundException.class, () -> roleService.updateRole(1L, updateDTO));
+        assertThrows(ResourceNotFoundException.class, () -> roleService.updateRole(1L, updateDTO, null));
 
     }
 
@@ -1,6 +1,9 @@
 package com.caiohbs.crowdcontrol.service;
 
+import com.caiohbs.crowdcontrol.dto.AbsenceDayDTO;
+import com.caiohbs.crowdcontrol.dto.AbsentUserDTO;
 import com.caiohbs.crowdcontrol.exception.ResourceNotFoundException;
+import com.caiohbs.crowdcontrol.exception.ValidationErrorException;
 import com.caiohbs.crowdcontrol.model.SickNote;
 import com.caiohbs.crowdcontrol.model.User;
 import com.caiohbs.crowdcontrol.repository.SickNoteRepository;
@@ -30,6 +33,12 @@ class SickNoteServiceTest {
     UserRepository userRepository;
     @Mock
     UserInfoService userInfoService;
+    @Mock
+    AbsenceIndexService absenceIndexService;
+    @Mock
+    AbsenceAnalyticsService absenceAnalyticsService;
+    @Mock
+    ResourceVersionService resourceVersionService;
     @InjectMocks
     SickNoteService sickNoteService;
 
@@ -53,6 +62,32 @@ class SickNoteServiceTest {
 
         verify(userRepository, times(1)).findById(1L);
         verify(sickNoteRepository, times(1)).save(any(SickNote.class));
+        verify(absenceIndexService, times(1)).add(any(SickNote.class));
+        verify(absenceAnalyticsService, times(1)).addSickNote(any(SickNote.class));
+        verify(resourceVersionService, times(1)).sickNotesChanged(1L);
+
+    }
+
+    @Test
+    @DisplayName("Should fail to create SickNote overlapping one of the User's without querying the DB")
+    void createSickNote_FailedOverlap() {
+
+        doThrow(new ValidationErrorException("Sick note overlaps an existing sick note of the user."))
+                .when(absenceIndexService).checkNoOverlap(1L, newSickNote.getSickNoteDate(), newSickNote.getSickNoteDate());
+
+        assertThrows(ValidationErrorException.class, () -> sickNoteService.createSickNote(newSickNote, 1L));
+        verifyNoInteractions(userRepository, sickNoteRepository);
+
+    }
+
+    @Test
+    @DisplayName("Should fail to create SickNote ending before it starts")
+    void createSickNote_FailedInvalidRange() {
+
+        SickNote invalidNote = new SickNote("test.pdf", LocalDate.now(), LocalDate.now().minusDays(1), newUser);
+
+        assertThrows(ValidationErrorException.class, () -> sickNoteService.createSickNote(invalidNote, 1L));
+        verifyNoInteractions(absenceIndexService, sickNoteRepository);
 
     }
 
@@ -138,6 +173,8 @@ class SickNoteServiceTest {
 
         verify(sickNoteRepository, times(1)).findById(1L);
         verify(sickNoteRepository, times(1)).delete(newSickNote);
+        verify(absenceIndexService, times(1)).remove(newSickNote);
+        verify(absenceAnalyticsService, times(1)).removeSickNote(newSickNote);
 
     }
 
@@ -151,4 +188,41 @@ class SickNoteServiceTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("Should list every day of the range with its absent users")
+    void retrieveAbsenceCalendar_Success() {
+
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        SickNoteRepository.Absence absence = mock(SickNoteRepository.Absence.class);
+        // Starts before the calendar and ends on its second day.
+        when(absence.getStartDate()).thenReturn(from.minusDays(3));
+        when(absence.getEndDate()).thenReturn(from.plusDays(1));
+        when(absence.getUserId()).thenReturn(1L);
+        when(absence.getFirstName()).thenReturn("John");
+        when(absence.getLastName()).thenReturn("Doe");
+        when(sickNoteRepository.findAbsences(from, from.plusDays(2))).thenReturn(List.of(absence));
+
+        List<AbsenceDayDTO> result = sickNoteService.retrieveAbsenceCalendar(from, from.plusDays(2));
+
+        assertEquals(3, result.size());
+        assertEquals(List.of(new AbsentUserDTO(1L, "John", "Doe")), result.getFirst().absentUsers());
+        assertEquals(List.of(new AbsentUserDTO(1L, "John", "Doe")), result.get(1).absentUsers());
+        assertTrue(result.getLast().absentUsers().isEmpty());
+
+    }
+
+    @Test
+    @DisplayName("Should fail to build the absence calendar for an invalid or too long range")
+    void retrieveAbsenceCalendar_FailedInvalidRange() {
+
+        LocalDate from = LocalDate.of(2024, 1, 1);
+
+        assertThrows(ValidationErrorException.class,
+                () -> sickNoteService.retrieveAbsenceCalendar(from, from.minusDays(1)));
+        assertThrows(ValidationErrorException.class,
+                () -> sickNoteService.retrieveAbsenceCalendar(from, from.plusYears(2)));
+        verifyNoInteractions(sickNoteRepository);
+
+    }
+
+}
@@ -1,6 +1,7 @@
 package com.caiohbs.crowdcontrol.service;
 
 import com.caiohbs.crowdcontrol.dto.UserInfoUpdateDTO;
+import com.caiohbs.crowdcontrol.exception.PreconditionFailedException;
 import com.caiohbs.crowdcontrol.exception.ResourceNotFoundException;
 import com.caiohbs.crowdcontrol.exception.ValidationErrorException;
 import com.caiohbs.crowdcontrol.model.User;
@@ -16,6 +17,7 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.time.LocalDate;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,6 +32,8 @@ class UserInfoServiceTest {
     UserRepository userRepository;
     @Mock
     UserInfoRespository userInfoRespository;
+    @Mock
+    UserSearchService userSearchService;
     @InjectMocks
     UserInfoService userInfoService;
 
@@ -53,6 +57,7 @@ class UserInfoServiceTest {
 
         verify(userRepository, times(1)).findById(1L);
         verify(userInfoRespository, times(1)).save(newInfo);
+        verify(userSearchService, times(1)).indexUser(any(User.class), eq(newInfo));
 
     }
 
@@ -103,7 +108,7 @@ class UserInfoServiceTest {
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(newUser));
 
-        String newPfpName = userInfoService.updateInfo(1L, updateDTO);
+        String newPfpName = userInfoService.updateInfo(1L, updateDTO, null);
 
         verify(userInfoRespository, times(1)).save(userInfo);
 
@@ -123,7 +128,7 @@ class UserInfoServiceTest {
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(newUser));
 
-        String result = userInfoService.updateInfo(1L, updateDTO);
+        String result = userInfoService.updateInfo(1L, updateDTO, null);
 
         verify(userInfoRespository, times(1)).save(userInfo);
 
@@ -143,7 +148,7 @@ class UserInfoServiceTest {
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(newUser));
 
-        String result = userInfoService.updateInfo(1L, updateDTO);
+        String result = userInfoService.updateInfo(1L, updateDTO, null);
 
         verify(userInfoRespository, times(1)).save(userInfo);
 
@@ -163,7 +168,7 @@ class UserInfoServiceTest {
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(newUser));
 
-        String result = userInfoService.updateInfo(1L, updateDTO);
+        String result = userInfoService.updateInfo(1L, updateDTO, null);
 
         verify(userInfoRespository, times(1)).save(userInfo);
 
@@ -171,6 +176,22 @@ class UserInfoServiceTest {
 
     }
 
+    @Test
+    @DisplayName("Should fail to update UserInfo because it was modified since the client read it")
+    void updateInfo_FailedVersionMismatch() {
+
+        newUser.setUserInfo(userInfo);
+        UserInfoUpdateDTO updateDTO = new UserInfoUpdateDTO(
+                false, "", false, "",
+                true, "New bio", false, ""
+        );
+        when(userRepository.findById(1L)).thenReturn(Optional.of(newUser));
+
+        assertThrows(PreconditionFailedException.class, () -> userInfoService.updateInfo(1L, updateDTO, Collections.singleton(3L)));
+        verify(userInfoRespository, never()).save(userInfo);
+
+    }
+
     @Test
     @DisplayName("Should fail to update UserInfo because User can't be found")
     void updateInfo_FailedUserNotFound() throws ResourceNotFoundException {
@@ -181,7 +202,7 @@ class UserInfoServiceTest {
         );
         when(userRepository.findById(1L)).thenReturn(Optional.empty());
 
-        assertThrows(ResourceNotFoundException.class, () -> userInfoService.updateInfo(1L, updateDTO));
+        assertThrows(ResourceNotFoundException.class, () -> userInfoService.updateInfo(1L, updateDTO, null));
 
     }
 
@@ -195,7 +216,7 @@ class UserInfoServiceTest {
         );
         when(userRepository.findById(1L)).thenReturn(Optional.of(newUser));
 
-        assertThrows(ValidationErrorException.class, () -> userInfoService.updateInfo(1L, updateDTO));
+        assertThrows(ValidationErrorException.class, () -> userInfoService.updateInfo(1L, updateDTO, null));
 
     }
 
@@ -211,7 +232,7 @@ class UserInfoServiceTest {
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(newUser));
 
-        assertThrows(ValidationErrorException.class, () -> userInfoService.updateInfo(1L, updateDTO));
+        assertThrows(ValidationErrorException.class, () -> userInfoService.updateInfo(1L, updateDTO, null));
 
     }
 
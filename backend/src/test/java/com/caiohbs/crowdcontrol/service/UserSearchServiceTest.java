@@ -0,0 +1,200 @@
+package com.caiohbs.crowdcontrol.service;
+
+import com.caiohbs.crowdcontrol.dto.UserSearchPageDTO;
+import com.caiohbs.crowdcontrol.dto.UserSearchResultDTO;
+import com.caiohbs.crowdcontrol.dto.UserSuggestionDTO;
+import com.caiohbs.crowdcontrol.exception.ValidationErrorException;
+import com.caiohbs.crowdcontrol.model.User;
+import com.caiohbs.crowdcontrol.model.UserInfo;
+import com.caiohbs.crowdcontrol.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("test")
+class UserSearchServiceTest {
+
+    @Mock
+    UserRepository userRepository;
+
+    private UserSearchService userSearchService;
+
+    private final UserRepository.SearchDocument john = document(1L, "John", "Silva", "Brazilian");
+    private final UserRepository.SearchDocument maria = document(2L, "Maria", "Silva", "Portuguese");
+
+    @BeforeEach
+    void setUp() {
+
+        MockitoAnnotations.openMocks(this);
+        userSearchService = new UserSearchService(userRepository, 1);
+
+        // Read one user per batch, the last batch being empty.
+        when(userRepository.findSearchDocuments(eq(Long.MIN_VALUE), any(Pageable.class))).thenReturn(List.of(john));
+        when(userRepository.findSearchDocuments(eq(1L), any(Pageable.class))).thenReturn(List.of(maria));
+        when(userRepository.findSearchDocuments(eq(2L), any(Pageable.class))).thenReturn(List.of());
+        when(userRepository.findSearchDocumentsByIds(anyCollection())).thenAnswer(invocation ->
+                invocation.<Collection<Long>>getArgument(0).stream()
+                        .map(id -> id == 1L ? john : maria)
+                        .toList()
+        );
+
+        assertEquals(2, userSearchService.rebuild());
+
+    }
+
+    @Test
+    @DisplayName("Should find every matching user for callers allowed to read everyone")
+    void search_Success() {
+
+        UserSearchPageDTO result = userSearchService.search("silva", null, 0, 20);
+
+        assertEquals(2, result.totalHits());
+        assertEquals(
+                List.of(1L, 2L),
+                result.results().stream().map(UserSearchResultDTO::userId).toList()
+        );
+        assertEquals("john@email.com", result.results().getFirst().username());
+
+    }
+
+    @Test
+    @DisplayName("Should only find the caller when they may only read themselves")
+    void search_RestrictedToCaller() {
+
+        UserSearchPageDTO result = userSearchService.search("silva", 2L, 0, 20);
+
+        assertEquals(1, result.totalHits());
+        assertEquals(2L, result.results().getFirst().userId());
+
+    }
+
+    @Test
+    @DisplayName("Should apply writes and deletions to the index")
+    void indexUserAndRemoveUsers_Success() {
+
+        User user = new User("Johnny", "Souza", "johnny@email.com", "123",
+                LocalDate.now().minusYears(20), LocalDate.now(), null, List.of(), List.of(), null);
+        user.setUserId(1L);
+
+        userSearchService.indexUser(user, new UserInfo(user, "pfp.png", "ANY", "", "Chilean"));
+        assertEquals(0, userSearchService.search("brazilian", null, 0, 20).totalHits());
+        assertEquals(1, userSearchService.search("chilean", null, 0, 20).totalHits());
+
+        userSearchService.removeUsers(List.of(2L));
+        assertEquals(0, userSearchService.search("maria", null, 0, 20).totalHits());
+        verify(userRepository, never()).findSearchDocumentsByIds(List.of());
+
+    }
+
+    @Test
+    @DisplayName("Should replay onto the rebuilt index the changes committed while it ran")
+    void rebuild_ConcurrentChanges() {
+
+        User pedro = new User("Pedro", "Souza", "pedro@email.com", "123",
+                LocalDate.now().minusYears(20), LocalDate.now(), null, List.of(), List.of(), null);
+        pedro.setUserId(3L);
+
+        // Maria is deleted after the rebuild read her and Pedro created after
+        // it read past his ID.
+        when(userRepository.findSearchDocuments(eq(2L), any(Pageable.class))).thenAnswer(invocation -> {
+            userSearchService.removeUsers(List.of(2L));
+            userSearchService.indexUser(pedro, new UserInfo(pedro, "pfp.png", "ANY", "", "Chilean"));
+            return List.of();
+        });
+
+        assertEquals(2, userSearchService.rebuild());
+
+        assertEquals(0, userSearchService.search("portuguese", null, 0, 20).totalHits());
+        assertEquals(1, userSearchService.search("chilean", null, 0, 20).totalHits());
+        assertEquals(1, userSearchService.search("silva", null, 0, 20).totalHits());
+
+    }
+
+    @Test
+    @DisplayName("Should suggest users by the start of their name or e-mail")
+    void suggest_Success() {
+
+        assertEquals(
+                List.of(1L, 2L),
+                userSearchService.suggest("Silva", 10).stream().map(UserSuggestionDTO::userId).toList()
+        );
+        assertEquals(
+                List.of(new UserSuggestionDTO(2L, "maria@email.com", "Maria", "Silva")),
+                userSearchService.suggest("mar", 10)
+        );
+        assertEquals(List.of(), userSearchService.suggest("pedro", 10));
+        verify(userRepository, never()).findSearchDocumentsByIds(List.of());
+
+    }
+
+    @Test
+    @DisplayName("Should keep suggestions up to date with writes and deletions")
+    void suggest_AfterIndexUserAndRemoveUsers() {
+
+        User user = new User("Johnny", "Souza", "johnny@email.com", "123",
+                LocalDate.now().minusYears(20), LocalDate.now(), null, List.of(), List.of(), null);
+        user.setUserId(1L);
+
+        userSearchService.indexUser(user, null);
+        userSearchService.removeUsers(List.of(2L));
+
+        assertEquals(List.of(), userSearchService.suggest("silva", 10));
+        assertEquals(
+                List.of(1L),
+                userSearchService.suggest("souza joh", 10).stream().map(UserSuggestionDTO::userId).toList()
+        );
+
+    }
+
+    @Test
+    @DisplayName("Should fail on a blank prefix or a limit out of bounds")
+    void suggest_FailedInvalidParameters() {
+
+        assertThrows(ValidationErrorException.class, () -> userSearchService.suggest(" ", 10));
+        assertThrows(ValidationErrorException.class, () -> userSearchService.suggest("jo", 0));
+        assertThrows(ValidationErrorException.class, () -> userSearchService.suggest("jo", 51));
+
+    }
+
+    @Test
+    @DisplayName("Should fail on a blank query or a page out of bounds")
+    void search_FailedInvalidParameters() {
+
+        assertThrows(ValidationErrorException.class, () -> userSearchService.search(" ", null, 0, 20));
+        assertThrows(ValidationErrorException.class, () -> userSearchService.search("silva", null, 0, 101));
+        assertThrows(ValidationErrorException.class, () -> userSearchService.search("silva", null, -1, 20));
+        assertThrows(ValidationErrorException.class, () -> userSearchService.search("silva", null, 500, 20));
+        assertThrows(ValidationErrorException.class,
+                () -> userSearchService.search("silva", null, Integer.MAX_VALUE, 20));
+
+    }
+
+    private static UserRepository.SearchDocument document(
+            Long userId, String firstName, String lastName, String nationality
+    ) {
+
+        UserRepository.SearchDocument document = mock(UserRepository.SearchDocument.class);
+        when(document.getUserId()).thenReturn(userId);
+        when(document.getFirstName()).thenReturn(firstName);
+        when(document.getLastName()).thenReturn(lastName);
+        when(document.getEmail()).thenReturn(firstName.toLowerCase() + "@email.com");
+        when(document.getNationality()).thenReturn(nationality);
+        return document;
+
+    }
+
+}
@@ -1,30 +1,45 @@
 package com.caiohbs.crowdcontrol.service;
 
+import com.caiohbs.crowdcontrol.dto.UserDTO;
+import com.caiohbs.crowdcontrol.dto.UserListingFilterDTO;
+import com.caiohbs.crowdcontrol.dto.UserListingPageDTO;
 import com.caiohbs.crowdcontrol.dto.UserUpdateDTO;
 import com.caiohbs.crowdcontrol.exception.NameTakenException;
+import com.caiohbs.crowdcontrol.exception.PreconditionFailedException;
 import com.caiohbs.crowdcontrol.exception.ResourceNotFoundException;
 import com.caiohbs.crowdcontrol.exception.RoleLimitExceededException;
 import com.caiohbs.crowdcontrol.exception.ValidationErrorException;
+import com.caiohbs.crowdcontrol.model.Money;
 import com.caiohbs.crowdcontrol.model.Role;
 import com.caiohbs.crowdcontrol.model.User;
+import com.caiohbs.crowdcontrol.model.UserSortField;
 import com.caiohbs.crowdcontrol.repository.RoleRepository;
+import com.caiohbs.crowdcontrol.repository.UserListingRepository;
 import com.caiohbs.crowdcontrol.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ActiveProfiles("test")
@@ -34,29 +49,41 @@ class UserServiceTest {
     UserRepository userRepository;
     @Mock
     RoleRepository roleRepository;
-    @InjectMocks
-    UserService userService;
+    @Mock
+    AbsenceIndexService absenceIndexService;
+    @Mock
+    AbsenceAnalyticsService absenceAnalyticsService;
+    @Mock
+    UserSearchService userSearchService;
+    @Mock
+    ResourceVersionService resourceVersionService;
+
+    private UserService userService;
 
     private final User newUser = new User("John", "Doe", "test@email.com", "789",
             LocalDate.now().minusYears(18), LocalDate.now(), null, List.of(), List.of(), null);
 
-    private final Role newRole = new Role("TEST_ROLE", 1, 1.0, List.of("DELETE_GENERAL"));
+    private final Role newRole = new Role("TEST_ROLE", 1, Money.of("1.00"), List.of("DELETE_GENERAL"));
+
+    private static final UserListingFilterDTO NO_FILTER = new UserListingFilterDTO(
+            null, null, null, null, null, null, null
+    );
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        userService = userService(500);
     }
 
     @Test
     @DisplayName("Should successfully create a new user")
     void createUser_Success() {
 
-        when(userRepository.findByEmail(newUser.getUsername())).thenReturn(Optional.empty());
-
         User savedUser = userService.createUser(newUser);
 
-        verify(userRepository, times(1)).save(newUser);
-        verify(userRepository, times(1)).findByEmail(newUser.getUsername());
+        verify(userRepository, times(1)).saveAndFlush(newUser);
+        verify(userRepository, never()).findByEmail(newUser.getUsername());
+        verify(userSearchService, times(1)).indexUser(newUser, null);
 
         assertThat(savedUser).isEqualTo(newUser);
 
@@ -66,12 +93,26 @@ class UserServiceTest {
     @DisplayName("Should throw exception for taken username")
     void createUser_Failed() throws NameTakenException {
 
-        when(userRepository.findByEmail(newUser.getUsername())).thenReturn(Optional.of(new User()));
+        when(userRepository.saveAndFlush(newUser)).thenThrow(new DataIntegrityViolationException(
+                "duplicate key", new SQLException("duplicate key", "23505")
+        ));
 
         assertThrows(NameTakenException.class, () -> userService.createUser(newUser));
 
     }
 
+    @Test
+    @DisplayName("Should not mistake other constraint violations for a taken username")
+    void createUser_FailedOtherConstraint() {
+
+        when(userRepository.saveAndFlush(newUser)).thenThrow(new DataIntegrityViolationException(
+                "null value", new SQLException("null value", "23502")
+        ));
+
+        assertThrows(DataIntegrityViolationException.class, () -> userService.createUser(newUser));
+
+    }
+
     @Test
     @DisplayName("Should retrieve a single user from DB")
     void retrieveSingleUser_Success() {
@@ -122,6 +163,68 @@ class UserServiceTest {
 
     }
 
+    @Test
+    @DisplayName("Should list a page of users with their role and a cursor to the next page")
+    void retrieveUsers_Success() {
+
+        ReflectionTestUtils.setField(newRole, "roleId", 10L);
+        LocalDate registered = LocalDate.of(2024, 3, 1);
+        when(userRepository.findListing(
+                any(), eq(UserSortField.REGISTER_DATE), eq(Sort.Direction.DESC), isNull(), isNull(), eq(3)
+        )).thenReturn(List.of(listedUser(3L, registered, 10L), listedUser(2L, registered, null),
+                listedUser(1L, registered, null)));
+        when(roleRepository.findAllById(any())).thenReturn(List.of(newRole));
+
+        UserListingPageDTO firstPage = userService.retrieveUsers(
+                NO_FILTER, UserSortField.REGISTER_DATE, Sort.Direction.DESC, null, 2
+        );
+
+        assertThat(firstPage.users()).extracting(UserDTO::userId).containsExactly(3L, 2L);
+        assertThat(firstPage.users()).extracting(UserDTO::role).containsExactly("TEST_ROLE", "NO_ROLE");
+        assertThat(firstPage.users().getFirst().authorities()).containsExactly("DELETE_GENERAL");
+        assertThat(firstPage.nextCursor()).isNotNull();
+
+        when(userRepository.findListing(
+                any(), eq(UserSortField.REGISTER_DATE), eq(Sort.Direction.DESC), eq(registered), eq(2L), eq(3)
+        )).thenReturn(List.of(listedUser(1L, registered, null)));
+
+        UserListingPageDTO lastPage = userService.retrieveUsers(
+                NO_FILTER, UserSortField.REGISTER_DATE, Sort.Direction.DESC, firstPage.nextCursor(), 2
+        );
+
+        assertThat(lastPage.users()).extracting(UserDTO::userId).containsExactly(1L);
+        assertThat(lastPage.nextCursor()).isNull();
+
+        assertThrows(ValidationErrorException.class, () -> userService.retrieveUsers(
+                NO_FILTER, UserSortField.REGISTER_DATE, Sort.Direction.ASC, firstPage.nextCursor(), 2
+        ));
+        assertThrows(ValidationErrorException.class, () -> userService.retrieveUsers(
+                NO_FILTER, UserSortField.BIRTH_DATE, Sort.Direction.DESC, firstPage.nextCursor(), 2
+        ));
+
+    }
+
+    @Test
+    @DisplayName("Should reject an inverted range, an invalid cursor or a size out of bounds")
+    void retrieveUsers_FailedInvalidParameters() {
+
+        UserListingFilterDTO invertedRange = new UserListingFilterDTO(
+                null, null, null, LocalDate.now(), LocalDate.now().minusDays(1), null, null
+        );
+
+        assertThrows(ValidationErrorException.class, () -> userService.retrieveUsers(
+                invertedRange, UserSortField.USER_ID, Sort.Direction.ASC, null, 50
+        ));
+        assertThrows(ValidationErrorException.class, () -> userService.retrieveUsers(
+                NO_FILTER, UserSortField.USER_ID, Sort.Direction.ASC, "not a cursor", 50
+        ));
+        assertThrows(ValidationErrorException.class, () -> userService.retrieveUsers(
+                NO_FILTER, UserSortField.USER_ID, Sort.Direction.ASC, null, 201
+        ));
+        verify(userRepository, never()).findListing(any(), any(), any(), any(), any(), anyInt());
+
+    }
+
     @Test
     @DisplayName("Should successfully update username (e-mail)")
     void updateUser_SuccessUsername() {
@@ -130,7 +233,7 @@ class UserServiceTest {
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(newUser));
 
-        userService.updateUser(1L, updateDTO);
+        userService.updateUser(1L, updateDTO, null);
 
         verify(userRepository, times(1)).findById(1L);
         verify(userRepository, times(1)).save(newUser);
@@ -145,7 +248,7 @@ class UserServiceTest {
 
         when(userRepository.findById(1L)).thenReturn(Optional.empty());
 
-        assertThrows(ResourceNotFoundException.class, () -> userService.updateUser(1L, updateDTO));
+        assertThrows(ResourceNotFoundException.class, () -> userService.updateUser(1L, updateDTO, null));
 
     }
 
@@ -159,7 +262,7 @@ class UserServiceTest {
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(newUser));
 
-        userService.updateUser(1L, updateDTO);
+        userService.updateUser(1L, updateDTO, null);
 
         verify(userRepository, times(1)).findById(1L);
         verify(userRepository, times(1)).save(newUser);
@@ -177,7 +280,7 @@ class UserServiceTest {
         when(userRepository.findById(1L)).thenReturn(Optional.of(newUser));
 
         ValidationErrorException exception = assertThrows(ValidationErrorException.class, () -> userService.updateUser(
-                1L, updateDTO
+                1L, updateDTO, null
         ));
 
         assertThat(Objects.equals(exception.getMessage(), "New password and confirm password do not match.")).isTrue();
@@ -195,7 +298,7 @@ class UserServiceTest {
         when(userRepository.findById(1L)).thenReturn(Optional.of(newUser));
 
         ValidationErrorException exception = assertThrows(ValidationErrorException.class, () -> userService.updateUser(
-                1L, updateDTO
+                1L, updateDTO, null
         ));
 
         assertThat(Objects.equals(exception.getMessage(), "Old password is invalid.")).isTrue();
@@ -212,7 +315,7 @@ class UserServiceTest {
         when(userRepository.findById(1L)).thenReturn(Optional.of(newUser));
         when(roleRepository.findByRoleName(newRole.getRoleName())).thenReturn(newRole);
 
-        userService.updateUser(1L, updateDTO);
+        userService.updateUser(1L, updateDTO, null);
 
         verify(userRepository, times(1)).findById(1L);
         verify(roleRepository, times(1)).findByRoleName(newRole.getRoleName());
@@ -220,6 +323,19 @@ class UserServiceTest {
 
     }
 
+    @Test
+    @DisplayName("Should refuse to update a user that was modified since the client read it")
+    void updateUser_FailedVersionMismatch() {
+
+        UserUpdateDTO updateDTO = new UserUpdateDTO("new@email.com", true, "", "", "", false, "", false);
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(newUser));
+
+        assertThrows(PreconditionFailedException.class, () -> userService.updateUser(1L, updateDTO, Collections.singleton(3L)));
+        verify(userRepository, never()).save(newUser);
+
+    }
+
     @Test
     @DisplayName("Should raise exception when trying to find Role")
     void updateUser_Failed_Role() {
@@ -230,7 +346,7 @@ class UserServiceTest {
         when(userRepository.findById(1L)).thenReturn(Optional.of(newUser));
 
         ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class,
-                () -> userService.updateUser(1L, updateDTO)
+                () -> userService.updateUser(1L, updateDTO, null)
         );
 
         assertThat(Objects.equals(exception.getMessage(), "Role not found.")).isTrue();
@@ -248,7 +364,8 @@ class UserServiceTest {
 
         verify(userRepository, times(1)).findUsernamesByRoleId(1L);
         verify(roleRepository, times(1)).findById(1L);
-        verify(userRepository, times(1)).save(newUser);
+        verify(userRepository, never()).save(newUser);
+        assertThat(newUser.getRole()).isEqualTo(newRole);
 
     }
 
@@ -267,10 +384,13 @@ class UserServiceTest {
     @DisplayName("Should successfully delete a user")
     void deleteUser_Success() {
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(newUser));
+        when(userRepository.deleteByIds(List.of(1L))).thenReturn(1);
         userService.deleteUser(1L);
 
-        verify(userRepository, times(1)).delete(newUser);
+        verify(userRepository, times(1)).deleteByIds(List.of(1L));
+        verify(userRepository, never()).findById(1L);
+        verify(absenceIndexService, times(1)).removeUsers(List.of(1L));
+        verify(absenceAnalyticsService, times(1)).removeUsers(List.of(1L));
 
     }
 
@@ -278,10 +398,48 @@ class UserServiceTest {
     @DisplayName("Should throw exception when it fails to find user")
     void deleteUser_Failed() throws ResourceNotFoundException {
 
-        when(userRepository.findById(1L)).thenReturn(Optional.empty());
+        when(userRepository.deleteByIds(List.of(1L))).thenReturn(0);
 
         assertThrows(ResourceNotFoundException.class, () -> userService.deleteUser(1L));
 
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("Should delete users in bulk, splitting the IDs into batches")
+    void deleteUsers_Success() {
+
+        userService = userService(2);
+        when(userRepository.deleteByIds(anyCollection())).thenAnswer(
+                invocation -> invocation.<Collection<Long>>getArgument(0).size()
+        );
+
+        int deleted = userService.deleteUsers(List.of(1L, 2L, 3L, 3L, 4L, 5L));
+
+        assertEquals(5, deleted);
+        verify(userRepository, times(1)).deleteByIds(List.of(1L, 2L));
+        verify(userRepository, times(1)).deleteByIds(List.of(3L, 4L));
+        verify(userRepository, times(1)).deleteByIds(List.of(5L));
+
+    }
+
+    @Test
+    @DisplayName("Should refuse a bulk delete without IDs")
+    void deleteUsers_FailedEmpty() {
+        assertThrows(ValidationErrorException.class, () -> userService.deleteUsers(List.of()));
+    }
+
+    private static UserListingRepository.ListedUser listedUser(Long userId, LocalDate registerDate, Long roleId) {
+        return new UserListingRepository.ListedUser(
+                userId, "user" + userId + "@email.com", "User", "Test", LocalDate.of(1990, 1, 1),
+                registerDate, true, true, roleId, roleId != null ? "TEST_ROLE" : null
+        );
+    }
+
+    private UserService userService(int deleteBatchSize) {
+        return new UserService(
+                userRepository, roleRepository, absenceIndexService, absenceAnalyticsService,
+                userSearchService, resourceVersionService, deleteBatchSize
+        );
+    }
+
+}